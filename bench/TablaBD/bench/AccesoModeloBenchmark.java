@@ -0,0 +1,76 @@
+package TablaBD.bench;
+
+import TablaBD.app.com.ModeloDatos;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mide el recorrido completo de un {@link ModeloDatos} cargado mediante
+ * {@link ModeloDatos#getValueAt(int, int)}, como lo hace un
+ * <code>JTable</code> al pintar o un exportador al leer todas las celdas. El
+ * resultado se reporta por celda.
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+public class AccesoModeloBenchmark {
+
+    private static final int FILAS = 100_000;
+    private static final int COLUMNAS = 16;
+
+    @Param({"false", "true"})
+    public boolean columnar; // Almacenamiento por columnas
+
+    private ModeloDatos modelo;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        ModeloDatos.setAlmacenColumnar(columnar);
+        modelo = new ModeloDatos(BaseEmbebida.preparar(1, FILAS, COLUMNAS), "SELECT * FROM " + BaseEmbebida.TABLA);
+        ModeloDatos.setAlmacenColumnar(false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS * (COLUMNAS + 1))
+    public void recorrerPorFilas(Blackhole bh) {
+        int filas = modelo.getRowCount();
+        int columnas = modelo.getColumnCount();
+        for (int f = 0; f < filas; f++) {
+            for (int c = 0; c < columnas; c++) {
+                bh.consume(modelo.getValueAt(f, c));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS * (COLUMNAS + 1))
+    public void recorrerPorColumnas(Blackhole bh) {
+        int filas = modelo.getRowCount();
+        int columnas = modelo.getColumnCount();
+        for (int c = 0; c < columnas; c++) {
+            for (int f = 0; f < filas; f++) {
+                bh.consume(modelo.getValueAt(f, c));
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package TablaBD.bench;
+
+import TablaBD.app.com.Conexion;
+import TablaBD.app.com.PerfilConexion;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * Base de datos H2 en memoria que sustituye a MySQL y SQL Server en los
+ * benchmarks. H2 se ejecuta en el modo de compatibilidad del SGBD elegido, con
+ * un esquema {@code dbo} como el que usa {@link TablaBD.app.com.Consulta}, de
+ * modo que las mediciones no dependen de la red ni de un servidor externo.
+ *
+ * <p>
+ * La tabla {@code DATOS} tiene una clave primaria {@code ID} y columnas que
+ * alternan enteros, reales, texto y marcas de tiempo; en la variante numérica
+ * alternan {@code INT}, {@code BIGINT} y {@code DOUBLE}.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+final class BaseEmbebida {
+
+    // Atributos
+    static final String TABLA = "DATOS"; // Tabla de prueba
+
+    /**
+     * Constructor privado: la clase solo tiene métodos estáticos.
+     */
+    private BaseEmbebida() {
+    }
+
+    /**
+     * Crea (o reemplaza) la tabla de prueba y devuelve un perfil para usarla.
+     *
+     * @param idSGBD 1 para el modo SQL Server, 2 para el modo MySQL.
+     * @param filas Número de filas a generar.
+     * @param columnas Número de columnas además de la clave.
+     * @return El perfil de conexión a la base embebida.
+     * @throws SQLException Si falla la creación de la tabla.
+     */
+    static PerfilConexion preparar(int idSGBD, int filas, int columnas) throws SQLException {
+        return preparar(idSGBD, filas, columnas, false);
+    }
+
+    /**
+     * Crea (o reemplaza) la tabla de prueba y devuelve un perfil para usarla.
+     *
+     * @param idSGBD 1 para el modo SQL Server, 2 para el modo MySQL.
+     * @param filas Número de filas a generar.
+     * @param columnas Número de columnas además de la clave.
+     * @param numerica {@code true} para que todas las columnas sean numéricas.
+     * @return El perfil de conexión a la base embebida.
+     * @throws SQLException Si falla la creación de la tabla.
+     */
+    static PerfilConexion preparar(int idSGBD, int filas, int columnas, boolean numerica) throws SQLException {
+        String nombre = "tablabd_" + idSGBD + "_" + filas + "_" + columnas + (numerica ? "_num" : "");
+        String url = "jdbc:h2:mem:" + nombre + ";MODE=" + (idSGBD == 1 ? "MSSQLServer" : "MySQL")
+                + ";DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS \"dbo\"\\;SET SCHEMA \"dbo\"";
+        // Las consultas sobre H2 usan el dialecto configurado en la fachada
+        Conexion.setIdSGBD(idSGBD);
+        try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+            crearTabla(conn, filas, columnas, numerica);
+        }
+        return PerfilConexion.deUrl(idSGBD, null, url, "sa", "");
+    }
+
+    /**
+     * Crea la tabla y la llena en lotes.
+     */
+    private static void crearTabla(Connection conn, int filas, int columnas, boolean numerica) throws SQLException {
+        StringBuilder ddl = new StringBuilder("CREATE TABLE ").append(TABLA).append(" (ID INT PRIMARY KEY");
+        StringBuilder insert = new StringBuilder("INSERT INTO ").append(TABLA).append(" VALUES (?");
+        for (int c = 0; c < columnas; c++) {
+            ddl.append(", C").append(c).append(' ').append(numerica ? tipoNumerico(c) : tipo(c));
+            insert.append(", ?");
+        }
+        ddl.append(')');
+        insert.append(')');
+        try (Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + TABLA);
+            st.execute(ddl.toString());
+        }
+        conn.setAutoCommit(false);
+        try (PreparedStatement pstmt = conn.prepareStatement(insert.toString())) {
+            long base = Timestamp.valueOf("2024-01-01 00:00:00").getTime();
+            for (int f = 0; f < filas; f++) {
+                pstmt.setInt(1, f);
+                for (int c = 0; c < columnas; c++) {
+                    if (numerica) {
+                        switch (c % 3) {
+                            case 0 ->
+                                pstmt.setInt(c + 2, f * 31 + c);
+                            case 1 ->
+                                pstmt.setLong(c + 2, f * 7_000_000_000L + c);
+                            default ->
+                                pstmt.setDouble(c + 2, f * 0.5 + c);
+                        }
+                    } else {
+                        switch (c % 4) {
+                            case 0 ->
+                                pstmt.setInt(c + 2, f * 31 + c);
+                            case 1 ->
+                                pstmt.setDouble(c + 2, f * 0.5 + c);
+                            case 2 ->
+                                pstmt.setString(c + 2, "valor-" + (f % 1000));
+                            default ->
+                                pstmt.setTimestamp(c + 2, new Timestamp(base + f * 1000L));
+                        }
+                    }
+                }
+                pstmt.addBatch();
+                if (f % 1000 == 999) {
+                    pstmt.executeBatch();
+                }
+            }
+            pstmt.executeBatch();
+        }
+        conn.commit();
+    }
+
+    /**
+     * Tipo SQL de la columna de prueba según su posición.
+     */
+    private static String tipo(int columna) {
+        return switch (columna % 4) {
+            case 0 ->
+                "INT";
+            case 1 ->
+                "DOUBLE";
+            case 2 ->
+                "VARCHAR(40)";
+            default ->
+                "TIMESTAMP";
+        };
+    }
+
+    /**
+     * Tipo SQL de la columna de prueba numérica según su posición.
+     */
+    private static String tipoNumerico(int columna) {
+        return switch (columna % 3) {
+            case 0 ->
+                "INT";
+            case 1 ->
+                "BIGINT";
+            default ->
+                "DOUBLE";
+        };
+    }
+}
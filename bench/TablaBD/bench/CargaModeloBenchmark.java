@@ -0,0 +1,66 @@
+package TablaBD.bench;
+
+import TablaBD.app.com.ModeloDatos;
+import TablaBD.app.com.PerfilConexion;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mide la carga completa de un resultado en {@link ModeloDatos} (conexión,
+ * ejecución y lectura de todas las filas) para varios tamaños de tabla y
+ * ambos diseños de almacenamiento.
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+public class CargaModeloBenchmark {
+
+    @Param({"1", "2"})
+    public int idSGBD; // 1 modo SQL Server, 2 modo MySQL
+
+    @Param({"1000", "100000"})
+    public int filas;
+
+    @Param({"4", "16"})
+    public int columnas;
+
+    @Param({"false", "true"})
+    public boolean columnar; // Almacenamiento por columnas
+
+    private PerfilConexion perfil;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        perfil = BaseEmbebida.preparar(idSGBD, filas, columnas);
+        ModeloDatos.setAlmacenColumnar(columnar);
+    }
+
+    @TearDown(Level.Trial)
+    public void terminar() {
+        ModeloDatos.setAlmacenColumnar(false);
+    }
+
+    @Benchmark
+    public ModeloDatos loadData() {
+        return new ModeloDatos(perfil, "SELECT * FROM " + BaseEmbebida.TABLA);
+    }
+}
@@ -0,0 +1,95 @@
+package TablaBD.bench;
+
+import TablaBD.app.com.CacheEsquema;
+import TablaBD.app.com.Consulta;
+import TablaBD.app.com.PerfilConexion;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mide las operaciones cortas de {@link Consulta} y {@link PerfilConexion}:
+ * la búsqueda de una fila por clave, la lectura de metadatos de columnas (con
+ * y sin caché de esquema) y la obtención de una conexión del pool.
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+public class ConsultaBenchmark {
+
+    private static final int FILAS = 10_000;
+
+    @Param({"1", "2"})
+    public int idSGBD; // 1 modo SQL Server, 2 modo MySQL
+
+    private PerfilConexion perfil;
+    private Connection conexion; // Conexión reutilizada por las mediciones que no incluyen la conexión
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        perfil = BaseEmbebida.preparar(idSGBD, FILAS, 8);
+        conexion = perfil.getConexion();
+    }
+
+    @TearDown(Level.Trial)
+    public void terminar() {
+        PerfilConexion.liberar(conexion);
+        CacheEsquema.setVigencia(5 * 60_000L);
+    }
+
+    @Benchmark
+    public void getRowById(Blackhole bh) throws SQLException {
+        int id = ThreadLocalRandom.current().nextInt(FILAS);
+        ResultSet rs = Consulta.getRowById(conexion, BaseEmbebida.TABLA, "ID", id);
+        while (rs != null && rs.next()) {
+            bh.consume(rs.getObject(2));
+        }
+    }
+
+    @Benchmark
+    public Object setCommonColumnsTable() {
+        CacheEsquema.setVigencia(5 * 60_000L);
+        Consulta.setCommonColumnsTable(conexion, BaseEmbebida.TABLA, null);
+        return Consulta.getColumnsType();
+    }
+
+    @Benchmark
+    public Object setCommonColumnsTableSinCache() {
+        // Con vigencia cero cada llamada vuelve a leer el catálogo
+        CacheEsquema.setVigencia(0);
+        Consulta.setCommonColumnsTable(conexion, BaseEmbebida.TABLA, null);
+        return Consulta.getColumnsType();
+    }
+
+    @Benchmark
+    public boolean obtenerConexion() throws SQLException {
+        Connection conn = perfil.getConexion();
+        try {
+            return conn.isClosed();
+        } finally {
+            PerfilConexion.liberar(conn);
+        }
+    }
+}
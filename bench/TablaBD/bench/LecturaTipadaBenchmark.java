@@ -0,0 +1,68 @@
+package TablaBD.bench;
+
+import TablaBD.app.com.ModeloDatos;
+import TablaBD.app.com.PerfilConexion;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mide la carga de una tabla ancha de columnas numéricas con la lectura
+ * tipada ({@code getInt}, {@code getLong}, {@code getDouble} y
+ * {@code wasNull}) en el almacenamiento por filas de omisión y en el
+ * almacenamiento por columnas, que escribe los valores directamente en sus
+ * arreglos sin encapsularlos.
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true"})
+public class LecturaTipadaBenchmark {
+
+    @Param({"1", "2"})
+    public int idSGBD; // 1 modo SQL Server, 2 modo MySQL
+
+    @Param({"100000"})
+    public int filas;
+
+    @Param({"16", "64"})
+    public int columnas;
+
+    @Param({"false", "true"})
+    public boolean columnar; // Almacenamiento por columnas en lugar de por filas
+
+    private PerfilConexion perfil;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        perfil = BaseEmbebida.preparar(idSGBD, filas, columnas, true);
+        ModeloDatos.setAlmacenColumnar(columnar);
+    }
+
+    @TearDown(Level.Trial)
+    public void terminar() {
+        ModeloDatos.setAlmacenColumnar(false);
+    }
+
+    @Benchmark
+    public ModeloDatos loadData() {
+        return new ModeloDatos(perfil, "SELECT * FROM " + BaseEmbebida.TABLA);
+    }
+}
@@ -0,0 +1,4 @@
+package TablaBD.bench.jmh_generated;
+public class AccesoModeloBenchmark_jmhType extends AccesoModeloBenchmark_jmhType_B3 {
+}
+
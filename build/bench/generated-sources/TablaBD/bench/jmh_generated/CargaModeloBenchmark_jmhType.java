@@ -0,0 +1,4 @@
+package TablaBD.bench.jmh_generated;
+public class CargaModeloBenchmark_jmhType extends CargaModeloBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package TablaBD.bench.jmh_generated;
+public class ConsultaBenchmark_jmhType extends ConsultaBenchmark_jmhType_B3 {
+}
+
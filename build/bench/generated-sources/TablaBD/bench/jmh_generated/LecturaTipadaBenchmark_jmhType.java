@@ -0,0 +1,4 @@
+package TablaBD.bench.jmh_generated;
+public class LecturaTipadaBenchmark_jmhType extends LecturaTipadaBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,299 @@
+package TablaBD.app.com;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * La clase <code>Agregacion</code> calcula totales y resúmenes por grupo en el
+ * servidor. En lugar de cargar una tabla completa en un {@link ModeloDatos} y
+ * recorrer sus valores, genera una única consulta {@code SELECT ... GROUP BY}
+ * y devuelve un modelo pequeño con el resultado.
+ *
+ * <p>
+ * Las columnas se validan contra el esquema de {@link CacheEsquema}, se
+ * delimitan según el {@link Dialecto} del perfil y los valores de los filtros
+ * se pasan como parámetros de una sentencia preparada. Ejemplo:</p>
+ *
+ * <pre>
+ * ModeloDatos resumen = new Agregacion(perfil, "ventas")
+ *         .agruparPor("region")
+ *         .contar()
+ *         .sumar("importe")
+ *         .promedio("importe")
+ *         .filtrar("anio", "=", 2024)
+ *         .ejecutar();
+ * </pre>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public class Agregacion {
+
+    private static final Set<String> OPERADORES = Set.of("=", "<>", "<", "<=", ">", ">=", "LIKE"); // Operadores admitidos en los filtros
+
+    // Atributos
+    private final PerfilConexion perfil; // Perfil con el que se abre la conexión
+    private final String tabla; // Tabla sobre la que se agrega
+    private final List<String> grupos = new ArrayList<>(); // Columnas de agrupación
+    private final List<String[]> agregados = new ArrayList<>(); // Pares {función, columna}; columna null en COUNT(*)
+    private final List<Filtro> filtros = new ArrayList<>(); // Condiciones del WHERE
+
+    /**
+     * Condición de filtrado sobre una columna.
+     */
+    private record Filtro(String columna, String operador, Object valor) {
+    }
+
+    /**
+     * Crea una agregación sobre una tabla.
+     *
+     * @param perfil El perfil de conexión.
+     * @param tabla Nombre de la tabla.
+     */
+    public Agregacion(PerfilConexion perfil, String tabla) {
+        this.perfil = perfil;
+        this.tabla = tabla;
+    }
+
+    /**
+     * Agrupa el resultado por las columnas indicadas. Cada grupo produce una
+     * fila con los valores de agrupación seguidos de los agregados.
+     *
+     * @param columnas Columnas de agrupación.
+     * @return Esta agregación.
+     */
+    public Agregacion agruparPor(String... columnas) {
+        grupos.addAll(List.of(columnas));
+        return this;
+    }
+
+    /**
+     * Cuenta las filas de cada grupo.
+     *
+     * @return Esta agregación.
+     */
+    public Agregacion contar() {
+        agregados.add(new String[]{"COUNT", null});
+        return this;
+    }
+
+    /**
+     * Cuenta los valores no nulos de una columna.
+     *
+     * @param columna Nombre de la columna.
+     * @return Esta agregación.
+     */
+    public Agregacion contar(String columna) {
+        agregados.add(new String[]{"COUNT", columna});
+        return this;
+    }
+
+    /**
+     * Suma los valores de una columna numérica.
+     *
+     * @param columna Nombre de la columna.
+     * @return Esta agregación.
+     */
+    public Agregacion sumar(String columna) {
+        agregados.add(new String[]{"SUM", columna});
+        return this;
+    }
+
+    /**
+     * Obtiene el valor mínimo de una columna.
+     *
+     * @param columna Nombre de la columna.
+     * @return Esta agregación.
+     */
+    public Agregacion minimo(String columna) {
+        agregados.add(new String[]{"MIN", columna});
+        return this;
+    }
+
+    /**
+     * Obtiene el valor máximo de una columna.
+     *
+     * @param columna Nombre de la columna.
+     * @return Esta agregación.
+     */
+    public Agregacion maximo(String columna) {
+        agregados.add(new String[]{"MAX", columna});
+        return this;
+    }
+
+    /**
+     * Calcula el promedio de una columna numérica.
+     *
+     * @param columna Nombre de la columna.
+     * @return Esta agregación.
+     */
+    public Agregacion promedio(String columna) {
+        agregados.add(new String[]{"AVG", columna});
+        return this;
+    }
+
+    /**
+     * Agrega una condición a la consulta. Las condiciones se combinan con
+     * {@code AND}.
+     *
+     * @param columna Nombre de la columna.
+     * @param operador Uno de {@code =}, {@code <>}, {@code <}, {@code <=},
+     * {@code >}, {@code >=} o {@code LIKE}.
+     * @param valor Valor de comparación; {@code null} con {@code =} o
+     * {@code <>} se traduce a {@code IS NULL} o {@code IS NOT NULL}.
+     * @return Esta agregación.
+     */
+    public Agregacion filtrar(String columna, String operador, Object valor) {
+        String normalizado = operador.trim().toUpperCase(Locale.ROOT);
+        if (!OPERADORES.contains(normalizado)) {
+            throw new IllegalArgumentException("Operador no admitido: " + operador);
+        }
+        filtros.add(new Filtro(columna, normalizado, valor));
+        return this;
+    }
+
+    /**
+     * Genera la consulta SQL de la agregación, validando las columnas contra el
+     * esquema de la tabla.
+     *
+     * @param conn Conexión activa, usada para leer el esquema y el dialecto.
+     * @return La consulta con {@code ?} en lugar de los valores de los filtros.
+     * @throws SQLException Si una columna no existe o no admite la función.
+     */
+    String generarSql(Connection conn) throws SQLException {
+        if (agregados.isEmpty() && grupos.isEmpty()) {
+            throw new SQLException("La agregación no tiene columnas ni funciones");
+        }
+        EsquemaTabla esquema = Consulta.getEsquemaTabla(conn, tabla, perfil.getBase());
+        Dialecto dialecto = Dialecto.de(conn);
+
+        List<String> seleccion = new ArrayList<>();
+        List<String> agrupacion = new ArrayList<>();
+        for (String grupo : grupos) {
+            validar(esquema, grupo);
+            agrupacion.add(dialecto.citar(grupo));
+        }
+        seleccion.addAll(agrupacion);
+        for (String[] agregado : agregados) {
+            String funcion = agregado[0];
+            String columna = agregado[1];
+            if (columna == null) {
+                seleccion.add("COUNT(*) AS " + dialecto.citar(alias(funcion, null)));
+                continue;
+            }
+            int tipo = validar(esquema, columna);
+            if ((funcion.equals("SUM") || funcion.equals("AVG")) && !esNumerico(tipo)) {
+                throw new SQLException("La columna " + columna + " no es numérica; no admite " + funcion);
+            }
+            seleccion.add(dialecto.agregar(funcion, dialecto.citar(columna), esEntero(tipo))
+                    + " AS " + dialecto.citar(alias(funcion, columna)));
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", seleccion))
+                .append(" FROM ").append(tabla);
+        for (int i = 0; i < filtros.size(); i++) {
+            Filtro filtro = filtros.get(i);
+            validar(esquema, filtro.columna());
+            sql.append(i == 0 ? " WHERE " : " AND ").append(dialecto.citar(filtro.columna()));
+            if (filtro.valor() == null && filtro.operador().equals("=")) {
+                sql.append(" IS NULL");
+            } else if (filtro.valor() == null && filtro.operador().equals("<>")) {
+                sql.append(" IS NOT NULL");
+            } else {
+                sql.append(' ').append(filtro.operador()).append(" ?");
+            }
+        }
+        if (!agrupacion.isEmpty()) {
+            String columnas = String.join(", ", agrupacion);
+            sql.append(" GROUP BY ").append(columnas).append(" ORDER BY ").append(columnas);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Ejecuta la agregación en el servidor.
+     *
+     * @return Un modelo con una fila por grupo (o una sola fila si no hay
+     * agrupación): primero las columnas de agrupación y después los agregados
+     * en el orden en que se declararon, con nombres como {@code SUM_importe}.
+     * @throws SQLException Si falla la consulta o una columna no es válida.
+     */
+    public ModeloDatos ejecutar() throws SQLException {
+        Connection conn = perfil.getConexion();
+        try {
+            String sql = generarSql(conn);
+            PreparedStatement pstmt = CacheSentencias.preparar(conn, sql);
+            pstmt.clearParameters();
+            int indice = 1;
+            for (Filtro filtro : filtros) {
+                if (filtro.valor() != null) {
+                    pstmt.setObject(indice++, filtro.valor());
+                }
+            }
+            long inicio = System.nanoTime();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                long inicioLectura = System.nanoTime();
+                MetricasConsulta.registrarEjecucion(sql, inicioLectura - inicio);
+                int columnas = rs.getMetaData().getColumnCount();
+                String[] nombres = new String[columnas];
+                for (int i = 0; i < columnas; i++) {
+                    nombres[i] = rs.getMetaData().getColumnLabel(i + 1);
+                }
+                AlmacenFilas almacen = new AlmacenFilasLista();
+                while (rs.next()) {
+                    Object[] fila = new Object[columnas];
+                    for (int i = 0; i < columnas; i++) {
+                        fila[i] = rs.getObject(i + 1);
+                    }
+                    almacen.agregar(fila);
+                }
+                MetricasConsulta.registrarLectura(sql, System.nanoTime() - inicioLectura, almacen.getFilas());
+                return new ModeloDatos(perfil, nombres, almacen);
+            }
+        } finally {
+            PerfilConexion.liberar(conn);
+        }
+    }
+
+    /**
+     * Comprueba que una columna exista en el esquema.
+     *
+     * @return El tipo JDBC de la columna.
+     */
+    private static int validar(EsquemaTabla esquema, String columna) throws SQLException {
+        if (!esquema.tieneColumna(columna)) {
+            throw new SQLException("La columna " + columna + " no existe en " + esquema.getTabla());
+        }
+        return esquema.getTipo(columna);
+    }
+
+    /**
+     * Nombre de la columna de resultado de un agregado.
+     */
+    private static String alias(String funcion, String columna) {
+        return columna == null ? "COUNT_TOTAL" : funcion + "_" + columna;
+    }
+
+    /**
+     * Indica si un tipo JDBC es entero.
+     */
+    private static boolean esEntero(int tipo) {
+        return tipo == Types.TINYINT || tipo == Types.SMALLINT || tipo == Types.INTEGER || tipo == Types.BIGINT
+                || tipo == Types.BIT || tipo == Types.BOOLEAN;
+    }
+
+    /**
+     * Indica si un tipo JDBC es numérico.
+     */
+    private static boolean esNumerico(int tipo) {
+        return esEntero(tipo) || tipo == Types.DECIMAL || tipo == Types.NUMERIC || tipo == Types.REAL
+                || tipo == Types.FLOAT || tipo == Types.DOUBLE;
+    }
+}
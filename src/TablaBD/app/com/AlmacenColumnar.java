@@ -0,0 +1,785 @@
+package TablaBD.app.com;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Almacenamiento por columnas especializado por tipo. Cada columna se guarda
+ * en un arreglo de tipo primitivo elegido a partir de los tipos JDBC de
+ * {@link ResultSetMetaData}, evitando el encabezado de un arreglo por fila y
+ * el objeto encapsulado de cada valor numérico:
+ *
+ * <ul>
+ * <li>Enteros en {@code int[]} o {@code long[]}, reales en {@code double[]} y
+ * booleanos en un mapa de bits.</li>
+ * <li>Fechas y horas como milisegundos desde la época en {@code long[]}, con
+ * los nanosegundos aparte solo si alguna marca de tiempo los usa.</li>
+ * <li>Cadenas codificadas con diccionario: cada valor distinto se guarda una
+ * sola vez y las filas guardan su código. Si la columna resulta tener casi
+ * todos sus valores distintos, se guardan directamente.</li>
+ * </ul>
+ *
+ * <p>
+ * Los valores nulos se marcan en un mapa de bits por columna. Si llega un
+ * valor que no corresponde al tipo esperado (por ejemplo, un entero sin signo
+ * que el controlador entrega como {@code Long}), la columna pasa a guardar
+ * objetos sin perder datos.</p>
+ *
+ * <p>
+ * Al cargar desde un resultado con {@link #agregarDesde(ResultSet, int)},
+ * cada columna lee su valor con el método tipado que le corresponde
+ * ({@code getInt}, {@code getLong}, {@code getDouble}, {@code getString},
+ * {@code getTimestamp}, ...) y {@code wasNull}, y lo escribe directamente en
+ * su arreglo, sin pasar por la conversión genérica de {@code getObject} ni
+ * encapsular los números. Las columnas se eligen una sola vez, a partir de los
+ * metadatos del resultado.</p>
+ *
+ * <p>
+ * Las fechas y horas se devuelven como {@link java.sql.Date},
+ * {@link java.sql.Time} y {@link Timestamp}, sin importar el tipo que haya
+ * entregado el controlador.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+class AlmacenColumnar implements AlmacenFilas {
+
+    private static final int CAPACIDAD_INICIAL = 64; // Capacidad inicial de cada columna
+
+    private final Columna[] columnas; // Columnas especializadas por tipo
+    private int filas; // Número de filas almacenadas
+
+    /**
+     * Crea un almacenamiento con una columna especializada por cada columna del
+     * resultado.
+     *
+     * @param md Metadatos del resultado.
+     * @throws SQLException Si falla la lectura de los metadatos.
+     */
+    AlmacenColumnar(ResultSetMetaData md) throws SQLException {
+        int columnCount = md.getColumnCount();
+        columnas = new Columna[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnas[i] = crearColumna(md, i + 1);
+        }
+    }
+
+    /**
+     * Crea la columna especializada para una columna de un resultado. A
+     * diferencia de {@link #crearColumna(int)}, considera los enteros sin
+     * signo, que no caben en el tipo con signo del mismo tamaño, y los
+     * {@code BIT} de varios bits, que el controlador entrega como arreglos.
+     *
+     * @param md Metadatos del resultado.
+     * @param columna Índice de la columna (comienza en 1).
+     * @return La columna correspondiente.
+     * @throws SQLException Si falla la lectura de los metadatos.
+     */
+    static Columna crearColumna(ResultSetMetaData md, int columna) throws SQLException {
+        int tipo = md.getColumnType(columna);
+        if (tipo == Types.INTEGER && !md.isSigned(columna)) {
+            return new ColumnaLarga();
+        }
+        if ((tipo == Types.BIGINT && !md.isSigned(columna)) || (tipo == Types.BIT && md.getPrecision(columna) > 1)) {
+            return new ColumnaObjeto();
+        }
+        return crearColumna(tipo);
+    }
+
+    /**
+     * Crea la columna especializada para un tipo JDBC.
+     *
+     * @param tipoJdbc Tipo de {@link Types}.
+     * @return La columna correspondiente.
+     */
+    static Columna crearColumna(int tipoJdbc) {
+        return switch (tipoJdbc) {
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER ->
+                new ColumnaEntera();
+            case Types.BIGINT ->
+                new ColumnaLarga();
+            case Types.DOUBLE, Types.FLOAT ->
+                new ColumnaReal(false);
+            case Types.REAL ->
+                new ColumnaReal(true);
+            case Types.BIT, Types.BOOLEAN ->
+                new ColumnaBooleana();
+            case Types.DATE, Types.TIME, Types.TIMESTAMP ->
+                new ColumnaTemporal(tipoJdbc);
+            case Types.CHAR, Types.VARCHAR, Types.NCHAR, Types.NVARCHAR ->
+                new ColumnaTexto();
+            default ->
+                new ColumnaObjeto();
+        };
+    }
+
+    @Override
+    public int getFilas() {
+        return filas;
+    }
+
+    @Override
+    public Object getValor(int fila, int columna) {
+        if (fila < 0 || fila >= filas) {
+            throw new IndexOutOfBoundsException("Fila " + fila + " fuera de rango: " + filas);
+        }
+        return columnas[columna].getValor(fila);
+    }
+
+    @Override
+    public void agregar(Object[] fila) {
+        for (int c = 0; c < columnas.length; c++) {
+            if (!columnas[c].agregar(fila[c], filas)) {
+                columnas[c] = ColumnaObjeto.desde(columnas[c], filas); // El tipo no coincide: pasa a guardar objetos
+                columnas[c].agregar(fila[c], filas);
+            }
+        }
+        filas++;
+    }
+
+    @Override
+    public void agregarDesde(ResultSet rs, int numeroColumnas) throws SQLException {
+        Columna[] cs = columnas;
+        int fila = filas;
+        for (int c = 0; c < cs.length; c++) {
+            cs[c].leer(rs, c + 1, fila);
+        }
+        filas = fila + 1;
+    }
+
+    @Override
+    public void compactar() {
+        for (Columna columna : columnas) {
+            columna.compactar(filas);
+        }
+    }
+
+    @Override
+    public long getBytesEstimados() {
+        long total = 16 + AlmacenFilas.alinear(16 + 4L * columnas.length);
+        for (Columna columna : columnas) {
+            total += columna.getBytesEstimados();
+        }
+        return total;
+    }
+
+    /**
+     * Obtiene la columna especializada en una posición.
+     *
+     * @param columna Índice de la columna.
+     * @return La columna.
+     */
+    Columna getColumna(int columna) {
+        return columnas[columna];
+    }
+
+    /**
+     * Calcula la nueva capacidad de un arreglo que debe alojar la fila
+     * indicada.
+     */
+    static int crecer(int capacidad, int fila) {
+        return Math.max(fila + 1, Math.max(CAPACIDAD_INICIAL, capacidad + (capacidad >> 1)));
+    }
+
+    /**
+     * Estima los bytes de un mapa de bits.
+     */
+    static long bytesBits(BitSet bits) {
+        return 24 + AlmacenFilas.alinear(16 + (long) bits.size() / 8);
+    }
+
+    /**
+     * Columna especializada. Cada implementación guarda sus valores en el
+     * arreglo de tipo primitivo más compacto para su tipo JDBC.
+     */
+    abstract static class Columna {
+
+        protected final BitSet nulos = new BitSet(); // Filas cuyo valor es nulo
+
+        /**
+         * Obtiene el valor de una fila como objeto.
+         */
+        abstract Object getValor(int fila);
+
+        /**
+         * Guarda el valor de una fila.
+         *
+         * @return {@code false} si el valor no corresponde al tipo de la
+         * columna.
+         */
+        abstract boolean agregar(Object valor, int fila);
+
+        /**
+         * Lee el valor de una fila desde el resultado con el método tipado de
+         * la columna y lo guarda.
+         *
+         * @param rs Resultado posicionado en la fila.
+         * @param indice Índice de la columna en el resultado (comienza en 1).
+         * @param fila Índice de la fila en el almacenamiento.
+         */
+        abstract void leer(ResultSet rs, int indice, int fila) throws SQLException;
+
+        /**
+         * Ajusta la capacidad al número de filas.
+         */
+        abstract void compactar(int filas);
+
+        /**
+         * Estima los bytes ocupados por la columna.
+         */
+        abstract long getBytesEstimados();
+
+        /**
+         * Indica si el valor de una fila es nulo.
+         */
+        boolean esNulo(int fila) {
+            return nulos.get(fila);
+        }
+    }
+
+    /**
+     * Columna de enteros de 32 bits.
+     */
+    static final class ColumnaEntera extends Columna {
+
+        int[] valores = new int[0];
+
+        @Override
+        Object getValor(int fila) {
+            return nulos.get(fila) ? null : valores[fila];
+        }
+
+        @Override
+        boolean agregar(Object valor, int fila) {
+            if (fila >= valores.length) {
+                valores = Arrays.copyOf(valores, crecer(valores.length, fila));
+            }
+            if (valor == null) {
+                nulos.set(fila);
+                return true;
+            }
+            if (valor instanceof Integer || valor instanceof Short || valor instanceof Byte) {
+                valores[fila] = ((Number) valor).intValue();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        void leer(ResultSet rs, int indice, int fila) throws SQLException {
+            if (fila >= valores.length) {
+                valores = Arrays.copyOf(valores, crecer(valores.length, fila));
+            }
+            int valor = rs.getInt(indice);
+            if (rs.wasNull()) {
+                nulos.set(fila);
+            } else {
+                valores[fila] = valor;
+            }
+        }
+
+        @Override
+        void compactar(int filas) {
+            valores = Arrays.copyOf(valores, filas);
+        }
+
+        @Override
+        long getBytesEstimados() {
+            return 16 + AlmacenFilas.alinear(16 + 4L * valores.length) + bytesBits(nulos);
+        }
+    }
+
+    /**
+     * Columna de enteros de 64 bits.
+     */
+    static final class ColumnaLarga extends Columna {
+
+        long[] valores = new long[0];
+
+        @Override
+        Object getValor(int fila) {
+            return nulos.get(fila) ? null : valores[fila];
+        }
+
+        @Override
+        boolean agregar(Object valor, int fila) {
+            if (fila >= valores.length) {
+                valores = Arrays.copyOf(valores, crecer(valores.length, fila));
+            }
+            if (valor == null) {
+                nulos.set(fila);
+                return true;
+            }
+            if (valor instanceof Long || valor instanceof Integer || valor instanceof Short || valor instanceof Byte) {
+                valores[fila] = ((Number) valor).longValue();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        void leer(ResultSet rs, int indice, int fila) throws SQLException {
+            if (fila >= valores.length) {
+                valores = Arrays.copyOf(valores, crecer(valores.length, fila));
+            }
+            long valor = rs.getLong(indice);
+            if (rs.wasNull()) {
+                nulos.set(fila);
+            } else {
+                valores[fila] = valor;
+            }
+        }
+
+        @Override
+        void compactar(int filas) {
+            valores = Arrays.copyOf(valores, filas);
+        }
+
+        @Override
+        long getBytesEstimados() {
+            return 16 + AlmacenFilas.alinear(16 + 8L * valores.length) + bytesBits(nulos);
+        }
+    }
+
+    /**
+     * Columna de números de punto flotante. Las columnas {@code REAL} se
+     * devuelven como {@link Float} y las demás como {@link Double}.
+     */
+    static final class ColumnaReal extends Columna {
+
+        final boolean simple; // true si la columna es de precisión simple
+        double[] valores = new double[0];
+
+        ColumnaReal(boolean simple) {
+            this.simple = simple;
+        }
+
+        @Override
+        Object getValor(int fila) {
+            if (nulos.get(fila)) {
+                return null;
+            }
+            return simple ? (Object) (float) valores[fila] : (Object) valores[fila];
+        }
+
+        @Override
+        boolean agregar(Object valor, int fila) {
+            if (fila >= valores.length) {
+                valores = Arrays.copyOf(valores, crecer(valores.length, fila));
+            }
+            if (valor == null) {
+                nulos.set(fila);
+                return true;
+            }
+            if (simple ? valor instanceof Float : valor instanceof Double) {
+                valores[fila] = ((Number) valor).doubleValue();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        void leer(ResultSet rs, int indice, int fila) throws SQLException {
+            if (fila >= valores.length) {
+                valores = Arrays.copyOf(valores, crecer(valores.length, fila));
+            }
+            double valor = simple ? rs.getFloat(indice) : rs.getDouble(indice);
+            if (rs.wasNull()) {
+                nulos.set(fila);
+            } else {
+                valores[fila] = valor;
+            }
+        }
+
+        @Override
+        void compactar(int filas) {
+            valores = Arrays.copyOf(valores, filas);
+        }
+
+        @Override
+        long getBytesEstimados() {
+            return 24 + AlmacenFilas.alinear(16 + 8L * valores.length) + bytesBits(nulos);
+        }
+    }
+
+    /**
+     * Columna de valores booleanos guardados en un mapa de bits.
+     */
+    static final class ColumnaBooleana extends Columna {
+
+        final BitSet valores = new BitSet();
+
+        @Override
+        Object getValor(int fila) {
+            return nulos.get(fila) ? null : valores.get(fila);
+        }
+
+        @Override
+        boolean agregar(Object valor, int fila) {
+            if (valor == null) {
+                nulos.set(fila);
+                return true;
+            }
+            if (valor instanceof Boolean b) {
+                valores.set(fila, b);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        void leer(ResultSet rs, int indice, int fila) throws SQLException {
+            boolean valor = rs.getBoolean(indice);
+            if (rs.wasNull()) {
+                nulos.set(fila);
+            } else if (valor) {
+                valores.set(fila);
+            }
+        }
+
+        @Override
+        void compactar(int filas) {
+        }
+
+        @Override
+        long getBytesEstimados() {
+            return 16 + bytesBits(valores) + bytesBits(nulos);
+        }
+    }
+
+    /**
+     * Columna de fechas y horas guardadas como milisegundos desde la época.
+     * Los nanosegundos de las marcas de tiempo se guardan aparte y solo si
+     * algún valor los necesita.
+     */
+    static final class ColumnaTemporal extends Columna {
+
+        final int tipoJdbc; // Types.DATE, Types.TIME o Types.TIMESTAMP
+        long[] milisegundos = new long[0];
+        int[] nanos; // Nanosegundos de cada marca de tiempo, null si no se necesitan
+
+        ColumnaTemporal(int tipoJdbc) {
+            this.tipoJdbc = tipoJdbc;
+        }
+
+        @Override
+        Object getValor(int fila) {
+            if (nulos.get(fila)) {
+                return null;
+            }
+            long ms = milisegundos[fila];
+            switch (tipoJdbc) {
+                case Types.DATE -> {
+                    return new java.sql.Date(ms);
+                }
+                case Types.TIME -> {
+                    return new Time(ms);
+                }
+                default -> {
+                    Timestamp ts = new Timestamp(ms);
+                    if (nanos != null) {
+                        ts.setNanos(nanos[fila]);
+                    }
+                    return ts;
+                }
+            }
+        }
+
+        @Override
+        boolean agregar(Object valor, int fila) {
+            if (fila >= milisegundos.length) {
+                int capacidad = crecer(milisegundos.length, fila);
+                milisegundos = Arrays.copyOf(milisegundos, capacidad);
+                if (nanos != null) {
+                    nanos = Arrays.copyOf(nanos, capacidad);
+                }
+            }
+            if (valor == null) {
+                nulos.set(fila);
+                return true;
+            }
+            Timestamp ts;
+            if (valor instanceof Timestamp t) {
+                ts = t;
+            } else if (valor instanceof java.util.Date d) {
+                milisegundos[fila] = d.getTime();
+                return true;
+            } else if (valor instanceof LocalDateTime ldt) {
+                ts = Timestamp.valueOf(ldt);
+            } else if (valor instanceof LocalDate ld) {
+                milisegundos[fila] = java.sql.Date.valueOf(ld).getTime();
+                return true;
+            } else if (valor instanceof LocalTime lt) {
+                milisegundos[fila] = Time.valueOf(lt).getTime();
+                return true;
+            } else if (valor instanceof OffsetDateTime odt) {
+                ts = Timestamp.from(odt.toInstant());
+            } else {
+                return false;
+            }
+            agregarMarca(ts.getTime(), ts.getNanos(), fila);
+            return true;
+        }
+
+        @Override
+        void leer(ResultSet rs, int indice, int fila) throws SQLException {
+            if (tipoJdbc == Types.TIMESTAMP) {
+                Timestamp ts = rs.getTimestamp(indice);
+                if (ts == null) {
+                    agregar(null, fila);
+                } else {
+                    agregarMarca(ts.getTime(), ts.getNanos(), fila);
+                }
+            } else {
+                agregar(tipoJdbc == Types.DATE ? rs.getDate(indice) : rs.getTime(indice), fila);
+            }
+        }
+
+        /**
+         * Guarda una marca de tiempo, reservando el arreglo de nanosegundos la
+         * primera vez que aparece una fracción menor a un milisegundo.
+         */
+        void agregarMarca(long ms, int nanosegundos, int fila) {
+            if (fila >= milisegundos.length) {
+                int capacidad = crecer(milisegundos.length, fila);
+                milisegundos = Arrays.copyOf(milisegundos, capacidad);
+                if (nanos != null) {
+                    nanos = Arrays.copyOf(nanos, capacidad);
+                }
+            }
+            milisegundos[fila] = ms;
+            if (nanos == null && nanosegundos % 1_000_000 != 0) {
+                nanos = new int[milisegundos.length];
+                for (int i = 0; i < fila; i++) {
+                    nanos[i] = (int) Math.floorMod(milisegundos[i], 1000L) * 1_000_000;
+                }
+            }
+            if (nanos != null) {
+                nanos[fila] = nanosegundos;
+            }
+        }
+
+        @Override
+        void compactar(int filas) {
+            milisegundos = Arrays.copyOf(milisegundos, filas);
+            if (nanos != null) {
+                nanos = Arrays.copyOf(nanos, filas);
+            }
+        }
+
+        @Override
+        long getBytesEstimados() {
+            long total = 24 + AlmacenFilas.alinear(16 + 8L * milisegundos.length) + bytesBits(nulos);
+            if (nanos != null) {
+                total += AlmacenFilas.alinear(16 + 4L * nanos.length);
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Columna de cadenas codificadas con diccionario. Si después de las
+     * primeras filas más de la mitad de los valores son distintos, el
+     * diccionario deja de compensar y las cadenas se guardan directamente.
+     */
+    static final class ColumnaTexto extends Columna {
+
+        private static final int FILAS_EVALUACION = 4096; // Filas tras las cuales se evalúa el diccionario
+
+        int[] codigos = new int[0]; // Código de diccionario de cada fila
+        ArrayList<String> diccionario = new ArrayList<>(); // Valores distintos
+        HashMap<String, Integer> indices = new HashMap<>(); // Código de cada valor distinto
+        String[] directos; // Valores sin diccionario, null mientras se use el diccionario
+
+        @Override
+        Object getValor(int fila) {
+            if (nulos.get(fila)) {
+                return null;
+            }
+            return directos != null ? directos[fila] : diccionario.get(codigos[fila]);
+        }
+
+        @Override
+        boolean agregar(Object valor, int fila) {
+            if (valor != null && !(valor instanceof String)) {
+                return false;
+            }
+            String texto = (String) valor;
+            if (directos != null) {
+                if (fila >= directos.length) {
+                    directos = Arrays.copyOf(directos, crecer(directos.length, fila));
+                }
+                directos[fila] = texto;
+                if (texto == null) {
+                    nulos.set(fila);
+                }
+                return true;
+            }
+            if (fila >= codigos.length) {
+                codigos = Arrays.copyOf(codigos, crecer(codigos.length, fila));
+            }
+            if (texto == null) {
+                nulos.set(fila);
+            } else {
+                HashMap<String, Integer> indice = getIndices();
+                Integer codigo = indice.get(texto);
+                if (codigo == null) {
+                    codigo = diccionario.size();
+                    diccionario.add(texto);
+                    indice.put(texto, codigo);
+                }
+                codigos[fila] = codigo;
+            }
+            if (fila + 1 == FILAS_EVALUACION && diccionario.size() * 2 > FILAS_EVALUACION) {
+                abandonarDiccionario(fila + 1);
+            }
+            return true;
+        }
+
+        @Override
+        void leer(ResultSet rs, int indice, int fila) throws SQLException {
+            agregar(rs.getString(indice), fila);
+        }
+
+        /**
+         * Pasa a guardar las cadenas directamente.
+         */
+        private void abandonarDiccionario(int filas) {
+            directos = new String[Math.max(filas, codigos.length)];
+            for (int i = 0; i < filas; i++) {
+                if (!nulos.get(i)) {
+                    directos[i] = diccionario.get(codigos[i]);
+                }
+            }
+            codigos = null;
+            diccionario = null;
+            indices = null;
+        }
+
+        /**
+         * Indica si la columna sigue usando diccionario.
+         */
+        boolean usaDiccionario() {
+            return directos == null;
+        }
+
+        @Override
+        void compactar(int filas) {
+            if (directos != null) {
+                directos = Arrays.copyOf(directos, filas);
+            } else {
+                codigos = Arrays.copyOf(codigos, filas);
+                diccionario.trimToSize();
+                indices = null; // El diccionario ya no crece; se reconstruye si llegan más filas
+            }
+        }
+
+        @Override
+        long getBytesEstimados() {
+            long total = 32 + bytesBits(nulos);
+            if (directos != null) {
+                total += AlmacenFilas.alinear(16 + 4L * directos.length);
+                for (String texto : directos) {
+                    total += AlmacenFilas.bytesObjeto(texto);
+                }
+                return total;
+            }
+            total += AlmacenFilas.alinear(16 + 4L * codigos.length);
+            total += 24 + AlmacenFilas.alinear(16 + 4L * diccionario.size());
+            for (String texto : diccionario) {
+                total += AlmacenFilas.bytesObjeto(texto);
+            }
+            if (indices != null) {
+                total += 48 + AlmacenFilas.alinear(16 + 4L * indices.size() * 2) + 48L * indices.size();
+            }
+            return total;
+        }
+
+        /**
+         * Reconstruye el índice del diccionario si se compactó y llegan más
+         * filas.
+         */
+        private HashMap<String, Integer> getIndices() {
+            if (indices == null && diccionario != null) {
+                indices = new HashMap<>(diccionario.size() * 4 / 3 + 1);
+                for (int i = 0; i < diccionario.size(); i++) {
+                    indices.put(diccionario.get(i), i);
+                }
+            }
+            return indices;
+        }
+    }
+
+    /**
+     * Columna genérica de objetos para los tipos sin representación primitiva
+     * (decimales, binarios, LOB, etc.).
+     */
+    static final class ColumnaObjeto extends Columna {
+
+        Object[] valores = new Object[0];
+
+        /**
+         * Convierte una columna especializada en una columna de objetos
+         * conservando sus valores.
+         */
+        static ColumnaObjeto desde(Columna origen, int filas) {
+            ColumnaObjeto destino = new ColumnaObjeto();
+            destino.valores = new Object[crecer(filas, filas)];
+            for (int i = 0; i < filas; i++) {
+                destino.valores[i] = origen.getValor(i);
+                if (destino.valores[i] == null) {
+                    destino.nulos.set(i);
+                }
+            }
+            return destino;
+        }
+
+        @Override
+        Object getValor(int fila) {
+            return valores[fila];
+        }
+
+        @Override
+        boolean agregar(Object valor, int fila) {
+            if (fila >= valores.length) {
+                valores = Arrays.copyOf(valores, crecer(valores.length, fila));
+            }
+            valores[fila] = valor;
+            if (valor == null) {
+                nulos.set(fila);
+            }
+            return true;
+        }
+
+        @Override
+        void leer(ResultSet rs, int indice, int fila) throws SQLException {
+            agregar(rs.getObject(indice), fila);
+        }
+
+        @Override
+        void compactar(int filas) {
+            valores = Arrays.copyOf(valores, filas);
+        }
+
+        @Override
+        long getBytesEstimados() {
+            long total = 16 + AlmacenFilas.alinear(16 + 4L * valores.length) + bytesBits(nulos);
+            for (Object valor : valores) {
+                total += AlmacenFilas.bytesObjeto(valor);
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package TablaBD.app.com;
+
+import java.util.List;
+
+/**
+ * Almacenamiento que presenta varios almacenamientos como uno solo, uno a
+ * continuación del otro. Permite unir las particiones de una carga paralela
+ * sin copiar sus filas: cada partición conserva su propio almacenamiento (y
+ * su propio paso a disco) y el índice de una fila se traduce a la partición
+ * que la contiene.
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+final class AlmacenConcatenado implements AlmacenFilas {
+
+    // Atributos
+    private final AlmacenFilas[] partes; // Almacenamientos en orden
+    private final int[] inicios; // Índice global de la primera fila de cada parte
+
+    /**
+     * Une almacenamientos en el orden indicado.
+     *
+     * @param partes Almacenamientos a unir; debe haber al menos uno.
+     */
+    AlmacenConcatenado(List<AlmacenFilas> partes) {
+        this.partes = partes.toArray(new AlmacenFilas[0]);
+        this.inicios = new int[this.partes.length];
+        recalcular(0);
+    }
+
+    /**
+     * Recalcula los inicios de las partes a partir de una.
+     */
+    private void recalcular(int desde) {
+        for (int i = Math.max(desde, 1); i < partes.length; i++) {
+            inicios[i] = inicios[i - 1] + partes[i - 1].getFilas();
+        }
+    }
+
+    /**
+     * Busca la parte que contiene una fila: la última cuyo inicio no la
+     * supera, lo que salta las partes vacías.
+     */
+    private int parteDe(int fila) {
+        if (fila < 0 || fila >= getFilas()) {
+            throw new IndexOutOfBoundsException("Fila " + fila + " fuera de rango");
+        }
+        int bajo = 0, alto = partes.length - 1;
+        while (bajo < alto) {
+            int medio = (bajo + alto + 1) >>> 1;
+            if (inicios[medio] <= fila) {
+                bajo = medio;
+            } else {
+                alto = medio - 1;
+            }
+        }
+        return bajo;
+    }
+
+    @Override
+    public int getFilas() {
+        int ultima = partes.length - 1;
+        return inicios[ultima] + partes[ultima].getFilas();
+    }
+
+    @Override
+    public Object getValor(int fila, int columna) {
+        int parte = parteDe(fila);
+        return partes[parte].getValor(fila - inicios[parte], columna);
+    }
+
+    @Override
+    public void agregar(Object[] fila) {
+        partes[partes.length - 1].agregar(fila);
+    }
+
+    @Override
+    public void reemplazar(int fila, Object[] valores) {
+        int parte = parteDe(fila);
+        partes[parte].reemplazar(fila - inicios[parte], valores);
+    }
+
+    @Override
+    public void eliminar(int fila) {
+        int parte = parteDe(fila);
+        partes[parte].eliminar(fila - inicios[parte]);
+        recalcular(parte + 1);
+    }
+
+    @Override
+    public void compactar() {
+        for (AlmacenFilas parte : partes) {
+            parte.compactar();
+        }
+    }
+
+    @Override
+    public long getBytesEstimados() {
+        long total = 0;
+        for (AlmacenFilas parte : partes) {
+            total += parte.getBytesEstimados();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,148 @@
+package TablaBD.app.com;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Almacenamiento que empieza en el heap y pasa a un {@link AlmacenMapeado}
+ * cuando la memoria estimada de sus filas supera un presupuesto. Las filas
+ * ya cargadas se copian al archivo y las siguientes se escriben directamente
+ * en él, de modo que el tamaño de un resultado queda limitado por el disco y
+ * no por el heap.
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+final class AlmacenDesbordable implements AlmacenFilas {
+
+    private static final int FILAS_ENTRE_MEDICIONES = 1024; // Frecuencia con que se mide un almacenamiento por columnas
+
+    // Atributos
+    private final int columnas; // Número de columnas de cada fila
+    private final long presupuesto; // Bytes de heap permitidos antes de pasar a disco
+    private final AlmacenFilasLista lectora; // Almacenamiento por filas que lee los resultados, o null si es por columnas
+    private AlmacenFilas actual; // Almacenamiento en uso
+    private long estimados; // Bytes estimados de las filas en el heap
+    private boolean desbordado; // Indica si las filas ya están en disco
+
+    /**
+     * Crea el almacenamiento sobre uno del heap.
+     *
+     * @param enHeap Almacenamiento inicial, vacío.
+     * @param columnas Número de columnas de cada fila.
+     * @param presupuesto Bytes de heap permitidos.
+     */
+    AlmacenDesbordable(AlmacenFilas enHeap, int columnas, long presupuesto) {
+        this.actual = enHeap;
+        this.lectora = enHeap instanceof AlmacenFilasLista lista ? lista : null;
+        this.columnas = columnas;
+        this.presupuesto = presupuesto;
+    }
+
+    @Override
+    public int getFilas() {
+        return actual.getFilas();
+    }
+
+    @Override
+    public Object getValor(int fila, int columna) {
+        return actual.getValor(fila, columna);
+    }
+
+    @Override
+    public void agregar(Object[] fila) {
+        if (!desbordado) {
+            if (actual instanceof AlmacenFilasLista) {
+                // Estimación incremental: medir toda la lista en cada fila sería cuadrático
+                estimados += AlmacenFilas.alinear(16 + 4L * fila.length) + 4;
+                for (Object valor : fila) {
+                    estimados += valor instanceof String s ? 40 + 2L * s.length() : AlmacenFilas.bytesObjeto(valor);
+                }
+            } else if (actual.getFilas() % FILAS_ENTRE_MEDICIONES == 0) {
+                estimados = actual.getBytesEstimados();
+            }
+            if (estimados > presupuesto) {
+                desbordar();
+            }
+        }
+        actual.agregar(fila);
+    }
+
+    @Override
+    public void agregarDesde(ResultSet rs, int numeroColumnas) throws SQLException {
+        if (lectora != null) {
+            // La fila se lee con los métodos tipados de la lista, también después de pasar a disco
+            agregar(lectora.leerFila(rs, numeroColumnas));
+            return;
+        }
+        if (!desbordado) {
+            // El almacenamiento por columnas lee sus valores tipados sin pasar por un arreglo de objetos
+            if (actual.getFilas() % FILAS_ENTRE_MEDICIONES == 0) {
+                estimados = actual.getBytesEstimados();
+                if (estimados > presupuesto) {
+                    desbordar();
+                }
+            }
+            if (!desbordado) {
+                actual.agregarDesde(rs, numeroColumnas);
+                return;
+            }
+        }
+        AlmacenFilas.super.agregarDesde(rs, numeroColumnas);
+    }
+
+    /**
+     * Copia las filas del heap a un archivo mapeado y continúa en él.
+     */
+    private void desbordar() {
+        AlmacenMapeado enDisco = new AlmacenMapeado();
+        int filas = actual.getFilas();
+        for (int f = 0; f < filas; f++) {
+            Object[] fila = new Object[columnas];
+            for (int c = 0; c < columnas; c++) {
+                fila[c] = actual.getValor(f, c);
+            }
+            enDisco.agregar(fila);
+        }
+        actual = enDisco;
+        desbordado = true;
+    }
+
+    @Override
+    public void reemplazar(int fila, Object[] valores) {
+        actual.reemplazar(fila, valores);
+    }
+
+    @Override
+    public void eliminar(int fila) {
+        actual.eliminar(fila);
+    }
+
+    @Override
+    public void compactar() {
+        actual.compactar();
+    }
+
+    @Override
+    public long getBytesEstimados() {
+        return actual.getBytesEstimados();
+    }
+
+    /**
+     * Obtiene el almacenamiento en uso.
+     *
+     * @return El almacenamiento del heap o el archivo mapeado.
+     */
+    AlmacenFilas getActual() {
+        return actual;
+    }
+
+    /**
+     * Indica si las filas pasaron a disco.
+     *
+     * @return {@code true} si se usa un archivo mapeado.
+     */
+    boolean isDesbordado() {
+        return desbordado;
+    }
+}
@@ -0,0 +1,170 @@
+package TablaBD.app.com;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Interfaz del almacenamiento de filas de {@link ModeloDatos}. Separa la forma
+ * en que se guardan los valores (una lista de arreglos por fila o arreglos
+ * por columna) del modelo que los presenta en un <code>JTable</code>.
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+interface AlmacenFilas {
+
+    /**
+     * Obtiene el número de filas almacenadas.
+     *
+     * @return Número de filas.
+     */
+    int getFilas();
+
+    /**
+     * Obtiene el valor de una celda.
+     *
+     * @param fila Índice de la fila (comienza en 0).
+     * @param columna Índice de la columna (comienza en 0).
+     * @return El valor de la celda, puede ser {@code null}.
+     */
+    Object getValor(int fila, int columna);
+
+    /**
+     * Agrega una fila al final del almacenamiento.
+     *
+     * @param fila Valores de la fila en el orden de las columnas.
+     */
+    void agregar(Object[] fila);
+
+    /**
+     * Agrega la fila actual de un resultado. Por omisión lee cada valor con
+     * {@link ResultSet#getObject(int)}; los almacenamientos creados a partir
+     * de los metadatos del resultado la redefinen para leer con los métodos
+     * tipados de cada columna.
+     *
+     * @param rs Resultado posicionado en la fila a agregar.
+     * @param columnas Número de columnas del resultado.
+     * @throws SQLException Si falla la lectura de algún valor.
+     */
+    default void agregarDesde(ResultSet rs, int columnas) throws SQLException {
+        Object[] fila = new Object[columnas];
+        for (int i = 0; i < columnas; i++) {
+            fila[i] = rs.getObject(i + 1);
+        }
+        agregar(fila);
+    }
+
+    /**
+     * Reemplaza los valores de una fila existente.
+     *
+     * @param fila Índice de la fila (comienza en 0).
+     * @param valores Nuevos valores en el orden de las columnas.
+     * @throws UnsupportedOperationException Si el almacenamiento no admite
+     * modificaciones.
+     */
+    default void reemplazar(int fila, Object[] valores) {
+        throw new UnsupportedOperationException("El almacenamiento no admite modificaciones");
+    }
+
+    /**
+     * Elimina una fila; las filas siguientes se desplazan una posición.
+     *
+     * @param fila Índice de la fila (comienza en 0).
+     * @throws UnsupportedOperationException Si el almacenamiento no admite
+     * modificaciones.
+     */
+    default void eliminar(int fila) {
+        throw new UnsupportedOperationException("El almacenamiento no admite modificaciones");
+    }
+
+    /**
+     * Libera la capacidad sobrante una vez terminada la carga.
+     */
+    default void compactar() {
+    }
+
+    /**
+     * Estima los bytes de memoria ocupados por el almacenamiento.
+     *
+     * @return Bytes estimados.
+     */
+    long getBytesEstimados();
+
+    /**
+     * Estima los bytes que ocupa un valor encapsulado dentro de un arreglo de
+     * objetos (encabezado y contenido, con referencias comprimidas). Los
+     * valores compartidos por la JVM, como {@link Boolean}, no ocupan memoria
+     * adicional.
+     *
+     * @param valor El valor a medir.
+     * @return Bytes estimados del objeto.
+     */
+    static long bytesObjeto(Object valor) {
+        if (valor == null || valor instanceof Boolean) {
+            return 0;
+        }
+        if (valor instanceof String texto) {
+            return 24 + alinear(16 + (long) texto.length() * (esLatin1(texto) ? 1 : 2));
+        }
+        if (valor instanceof Integer || valor instanceof Short || valor instanceof Byte || valor instanceof Float) {
+            return 16;
+        }
+        if (valor instanceof Long || valor instanceof Double) {
+            return 24;
+        }
+        if (valor instanceof java.sql.Timestamp) {
+            return 32;
+        }
+        if (valor instanceof java.util.Date) {
+            return 24;
+        }
+        if (valor instanceof BigDecimal decimal) {
+            return 40 + (decimal.precision() > 18 ? 40 : 0);
+        }
+        if (valor instanceof byte[] bytes) {
+            return alinear(16 + bytes.length);
+        }
+        return 32; // Estimación genérica para otros tipos (LocalDateTime, UUID, etc.)
+    }
+
+    /**
+     * Estima los bytes que ocuparía un almacenamiento por filas
+     * ({@code ArrayList<Object[]>} con valores encapsulados) con el mismo
+     * contenido. Sirve de referencia para comparar con otros diseños.
+     *
+     * @param almacen El almacenamiento a medir.
+     * @param columnas Número de columnas.
+     * @return Bytes estimados del diseño por filas.
+     */
+    static long bytesComoFilas(AlmacenFilas almacen, int columnas) {
+        int filas = almacen.getFilas();
+        long total = 16 + alinear(16 + 4L * filas); // ArrayList y su arreglo interno
+        total += filas * alinear(16 + 4L * columnas); // Un Object[] por fila
+        for (int f = 0; f < filas; f++) {
+            for (int c = 0; c < columnas; c++) {
+                total += bytesObjeto(almacen.getValor(f, c));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Redondea un tamaño al múltiplo de 8 bytes usado por la JVM.
+     */
+    static long alinear(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Indica si todos los caracteres caben en un byte (cadenas compactas).
+     */
+    private static boolean esLatin1(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
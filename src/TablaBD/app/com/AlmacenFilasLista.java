@@ -0,0 +1,185 @@
+package TablaBD.app.com;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+/**
+ * Almacenamiento por filas: una lista con un arreglo de objetos por fila. Es el
+ * diseño original de {@link ModeloDatos} y admite cualquier tipo de valor.
+ *
+ * <p>
+ * Creado a partir de los metadatos de un resultado, lee cada valor con el
+ * método tipado que corresponde a la clase que el controlador declara para la
+ * columna ({@code getInt}, {@code getLong}, {@code getString}, ...) en lugar
+ * de {@code getObject}, que debe decidir el tipo en cada valor. La clase del
+ * valor guardado es la misma que devolvería {@code getObject}; las columnas
+ * de otras clases se siguen leyendo con {@code getObject}.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+class AlmacenFilasLista implements AlmacenFilas {
+
+    private static final int OBJETO = 0, ENTERO = 1, LARGO = 2, REAL = 3, FLOTANTE = 4, CORTO = 5,
+            BYTE = 6, BOOLEANO = 7, TEXTO = 8, DECIMAL = 9, BYTES = 10; // Métodos de lectura
+
+    // Atributos
+    private final ArrayList<Object[]> data = new ArrayList<>(); // Lista que contiene las filas de la tabla
+    private final int[] lecturas; // Método de lectura de cada columna, o null para leer con getObject
+
+    /**
+     * Crea un almacenamiento que lee los resultados con {@code getObject}.
+     */
+    AlmacenFilasLista() {
+        this.lecturas = null;
+    }
+
+    /**
+     * Crea un almacenamiento que lee cada columna del resultado con su método
+     * tipado.
+     *
+     * @param md Metadatos del resultado.
+     * @throws SQLException Si falla la lectura de los metadatos.
+     */
+    AlmacenFilasLista(ResultSetMetaData md) throws SQLException {
+        int n = md.getColumnCount();
+        lecturas = new int[n];
+        for (int c = 0; c < n; c++) {
+            lecturas[c] = lectura(md.getColumnClassName(c + 1));
+        }
+    }
+
+    /**
+     * Elige el método de lectura que devuelve la clase indicada.
+     */
+    private static int lectura(String clase) {
+        if (clase == null) {
+            return OBJETO;
+        }
+        return switch (clase) {
+            case "java.lang.Integer" ->
+                ENTERO;
+            case "java.lang.Long" ->
+                LARGO;
+            case "java.lang.Double" ->
+                REAL;
+            case "java.lang.Float" ->
+                FLOTANTE;
+            case "java.lang.Short" ->
+                CORTO;
+            case "java.lang.Byte" ->
+                BYTE;
+            case "java.lang.Boolean" ->
+                BOOLEANO;
+            case "java.lang.String" ->
+                TEXTO;
+            case "java.math.BigDecimal" ->
+                DECIMAL;
+            case "[B" ->
+                BYTES;
+            default ->
+                OBJETO;
+        };
+    }
+
+    /**
+     * Lee la fila actual de un resultado con el método de cada columna.
+     *
+     * @param rs Resultado posicionado en una fila.
+     * @param numeroColumnas Número de columnas del resultado.
+     * @return Los valores de la fila.
+     * @throws SQLException Si falla la lectura.
+     */
+    Object[] leerFila(ResultSet rs, int numeroColumnas) throws SQLException {
+        Object[] fila = new Object[numeroColumnas];
+        for (int c = 0; c < numeroColumnas; c++) {
+            int i = c + 1;
+            Object valor;
+            switch (lecturas == null ? OBJETO : lecturas[c]) {
+                case ENTERO:
+                    int entero = rs.getInt(i);
+                    valor = rs.wasNull() ? null : entero;
+                    break;
+                case LARGO:
+                    long largo = rs.getLong(i);
+                    valor = rs.wasNull() ? null : largo;
+                    break;
+                case REAL:
+                    double real = rs.getDouble(i);
+                    valor = rs.wasNull() ? null : real;
+                    break;
+                case FLOTANTE:
+                    float flotante = rs.getFloat(i);
+                    valor = rs.wasNull() ? null : flotante;
+                    break;
+                case CORTO:
+                    short corto = rs.getShort(i);
+                    valor = rs.wasNull() ? null : corto;
+                    break;
+                case BYTE:
+                    byte octeto = rs.getByte(i);
+                    valor = rs.wasNull() ? null : octeto;
+                    break;
+                case BOOLEANO:
+                    boolean booleano = rs.getBoolean(i);
+                    valor = rs.wasNull() ? null : booleano;
+                    break;
+                case TEXTO:
+                    valor = rs.getString(i);
+                    break;
+                case DECIMAL:
+                    valor = rs.getBigDecimal(i);
+                    break;
+                case BYTES:
+                    valor = rs.getBytes(i);
+                    break;
+                default:
+                    valor = rs.getObject(i);
+            }
+            fila[c] = valor;
+        }
+        return fila;
+    }
+
+    @Override
+    public int getFilas() {
+        return data.size();
+    }
+
+    @Override
+    public Object getValor(int fila, int columna) {
+        return data.get(fila)[columna];
+    }
+
+    @Override
+    public void agregar(Object[] fila) {
+        data.add(fila);
+    }
+
+    @Override
+    public void agregarDesde(ResultSet rs, int numeroColumnas) throws SQLException {
+        data.add(leerFila(rs, numeroColumnas));
+    }
+
+    @Override
+    public void reemplazar(int fila, Object[] valores) {
+        data.set(fila, valores);
+    }
+
+    @Override
+    public void eliminar(int fila) {
+        data.remove(fila);
+    }
+
+    @Override
+    public void compactar() {
+        data.trimToSize();
+    }
+
+    @Override
+    public long getBytesEstimados() {
+        return AlmacenFilas.bytesComoFilas(this, data.isEmpty() ? 0 : data.get(0).length);
+    }
+}
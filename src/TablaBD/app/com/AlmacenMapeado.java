@@ -0,0 +1,414 @@
+package TablaBD.app.com;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Almacenamiento en un archivo temporal mapeado en memoria, para resultados
+ * que no caben en el heap. Cada fila se codifica en un formato binario
+ * compacto (la posición de cada valor dentro de la fila, seguida de los
+ * valores: una etiqueta de tipo y su contenido) y el heap solo guarda un
+ * índice con la posición de cada fila en el archivo. Los números, textos,
+ * binarios, decimales y fechas de {@code java.sql} y {@code java.time} tienen
+ * codificación propia; los demás tipos se serializan.
+ * {@link #getValor(int, int)} decodifica el valor directamente desde el
+ * archivo mapeado, sin recorrer las columnas anteriores.
+ *
+ * <p>
+ * El archivo se divide en segmentos de 1 GiB, cada uno mapeado por separado;
+ * ninguna fila cruza el límite de un segmento. Las filas se escriben a través
+ * de un búfer directo que se vuelca al archivo cuando se llena o al cambiar
+ * de segmento; las filas que siguen en el búfer se leen de él, de modo que
+ * leer durante la carga no obliga a volcar ni a volver a mapear. El archivo
+ * se abre con {@link StandardOpenOption#DELETE_ON_CLOSE}: el sistema lo
+ * elimina cuando se cierra el canal y se liberan sus mapeos, sin depender de
+ * {@code deleteOnExit}.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+final class AlmacenMapeado implements AlmacenFilas {
+
+    // Etiquetas de tipo de cada valor codificado
+    private static final byte NULO = 0, FALSO = 1, VERDADERO = 2, BYTE = 3, CORTO = 4, ENTERO = 5, LARGO = 6,
+            FLOTANTE = 7, REAL = 8, TEXTO = 9, BYTES = 10, DECIMAL = 11, FECHA = 12, HORA = 13, MARCA = 14, OBJETO = 15,
+            FECHA_LOCAL = 16, HORA_LOCAL = 17, FECHA_HORA_LOCAL = 18, FECHA_HORA_DESFASE = 19;
+
+    private static final int SEGMENTO = 1 << 30; // Bytes por segmento mapeado
+    private static final int TAMANO_ESCRITURA = 1 << 20; // Bytes del búfer de escritura
+    private static final ByteOrder ORDEN = ByteOrder.nativeOrder(); // Orden de bytes del archivo
+    private static final Cleaner LIMPIADOR = Cleaner.create(); // Elimina los archivos de los almacenamientos descartados
+
+    // Atributos
+    private final Recurso recurso; // Canal y ruta del archivo temporal
+    private final ByteBuffer escritura = ByteBuffer.allocateDirect(TAMANO_ESCRITURA).order(ORDEN); // Filas pendientes de volcar
+    private ByteBuffer fila = ByteBuffer.allocate(4096).order(ORDEN); // Codificación de la fila en curso
+    private long[] desplazamientos = new long[1024]; // Posición de cada fila en el archivo
+    private int filas; // Número de filas almacenadas
+    private long posicion; // Bytes escritos, incluidos los que siguen en el búfer
+    private long volcados; // Bytes ya escritos en el archivo
+    private MappedByteBuffer[] segmentos = new MappedByteBuffer[0]; // Segmentos mapeados, se amplían conforme crece el archivo
+
+    /**
+     * Archivo temporal y su canal. Se cierra al descartar el almacenamiento;
+     * el archivo desaparece junto con el último mapeo.
+     */
+    private static final class Recurso implements Runnable {
+
+        private final Path archivo;
+        private final FileChannel canal;
+
+        private Recurso(Path archivo, FileChannel canal) {
+            this.archivo = archivo;
+            this.canal = canal;
+        }
+
+        @Override
+        public void run() {
+            try {
+                canal.close();
+            } catch (IOException e) {
+                System.err.println("No se pudo cerrar " + archivo + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Crea el almacenamiento sobre un archivo temporal nuevo.
+     *
+     * @throws UncheckedIOException Si no se puede crear el archivo.
+     */
+    AlmacenMapeado() {
+        try {
+            Path archivo = Files.createTempFile("tablabd-", ".filas");
+            // En Unix el archivo se desvincula al abrirlo; en Windows se elimina al cerrar el último identificador o mapeo
+            FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            recurso = new Recurso(archivo, canal);
+            LIMPIADOR.register(this, recurso);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el archivo temporal de filas", e);
+        }
+    }
+
+    @Override
+    public int getFilas() {
+        return filas;
+    }
+
+    @Override
+    public void agregar(Object[] valores) {
+        fila.clear();
+        reservar(4 * valores.length).position(4 * valores.length); // Posiciones de los valores, se completan al codificarlos
+        for (int c = 0; c < valores.length; c++) {
+            int desde = fila.position();
+            codificar(valores[c]);
+            fila.putInt(4 * c, desde);
+        }
+        fila.flip();
+        int largo = fila.remaining();
+        if (largo > SEGMENTO) {
+            throw new IllegalArgumentException("La fila excede el tamaño de un segmento");
+        }
+        long enSegmento = posicion % SEGMENTO;
+        if (enSegmento + largo > SEGMENTO) {
+            // La fila no cabe en el segmento actual: empieza en el siguiente, dejando un hueco
+            volcar();
+            posicion += SEGMENTO - enSegmento;
+            volcados = posicion;
+        }
+        if (filas == desplazamientos.length) {
+            desplazamientos = Arrays.copyOf(desplazamientos, filas * 2);
+        }
+        desplazamientos[filas++] = posicion;
+        if (largo > escritura.remaining()) {
+            volcar();
+        }
+        if (largo > escritura.capacity()) {
+            escribir(fila, volcados);
+            volcados += largo;
+        } else {
+            escritura.put(fila);
+        }
+        posicion += largo;
+    }
+
+    @Override
+    public Object getValor(int indice, int columna) {
+        if (indice < 0 || indice >= filas) {
+            throw new IndexOutOfBoundsException("Fila " + indice + " fuera de rango");
+        }
+        long inicio = desplazamientos[indice];
+        if (inicio >= volcados) {
+            // La fila sigue en el búfer de escritura: se lee de él sin volcarlo ni volver a mapear
+            int p = (int) (inicio - volcados);
+            return decodificar(escritura, p + escritura.getInt(p + 4 * columna));
+        }
+        long fin = indice + 1 < filas ? desplazamientos[indice + 1] : posicion;
+        int numero = (int) (inicio / SEGMENTO);
+        long base = (long) numero * SEGMENTO;
+        MappedByteBuffer segmento = mapear(numero, Math.min(fin, base + SEGMENTO) - base);
+        int p = (int) (inicio - base);
+        return decodificar(segmento, p + segmento.getInt(p + 4 * columna));
+    }
+
+    /**
+     * Estima la memoria del heap: solo el índice de filas. El contenido vive
+     * en el archivo y en la caché de páginas del sistema operativo.
+     */
+    @Override
+    public long getBytesEstimados() {
+        return 64 + AlmacenFilas.alinear(16 + 8L * desplazamientos.length) + fila.capacity();
+    }
+
+    /**
+     * Obtiene el tamaño del archivo temporal.
+     *
+     * @return Bytes escritos en disco.
+     */
+    long getBytesEnDisco() {
+        return posicion;
+    }
+
+    @Override
+    public void compactar() {
+        volcar();
+        desplazamientos = Arrays.copyOf(desplazamientos, Math.max(filas, 1));
+        fila = ByteBuffer.allocate(4096).order(ORDEN);
+    }
+
+    /**
+     * Codifica un valor al final de la fila en curso.
+     */
+    private void codificar(Object valor) {
+        if (valor == null) {
+            reservar(1).put(NULO);
+        } else if (valor instanceof Boolean b) {
+            reservar(1).put(b ? VERDADERO : FALSO);
+        } else if (valor instanceof Integer i) {
+            reservar(5).put(ENTERO).putInt(i);
+        } else if (valor instanceof Long l) {
+            reservar(9).put(LARGO).putLong(l);
+        } else if (valor instanceof Double d) {
+            reservar(9).put(REAL).putDouble(d);
+        } else if (valor instanceof String s) {
+            codificarBytes(TEXTO, s.getBytes(StandardCharsets.UTF_8));
+        } else if (valor instanceof Timestamp t) {
+            reservar(13).put(MARCA).putLong(t.getTime()).putInt(t.getNanos());
+        } else if (valor instanceof java.sql.Date d) {
+            reservar(9).put(FECHA).putLong(d.getTime());
+        } else if (valor instanceof Time t) {
+            reservar(9).put(HORA).putLong(t.getTime());
+        } else if (valor instanceof BigDecimal d) {
+            byte[] bytes = d.unscaledValue().toByteArray();
+            reservar(9 + bytes.length).put(DECIMAL).putInt(d.scale()).putInt(bytes.length).put(bytes);
+        } else if (valor instanceof Short s) {
+            reservar(3).put(CORTO).putShort(s);
+        } else if (valor instanceof Byte b) {
+            reservar(2).put(BYTE).put(b);
+        } else if (valor instanceof Float f) {
+            reservar(5).put(FLOTANTE).putFloat(f);
+        } else if (valor instanceof byte[] bytes) {
+            codificarBytes(BYTES, bytes);
+        } else if (valor instanceof LocalDate d) {
+            reservar(9).put(FECHA_LOCAL).putLong(d.toEpochDay());
+        } else if (valor instanceof LocalTime t) {
+            reservar(9).put(HORA_LOCAL).putLong(t.toNanoOfDay());
+        } else if (valor instanceof LocalDateTime t) {
+            reservar(13).put(FECHA_HORA_LOCAL).putLong(t.toEpochSecond(ZoneOffset.UTC)).putInt(t.getNano());
+        } else if (valor instanceof OffsetDateTime t) {
+            // La fecha y hora local junto con el desfase conservan el valor tal como se leyó
+            LocalDateTime local = t.toLocalDateTime();
+            reservar(17).put(FECHA_HORA_DESFASE).putLong(local.toEpochSecond(ZoneOffset.UTC)).putInt(local.getNano())
+                    .putInt(t.getOffset().getTotalSeconds());
+        } else {
+            codificarBytes(OBJETO, serializar(valor));
+        }
+    }
+
+    /**
+     * Codifica un valor de longitud variable: etiqueta, longitud y bytes.
+     */
+    private void codificarBytes(byte etiqueta, byte[] bytes) {
+        reservar(5 + bytes.length).put(etiqueta).putInt(bytes.length).put(bytes);
+    }
+
+    /**
+     * Asegura espacio en el búfer de la fila en curso.
+     */
+    private ByteBuffer reservar(int bytes) {
+        if (fila.remaining() < bytes) {
+            int capacidad = Math.max(fila.capacity() * 2, fila.position() + bytes);
+            ByteBuffer mayor = ByteBuffer.allocate(capacidad).order(ORDEN);
+            fila.flip();
+            mayor.put(fila);
+            fila = mayor;
+        }
+        return fila;
+    }
+
+    /**
+     * Serializa un valor de un tipo sin codificación propia.
+     */
+    private static byte[] serializar(Object valor) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(salida)) {
+            out.writeObject(valor);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("El valor de tipo " + valor.getClass().getName() + " no se puede almacenar en disco", e);
+        }
+        return salida.toByteArray();
+    }
+
+    /**
+     * Decodifica el valor cuya etiqueta está en la posición indicada.
+     */
+    private static Object decodificar(ByteBuffer b, int p) {
+        byte etiqueta = b.get(p);
+        int d = p + 1;
+        return switch (etiqueta) {
+            case NULO ->
+                null;
+            case FALSO ->
+                Boolean.FALSE;
+            case VERDADERO ->
+                Boolean.TRUE;
+            case BYTE ->
+                b.get(d);
+            case CORTO ->
+                b.getShort(d);
+            case ENTERO ->
+                b.getInt(d);
+            case LARGO ->
+                b.getLong(d);
+            case FLOTANTE ->
+                b.getFloat(d);
+            case REAL ->
+                b.getDouble(d);
+            case FECHA ->
+                new java.sql.Date(b.getLong(d));
+            case HORA ->
+                new Time(b.getLong(d));
+            case MARCA -> {
+                Timestamp t = new Timestamp(b.getLong(d));
+                t.setNanos(b.getInt(d + 8));
+                yield t;
+            }
+            case DECIMAL -> {
+                byte[] bytes = new byte[b.getInt(d + 4)];
+                b.get(d + 8, bytes);
+                yield new BigDecimal(new BigInteger(bytes), b.getInt(d));
+            }
+            case FECHA_LOCAL ->
+                LocalDate.ofEpochDay(b.getLong(d));
+            case HORA_LOCAL ->
+                LocalTime.ofNanoOfDay(b.getLong(d));
+            case FECHA_HORA_LOCAL ->
+                LocalDateTime.ofEpochSecond(b.getLong(d), b.getInt(d + 8), ZoneOffset.UTC);
+            case FECHA_HORA_DESFASE ->
+                OffsetDateTime.of(LocalDateTime.ofEpochSecond(b.getLong(d), b.getInt(d + 8), ZoneOffset.UTC),
+                        ZoneOffset.ofTotalSeconds(b.getInt(d + 12)));
+            case TEXTO ->
+                new String(leerBytes(b, d), StandardCharsets.UTF_8);
+            case BYTES ->
+                leerBytes(b, d);
+            case OBJETO ->
+                deserializar(leerBytes(b, d));
+            default ->
+                throw new IllegalStateException("Etiqueta de valor desconocida: " + etiqueta);
+        };
+    }
+
+    /**
+     * Lee un arreglo de bytes precedido por su longitud.
+     */
+    private static byte[] leerBytes(ByteBuffer b, int p) {
+        byte[] bytes = new byte[b.getInt(p)];
+        b.get(p + 4, bytes);
+        return bytes;
+    }
+
+    /**
+     * Reconstruye un valor serializado.
+     */
+    private static Object deserializar(byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("No se pudo leer un valor del archivo de filas", e);
+        }
+    }
+
+    /**
+     * Escribe en el archivo las filas pendientes del búfer.
+     */
+    private void volcar() {
+        escritura.flip();
+        int largo = escritura.remaining();
+        if (largo > 0) {
+            escribir(escritura, volcados);
+            volcados += largo;
+        }
+        escritura.clear();
+    }
+
+    /**
+     * Escribe un búfer completo en una posición del archivo.
+     */
+    private void escribir(ByteBuffer origen, long desde) {
+        try {
+            long p = desde;
+            while (origen.hasRemaining()) {
+                p += recurso.canal.write(origen, p);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el archivo de filas", e);
+        }
+    }
+
+    /**
+     * Obtiene un segmento mapeado que cubra al menos los bytes indicados desde
+     * su inicio, volviendo a mapearlo si el archivo creció.
+     */
+    private MappedByteBuffer mapear(int numero, long bytes) {
+        if (numero >= segmentos.length) {
+            segmentos = Arrays.copyOf(segmentos, numero + 1);
+        }
+        MappedByteBuffer segmento = segmentos[numero];
+        if (segmento == null || segmento.capacity() < bytes) {
+            long base = (long) numero * SEGMENTO;
+            long disponible = Math.min(SEGMENTO, volcados - base);
+            try {
+                segmento = recurso.canal.map(FileChannel.MapMode.READ_ONLY, base, disponible);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo mapear el archivo de filas", e);
+            }
+            segmento.order(ORDEN);
+            segmentos[numero] = segmento;
+        }
+        return segmento;
+    }
+}
@@ -0,0 +1,239 @@
+package TablaBD.app.com;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * La clase <code>CacheEsquema</code> guarda en memoria los metadatos de tablas
+ * (columnas, tipos y clave primaria) y las listas de tablas de cada base de
+ * datos, para no repetir las consultas al catálogo de
+ * {@link DatabaseMetaData}, que en SQL Server toman decenas de milisegundos
+ * cada una.
+ *
+ * <p>
+ * Las entradas se identifican por SGBD, URL y usuario de la conexión, base,
+ * esquema y tabla, de modo que dos servidores con bases del mismo nombre, o
+ * dos usuarios con permisos distintos, no comparten metadatos. Expiran tras un
+ * tiempo configurable y pueden invalidarse explícitamente.
+ * {@link Consulta#executeQueryWrite(Connection, String)} invalida la caché de
+ * forma automática al ejecutar sentencias DDL. Los valores son inmutables y la
+ * caché admite lectores concurrentes.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public class CacheEsquema {
+
+    // Atributos
+    private static volatile long vigenciaMs = 5 * 60_000L; // Tiempo de vida de una entrada
+    private static final Map<String, Entrada<EsquemaTabla>> TABLAS = new ConcurrentHashMap<>(); // Esquema por tabla
+    private static final Map<String, Entrada<List<String>>> LISTAS = new ConcurrentHashMap<>(); // Tablas por base
+    private static final Pattern DDL = Pattern.compile(
+            "^\\s*(CREATE|ALTER|DROP|TRUNCATE|RENAME)\\b(?:\\s+TABLE\\s+(?:IF\\s+(?:NOT\\s+)?EXISTS\\s+)?([\\w\\[\\]`.\"]+))?",
+            Pattern.CASE_INSENSITIVE); // Sentencias que modifican el esquema
+
+    /**
+     * Valor en caché junto con su instante de carga.
+     */
+    private static final class Entrada<T> {
+
+        private final T valor;
+        private final long cargadoMs;
+
+        private Entrada(T valor) {
+            this.valor = valor;
+            this.cargadoMs = System.currentTimeMillis();
+        }
+
+        private boolean vigente() {
+            return System.currentTimeMillis() - cargadoMs < vigenciaMs;
+        }
+    }
+
+    /**
+     * Constructor privado: la clase solo tiene métodos estáticos.
+     */
+    private CacheEsquema() {
+    }
+
+    /**
+     * Establece el tiempo de vida de las entradas de la caché.
+     *
+     * @param milisegundos Vigencia en milisegundos; 0 desactiva la caché.
+     */
+    public static void setVigencia(long milisegundos) {
+        CacheEsquema.vigenciaMs = milisegundos;
+    }
+
+    /**
+     * Obtiene el esquema de una tabla desde la caché, o lo lee del catálogo si
+     * no está o expiró.
+     *
+     * @param connection La conexión activa.
+     * @param base Nombre de la base de datos, o {@code null} para usar la base
+     * actual de la conexión.
+     * @param esquema Esquema de la tabla (por ejemplo {@code "dbo"}).
+     * @param tabla Nombre de la tabla.
+     * @return El esquema de la tabla; sin columnas si la tabla no existe o no
+     * es visible para el usuario, en cuyo caso no se guarda en la caché.
+     * @throws SQLException Si falla la lectura del catálogo.
+     */
+    public static EsquemaTabla getTabla(Connection connection, String base, String esquema, String tabla) throws SQLException {
+        String baseReal = base != null ? base : connection.getCatalog();
+        String clave = clave(connection, baseReal, esquema, tabla);
+        Entrada<EsquemaTabla> entrada = TABLAS.get(clave);
+        if (entrada != null && entrada.vigente()) {
+            return entrada.valor;
+        }
+        EsquemaTabla leido = leerTabla(connection, baseReal, esquema, tabla);
+        if (leido.getColumnas().isEmpty()) {
+            // La tabla puede crearse en cualquier momento; no se recuerda su ausencia
+            TABLAS.remove(clave);
+        } else {
+            TABLAS.put(clave, new Entrada<>(leido));
+        }
+        return leido;
+    }
+
+    /**
+     * Obtiene la lista de tablas de una base de datos desde la caché, o la lee
+     * del catálogo si no está o expiró.
+     *
+     * @param connection La conexión activa.
+     * @param base Nombre de la base de datos, o {@code null} para usar la base
+     * actual de la conexión.
+     * @param esquema Esquema de las tablas.
+     * @return Lista inmutable con los nombres de las tablas.
+     * @throws SQLException Si falla la lectura del catálogo.
+     */
+    public static List<String> getTablas(Connection connection, String base, String esquema) throws SQLException {
+        String baseReal = base != null ? base : connection.getCatalog();
+        String clave = clave(connection, baseReal, esquema, null);
+        Entrada<List<String>> entrada = LISTAS.get(clave);
+        if (entrada != null && entrada.vigente()) {
+            return entrada.valor;
+        }
+        List<String> tablas = new ArrayList<>();
+        try (ResultSet rs = connection.getMetaData().getTables(baseReal, esquema, "%", new String[]{"TABLE"})) {
+            while (rs.next()) {
+                tablas.add(rs.getString("TABLE_NAME"));
+            }
+        }
+        List<String> leidas = List.copyOf(tablas);
+        LISTAS.put(clave, new Entrada<>(leidas));
+        return leidas;
+    }
+
+    /**
+     * Lee del catálogo las columnas y la clave primaria de una tabla.
+     */
+    private static EsquemaTabla leerTabla(Connection connection, String base, String esquema, String tabla) throws SQLException {
+        DatabaseMetaData metaDataDB = connection.getMetaData();
+        List<String> columnas = new ArrayList<>();
+        List<Integer> tipos = new ArrayList<>();
+        List<String> nombresTipo = new ArrayList<>();
+        List<Integer> tamanos = new ArrayList<>();
+        List<Integer> escalas = new ArrayList<>();
+        List<Boolean> autoincrementables = new ArrayList<>();
+        try (ResultSet rs = metaDataDB.getColumns(base, esquema, tabla, "%")) {
+            while (rs.next()) {
+                columnas.add(rs.getString("COLUMN_NAME"));
+                tipos.add(rs.getInt("DATA_TYPE"));
+                nombresTipo.add(rs.getString("TYPE_NAME"));
+                tamanos.add(rs.getInt("COLUMN_SIZE"));
+                escalas.add(rs.getInt("DECIMAL_DIGITS"));
+                autoincrementables.add("YES".equals(rs.getString("IS_AUTOINCREMENT")));
+            }
+        }
+        // Las columnas de la clave primaria se ordenan por su posición en la clave
+        List<String> claves = new ArrayList<>();
+        List<Integer> posiciones = new ArrayList<>();
+        try (ResultSet rs = metaDataDB.getPrimaryKeys(base, esquema, tabla)) {
+            while (rs.next()) {
+                int posicion = rs.getInt("KEY_SEQ");
+                int i = 0;
+                while (i < posiciones.size() && posiciones.get(i) < posicion) {
+                    i++;
+                }
+                posiciones.add(i, posicion);
+                claves.add(i, rs.getString("COLUMN_NAME"));
+            }
+        }
+        return new EsquemaTabla(tabla, columnas, tipos, nombresTipo, tamanos, escalas, autoincrementables, claves);
+    }
+
+    /**
+     * Construye la clave de una entrada. La tabla va al final, donde la busca
+     * {@link #invalidar(String)}.
+     */
+    private static String clave(Connection connection, String base, String esquema, String tabla) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        return Consulta.getIdSGBD(connection) + "|" + metaData.getURL() + "|" + metaData.getUserName()
+                + "|" + normalizar(base) + "|" + normalizar(esquema) + "|" + normalizar(tabla);
+    }
+
+    /**
+     * Normaliza un nombre para la clave: sin delimitadores y en minúsculas.
+     */
+    private static String normalizar(String nombre) {
+        if (nombre == null) {
+            return "";
+        }
+        return nombre.replaceAll("[\\[\\]`\"]", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Invalida el esquema de una tabla en todas las bases y SGBD, junto con las
+     * listas de tablas.
+     *
+     * @param tabla Nombre de la tabla, puede incluir base o esquema separados
+     * por punto.
+     */
+    public static void invalidar(String tabla) {
+        String nombre = normalizar(tabla);
+        int punto = nombre.lastIndexOf('.');
+        String sufijo = "|" + (punto >= 0 ? nombre.substring(punto + 1) : nombre);
+        TABLAS.keySet().removeIf(k -> k.endsWith(sufijo));
+        LISTAS.clear(); // La tabla pudo crearse, renombrarse o eliminarse
+    }
+
+    /**
+     * Descarta todas las entradas de la caché.
+     */
+    public static void invalidarTodo() {
+        TABLAS.clear();
+        LISTAS.clear();
+    }
+
+    /**
+     * Invalida la caché si el texto SQL es una sentencia DDL. Si la sentencia
+     * nombra una tabla, solo se invalida esa tabla; si no, toda la caché.
+     *
+     * @param sql El texto SQL ejecutado.
+     * @return {@code true} si la sentencia era DDL.
+     */
+    public static boolean invalidarSiDDL(String sql) {
+        if (sql == null) {
+            return false;
+        }
+        Matcher m = DDL.matcher(sql);
+        if (!m.find()) {
+            return false;
+        }
+        if (m.group(2) != null) {
+            invalidar(m.group(2));
+        } else {
+            invalidarTodo();
+        }
+        return true;
+    }
+}
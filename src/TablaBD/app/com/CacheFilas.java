@@ -0,0 +1,330 @@
+package TablaBD.app.com;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * La clase <code>CacheFilas</code> resuelve búsquedas de filas por clave en
+ * lotes y guarda las filas encontradas en una caché acotada por tabla. Es la
+ * implementación de
+ * {@link Consulta#getRowsByIds(Connection, String, String, Collection)}.
+ *
+ * <p>
+ * Las claves que no están en la caché se consultan con listas
+ * {@code IN (?, ...)} del tamaño que admite el dialecto. Para que las
+ * sentencias preparadas se reutilicen, cada lista se completa repitiendo su
+ * última clave hasta uno de pocos tamaños fijos. Las escrituras que pasan por
+ * {@link Consulta#executeQueryWrite(Connection, String)},
+ * {@link EscrituraLotes} y {@link ConsultaAsincrona} invalidan las filas de
+ * las tablas modificadas.</p>
+ *
+ * <p>
+ * El servidor compara las claves con la intercalación y el tipo de la
+ * columna: con las intercalaciones por omisión de SQL Server y MySQL,
+ * {@code 'abc'} encuentra la fila {@code 'ABC'}, y la cadena {@code "5"}
+ * encuentra la fila de una columna entera con valor 5. Por eso cada clave
+ * buscada se relaciona con las filas devueltas primero por igualdad exacta y,
+ * si no hay, con una igualdad que ignora mayúsculas y acentos o que convierte
+ * el texto al tipo numérico de la columna.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public class CacheFilas {
+
+    // Atributos
+    private static volatile int maximoPorTabla = 10_000; // Filas guardadas por tabla y columna clave
+    private static final Map<String, FilasTabla> TABLAS = new ConcurrentHashMap<>(); // Filas por tabla y columna clave
+    private static final AtomicLong aciertos = new AtomicLong(); // Claves resueltas desde la caché
+    private static final AtomicLong fallos = new AtomicLong(); // Claves consultadas en la base de datos
+
+    /**
+     * Filas de una tabla por valor normalizado de la clave, en orden LRU.
+     */
+    private static final class FilasTabla {
+
+        private final String tabla; // Nombre normalizado de la tabla, para invalidar
+        private final LinkedHashMap<Object, Object[]> filas = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Object[]> mayor) {
+                return size() > maximoPorTabla;
+            }
+        };
+
+        private FilasTabla(String tabla) {
+            this.tabla = tabla;
+        }
+    }
+
+    /**
+     * Constructor privado: la clase solo tiene métodos estáticos.
+     */
+    private CacheFilas() {
+    }
+
+    /**
+     * Establece el número máximo de filas guardadas por tabla. Cero desactiva
+     * la caché sin desactivar las búsquedas por lotes.
+     *
+     * @param maximo Filas por tabla.
+     */
+    public static void setMaximoPorTabla(int maximo) {
+        if (maximo < 0) {
+            throw new IllegalArgumentException("El máximo no puede ser negativo");
+        }
+        maximoPorTabla = maximo;
+        if (maximo == 0) {
+            limpiar();
+        }
+    }
+
+    /**
+     * Busca las filas cuyos valores en la columna clave están en la colección.
+     *
+     * @param connection Conexión activa.
+     * @param tabla Nombre de la tabla.
+     * @param columnaClave Columna única por la que se busca.
+     * @param claves Valores buscados.
+     * @return Las filas encontradas, en el orden de las claves, por el valor
+     * de la clave que devolvió la base de datos; los valores de cada fila
+     * siguen el orden de {@link EsquemaTabla#getColumnas()}.
+     * @throws SQLException Si falla una consulta o la columna no existe.
+     */
+    static Map<Object, Object[]> buscar(Connection connection, String tabla, String columnaClave, Collection<?> claves) throws SQLException {
+        Map<Object, Object[]> encontradas = new LinkedHashMap<>();
+        if (claves.isEmpty()) {
+            return encontradas;
+        }
+        EsquemaTabla esquema = Consulta.getEsquemaTabla(connection, tabla, null);
+        int indiceClave = esquema.indiceDe(columnaClave);
+        if (indiceClave < 0) {
+            throw new SQLException("La columna " + columnaClave + " no existe en " + tabla);
+        }
+        int tipoClave = esquema.getTipo(columnaClave);
+        // Como en CacheResultados, la clave incluye el servidor y el usuario: dos servidores pueden tener bases homónimas
+        FilasTabla cache = TABLAS.computeIfAbsent(
+                Consulta.getIdSGBD(connection) + "|" + connection.getMetaData().getURL() + "|" + connection.getMetaData().getUserName()
+                + "|" + connection.getCatalog() + "|" + CacheResultados.normalizar(tabla) + "|" + columnaClave.toLowerCase(Locale.ROOT),
+                k -> new FilasTabla(CacheResultados.normalizar(tabla)));
+
+        // Primero se resuelven las claves guardadas; las demás se consultan sin repetir
+        Map<Object, Object> pendientes = new LinkedHashMap<>(); // Clave normalizada -> clave original
+        Map<Object, Object[]> porNormalizada = new HashMap<>();
+        synchronized (cache) {
+            for (Object clave : claves) {
+                Object normalizada = normalizar(clave);
+                Object[] fila = maximoPorTabla > 0 ? cache.filas.get(normalizada) : null;
+                if (fila != null) {
+                    porNormalizada.put(normalizada, fila);
+                } else if (clave != null) {
+                    pendientes.putIfAbsent(normalizada, clave);
+                }
+            }
+        }
+        aciertos.addAndGet(porNormalizada.size());
+        fallos.addAndGet(pendientes.size());
+
+        if (!pendientes.isEmpty()) {
+            Dialecto dialecto = Dialecto.de(connection);
+            String columnas = String.join(", ", esquema.getColumnas().stream().map(dialecto::citar).toList());
+            List<Object> lista = new ArrayList<>(pendientes.values());
+            int maximo = dialecto.tamanoListaIn();
+            for (int desde = 0; desde < lista.size(); desde += maximo) {
+                List<Object> lote = lista.subList(desde, Math.min(desde + maximo, lista.size()));
+                leerLote(connection, tabla, columnas, dialecto.citar(columnaClave), lote, indiceClave,
+                        esquema.getColumnas().size(), porNormalizada, cache);
+            }
+        }
+
+        // Las claves que el servidor igualó con su intercalación o convirtiendo el tipo no coinciden exactamente
+        Map<Object, Object[]> porEquivalente = null;
+        for (Object clave : claves) {
+            Object[] fila = porNormalizada.get(normalizar(clave));
+            if (fila == null && clave != null) {
+                if (porEquivalente == null) {
+                    porEquivalente = new HashMap<>();
+                    for (Object[] leida : porNormalizada.values()) {
+                        porEquivalente.putIfAbsent(equivalente(leida[indiceClave], tipoClave), leida);
+                    }
+                }
+                fila = porEquivalente.get(equivalente(clave, tipoClave));
+            }
+            if (fila != null) {
+                encontradas.putIfAbsent(fila[indiceClave], fila.clone());
+            }
+        }
+        return encontradas;
+    }
+
+    /**
+     * Consulta un lote de claves y guarda las filas leídas.
+     */
+    private static void leerLote(Connection connection, String tabla, String columnas, String columnaClave, List<Object> lote,
+            int indiceClave, int numeroColumnas, Map<Object, Object[]> porNormalizada, FilasTabla cache) throws SQLException {
+        int tamano = tamanoSentencia(lote.size(), Dialecto.de(connection).tamanoListaIn());
+        StringBuilder sql = new StringBuilder("SELECT ").append(columnas).append(" FROM ").append(tabla)
+                .append(" WHERE ").append(columnaClave).append(" IN (?");
+        for (int i = 1; i < tamano; i++) {
+            sql.append(", ?");
+        }
+        sql.append(')');
+        String texto = sql.toString();
+        PreparedStatement pstmt = CacheSentencias.preparar(connection, texto);
+        for (int i = 0; i < tamano; i++) {
+            pstmt.setObject(i + 1, lote.get(Math.min(i, lote.size() - 1))); // Las posiciones sobrantes repiten la última clave
+        }
+        long inicio = System.nanoTime();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            MetricasConsulta.registrarEjecucion(texto, System.nanoTime() - inicio);
+            List<Object[]> leidas = new ArrayList<>(lote.size());
+            while (rs.next()) {
+                Object[] fila = new Object[numeroColumnas];
+                for (int i = 0; i < numeroColumnas; i++) {
+                    fila[i] = rs.getObject(i + 1);
+                }
+                leidas.add(fila);
+                porNormalizada.put(normalizar(fila[indiceClave]), fila);
+            }
+            if (maximoPorTabla > 0) {
+                synchronized (cache) {
+                    for (Object[] fila : leidas) {
+                        cache.filas.put(normalizar(fila[indiceClave]), fila);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Redondea el tamaño de un lote a uno de pocos tamaños de sentencia: una
+     * potencia de 8 o el máximo del dialecto.
+     */
+    static int tamanoSentencia(int claves, int maximo) {
+        int tamano = 1;
+        while (tamano < claves && tamano < maximo) {
+            tamano *= 8;
+        }
+        return Math.min(tamano, maximo);
+    }
+
+    /**
+     * Normaliza una clave para que un mismo valor coincida aunque el
+     * controlador lo devuelva con otro tipo numérico que el buscado.
+     */
+    private static Object normalizar(Object clave) {
+        if (clave instanceof Integer || clave instanceof Long || clave instanceof Short || clave instanceof Byte) {
+            return ((Number) clave).longValue();
+        }
+        if (clave instanceof BigInteger entero && entero.bitLength() < 64) {
+            return entero.longValue();
+        }
+        if (clave instanceof BigDecimal decimal) {
+            BigDecimal sinCeros = decimal.stripTrailingZeros();
+            return sinCeros.scale() <= 0 && sinCeros.precision() - sinCeros.scale() < 19 ? (Object) sinCeros.longValue() : sinCeros;
+        }
+        if (clave instanceof String texto) {
+            return texto.stripTrailing(); // CHAR de ancho fijo se devuelve con espacios al final
+        }
+        return clave;
+    }
+
+    /**
+     * Lleva una clave a la forma en que la compara el servidor: los textos de
+     * columnas de texto sin mayúsculas ni acentos (las intercalaciones por
+     * omisión de SQL Server y MySQL no los distinguen) y los textos buscados
+     * en columnas numéricas convertidos a número.
+     */
+    private static Object equivalente(Object clave, int tipo) {
+        if (clave instanceof String texto) {
+            if (esNumerico(tipo)) {
+                try {
+                    return normalizar(new BigDecimal(texto.strip()));
+                } catch (NumberFormatException e) {
+                    return clave; // El servidor tampoco lo convierte
+                }
+            }
+            String sinAcentos = Normalizer.normalize(texto.stripTrailing(), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+            return sinAcentos.toLowerCase(Locale.ROOT);
+        }
+        return normalizar(clave);
+    }
+
+    /**
+     * Indica si un tipo JDBC es numérico.
+     */
+    private static boolean esNumerico(int tipo) {
+        return switch (tipo) {
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT, Types.DECIMAL, Types.NUMERIC, Types.REAL,
+                 Types.FLOAT, Types.DOUBLE ->
+                true;
+            default ->
+                false;
+        };
+    }
+
+    /**
+     * Descarta las filas guardadas de una tabla.
+     *
+     * @param tabla Nombre de la tabla, puede incluir base o esquema.
+     */
+    public static void invalidarTabla(String tabla) {
+        String normalizada = CacheResultados.normalizar(tabla);
+        TABLAS.values().removeIf(f -> f.tabla.equals(normalizada));
+    }
+
+    /**
+     * Descarta las filas de las tablas que modifica una sentencia. Si no se
+     * reconoce ninguna tabla, se descarta todo.
+     *
+     * @param sql Texto SQL de la sentencia de escritura.
+     */
+    public static void invalidarPorEscritura(String sql) {
+        Set<String> tablas = CacheResultados.tablasDe(sql);
+        if (tablas.isEmpty()) {
+            limpiar();
+            return;
+        }
+        TABLAS.values().removeIf(f -> tablas.contains(f.tabla));
+    }
+
+    /**
+     * Descarta todas las filas guardadas.
+     */
+    public static void limpiar() {
+        TABLAS.clear();
+    }
+
+    /**
+     * Obtiene el número de claves resueltas desde la caché.
+     *
+     * @return Aciertos de la caché.
+     */
+    public static long getAciertos() {
+        return aciertos.get();
+    }
+
+    /**
+     * Obtiene el número de claves que se consultaron en la base de datos.
+     *
+     * @return Fallos de la caché.
+     */
+    public static long getFallos() {
+        return fallos.get();
+    }
+}
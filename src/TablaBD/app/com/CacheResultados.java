@@ -0,0 +1,429 @@
+package TablaBD.app.com;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * La clase <code>CacheResultados</code> guarda resultados completos de
+ * consultas de lectura para que varios {@link ModeloDatos} construidos con la
+ * misma consulta compartan una sola copia en memoria, sin volver a ejecutarla
+ * ni a leer sus filas.
+ *
+ * <p>
+ * Las entradas se identifican por SGBD, base, texto SQL y parámetros. La
+ * caché está desactivada por omisión; al activarla se acota por un
+ * presupuesto de bytes (desalojando la entrada usada hace más tiempo) y por un
+ * tiempo de vida. {@link Consulta#executeQueryWrite(java.sql.Connection, String)}
+ * y {@link EscrituraLotes} invalidan las entradas cuyas consultas leen alguna
+ * de las tablas modificadas; las consultas cuyas tablas no se reconocen se
+ * invalidan con cualquier escritura. Un resultado no se guarda si hubo una
+ * invalidación mientras se leía.</p>
+ *
+ * <p>
+ * Los resultados guardados son inmutables: su almacenamiento no debe
+ * modificarse después de entrar en la caché.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public class CacheResultados {
+
+    // Atributos
+    private static volatile boolean habilitada = false; // La caché solo se usa si se activa explícitamente
+    private static volatile long presupuestoBytes = 64L * 1024 * 1024; // Memoria máxima estimada de los resultados
+    private static volatile long vigenciaMs = 60_000L; // Tiempo de vida de un resultado
+    private static final Map<String, Resultado> RESULTADOS = new LinkedHashMap<>(16, 0.75f, true); // LRU por orden de acceso
+    private static long bytesTotales; // Bytes estimados de las entradas actuales, protegido por RESULTADOS
+    private static final AtomicLong aciertos = new AtomicLong(); // Resultados servidos desde la caché
+    private static final AtomicLong fallos = new AtomicLong(); // Consultas que tuvieron que ejecutarse
+    private static final AtomicLong generacion = new AtomicLong(); // Aumenta con cada invalidación
+    private static final Pattern TABLAS = Pattern.compile(
+            "\\b(FROM|JOIN|INTO|UPDATE|TABLE|USING)\\s+(\\(|[\\w\\[\\]`\".]+)",
+            Pattern.CASE_INSENSITIVE); // Tablas referenciadas por una sentencia
+    private static final Pattern NOMBRE = Pattern.compile("\\s*([\\w\\[\\]`\".]+)"); // Tabla que sigue a una coma
+    private static final Set<String> FIN_LISTA = Set.of("where", "group", "order", "having", "union", "except",
+            "intersect", "limit", "offset", "fetch", "for", "set", "option", "window", "select", "values",
+            "returning", "output"); // Palabras que terminan una lista de tablas
+
+    /**
+     * Resultado inmutable de una consulta: nombres de columnas y filas.
+     */
+    static final class Resultado {
+
+        private final String[] columnas;
+        private final AlmacenFilas almacen;
+        private final Set<String> tablas; // Vacío si no se reconocieron: cualquier escritura lo invalida
+        private final long bytes;
+        private final long cargadoMs;
+
+        private Resultado(String[] columnas, AlmacenFilas almacen, Set<String> tablas) {
+            this.columnas = columnas.clone();
+            this.almacen = almacen;
+            this.tablas = tablas;
+            this.bytes = almacen.getBytesEstimados();
+            this.cargadoMs = System.currentTimeMillis();
+        }
+
+        /**
+         * Obtiene una copia de los nombres de las columnas.
+         */
+        String[] getColumnas() {
+            return columnas.clone();
+        }
+
+        /**
+         * Obtiene el almacenamiento compartido, que no debe modificarse.
+         */
+        AlmacenFilas getAlmacen() {
+            return almacen;
+        }
+
+        private boolean vigente() {
+            return System.currentTimeMillis() - cargadoMs < vigenciaMs;
+        }
+    }
+
+    /**
+     * Constructor privado: la clase solo tiene métodos estáticos.
+     */
+    private CacheResultados() {
+    }
+
+    /**
+     * Activa o desactiva la caché. Al desactivarla se descartan sus entradas.
+     *
+     * @param habilitada {@code true} para activar la caché.
+     */
+    public static void setHabilitada(boolean habilitada) {
+        CacheResultados.habilitada = habilitada;
+        if (!habilitada) {
+            limpiar();
+        }
+    }
+
+    /**
+     * Indica si la caché está activa.
+     *
+     * @return {@code true} si la caché está activa.
+     */
+    public static boolean isHabilitada() {
+        return habilitada;
+    }
+
+    /**
+     * Establece la memoria máxima estimada de los resultados guardados.
+     *
+     * @param bytes Presupuesto en bytes.
+     */
+    public static void setPresupuestoBytes(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("El presupuesto no puede ser negativo");
+        }
+        presupuestoBytes = bytes;
+        synchronized (RESULTADOS) {
+            desalojar();
+        }
+    }
+
+    /**
+     * Establece el tiempo de vida de los resultados guardados.
+     *
+     * @param milisegundos Vigencia en milisegundos.
+     */
+    public static void setVigencia(long milisegundos) {
+        vigenciaMs = milisegundos;
+    }
+
+    /**
+     * Construye la clave de un resultado. Incluye la URL y el usuario del
+     * perfil, de modo que dos servidores con bases del mismo nombre, o dos
+     * usuarios con permisos distintos, no comparten resultados.
+     *
+     * @param perfil Perfil con que se ejecuta la consulta.
+     * @param sql Texto SQL.
+     * @param parametros Parámetros de la consulta, puede ser {@code null}.
+     * @return La clave de la caché.
+     */
+    static String clave(PerfilConexion perfil, String sql, List<?> parametros) {
+        return perfil.getIdSGBD() + "|" + perfil.getUrl() + "|" + perfil.getUsuario() + "|" + perfil.getBase()
+                + "|" + sql.strip() + "|" + (parametros == null ? "[]" : Arrays.deepToString(parametros.toArray()));
+    }
+
+    /**
+     * Busca un resultado vigente.
+     *
+     * @param clave Clave construida con {@link #clave(PerfilConexion, String, List)}.
+     * @return El resultado, o {@code null} si la caché está desactivada, no
+     * existe o expiró.
+     */
+    static Resultado obtener(String clave) {
+        if (!habilitada) {
+            return null;
+        }
+        synchronized (RESULTADOS) {
+            Resultado resultado = RESULTADOS.get(clave);
+            if (resultado != null && resultado.vigente()) {
+                aciertos.incrementAndGet();
+                return resultado;
+            }
+            if (resultado != null) {
+                quitar(clave);
+            }
+        }
+        fallos.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Obtiene la generación de invalidación actual. Debe tomarse antes de
+     * ejecutar la consulta cuyo resultado se guardará con
+     * {@link #guardar(String, String, String[], AlmacenFilas, long)}.
+     *
+     * @return La generación actual.
+     */
+    static long getGeneracion() {
+        return generacion.get();
+    }
+
+    /**
+     * Guarda un resultado leído por completo. El almacenamiento no debe
+     * modificarse después. Si el resultado excede el presupuesto por sí solo,
+     * no se guarda. Tampoco se guarda si hubo alguna invalidación desde que
+     * se tomó la generación: una escritura confirmada durante la lectura pudo
+     * dejar el resultado desactualizado sin que su invalidación lo alcanzara.
+     *
+     * @param clave Clave construida con {@link #clave(PerfilConexion, String, List)}.
+     * @param sql Texto SQL, del que se extraen las tablas leídas.
+     * @param columnas Nombres de las columnas.
+     * @param almacen Filas del resultado.
+     * @param generacionLectura Generación tomada con {@link #getGeneracion()}
+     * antes de ejecutar la consulta.
+     */
+    static void guardar(String clave, String sql, String[] columnas, AlmacenFilas almacen, long generacionLectura) {
+        if (!habilitada) {
+            return;
+        }
+        Resultado resultado = new Resultado(columnas, almacen, tablasDe(sql));
+        if (resultado.bytes > presupuestoBytes) {
+            return;
+        }
+        synchronized (RESULTADOS) {
+            if (generacion.get() != generacionLectura) {
+                return; // Hubo una invalidación durante la lectura
+            }
+            quitar(clave);
+            RESULTADOS.put(clave, resultado);
+            bytesTotales += resultado.bytes;
+            desalojar();
+        }
+    }
+
+    /**
+     * Quita una entrada y descuenta sus bytes. Debe llamarse con el candado
+     * de RESULTADOS.
+     */
+    private static void quitar(String clave) {
+        Resultado anterior = RESULTADOS.remove(clave);
+        if (anterior != null) {
+            bytesTotales -= anterior.bytes;
+        }
+    }
+
+    /**
+     * Desaloja las entradas usadas hace más tiempo hasta respetar el
+     * presupuesto. Debe llamarse con el candado de RESULTADOS.
+     */
+    private static void desalojar() {
+        Iterator<Resultado> it = RESULTADOS.values().iterator();
+        while (bytesTotales > presupuestoBytes && it.hasNext()) {
+            bytesTotales -= it.next().bytes;
+            it.remove();
+        }
+    }
+
+    /**
+     * Invalida los resultados que leen alguna de las tablas que modifica la
+     * sentencia.
+     *
+     * @param sql Texto SQL de la sentencia de escritura.
+     */
+    public static void invalidarPorEscritura(String sql) {
+        Set<String> tablas = tablasDe(sql);
+        if (tablas.isEmpty()) {
+            limpiar(); // No se reconocen las tablas; se descarta todo por seguridad
+            return;
+        }
+        invalidar(tablas);
+    }
+
+    /**
+     * Invalida los resultados que leen la tabla indicada.
+     *
+     * @param tabla Nombre de la tabla, puede incluir base o esquema.
+     */
+    public static void invalidarTabla(String tabla) {
+        invalidar(Collections.singleton(normalizar(tabla)));
+    }
+
+    /**
+     * Invalida los resultados que leen alguna de las tablas normalizadas y
+     * los que no tienen tablas reconocidas.
+     */
+    private static void invalidar(Set<String> tablas) {
+        synchronized (RESULTADOS) {
+            generacion.incrementAndGet();
+            Iterator<Resultado> it = RESULTADOS.values().iterator();
+            while (it.hasNext()) {
+                Resultado r = it.next();
+                if (r.tablas.isEmpty() || !Collections.disjoint(r.tablas, tablas)) {
+                    bytesTotales -= r.bytes;
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Descarta todos los resultados guardados.
+     */
+    public static void limpiar() {
+        synchronized (RESULTADOS) {
+            generacion.incrementAndGet();
+            RESULTADOS.clear();
+            bytesTotales = 0;
+        }
+    }
+
+    /**
+     * Extrae los nombres normalizados de las tablas que menciona una
+     * sentencia, incluidas todas las de una lista separada por comas
+     * ({@code FROM a, b} o {@code UPDATE a, b SET ...}). Si una lista no se
+     * puede reconocer con seguridad devuelve un conjunto vacío, que quien
+     * invalida trata como «todas las tablas».
+     */
+    static Set<String> tablasDe(String sql) {
+        Set<String> tablas = new HashSet<>();
+        if (sql != null) {
+            Matcher m = TABLAS.matcher(sql);
+            while (m.find()) {
+                boolean subconsulta = m.group(2).equals("("); // Sus tablas se reconocen por su propio FROM
+                if (!subconsulta) {
+                    tablas.add(normalizar(m.group(2)));
+                }
+                String palabra = m.group(1).toUpperCase(Locale.ROOT);
+                if ((palabra.equals("FROM") || palabra.equals("UPDATE")) && !agregarLista(sql, m.start(2), tablas)) {
+                    return new HashSet<>();
+                }
+            }
+        }
+        return tablas;
+    }
+
+    /**
+     * Agrega las tablas que siguen a las comas de una lista de tablas, hasta
+     * la palabra que termina la lista o el paréntesis que cierra la
+     * subconsulta. Las comas entre paréntesis o dentro de literales se
+     * ignoran, y una subconsulta en la lista se reconoce por su propio
+     * {@code FROM}.
+     *
+     * @return {@code false} si después de una coma no hay un nombre de tabla
+     * ni una subconsulta.
+     */
+    private static boolean agregarLista(String sql, int desde, Set<String> tablas) {
+        int profundidad = 0;
+        int i = desde; // Inicio de la primera tabla de la lista
+        while (i < sql.length()) {
+            char ch = sql.charAt(i);
+            if (ch == '\'') {
+                int cierre = sql.indexOf('\'', i + 1);
+                while (cierre >= 0 && cierre + 1 < sql.length() && sql.charAt(cierre + 1) == '\'') {
+                    cierre = sql.indexOf('\'', cierre + 2); // Comilla escapada
+                }
+                if (cierre < 0) {
+                    return false;
+                }
+                i = cierre + 1;
+                continue;
+            }
+            if (ch == '(') {
+                profundidad++;
+            } else if (ch == ')') {
+                if (profundidad == 0) {
+                    return true; // Fin de la subconsulta que contiene la lista
+                }
+                profundidad--;
+            } else if (profundidad == 0 && ch == ',') {
+                Matcher nombre = NOMBRE.matcher(sql).region(i + 1, sql.length());
+                if (nombre.lookingAt()) {
+                    tablas.add(normalizar(nombre.group(1)));
+                    i = nombre.end();
+                    continue;
+                }
+                if (!sql.substring(i + 1).stripLeading().startsWith("(")) {
+                    return false;
+                }
+            } else if (profundidad == 0 && Character.isLetter(ch) && (i == 0 || !Character.isLetterOrDigit(sql.charAt(i - 1)))) {
+                int fin = i;
+                while (fin < sql.length() && (Character.isLetterOrDigit(sql.charAt(fin)) || sql.charAt(fin) == '_')) {
+                    fin++;
+                }
+                if (FIN_LISTA.contains(sql.substring(i, fin).toLowerCase(Locale.ROOT))) {
+                    return true;
+                }
+                i = fin;
+                continue;
+            }
+            i++;
+        }
+        return true;
+    }
+
+    /**
+     * Normaliza un nombre de tabla: sin delimitadores, sin base ni esquema y
+     * en minúsculas.
+     */
+    static String normalizar(String tabla) {
+        String nombre = tabla.replaceAll("[\\[\\]`\"]", "").toLowerCase(Locale.ROOT);
+        int punto = nombre.lastIndexOf('.');
+        return punto >= 0 ? nombre.substring(punto + 1) : nombre;
+    }
+
+    /**
+     * Obtiene el número de resultados servidos desde la caché.
+     *
+     * @return Aciertos de la caché.
+     */
+    public static long getAciertos() {
+        return aciertos.get();
+    }
+
+    /**
+     * Obtiene el número de consultas que no estaban en la caché.
+     *
+     * @return Fallos de la caché.
+     */
+    public static long getFallos() {
+        return fallos.get();
+    }
+
+    /**
+     * Obtiene la memoria estimada de los resultados guardados.
+     *
+     * @return Bytes estimados.
+     */
+    public static long getBytesEstimados() {
+        synchronized (RESULTADOS) {
+            return bytesTotales;
+        }
+    }
+}
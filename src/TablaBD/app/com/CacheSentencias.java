@@ -0,0 +1,231 @@
+package TablaBD.app.com;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * La clase <code>CacheSentencias</code> conserva las sentencias preparadas de
+ * cada conexión física, indexadas por su texto SQL, para no volver a
+ * analizarlas y planearlas en el servidor en cada llamada. Cada conexión tiene
+ * su propia caché LRU de tamaño acotado; las sentencias desalojadas se
+ * cierran.
+ *
+ * <p>
+ * Solo se guardan las sentencias con parámetros ({@code ?}) de conexiones
+ * prestadas por un {@link PoolConexiones}, que es quien descarta su caché al
+ * cerrarlas; además, el mantenimiento del pool descarta periódicamente las
+ * cachés de conexiones que se cerraron por fuera. Las consultas ad hoc, las
+ * sentencias DDL y las de conexiones ajenas al pool se preparan sin guardar
+ * y se cierran al cerrar su resultado ({@link PreparedStatement#closeOnCompletion()});
+ * si se ejecutan como escritura, deben liberarse con
+ * {@link #liberar(PreparedStatement, String)}.</p>
+ *
+ * <p>
+ * Como las conexiones del {@link PoolConexiones} se reutilizan, una consulta
+ * repetida (por ejemplo, {@link Consulta#getRowById} sobre la misma tabla)
+ * vuelve a usar la sentencia ya preparada. Al ejecutar de nuevo una sentencia
+ * se cierra el {@link ResultSet} anterior de esa misma sentencia, por lo que
+ * cada resultado debe leerse antes de repetir la consulta en la misma
+ * conexión.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public class CacheSentencias {
+
+    // Atributos
+    private static volatile int tamanoMaximo = 64; // Sentencias por conexión
+    private static final Map<Connection, Map<String, PreparedStatement>> CACHES = new IdentityHashMap<>(); // Caché de cada conexión física
+    private static final AtomicLong aciertos = new AtomicLong(); // Sentencias reutilizadas
+    private static final AtomicLong fallos = new AtomicLong(); // Sentencias preparadas de nuevo
+
+    /**
+     * Constructor privado: la clase solo tiene métodos estáticos.
+     */
+    private CacheSentencias() {
+    }
+
+    /**
+     * Obtiene una sentencia preparada para el texto SQL, reutilizando la de la
+     * caché de la conexión si existe. Los parámetros de una sentencia
+     * reutilizada se limpian antes de devolverla.
+     *
+     * @param connection La conexión activa.
+     * @param sql El texto SQL.
+     * @return La sentencia preparada. Si se guarda en la caché no debe
+     * cerrarse; la caché la cierra al desalojarla.
+     * @throws SQLException Si falla la preparación.
+     */
+    public static PreparedStatement preparar(Connection connection, String sql) throws SQLException {
+        return preparar(connection, sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+
+    /**
+     * Obtiene una sentencia preparada con el tipo y concurrencia de cursor
+     * indicados, reutilizando la de la caché si existe.
+     *
+     * @param connection La conexión activa.
+     * @param sql El texto SQL.
+     * @param tipo Tipo de cursor de {@link ResultSet}.
+     * @param concurrencia Concurrencia de {@link ResultSet}.
+     * @return La sentencia preparada.
+     * @throws SQLException Si falla la preparación.
+     */
+    public static PreparedStatement preparar(Connection connection, String sql, int tipo, int concurrencia) throws SQLException {
+        if (!seGuarda(connection, sql)) {
+            PreparedStatement pstmt = connection.prepareStatement(sql, tipo, concurrencia);
+            pstmt.closeOnCompletion(); // Se cierra junto con su resultado
+            return pstmt;
+        }
+        String clave = tipo + ":" + concurrencia + ":" + sql;
+        Map<String, PreparedStatement> cache;
+        synchronized (CACHES) {
+            cache = CACHES.computeIfAbsent(connection, c -> crearCache());
+        }
+        synchronized (cache) {
+            PreparedStatement pstmt = cache.get(clave);
+            if (pstmt != null && !pstmt.isClosed()) {
+                aciertos.incrementAndGet();
+                pstmt.clearParameters();
+                return pstmt;
+            }
+            fallos.incrementAndGet();
+            pstmt = connection.prepareStatement(sql, tipo, concurrencia);
+            cache.put(clave, pstmt);
+            return pstmt;
+        }
+    }
+
+    /**
+     * Indica si la sentencia de un texto SQL se guarda en la caché: solo las
+     * que tienen parámetros, que son las que se repiten, y solo en conexiones
+     * del pool, cuya caché se descarta al cerrarlas.
+     */
+    private static boolean seGuarda(Connection connection, String sql) {
+        return sql.indexOf('?') >= 0 && PoolConexiones.esPrestada(connection);
+    }
+
+    /**
+     * Libera una sentencia obtenida con {@link #preparar(Connection, String)}
+     * después de ejecutarla como escritura: la cierra si no está guardada en
+     * la caché. Las consultas no lo necesitan, ya que las sentencias no
+     * guardadas se cierran al cerrar su resultado.
+     *
+     * @param pstmt La sentencia.
+     * @param sql El texto SQL con que se preparó.
+     * @throws SQLException Si falla el cierre.
+     */
+    public static void liberar(PreparedStatement pstmt, String sql) throws SQLException {
+        if (!seGuarda(pstmt.getConnection(), sql)) {
+            pstmt.close();
+        }
+    }
+
+    /**
+     * Crea la caché LRU de una conexión, que cierra las sentencias que
+     * desaloja.
+     */
+    private static Map<String, PreparedStatement> crearCache() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > tamanoMaximo) {
+                    cerrar(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Descarta y cierra las sentencias de una conexión. Debe invocarse antes
+     * de cerrar físicamente la conexión.
+     *
+     * @param connection La conexión cuya caché se descarta.
+     */
+    public static void descartar(Connection connection) {
+        Map<String, PreparedStatement> cache;
+        synchronized (CACHES) {
+            cache = CACHES.remove(connection);
+        }
+        if (cache != null) {
+            synchronized (cache) {
+                cache.values().forEach(CacheSentencias::cerrar);
+                cache.clear();
+            }
+        }
+    }
+
+    /**
+     * Descarta las cachés de las conexiones que se cerraron sin devolverlas al
+     * pool ni liberarlas, para que no queden retenidas junto con sus
+     * sentencias.
+     */
+    static void descartarCerradas() {
+        List<Connection> conexiones;
+        synchronized (CACHES) {
+            conexiones = new ArrayList<>(CACHES.keySet());
+        }
+        for (Connection connection : conexiones) {
+            boolean cerrada;
+            try {
+                cerrada = connection.isClosed();
+            } catch (SQLException e) {
+                cerrada = true;
+            }
+            if (cerrada) {
+                descartar(connection);
+            }
+        }
+    }
+
+    /**
+     * Cierra una sentencia ignorando los errores de cierre.
+     */
+    private static void cerrar(PreparedStatement pstmt) {
+        try {
+            pstmt.close();
+        } catch (SQLException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Establece el número máximo de sentencias en caché por conexión.
+     *
+     * @param maximo Sentencias por conexión.
+     */
+    public static void setTamanoMaximo(int maximo) {
+        if (maximo < 1) {
+            throw new IllegalArgumentException("El tamaño de la caché debe ser positivo");
+        }
+        CacheSentencias.tamanoMaximo = maximo;
+    }
+
+    /**
+     * Obtiene el número de sentencias reutilizadas desde la caché.
+     *
+     * @return Aciertos de la caché.
+     */
+    public static long getAciertos() {
+        return aciertos.get();
+    }
+
+    /**
+     * Obtiene el número de sentencias que tuvieron que prepararse.
+     *
+     * @return Fallos de la caché.
+     */
+    public static long getFallos() {
+        return fallos.get();
+    }
+}
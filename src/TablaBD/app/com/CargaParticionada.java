@@ -0,0 +1,249 @@
+package TablaBD.app.com;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Carga una tabla completa en paralelo. La tabla se divide en rangos de la
+ * primera columna de su clave primaria a partir de {@code MIN}/{@code MAX};
+ * cada rango se lee con su propia conexión del pool en su propio
+ * almacenamiento, ordenado por la clave primaria completa, y los rangos se
+ * unen en orden de clave sin copiar sus filas. Con una clave compuesta los
+ * rangos siguen siendo disjuntos, porque todas las filas con el mismo valor
+ * de la primera columna caen en el mismo rango.
+ *
+ * <p>
+ * Se generan más rangos que hilos de trabajo para repartir mejor la carga
+ * cuando las claves no están distribuidas de forma uniforme. Si la clave no
+ * es entera o la tabla es pequeña, se lee con una sola consulta.</p>
+ *
+ * <p>
+ * La carga no es una instantánea: cada rango se lee en su propia transacción
+ * y en un momento distinto, así que si otra sesión modifica la tabla durante
+ * la carga el resultado puede mezclar estados, y una fila cuya clave cambie
+ * de un rango a otro puede aparecer dos veces o faltar. Para una lectura
+ * consistente se debe usar una sola consulta.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+final class CargaParticionada {
+
+    // Atributos
+    private static final int RANGOS_POR_TRABAJADOR = 4; // Rangos por hilo, para equilibrar claves dispersas
+    private static final long FILAS_MINIMAS_POR_RANGO = 10_000L; // Por debajo de este tamaño no conviene dividir
+    private static final AtomicInteger HILOS = new AtomicInteger(); // Numeración de los hilos de trabajo
+
+    private final PerfilConexion perfil; // Perfil con el que se abren las conexiones
+    private final String tabla; // Tabla a cargar
+    private final int trabajadores; // Hilos de lectura simultáneos
+    private String[] columnas; // Nombres de las columnas leídas
+    private AlmacenFilas almacen; // Filas ensambladas
+
+    /**
+     * Filas leídas de un rango de la clave.
+     */
+    private record Particion(String[] columnas, AlmacenFilas almacen) {
+    }
+
+    /**
+     * Prepara la carga de una tabla.
+     *
+     * @param perfil Perfil de conexión.
+     * @param tabla Nombre de la tabla.
+     * @param trabajadores Número de hilos de lectura; se limita al tamaño
+     * máximo del pool de conexiones.
+     */
+    CargaParticionada(PerfilConexion perfil, String tabla, int trabajadores) {
+        if (trabajadores < 1) {
+            throw new IllegalArgumentException("El número de trabajadores debe ser positivo");
+        }
+        this.perfil = perfil;
+        this.tabla = tabla;
+        this.trabajadores = Math.min(trabajadores, perfil.getPool().getMaximo());
+    }
+
+    /**
+     * Lee la tabla completa.
+     *
+     * @throws SQLException Si falla la lectura de los metadatos o de algún
+     * rango.
+     */
+    void cargar() throws SQLException {
+        long inicio = System.nanoTime();
+        Dialecto dialecto = Dialecto.desdeId(perfil.getIdSGBD());
+        String clave = null; // Primera columna de la clave, que define los rangos
+        String orden = null; // Clave primaria completa, para ORDER BY
+        long minimo = 0, maximo = 0, total = 0;
+
+        Connection conn = perfil.getConexion();
+        try {
+            EsquemaTabla esquema = Consulta.getEsquemaTabla(conn, tabla, perfil.getBase());
+            List<String> claves = esquema.getClavesPrimarias();
+            if (!claves.isEmpty() && esEntero(esquema.getTipo(claves.get(0)))) {
+                clave = dialecto.citar(claves.get(0));
+                List<String> citadas = new ArrayList<>(claves.size());
+                for (String c : claves) {
+                    citadas.add(dialecto.citar(c));
+                }
+                orden = String.join(", ", citadas);
+                String sql = "SELECT MIN(" + clave + "), MAX(" + clave + "), COUNT(*) FROM " + tabla;
+                try (PreparedStatement pstmt = conn.prepareStatement(sql);
+                        ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    minimo = rs.getLong(1);
+                    maximo = rs.getLong(2);
+                    total = rs.getLong(3);
+                }
+            }
+        } finally {
+            PerfilConexion.liberar(conn);
+        }
+
+        long rangos = Math.min((long) trabajadores * RANGOS_POR_TRABAJADOR, total / FILAS_MINIMAS_POR_RANGO);
+        List<String> consultas = new ArrayList<>();
+        List<long[]> limites = new ArrayList<>();
+        if (clave == null || trabajadores == 1 || rangos < 2) {
+            consultas.add("SELECT * FROM " + tabla + (orden != null ? " ORDER BY " + orden : ""));
+            limites.add(new long[0]);
+        } else {
+            // La diferencia entre máximo y mínimo siempre cabe en 64 bits sin signo
+            long paso = Long.divideUnsigned(maximo - minimo, rangos) + 1;
+            for (long i = 0; i < rangos && Long.compareUnsigned(i * paso, maximo - minimo) <= 0; i++) {
+                long desde = minimo + i * paso;
+                boolean ultimo = i == rangos - 1 || Long.compareUnsigned((i + 1) * paso, maximo - minimo) > 0;
+                consultas.add("SELECT * FROM " + tabla + " WHERE " + clave + " >= ?"
+                        + (ultimo ? "" : " AND " + clave + " < ?") + " ORDER BY " + orden);
+                limites.add(ultimo ? new long[]{desde} : new long[]{desde, desde + paso});
+            }
+        }
+
+        List<Particion> particiones = leerParticiones(consultas, limites);
+        ensamblar(particiones);
+        MetricasConsulta.registrarLectura("SELECT * FROM " + tabla, System.nanoTime() - inicio, almacen.getFilas());
+    }
+
+    /**
+     * Lee los rangos en paralelo. Si un rango falla, se cancelan los demás.
+     */
+    private List<Particion> leerParticiones(List<String> consultas, List<long[]> limites) throws SQLException {
+        if (consultas.size() == 1) {
+            return List.of(leer(consultas.get(0), limites.get(0), 1));
+        }
+        ExecutorService ejecutor = Executors.newFixedThreadPool(Math.min(trabajadores, consultas.size()), r -> {
+            Thread hilo = new Thread(r, "TablaBD-carga-" + HILOS.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        List<Future<Particion>> futuros = new ArrayList<>();
+        try {
+            for (int i = 0; i < consultas.size(); i++) {
+                String sql = consultas.get(i);
+                long[] parametros = limites.get(i);
+                futuros.add(ejecutor.submit(() -> leer(sql, parametros, consultas.size())));
+            }
+            List<Particion> particiones = new ArrayList<>(futuros.size());
+            for (Future<Particion> futuro : futuros) {
+                particiones.add(futuro.get());
+            }
+            return particiones;
+        } catch (ExecutionException e) {
+            futuros.forEach(f -> f.cancel(true));
+            Throwable causa = e.getCause();
+            if (causa instanceof SQLException sqlEx) {
+                throw sqlEx;
+            }
+            throw new SQLException("Error en la carga particionada de " + tabla, causa);
+        } catch (InterruptedException e) {
+            futuros.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new SQLException("Carga particionada de " + tabla + " interrumpida", e);
+        } finally {
+            ejecutor.shutdown();
+        }
+    }
+
+    /**
+     * Lee un rango con una conexión propia, directamente en su propio
+     * almacenamiento; el presupuesto de memoria se reparte entre los rangos.
+     */
+    private Particion leer(String sql, long[] parametros, int rangos) throws SQLException {
+        Connection conn = perfil.getConexion();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            Dialecto.de(conn).configurarLectura(conn, pstmt, Consulta.getTamanoFetch());
+            for (int i = 0; i < parametros.length; i++) {
+                pstmt.setLong(i + 1, parametros[i]);
+            }
+            long inicio = System.nanoTime();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                MetricasConsulta.registrarEjecucion(sql, System.nanoTime() - inicio);
+                ResultSetMetaData md = rs.getMetaData();
+                int columnCount = md.getColumnCount();
+                String[] nombres = new String[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    nombres[i] = md.getColumnName(i + 1);
+                }
+                AlmacenFilas filas = ModeloDatos.crearAlmacen(md, rangos);
+                while (rs.next()) {
+                    filas.agregarDesde(rs, columnCount);
+                    if (Thread.currentThread().isInterrupted()) {
+                        pstmt.cancel();
+                        throw new SQLException("Lectura del rango cancelada");
+                    }
+                }
+                filas.compactar();
+                return new Particion(nombres, filas);
+            }
+        } finally {
+            PerfilConexion.liberar(conn);
+        }
+    }
+
+    /**
+     * Une las particiones, en el orden de sus rangos, sin copiar sus filas.
+     */
+    private void ensamblar(List<Particion> particiones) {
+        columnas = particiones.get(0).columnas();
+        if (particiones.size() == 1) {
+            almacen = particiones.get(0).almacen();
+            return;
+        }
+        List<AlmacenFilas> partes = new ArrayList<>(particiones.size());
+        for (Particion p : particiones) {
+            partes.add(p.almacen());
+        }
+        almacen = new AlmacenConcatenado(partes);
+    }
+
+    /**
+     * Indica si un tipo JDBC es entero y admite rangos numéricos.
+     */
+    private static boolean esEntero(int tipo) {
+        return tipo == Types.TINYINT || tipo == Types.SMALLINT || tipo == Types.INTEGER || tipo == Types.BIGINT;
+    }
+
+    /**
+     * Obtiene los nombres de las columnas leídas.
+     */
+    String[] getColumnas() {
+        return columnas;
+    }
+
+    /**
+     * Obtiene las filas ensambladas en orden de clave.
+     */
+    AlmacenFilas getAlmacen() {
+        return almacen;
+    }
+}
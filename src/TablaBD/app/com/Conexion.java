@@ -2,13 +2,22 @@ package TablaBD.app.com;
 
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.sql.DriverManager;
+import java.util.concurrent.CompletableFuture;
 import javax.swing.JOptionPane;
 
 /**
  * La clase <code>Conexion</code> se encarga de gestionar las conexiones a bases
  * de datos. Soporta tanto MySQL como SQL Server, proporcionando métodos para
- * abrir y cerrar conexiones.
+ * abrir y cerrar conexiones. Las conexiones se toman prestadas de un
+ * {@link PoolConexiones} por SGBD, base de datos y usuario.
+ *
+ * <p>
+ * Los métodos estáticos actúan como fachada sobre un perfil por defecto
+ * construido a partir de la base, usuario y contraseña configurados. La
+ * conexión activa de la fachada es propia de cada hilo, de modo que un hilo no
+ * cierra la conexión de otro. Para trabajar con varias bases de datos a la vez
+ * se recomienda usar instancias creadas con
+ * {@link #Conexion(PerfilConexion)} o directamente {@link PerfilConexion}.</p>
  *
  * @authors capistran y díaz
  * @version 1.0
@@ -16,12 +25,12 @@ import javax.swing.JOptionPane;
 public class Conexion {
 
     // Atributos
-    private static String baseUsed; // Nombre de la base de datos a la que se conectará
-    private static String usuarioUsed; // Usuario para la autenticación en la base de datos
-    private static String passwordUsed; // Contraseña para la autenticación en la base de datos
-    private static int idSGBD; // Identificador para reestablecer la bd seleccionada
-    private static Connection conexion = null; // Objeto Connection que representa la conexión a la base de datos    
-    private static final String CERTIFICADOS = "encrypt=true; trustServerCertificate=true; characterEncoding=UTF-8;"; // Configuración para la conexión a SQL Server
+    private static volatile String baseUsed; // Nombre de la base de datos a la que se conectará
+    private static volatile String usuarioUsed; // Usuario para la autenticación en la base de datos
+    private static volatile String passwordUsed; // Contraseña para la autenticación en la base de datos
+    private static volatile int idSGBD; // Identificador para reestablecer la bd seleccionada
+    private static final ThreadLocal<Connection> conexion = new ThreadLocal<>(); // Conexión activa de la fachada estática en el hilo actual
+    private final PerfilConexion perfil; // Perfil propio de la instancia, null para usar el perfil por defecto
 
     /**
      * Constructor de la clase <code>Conexion</code>. Inicializa los atributos
@@ -36,6 +45,18 @@ public class Conexion {
         Conexion.baseUsed = base;
         Conexion.usuarioUsed = usuario;
         Conexion.passwordUsed = password;
+        this.perfil = null;
+    }
+
+    /**
+     * Constructor de la clase <code>Conexion</code> ligado a un perfil
+     * inmutable. No modifica la configuración estática, por lo que varias
+     * instancias pueden usarse en paralelo sobre distintas bases de datos.
+     *
+     * @param perfil El perfil de conexión de esta instancia.
+     */
+    public Conexion(PerfilConexion perfil) {
+        this.perfil = perfil;
     }
 
     /**
@@ -45,6 +66,33 @@ public class Conexion {
      * inmediata.
      */
     public Conexion() {
+        this.perfil = null;
+    }
+
+    /**
+     * Obtiene el perfil de conexión de esta instancia. Si la instancia no fue
+     * creada con un perfil propio, devuelve el perfil por defecto de la
+     * configuración estática.
+     *
+     * @return El perfil de conexión a utilizar.
+     */
+    public PerfilConexion getPerfilConexion() {
+        return perfil != null ? perfil : getPerfil(idSGBD);
+    }
+
+    /**
+     * Construye el perfil por defecto para el SGBD indicado a partir de la
+     * base, usuario y contraseña configurados.
+     *
+     * @param idSGBD Identificador del SGBD (1 para SQL Server, 2 para MySQL).
+     * @return El perfil correspondiente, o {@code null} si el identificador no
+     * es válido.
+     */
+    public static PerfilConexion getPerfil(int idSGBD) {
+        if (idSGBD != 1 && idSGBD != 2) {
+            return null;
+        }
+        return new PerfilConexion(idSGBD, baseUsed, usuarioUsed, passwordUsed);
     }
 
     /**
@@ -132,19 +180,7 @@ public class Conexion {
      * de datos MySQL.
      */
     public static Connection getConexionMySQL() {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver"); // Carga el controlador JDBC para MySQL
-            if(baseUsed != null)
-                conexion = DriverManager.getConnection("jdbc:mysql://localhost:3306/"+baseUsed, usuarioUsed, passwordUsed); // Establece la conexión
-            else
-               conexion = DriverManager.getConnection("jdbc:mysql://localhost:3306/?", usuarioUsed, passwordUsed); // Establece la conexión
-            /* JOptionPane.showMessageDialog(null, "Conexión Abierta con MySQL Exitosamente", "Mensaje de Estado de Conexión",
-                    JOptionPane.INFORMATION_MESSAGE);*/ // Mensaje de éxito
-        } catch (SQLException | ClassNotFoundException e) { // Captura errores de conexión SQL
-            System.err.println(e.getMessage());
-        }
-        // Captura errores al no encontrar el controlador JDBC
-        return conexion; // Devuelve el objeto Connection para realizar consultas y operaciones en la base de datos.
+        return abrir(2);
     }
 
     /**
@@ -159,21 +195,65 @@ public class Conexion {
      * de datos SQL Server.
      */
     public static Connection getConexionSQLServer() {
+        return abrir(1);
+    }
+
+    /**
+     * Toma una conexión del pool del perfil por defecto y la registra como la
+     * conexión activa del hilo actual. Si el hilo todavía tiene una conexión
+     * sin cerrar, se devuelve antes al pool: una vez reemplazada ya no puede
+     * cerrarse con {@link #cerrarConexion()} y su permiso de préstamo se
+     * perdería para siempre.
+     *
+     * @param idSGBD Identificador del SGBD.
+     * @return La conexión obtenida, o {@code null} si ocurrió un error.
+     */
+    private static Connection abrir(int idSGBD) {
+        if (conexion.get() != null) {
+            cerrarConexion(); // La anterior del hilo se devuelve al pool
+        }
         try {
-            // Construcción de la URL de conexión con SQL Server
-            Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver"); // Carga el controlador JDBC para SQL Server
-            if(baseUsed != null)
-                Conexion.conexion = DriverManager.getConnection("jdbc:sqlserver://localhost:1433;"+"database="+ baseUsed +";"
-                        +"user=" + usuarioUsed + ";" + "password=" + passwordUsed + ";" + CERTIFICADOS); // Establece la conexión
-            else
-                Conexion.conexion = DriverManager.getConnection("jdbc:sqlserver://localhost:1433;"
-                        +"user=" + usuarioUsed + ";" + "password=" + passwordUsed + ";" + CERTIFICADOS); // Establece la conexión
-            /* JOptionPane.showMessageDialog(null, "Conexión Abierta con SQL Server Exitosamente", "Mensaje de Estado de Conexión",
-                    JOptionPane.INFORMATION_MESSAGE);*/  // Mensaje de éxito
-        } catch (SQLException | ClassNotFoundException e) { // Captura errores de conexión SQL
+            conexion.set(getPerfil(idSGBD).getConexion()); // Toma una conexión del pool
+            /* JOptionPane.showMessageDialog(null, "Conexión Abierta Exitosamente", "Mensaje de Estado de Conexión",
+                    JOptionPane.INFORMATION_MESSAGE);*/ // Mensaje de éxito
+        } catch (SQLException e) { // Captura errores de conexión SQL o de carga del controlador
             System.err.println(e.getMessage());
         }
-        return conexion; // Devuelve el objeto Connection para realizar consultas y operaciones en la base de datos.
+        return conexion.get(); // Devuelve el objeto Connection para realizar consultas y operaciones en la base de datos.
+    }
+
+    /**
+     * Obtiene el pool de conexiones correspondiente al SGBD indicado y a la
+     * base de datos, usuario y contraseña configurados. Permite consultar los
+     * contadores de espera, conexiones activas e inactivas.
+     *
+     * @param idSGBD Identificador del SGBD (1 para SQL Server, 2 para MySQL).
+     * @return El pool correspondiente, o {@code null} si el identificador no es
+     * válido.
+     */
+    public static PoolConexiones getPool(int idSGBD) {
+        PerfilConexion perfil = getPerfil(idSGBD);
+        return perfil == null ? null : perfil.getPool();
+    }
+
+    /**
+     * Precalienta el pool del perfil por defecto: carga el controlador y abre
+     * en segundo plano conexiones validadas que se mantienen vivas mientras
+     * estén inactivas, para que la primera consulta no pague el costo de
+     * conexión. Debe llamarse después de configurar la base, el usuario y la
+     * contraseña.
+     *
+     * @param idSGBD Identificador del SGBD (1 para SQL Server, 2 para MySQL).
+     * @param conexiones Conexiones que se mantienen listas.
+     * @return Un futuro que se completa con el número de conexiones abiertas.
+     * @throws IllegalArgumentException Si el identificador no es válido.
+     */
+    public static CompletableFuture<Integer> precalentar(int idSGBD, int conexiones) {
+        PerfilConexion perfil = getPerfil(idSGBD);
+        if (perfil == null) {
+            throw new IllegalArgumentException("SGBD no válido: " + idSGBD);
+        }
+        return perfil.precalentar(conexiones);
     }
 
     /**
@@ -203,16 +283,24 @@ public class Conexion {
      */
 
     /**
-     * Cierra la conexión activa con la base de datos.
+     * Cierra la conexión activa del hilo actual con la base de datos.
      *
-     * Este método cierra la conexión establecida a la base de datos. Si la
-     * conexión se cierra con éxito, se muestra un mensaje indicando que la
-     * conexión fue cerrada correctamente. Si ocurre un error al cerrarla, se
-     * captura y muestra un mensaje de error.
+     * Si la conexión proviene del pool de conexiones se devuelve al pool para
+     * su reutilización en lugar de cerrarse físicamente; en otro caso se
+     * cierra. Si ocurre un error al cerrarla, se captura y muestra un mensaje
+     * de error.
      */
     public static void cerrarConexion() {
+        Connection actual = conexion.get();
+        if (actual == null) {
+            return; // No hay conexión que cerrar
+        }
         try {
-            conexion.close(); // Cierra la conexión
+            conexion.remove();
+            if (!PoolConexiones.devolver(actual)) { // Devuelve la conexión al pool
+                CacheSentencias.descartar(actual);
+                actual.close(); // Cierra la conexión si no pertenece a un pool
+            }
             /*JOptionPane.showMessageDialog(null, "Conexión Cerrada Exitosamente", "Mensaje de Estado de Conexión",
                     JOptionPane.INFORMATION_MESSAGE);*/ // Mensaje de éxito
         } catch (SQLException e) { // Captura errores al cerrar la conexión
@@ -221,6 +309,19 @@ public class Conexion {
         }
     }
 
+    /**
+     * Cierra una conexión solo si es la conexión activa del hilo actual. Las
+     * conexiones obtenidas de un {@link PerfilConexion} o de un pool las
+     * devuelve quien las pidió, por lo que aquí no se tocan.
+     *
+     * @param connection La conexión que usó el llamador.
+     */
+    static void cerrarConexion(Connection connection) {
+        if (connection != null && connection == conexion.get()) {
+            cerrarConexion();
+        }
+    }
+
     /**
      * Estado de la conexión Este método trata de obtener el estado de la
      * conexión mediante el método isClosed() el cual retorna true si está
@@ -233,7 +334,8 @@ public class Conexion {
      */
     public static boolean getStateConnection() {
         try {
-            if (Conexion.conexion != null && !Conexion.conexion.isClosed()) {
+            Connection actual = conexion.get();
+            if (actual != null && !actual.isClosed()) {
                 return true; // Estado de la conexión abierto
             }
         } catch (SQLException e) {
@@ -5,8 +5,13 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
 import javax.swing.JOptionPane;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * La clase {@code Consulta} proporciona una manera de realizar consultas SQL a
@@ -21,17 +26,14 @@ public class Consulta {
      * Atributo estático para almacenar la consulta SQL a ejecutar. Se establece
      * directamente sin necesidad de instanciar la clase.
      */
-    private static String queryRead;
     private static StringBuilder queryWrite;
-    private static DatabaseMetaData metaDataDB;
-    private static ResultSet tableMetaData;
-    private static String tableSelect;
-    private static ArrayList<String> columnsDescrip;
-    private static ArrayList<String> columnsId;
-    private static ArrayList<Integer> columnsType;
-    private static ArrayList<String> dataBases;
-    private static int countColumns;
-    private static int queryWtriteType;
+    private static volatile String tableSelect;
+    private static volatile ArrayList<String> columnsDescrip;
+    private static volatile ArrayList<String> columnsId;
+    private static volatile ArrayList<Integer> columnsType;
+    private static volatile int countColumns;
+    private static volatile int queryWtriteType;
+    private static volatile int tamanoFetch = 1_000; // Filas por viaje en la lectura en flujo
 
 //    /**
 //     * Inserta dinámicamente un registro en la tabla especificada utilizando una
@@ -273,52 +275,17 @@ public class Consulta {
     public static void setCommonColumnsTable(Connection connection, String tableName, String base) {
 
         try {
-            // Obtención de los metadatos de la conexión con la base de datos
-            Consulta.metaDataDB = connection.getMetaData();
-
-            // Se recuperan los metadatos de las columnas de la tabla especificada
-            Consulta.tableMetaData = metaDataDB.getColumns(base, "dbo", tableName, "%");
-
-            // Inicialización de las listas dinámicas para almacenar la información de las columnas
-            Consulta.columnsDescrip = new ArrayList<>();
-            Consulta.columnsType = new ArrayList<>();
-
-            // Inicialización del contador de columnas
-            Consulta.countColumns = 0;
-
-            // Iteración sobre los metadatos de las columnas
-            while (tableMetaData.next()) {
-                // Obtención de la propiedad de autoincremento de la columna
-                // String isAutoInc = tableMetaData.getString("IS_AUTOINCREMENT");
-                // Obtención del nombre al valor asociado de la columna
-                String typeColumn = tableMetaData.getString("TYPE_NAME");
-
-                // Filtra aquellas columnas que no sean autoincrementables o de encriptación 
-//                if (!"YES".equals(isAutoInc) && !(typeColumn.equalsIgnoreCase("BLOB") || typeColumn.equalsIgnoreCase("VARBINARY"))) {
-//                    // Agrega el nombre de la columna a la lista correspondiente
-//                    Consulta.columnsDescrip.add(tableMetaData.getString("COLUMN_NAME"));
-//
-//                    // Agrega el tipo de dato de la columna a la lista correspondiente
-//                    Consulta.columnsType.add(tableMetaData.getInt("DATA_TYPE"));
-//
-//                    // Incrementa el contador de columnas
-//                    Consulta.countColumns++;
-//                }
-                // Agrega el nombre de la columna a la lista correspondiente
-                Consulta.columnsDescrip.add(tableMetaData.getString("COLUMN_NAME"));
+            // Los metadatos de la tabla se toman de la caché de esquema y solo se leen del catálogo si expiraron
+            EsquemaTabla esquema = CacheEsquema.getTabla(connection, base, "dbo", tableName);
 
-                // Agrega el tipo de dato de la columna a la lista correspondiente
-                Consulta.columnsType.add(tableMetaData.getInt("DATA_TYPE"));
-
-                // Incrementa el contador de columnas
-                Consulta.countColumns++;
-            }
+            // Publica las listas completas de una sola vez para los lectores de otros hilos
+            publicarColumnas(esquema);
         } catch (SQLException ex) {
             // Manejo de errores: muestra un mensaje en caso de fallo al obtener las columnas de la tabla
             JOptionPane.showMessageDialog(null, "Ocurrió un error al obtener las columnas de la tabla: "
                     + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         } finally {
-            Conexion.cerrarConexion();
+            Conexion.cerrarConexion(connection);
         }
     }
 
@@ -327,16 +294,11 @@ public class Consulta {
      * una tabla específica de una base de datos.
      *
      * <p>
-     * Este método accede a los metadatos de la base de datos a través de la
-     * conexión provista y extrae información sobre las columnas que son claves
+     * Este método obtiene de {@link CacheEsquema} las columnas que son claves
      * primarias. Además, inicializa estructuras necesarias para el
      * procesamiento posterior de datos de la tabla, como el tipo de dato de las
-     * columnas y su conteo.</p>
-     *
-     * <p>
-     * Al finalizar, también invoca
-     * {@link #setCommonColumnsTable(Connection, String, String)} para
-     * complementar la estructura con columnas comunes.</p>
+     * columnas y su conteo, igual que
+     * {@link #setCommonColumnsTable(Connection, String, String)}.</p>
      *
      * @param connection Conexión activa a la base de datos.
      * @param tableName Nombre de la tabla desde la cual se obtendrán las claves
@@ -345,31 +307,61 @@ public class Consulta {
      */
     public static void setPrimaryColumnsTable(Connection connection, String tableName, String base) {
         try {
-            // Obtención de metadatos del esquema de la base de datos
-            Consulta.metaDataDB = connection.getMetaData();
-
-            // Obtiene los metadatos relacionados con las claves primarias de la tabla
-            Consulta.tableMetaData = metaDataDB.getPrimaryKeys(base, "dbo", tableName);
-
-            // Inicialización de listas y contador
-            Consulta.columnsId = new ArrayList<>();
-            Consulta.columnsType = new ArrayList<>();
-            Consulta.countColumns = 0;
+            // Columnas y clave primaria se obtienen en una sola lectura de la caché
+            EsquemaTabla esquema = CacheEsquema.getTabla(connection, base, "dbo", tableName);
+            Consulta.columnsId = new ArrayList<>(esquema.getClavesPrimarias());
 
-            // Iteración sobre los resultados para almacenar los nombres y tipos de columnas clave primaria
-            while (tableMetaData.next()) {
-                columnsId.add(tableMetaData.getString("COLUMN_NAME"));
-                columnsType.add(tableMetaData.getInt("DATA_TYPE"));
-            }
+            // Agrega columnas comunes para completar la descripción de la tabla
+            publicarColumnas(esquema);
         } catch (SQLException ex) {
             JOptionPane.showMessageDialog(null, "Ocurrió un error al obtener las columnas de la tabla: "
                     + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         } finally {
-            Conexion.cerrarConexion();
+            Conexion.cerrarConexion(connection);
         }
+    }
 
-        // Agrega columnas comunes para completar la descripción de la tabla
-        setCommonColumnsTable(connection, tableName, base);
+    /**
+     * Publica en las listas estáticas las columnas y tipos de un esquema. Se
+     * copian para que los llamadores puedan modificarlas sin alterar la caché.
+     */
+    private static void publicarColumnas(EsquemaTabla esquema) {
+        Consulta.columnsDescrip = new ArrayList<>(esquema.getColumnas());
+        Consulta.columnsType = new ArrayList<>(esquema.getTipos());
+        Consulta.countColumns = esquema.getColumnas().size();
+    }
+
+    /**
+     * Obtiene el esquema inmutable de una tabla desde {@link CacheEsquema}. A
+     * diferencia de {@link #setCommonColumnsTable(Connection, String, String)},
+     * no modifica el estado estático ni cierra la conexión, por lo que puede
+     * usarse desde varios hilos.
+     *
+     * @param connection Conexión activa a la base de datos.
+     * @param tableName Nombre de la tabla.
+     * @param base Nombre de la base de datos, o {@code null} para la base
+     * actual de la conexión.
+     * @return El esquema de la tabla.
+     * @throws SQLException Si falla la lectura del catálogo.
+     */
+    public static EsquemaTabla getEsquemaTabla(Connection connection, String tableName, String base) throws SQLException {
+        return CacheEsquema.getTabla(connection, base, "dbo", tableName);
+    }
+
+    /**
+     * Obtiene los nombres de las tablas de la base de datos actual de la
+     * conexión desde {@link CacheEsquema}.
+     *
+     * @param connection Conexión activa a la base de datos.
+     * @return Lista inmutable con los nombres de las tablas, vacía si no hay
+     * conexión activa.
+     * @throws SQLException Si falla la lectura del catálogo.
+     */
+    public static List<String> getTablas(Connection connection) throws SQLException {
+        if (!estaAbierta(connection)) {
+            return List.of();
+        }
+        return CacheEsquema.getTablas(connection, null, "dbo");
     }
 
     /**
@@ -385,11 +377,11 @@ public class Consulta {
      * lista vacía si ocurre un error o no hay conexión.
      */
     public static ArrayList<String> getDataBases(Connection connection) {
-        dataBases = new ArrayList<>();
+        ArrayList<String> dataBases = new ArrayList<>();
         String consulta = "";
 
-        // Define la consulta de acuerdo al tipo de SGBD
-        switch (Conexion.getIdSGBD()) {
+        // Define la consulta de acuerdo al tipo de SGBD de la conexión
+        switch (getIdSGBD(connection)) {
             case 1 -> // SQL Server
                 consulta = "SELECT name FROM sys.databases";
             case 2 -> // MySQL
@@ -401,7 +393,7 @@ public class Consulta {
         }
 
         // Verifica que la conexión esté activa antes de ejecutar la consulta
-        if (Conexion.getStateConnection()) {
+        if (estaAbierta(connection)) {
             try (PreparedStatement stmt = connection.prepareStatement(consulta); ResultSet rs = stmt.executeQuery()) {
 
                 while (rs.next()) {
@@ -412,7 +404,7 @@ public class Consulta {
                 JOptionPane.showMessageDialog(null, "Error al obtener las bases de datos: " + e.getMessage(),
                         "Error", JOptionPane.ERROR_MESSAGE);
             } finally {
-                Conexion.cerrarConexion();
+                Conexion.cerrarConexion(connection);
             }
         } else {
             JOptionPane.showMessageDialog(null, "No hay conexión activa", "Error", JOptionPane.ERROR_MESSAGE);
@@ -426,8 +418,8 @@ public class Consulta {
      * datos actual a través de los metadatos de la conexión.
      * <p>
      * Este método utiliza `DatabaseMetaData.getTables()` para consultar todas
-     * las tablas del esquema `"dbo"` en la base de datos especificada por
-     * `baseUsed`, siempre que la conexión esté activa.
+     * las tablas del esquema `"dbo"` en la base de datos actual de la
+     * conexión, siempre que la conexión esté activa.
      * </p>
      *
      * @return Un {@link ResultSet} que contiene información sobre las tablas
@@ -438,13 +430,13 @@ public class Consulta {
         ResultSet tables = null;
 
         // Verifica que la conexión esté activa antes de continuar
-        if (Conexion.getStateConnection()) {
+        if (estaAbierta(conexion)) {
             try {
                 // Obtiene los metadatos de la base de datos desde la conexión actual
-                metaDataDB = conexion.getMetaData();
+                DatabaseMetaData metaDataDB = conexion.getMetaData();
 
-                // Recupera las tablas del esquema "dbo" de la base de datos especificada
-                tables = metaDataDB.getTables(Conexion.getBase(), "dbo", "%", new String[]{"TABLE"});
+                // Recupera las tablas del esquema "dbo" de la base de datos de la conexión
+                tables = metaDataDB.getTables(conexion.getCatalog(), "dbo", "%", new String[]{"TABLE"});
 
             } catch (SQLException e) {
                 // Muestra un mensaje de error si la consulta falla
@@ -476,13 +468,16 @@ public class Consulta {
      */
     public static ResultSet executeQuery(Connection connection, String tableName) throws SQLException {
         // Construcción de la consulta SQL
-        queryRead = "SELECT * FROM " + tableName;
+        String queryRead = "SELECT * FROM " + tableName;
 
         // Preparar la consulta
-        PreparedStatement pstmt = connection.prepareStatement(queryRead);
+        PreparedStatement pstmt = CacheSentencias.preparar(connection, queryRead);
 
         // Ejecutar la consulta y retornar el ResultSet
-        return pstmt.executeQuery();
+        long inicio = System.nanoTime();
+        ResultSet rs = pstmt.executeQuery();
+        MetricasConsulta.registrarEjecucion(queryRead, System.nanoTime() - inicio);
+        return rs;
     }
 
     /**
@@ -498,17 +493,93 @@ public class Consulta {
     public static ResultSet executeQueryRead(Connection connection, String sqlQuery) throws SQLException {
         // Validar que la cadena no se envíe vacía o nula
         if (sqlQuery != null && !sqlQuery.isBlank()) {
-            PreparedStatement pstmt = connection.prepareStatement(sqlQuery);
-            return pstmt.executeQuery();
+            PreparedStatement pstmt = CacheSentencias.preparar(connection, sqlQuery);
+            long inicio = System.nanoTime();
+            ResultSet rs = pstmt.executeQuery();
+            MetricasConsulta.registrarEjecucion(sqlQuery, System.nanoTime() - inicio);
+            return rs;
         }
         return null;
     }
 
+    /**
+     * Ejecuta una consulta en modo de lectura en flujo. La sentencia se crea
+     * con {@code TYPE_FORWARD_ONLY} y {@code CONCUR_READ_ONLY} y se configura
+     * con {@link Dialecto#configurarLectura(Connection, java.sql.Statement, int)},
+     * de modo que las filas se reciben del servidor conforme se leen en lugar
+     * de almacenarse completas en el cliente.
+     *
+     * <p>
+     * El resultado debe recorrerse una sola vez hacia adelante y cerrarse al
+     * terminar; al cerrarlo se cierra también la sentencia. En MySQL, mientras
+     * el resultado está abierto la conexión no puede ejecutar otras
+     * sentencias.</p>
+     *
+     * @param connection La conexión activa con la base de datos.
+     * @param sqlQuery La consulta SQL a ejecutar.
+     * @return Un ResultSet de solo avance, o null si la consulta es inválida.
+     * @throws SQLException Si ocurre un error al ejecutar la consulta.
+     */
+    public static ResultSet executeQueryStreaming(Connection connection, String sqlQuery) throws SQLException {
+        if (sqlQuery == null || sqlQuery.isBlank()) {
+            return null;
+        }
+        // No se toma de la caché de sentencias porque el tamaño de fetch quedaría asignado a la sentencia compartida
+        PreparedStatement pstmt = connection.prepareStatement(sqlQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            Dialecto.de(connection).configurarLectura(connection, pstmt, tamanoFetch);
+            pstmt.closeOnCompletion();
+            long inicio = System.nanoTime();
+            ResultSet rs = pstmt.executeQuery();
+            MetricasConsulta.registrarEjecucion(sqlQuery, System.nanoTime() - inicio);
+            return rs;
+        } catch (SQLException e) {
+            pstmt.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Establece cuántas filas se piden al servidor en cada viaje en la lectura
+     * en flujo.
+     *
+     * @param tamanoFetch Filas por viaje.
+     */
+    public static void setTamanoFetch(int tamanoFetch) {
+        if (tamanoFetch < 1) {
+            throw new IllegalArgumentException("El tamaño de fetch debe ser positivo");
+        }
+        Consulta.tamanoFetch = tamanoFetch;
+    }
+
+    /**
+     * Obtiene el número de filas por viaje de la lectura en flujo.
+     *
+     * @return El tamaño de fetch.
+     */
+    public static int getTamanoFetch() {
+        return tamanoFetch;
+    }
+
     public static String executeQueryWrite(Connection connection, String sqlQuery) throws SQLException {
-        if (sqlQuery != null && !sqlQuery.isBlank() && Conexion.getStateConnection()) {
-            PreparedStatement pstmt = connection.prepareStatement(sqlQuery);
-            if (pstmt.executeUpdate() > 0) {
-                Conexion.cerrarConexion();
+        if (sqlQuery != null && !sqlQuery.isBlank() && estaAbierta(connection)) {
+            PreparedStatement pstmt = CacheSentencias.preparar(connection, sqlQuery);
+            long inicio = System.nanoTime();
+            int afectadas;
+            try {
+                afectadas = pstmt.executeUpdate();
+            } finally {
+                CacheSentencias.liberar(pstmt, sqlQuery); // Las sentencias ad hoc y DDL no se guardan
+            }
+            MetricasConsulta.registrarEjecucion(sqlQuery, System.nanoTime() - inicio);
+            // Una sentencia DDL deja obsoletos los metadatos en caché
+            CacheEsquema.invalidarSiDDL(sqlQuery);
+            // Los resultados en caché que leen las tablas modificadas dejan de ser válidos
+            CacheResultados.invalidarPorEscritura(sqlQuery);
+            CacheFilas.invalidarPorEscritura(sqlQuery);
+            ValorDiferido.invalidarPorEscritura(sqlQuery);
+            if (afectadas > 0) {
+                Conexion.cerrarConexion(connection);
                 return "Consulta ejecutada exitosamente";
             }
         }
@@ -519,8 +590,8 @@ public class Consulta {
      * Verifica si una tabla existe en la base de datos actual.
      *
      * <p>
-     * Este método utiliza los metadatos de la base de datos para determinar si
-     * la tabla especificada existe en el esquema actual.</p>
+     * Este método consulta la lista de tablas de {@link CacheEsquema} para
+     * determinar si la tabla especificada existe en el esquema actual.</p>
      *
      * @param connection Conexión activa a la base de datos.
      * @param tableName Nombre de la tabla a verificar.
@@ -532,15 +603,13 @@ public class Consulta {
         }
 
         try {
-            metaDataDB = connection.getMetaData();
-            ResultSet tables = metaDataDB.getTables(
-                    Conexion.getBase(),
-                    "dbo",
-                    tableName,
-                    new String[]{"TABLE"}
-            );
-
-            return tables.next(); // Retorna true si encuentra al menos un resultado
+            // Busca la tabla en la lista de tablas en caché sin distinguir mayúsculas
+            for (String tabla : getTablas(connection)) {
+                if (tabla.equalsIgnoreCase(tableName)) {
+                    return true;
+                }
+            }
+            return false;
 
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(null,
@@ -550,7 +619,32 @@ public class Consulta {
             return false;
         }
     }
-    
+
+    /**
+     * Recupera las filas de varias claves con pocas consultas. Las claves se
+     * agrupan en listas {@code IN} del tamaño que admite el dialecto y las
+     * filas ya leídas se sirven desde {@link CacheFilas} sin consultar la
+     * base de datos. A diferencia de
+     * {@link #getRowById(Connection, String, String, Object)}, no muestra
+     * diálogos: las claves sin fila simplemente no aparecen en el resultado.
+     *
+     * @param connection Conexión activa a la base de datos.
+     * @param tableName Nombre de la tabla.
+     * @param columnKey Columna única por la que se busca, normalmente la clave
+     * primaria.
+     * @param ids Valores buscados.
+     * @return Las filas encontradas, en el orden de {@code ids}, por el valor
+     * de la clave tal como lo devolvió la base de datos (puede diferir del
+     * buscado en mayúsculas, acentos o tipo, según la intercalación y el tipo
+     * de la columna); los valores de cada fila siguen el orden de las columnas
+     * de {@link #getEsquemaTabla(Connection, String, String)}.
+     * @throws SQLException Si falla alguna consulta o la columna no existe.
+     */
+    public static Map<Object, Object[]> getRowsByIds(Connection connection, String tableName, String columnKey,
+            Collection<?> ids) throws SQLException {
+        return CacheFilas.buscar(connection, tableName, columnKey, ids);
+    }
+
     /**
     * Recupera una única fila de una tabla específica usando una columna clave como filtro.
     *
@@ -558,27 +652,33 @@ public class Consulta {
     * @param tableName Nombre de la tabla donde se encuentra la fila.
     * @param columnKey Nombre de la columna que actúa como filtro (normalmente la clave primaria).
     * @param value Valor de la clave por la cual se identificará la fila.
-    * @return Un ResultSet con la fila encontrada o null si no hay resultados o hay error.
+    * @return Un ResultSet desconectado con la fila encontrada, con el cursor antes de la
+    * primera fila, o null si no hay resultados o hay error.
     */
     public static ResultSet getRowById(Connection connection, String tableName, String columnKey, Object value) {
         ResultSet result = null;
 
-        if (Conexion.getStateConnection()) {
+        if (estaAbierta(connection)) {
             String query = "SELECT * FROM " + tableName + " WHERE " + columnKey + " = ?";
             try {
-                PreparedStatement pstmt = connection.prepareStatement(query);
+                PreparedStatement pstmt = CacheSentencias.preparar(connection, query);
                 pstmt.setObject(1, value);  // Permite flexibilidad para distintos tipos (int, String, etc.)
-                result = pstmt.executeQuery();
+                long inicio = System.nanoTime();
+                // El cursor es de solo avance; la fila se copia a un resultado desconectado en lugar de pedir
+                // un cursor desplazable solo para volver al inicio
+                CachedRowSet fila = RowSetProvider.newFactory().createCachedRowSet();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    fila.populate(rs);
+                }
+                MetricasConsulta.registrarEjecucion(query, System.nanoTime() - inicio);
 
                 // Si no hay resultados, puedes manejarlo aquí o en quien llama al método
-                if (!result.next()) {
+                if (fila.size() == 0) {
                     JOptionPane.showMessageDialog(null, "No se encontró ningún registro con el valor especificado.",
                             "Sin resultados", JOptionPane.INFORMATION_MESSAGE);
                     return null;
                 }
-
-                // Reposicionar cursor en la primera fila
-                result.beforeFirst();
+                result = fila;
             } catch (SQLException e) {
                 JOptionPane.showMessageDialog(null, "Error al obtener la fila: " + e.getMessage(),
                         "Error", JOptionPane.ERROR_MESSAGE);
@@ -590,6 +690,43 @@ public class Consulta {
         return result;
     }
 
+    /**
+     * Verifica que la conexión recibida exista y esté abierta.
+     *
+     * @param connection La conexión a verificar.
+     * @return true si la conexión está abierta, false en caso contrario.
+     */
+    static boolean estaAbierta(Connection connection) {
+        try {
+            return connection != null && !connection.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Determina el identificador del SGBD a partir del producto de la
+     * conexión, recurriendo a la configuración estática de {@link Conexion}
+     * si no se reconoce.
+     *
+     * @param connection La conexión activa.
+     * @return 1 para SQL Server, 2 para MySQL.
+     */
+    static int getIdSGBD(Connection connection) {
+        try {
+            String producto = connection.getMetaData().getDatabaseProductName().toLowerCase();
+            if (producto.contains("microsoft")) {
+                return 1;
+            }
+            if (producto.contains("mysql") || producto.contains("mariadb")) {
+                return 2;
+            }
+        } catch (SQLException e) {
+            System.err.println(e.getMessage());
+        }
+        return Conexion.getIdSGBD();
+    }
+
     /**
      * Establece el tipo de escritura de la consulta.
      *
@@ -613,6 +750,16 @@ public class Consulta {
         return columnsType;
     }
 
+    /**
+     * Obtiene las columnas que forman la clave primaria de la última tabla
+     * consultada con {@link #setPrimaryColumnsTable(Connection, String, String)}.
+     *
+     * @return Una lista con los nombres de las columnas clave primaria.
+     */
+    public static ArrayList<String> getColumnsId() {
+        return columnsId;
+    }
+
     /**
      * Obtiene el tipo de acción de escritura configurado.
      *
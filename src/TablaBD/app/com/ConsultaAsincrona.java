@@ -0,0 +1,271 @@
+package TablaBD.app.com;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+
+/**
+ * Fachada asíncrona de {@link Consulta} ligada a un {@link PerfilConexion},
+ * pensada para código de servidor que atiende muchas peticiones a la vez.
+ * Cada operación devuelve un {@link CompletableFuture}, toma una conexión del
+ * pool del perfil solo mientras se ejecuta y la devuelve al terminar.
+ *
+ * <p>
+ * Por omisión las operaciones se ejecutan en hilos virtuales, de modo que
+ * miles de consultas pendientes no ocupan miles de hilos de plataforma. Las
+ * operaciones toman turno en un semáforo del pool del perfil, compartido por
+ * todas las fachadas sobre el mismo pool, de modo que juntas nunca piden más
+ * conexiones de las que el pool puede prestar; cada fachada puede además
+ * limitar sus propias operaciones simultáneas. Las que no tienen turno
+ * esperan sin bloquear ningún hilo de plataforma. A diferencia de
+ * {@link Consulta}, los errores no se muestran en diálogos: el futuro se
+ * completa con la excepción (normalmente una {@link SQLException}).</p>
+ *
+ * <p>
+ * Los resultados de lectura se devuelven como {@link CachedRowSet}
+ * desconectados, que pueden recorrerse después de devolver la conexión.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public class ConsultaAsincrona {
+
+    // Atributos
+    private static final ExecutorService HILOS_VIRTUALES = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("TablaBD-consulta-", 0).factory()); // Ejecutor compartido por omisión
+    private final PerfilConexion perfil; // Perfil con el que se abren las conexiones
+    private final Semaphore permisos; // Operaciones simultáneas permitidas a esta fachada
+    private final ExecutorService ejecutor; // Ejecutor de las operaciones
+
+    /**
+     * Crea la fachada con hilos virtuales, limitada solo por los turnos
+     * compartidos del pool del perfil.
+     *
+     * @param perfil El perfil de conexión.
+     */
+    public ConsultaAsincrona(PerfilConexion perfil) {
+        this(perfil, perfil.getPool().getMaximo());
+    }
+
+    /**
+     * Crea la fachada con hilos virtuales y un límite de operaciones
+     * simultáneas.
+     *
+     * @param perfil El perfil de conexión.
+     * @param limite Operaciones de esta fachada que pueden usar la base de
+     * datos a la vez; el total de las fachadas del pool no pasa de su tamaño
+     * máximo.
+     */
+    public ConsultaAsincrona(PerfilConexion perfil, int limite) {
+        this(perfil, limite, HILOS_VIRTUALES);
+    }
+
+    /**
+     * Crea la fachada con un ejecutor propio.
+     *
+     * @param perfil El perfil de conexión.
+     * @param limite Operaciones de esta fachada que pueden usar la base de
+     * datos a la vez; el total de las fachadas del pool no pasa de su tamaño
+     * máximo.
+     * @param ejecutor Ejecutor de las operaciones.
+     */
+    public ConsultaAsincrona(PerfilConexion perfil, int limite, ExecutorService ejecutor) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("El límite de concurrencia debe ser positivo");
+        }
+        this.perfil = perfil;
+        this.permisos = new Semaphore(limite, true);
+        this.ejecutor = ejecutor;
+    }
+
+    /**
+     * Operación que usa una conexión prestada.
+     */
+    @FunctionalInterface
+    private interface Operacion<T> {
+
+        T ejecutar(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Ejecuta una operación en el ejecutor, respetando el límite de la
+     * fachada y los turnos del pool, y devolviendo la conexión al terminar.
+     */
+    private <T> CompletableFuture<T> enviar(Operacion<T> operacion) {
+        return CompletableFuture.supplyAsync(() -> {
+            Semaphore turnos = perfil.getPool().getTurnos(); // Se libera el mismo aunque el pool se reemplace
+            try {
+                permisos.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                turnos.acquire();
+            } catch (InterruptedException e) {
+                permisos.release();
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                Connection conn = perfil.getConexion();
+                try {
+                    return operacion.ejecutar(conn);
+                } finally {
+                    PerfilConexion.liberar(conn);
+                }
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } finally {
+                turnos.release();
+                permisos.release();
+            }
+        }, ejecutor);
+    }
+
+    /**
+     * Ejecuta una consulta de lectura con parámetros posicionales.
+     *
+     * @param sql La consulta SQL, con {@code ?} para cada parámetro.
+     * @param parametros Valores de los parámetros.
+     * @return El resultado completo, desconectado.
+     */
+    public CompletableFuture<CachedRowSet> consultar(String sql, Object... parametros) {
+        return enviar(conn -> {
+            PreparedStatement pstmt = CacheSentencias.preparar(conn, sql);
+            asignar(pstmt, parametros);
+            return leer(pstmt, sql);
+        });
+    }
+
+    /**
+     * Ejecuta una sentencia de escritura con parámetros posicionales e
+     * invalida las cachés de esquema y de resultados afectadas.
+     *
+     * @param sql La sentencia SQL, con {@code ?} para cada parámetro.
+     * @param parametros Valores de los parámetros.
+     * @return El número de filas afectadas.
+     */
+    public CompletableFuture<Integer> ejecutar(String sql, Object... parametros) {
+        return enviar(conn -> {
+            PreparedStatement pstmt = CacheSentencias.preparar(conn, sql);
+            asignar(pstmt, parametros);
+            long inicio = System.nanoTime();
+            int afectadas;
+            try {
+                afectadas = pstmt.executeUpdate();
+            } finally {
+                CacheSentencias.liberar(pstmt, sql);
+            }
+            MetricasConsulta.registrarEjecucion(sql, System.nanoTime() - inicio);
+            CacheEsquema.invalidarSiDDL(sql);
+            CacheResultados.invalidarPorEscritura(sql);
+            CacheFilas.invalidarPorEscritura(sql);
+            ValorDiferido.invalidarPorEscritura(sql);
+            return afectadas;
+        });
+    }
+
+    /**
+     * Busca las filas de una tabla cuyo valor en la columna indicada coincide.
+     *
+     * @param tabla Nombre de la tabla.
+     * @param columnaClave Columna de búsqueda.
+     * @param valor Valor buscado.
+     * @return Las filas encontradas, vacío si no hay coincidencias.
+     */
+    public CompletableFuture<CachedRowSet> getRowById(String tabla, String columnaClave, Object valor) {
+        String sql = "SELECT * FROM " + tabla + " WHERE " + columnaClave + " = ?";
+        return consultar(sql, valor);
+    }
+
+    /**
+     * Busca las filas de varias claves en lotes, sirviendo desde
+     * {@link CacheFilas} las ya leídas.
+     *
+     * @param tabla Nombre de la tabla.
+     * @param columnaClave Columna única por la que se busca.
+     * @param claves Valores buscados.
+     * @return Las filas encontradas, por el valor de la clave que devolvió la
+     * base de datos.
+     * @see Consulta#getRowsByIds(Connection, String, String, Collection)
+     */
+    public CompletableFuture<Map<Object, Object[]>> getRowsByIds(String tabla, String columnaClave, Collection<?> claves) {
+        return enviar(conn -> Consulta.getRowsByIds(conn, tabla, columnaClave, claves));
+    }
+
+    /**
+     * Obtiene el esquema de una tabla desde {@link CacheEsquema}.
+     *
+     * @param tabla Nombre de la tabla.
+     * @return El esquema de la tabla.
+     */
+    public CompletableFuture<EsquemaTabla> getEsquemaTabla(String tabla) {
+        return enviar(conn -> Consulta.getEsquemaTabla(conn, tabla, perfil.getBase()));
+    }
+
+    /**
+     * Obtiene los nombres de las tablas de la base del perfil.
+     *
+     * @return Lista inmutable de nombres de tablas.
+     */
+    public CompletableFuture<List<String>> getTablas() {
+        return enviar(Consulta::getTablas);
+    }
+
+    /**
+     * Asigna los parámetros posicionales de una sentencia.
+     */
+    private static void asignar(PreparedStatement pstmt, Object[] parametros) throws SQLException {
+        pstmt.clearParameters();
+        for (int i = 0; i < parametros.length; i++) {
+            pstmt.setObject(i + 1, parametros[i]);
+        }
+    }
+
+    /**
+     * Ejecuta una consulta y copia el resultado a un conjunto desconectado.
+     */
+    private static CachedRowSet leer(PreparedStatement pstmt, String sql) throws SQLException {
+        long inicio = System.nanoTime();
+        CachedRowSet filas = RowSetProvider.newFactory().createCachedRowSet();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            long inicioLectura = System.nanoTime();
+            MetricasConsulta.registrarEjecucion(sql, inicioLectura - inicio);
+            filas.populate(rs);
+            MetricasConsulta.registrarLectura(sql, System.nanoTime() - inicioLectura, filas.size());
+        }
+        return filas;
+    }
+
+    /**
+     * Obtiene el número de operaciones que esperan turno para usar la base de
+     * datos: las de esta fachada que esperan por su límite y las de todas las
+     * fachadas del pool que esperan un turno compartido.
+     *
+     * @return Operaciones en espera.
+     */
+    public int getOperacionesEnEspera() {
+        return permisos.getQueueLength() + perfil.getPool().getTurnos().getQueueLength();
+    }
+
+    /**
+     * Obtiene el perfil de conexión de la fachada.
+     *
+     * @return El perfil de conexión.
+     */
+    public PerfilConexion getPerfil() {
+        return perfil;
+    }
+}
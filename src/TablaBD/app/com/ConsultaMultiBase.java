@@ -0,0 +1,297 @@
+package TablaBD.app.com;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * La clase <code>ConsultaMultiBase</code> ejecuta una misma consulta en varias
+ * bases de datos del mismo servidor a la vez (por ejemplo, una base por
+ * cliente) y reúne los resultados en un solo {@link ModeloDatos}, con una
+ * primera columna {@value #COLUMNA_BASE} que indica la base de origen de cada
+ * fila.
+ *
+ * <p>
+ * Cada base se consulta en un hilo virtual con una conexión del pool del
+ * servidor, que se cambia a la base con {@link Connection#setCatalog(String)}
+ * y recupera su base original antes de devolverse; así un recorrido de cientos
+ * de bases no deja un pool con conexiones inactivas por cada una. Un semáforo
+ * limita cuántas bases se consultan al mismo tiempo (sin pasar del máximo del
+ * pool) y cada una tiene un tiempo límite propio;
+ * las bases que fallan o exceden el tiempo no detienen a las demás y se
+ * reportan en {@link #getErrores()}.</p>
+ *
+ * <pre>
+ * ConsultaMultiBase multi = new ConsultaMultiBase(perfil);
+ * ModeloDatos conteos = multi.ejecutar("SELECT COUNT(*) AS filas FROM pedidos", bases);
+ * </pre>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public class ConsultaMultiBase {
+
+    /**
+     * Nombre de la columna que indica la base de origen de cada fila.
+     */
+    public static final String COLUMNA_BASE = "BASE_ORIGEN";
+
+    private static final ExecutorService HILOS_VIRTUALES = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("TablaBD-multibase-", 0).factory()); // Ejecutor compartido de las consultas
+
+    // Atributos
+    private final PerfilConexion perfil; // Perfil del servidor; la base se cambia en la conexión de cada consulta
+    private int concurrencia = 16; // Bases consultadas al mismo tiempo
+    private long tiempoLimiteMs = 30_000L; // Tiempo límite de la consulta en cada base
+    private Map<String, Exception> errores = Collections.emptyMap(); // Errores por base de la última ejecución
+
+    /**
+     * Resultado leído de una base.
+     */
+    private record Resultado(String[] columnas, List<Object[]> filas) {
+    }
+
+    /**
+     * Crea la consulta sobre el servidor de un perfil.
+     *
+     * @param perfil Perfil del servidor; su pool presta las conexiones de
+     * todas las bases.
+     */
+    public ConsultaMultiBase(PerfilConexion perfil) {
+        this.perfil = perfil;
+    }
+
+    /**
+     * Establece cuántas bases se consultan al mismo tiempo. Todas comparten el
+     * pool del servidor, por lo que el valor efectivo no pasa de su tamaño
+     * máximo.
+     *
+     * @param concurrencia Bases simultáneas.
+     */
+    public void setConcurrencia(int concurrencia) {
+        if (concurrencia < 1) {
+            throw new IllegalArgumentException("La concurrencia debe ser positiva");
+        }
+        this.concurrencia = concurrencia;
+    }
+
+    /**
+     * Establece el tiempo límite de la consulta en cada base, contado desde
+     * que empieza a consultarse. Al excederlo, la consulta se cancela en el
+     * servidor y la base se reporta como error.
+     *
+     * @param tiempoLimiteMs Tiempo límite en milisegundos.
+     */
+    public void setTiempoLimite(long tiempoLimiteMs) {
+        if (tiempoLimiteMs < 1) {
+            throw new IllegalArgumentException("El tiempo límite debe ser positivo");
+        }
+        this.tiempoLimiteMs = tiempoLimiteMs;
+    }
+
+    /**
+     * Obtiene los nombres de las bases de datos del servidor.
+     *
+     * @return Lista de bases, incluidas las del sistema.
+     * @throws SQLException Si no se pudo obtener la conexión.
+     */
+    public List<String> getBases() throws SQLException {
+        Connection conn = perfil.getConexion();
+        try {
+            return Consulta.getDataBases(conn);
+        } finally {
+            PerfilConexion.liberar(conn);
+        }
+    }
+
+    /**
+     * Ejecuta una consulta en cada una de las bases indicadas y reúne los
+     * resultados. Las filas conservan el orden de las bases. Todas las bases
+     * deben devolver el mismo número de columnas; los nombres se toman de la
+     * primera que responde.
+     *
+     * @param sql La consulta SQL de lectura.
+     * @param bases Bases en las que se ejecuta.
+     * @return Un modelo con la columna {@value #COLUMNA_BASE} seguida de las
+     * columnas del resultado; vacío si ninguna base respondió.
+     * @throws SQLException Si se interrumpe la espera.
+     */
+    public ModeloDatos ejecutar(String sql, Collection<String> bases) throws SQLException {
+        Semaphore permisos = new Semaphore(Math.min(concurrencia, perfil.getPool().getMaximo())); // Sin esperar turno en el pool
+        long limite = tiempoLimiteMs;
+        Map<String, CompletableFuture<Resultado>> futuros = new LinkedHashMap<>();
+        for (String base : bases) {
+            if (futuros.containsKey(base)) {
+                continue;
+            }
+            try {
+                permisos.acquire(); // Se espera aquí para que el tiempo límite no cuente la espera de turno
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrumpido mientras se consultaban las bases", e);
+            }
+            AtomicReference<Statement> sentencia = new AtomicReference<>();
+            CompletableFuture<Resultado> futuro = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return consultar(base, sql, limite, sentencia);
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                } finally {
+                    permisos.release();
+                }
+            }, HILOS_VIRTUALES).orTimeout(limite, TimeUnit.MILLISECONDS);
+            futuro.whenComplete((r, e) -> {
+                if (e instanceof TimeoutException) {
+                    cancelar(sentencia);
+                }
+            });
+            futuros.put(base, futuro);
+        }
+
+        Map<String, Exception> fallidas = new LinkedHashMap<>();
+        String[] columnas = null;
+        AlmacenFilasLista almacen = new AlmacenFilasLista();
+        for (Map.Entry<String, CompletableFuture<Resultado>> entrada : futuros.entrySet()) {
+            String base = entrada.getKey();
+            Resultado resultado;
+            try {
+                resultado = entrada.getValue().join();
+            } catch (CompletionException e) {
+                Throwable causa = e.getCause();
+                fallidas.put(base, causa instanceof TimeoutException
+                        ? new SQLTimeoutException("La consulta excedió " + limite + " ms")
+                        : causa instanceof Exception ex ? ex : e);
+                continue;
+            }
+            if (columnas == null) {
+                columnas = new String[resultado.columnas().length + 1];
+                columnas[0] = COLUMNA_BASE;
+                System.arraycopy(resultado.columnas(), 0, columnas, 1, resultado.columnas().length);
+            } else if (resultado.columnas().length != columnas.length - 1) {
+                fallidas.put(base, new SQLException("El resultado tiene " + resultado.columnas().length
+                        + " columnas en lugar de " + (columnas.length - 1)));
+                continue;
+            }
+            for (Object[] fila : resultado.filas()) {
+                Object[] row = new Object[fila.length + 1];
+                row[0] = base;
+                System.arraycopy(fila, 0, row, 1, fila.length);
+                almacen.agregar(row);
+            }
+        }
+        almacen.compactar();
+        errores = Collections.unmodifiableMap(fallidas);
+        return new ModeloDatos(perfil, columnas != null ? columnas : new String[]{COLUMNA_BASE}, almacen);
+    }
+
+    /**
+     * Ejecuta la consulta en una base y lee su resultado completo. La conexión
+     * se cambia a la base y recupera la original antes de devolverse al pool;
+     * si no puede recuperarla, se cierra.
+     */
+    private Resultado consultar(String base, String sql, long limite, AtomicReference<Statement> sentencia) throws SQLException {
+        long inicio = System.nanoTime();
+        Connection conn = perfil.getConexion();
+        String original = null;
+        try {
+            original = conn.getCatalog();
+            conn.setCatalog(base);
+            // La sentencia no se toma de CacheSentencias: la misma conexión la ejecutaría después en otra base
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setQueryTimeout((int) Math.max(1, (limite - (System.nanoTime() - inicio) / 1_000_000 + 999) / 1000));
+                sentencia.set(pstmt);
+                long inicioEjecucion = System.nanoTime();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    long inicioLectura = System.nanoTime();
+                    MetricasConsulta.registrarEjecucion(sql, inicioLectura - inicioEjecucion);
+                    ResultSetMetaData md = rs.getMetaData();
+                    int columnCount = md.getColumnCount();
+                    String[] columnas = new String[columnCount];
+                    for (int i = 0; i < columnCount; i++) {
+                        columnas[i] = md.getColumnLabel(i + 1);
+                    }
+                    List<Object[]> filas = new ArrayList<>();
+                    while (rs.next()) {
+                        Object[] fila = new Object[columnCount];
+                        for (int i = 0; i < columnCount; i++) {
+                            fila[i] = rs.getObject(i + 1);
+                        }
+                        filas.add(fila);
+                    }
+                    MetricasConsulta.registrarLectura(sql, System.nanoTime() - inicioLectura, filas.size());
+                    return new Resultado(columnas, filas);
+                }
+            }
+        } finally {
+            synchronized (sentencia) {
+                sentencia.set(null); // Después de esto ya no se cancela la sentencia
+            }
+            restaurar(conn, original);
+            PerfilConexion.liberar(conn);
+        }
+    }
+
+    /**
+     * Devuelve la conexión a su base original. Si no lo consigue la cierra,
+     * para que el pool no preste una conexión apuntando a otra base.
+     */
+    private static void restaurar(Connection conn, String original) {
+        if (original == null) {
+            return;
+        }
+        try {
+            conn.setCatalog(original);
+        } catch (SQLException e) {
+            try {
+                conn.close(); // El pool la descarta al recibirla cerrada
+            } catch (SQLException ignorada) {
+                // La conexión ya no se usará
+            }
+        }
+    }
+
+    /**
+     * Cancela en el servidor una consulta que excedió el tiempo límite.
+     */
+    private static void cancelar(AtomicReference<Statement> sentencia) {
+        synchronized (sentencia) {
+            Statement actual = sentencia.get();
+            if (actual == null) {
+                return;
+            }
+            try {
+                actual.cancel();
+            } catch (SQLException e) {
+                // La base ya se reporta como excedida en getErrores()
+            }
+        }
+    }
+
+    /**
+     * Obtiene los errores de la última ejecución.
+     *
+     * @return Excepción por base, en el orden de las bases; vacío si todas
+     * respondieron.
+     */
+    public Map<String, Exception> getErrores() {
+        return errores;
+    }
+}
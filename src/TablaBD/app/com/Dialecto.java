@@ -0,0 +1,191 @@
+package TablaBD.app.com;
+
+import com.microsoft.sqlserver.jdbc.ISQLServerStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * Enumeración de los dialectos SQL soportados. Reúne en un solo lugar las
+ * diferencias de sintaxis entre SQL Server y MySQL (delimitación de
+ * identificadores y paginación) y de configuración de los controladores para
+ * que las consultas generadas sean correctas y eficientes en cada SGBD.
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public enum Dialecto {
+
+    SQL_SERVER(1),
+    MYSQL(2);
+
+    private final int idSGBD; // Identificador usado por Conexion y PerfilConexion
+
+    Dialecto(int idSGBD) {
+        this.idSGBD = idSGBD;
+    }
+
+    /**
+     * Obtiene el identificador de SGBD equivalente.
+     *
+     * @return 1 para SQL Server, 2 para MySQL.
+     */
+    public int getIdSGBD() {
+        return idSGBD;
+    }
+
+    /**
+     * Obtiene el dialecto correspondiente a un identificador de SGBD.
+     *
+     * @param idSGBD Identificador del SGBD (1 para SQL Server, 2 para MySQL).
+     * @return El dialecto correspondiente.
+     * @throws IllegalArgumentException Si el identificador no es válido.
+     */
+    public static Dialecto desdeId(int idSGBD) {
+        for (Dialecto d : values()) {
+            if (d.idSGBD == idSGBD) {
+                return d;
+            }
+        }
+        throw new IllegalArgumentException("SGBD no soportado: " + idSGBD);
+    }
+
+    /**
+     * Obtiene el dialecto de una conexión abierta a partir del producto de la
+     * base de datos.
+     *
+     * @param connection La conexión activa.
+     * @return El dialecto de la conexión.
+     */
+    public static Dialecto de(Connection connection) {
+        return desdeId(Consulta.getIdSGBD(connection));
+    }
+
+    /**
+     * Delimita un identificador (tabla o columna) según el dialecto,
+     * duplicando el delimitador de cierre si aparece en el nombre.
+     *
+     * @param identificador Nombre a delimitar.
+     * @return El identificador delimitado.
+     */
+    public String citar(String identificador) {
+        if (this == SQL_SERVER) {
+            return "[" + identificador.replace("]", "]]") + "]";
+        }
+        return "`" + identificador.replace("`", "``") + "`";
+    }
+
+    /**
+     * Agrega a una consulta el orden y la paginación propios del dialecto:
+     * {@code OFFSET ... FETCH NEXT} en SQL Server y {@code LIMIT ... OFFSET} en
+     * MySQL. La consulta resultante espera dos parámetros adicionales, que
+     * deben asignarse en el orden devuelto por
+     * {@link #parametrosPagina(long, int)}.
+     *
+     * @param sql Consulta base sin cláusula ORDER BY.
+     * @param orden Expresión de la cláusula ORDER BY.
+     * @return La consulta paginada.
+     */
+    public String paginar(String sql, String orden) {
+        if (this == SQL_SERVER) {
+            return sql + " ORDER BY " + orden + " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
+        }
+        return sql + " ORDER BY " + orden + " LIMIT ? OFFSET ?";
+    }
+
+    /**
+     * Ordena los parámetros de paginación según la consulta generada por
+     * {@link #paginar(String, String)}.
+     *
+     * @param desplazamiento Filas a omitir.
+     * @param limite Filas a devolver.
+     * @return Los parámetros en el orden esperado por el dialecto.
+     */
+    public long[] parametrosPagina(long desplazamiento, int limite) {
+        if (this == SQL_SERVER) {
+            return new long[]{desplazamiento, limite};
+        }
+        return new long[]{limite, desplazamiento};
+    }
+
+    /**
+     * Genera una función de agregación. En SQL Server la suma de enteros se
+     * calcula en {@code BIGINT} para no desbordar {@code INT} y el promedio de
+     * enteros en {@code FLOAT}, ya que de otro modo se trunca; MySQL ya
+     * devuelve {@code DECIMAL} en ambos casos.
+     *
+     * @param funcion {@code COUNT}, {@code SUM}, {@code AVG}, {@code MIN} o
+     * {@code MAX}.
+     * @param columna Columna ya delimitada.
+     * @param entera {@code true} si la columna es de tipo entero.
+     * @return La expresión de agregación.
+     */
+    public String agregar(String funcion, String columna, boolean entera) {
+        if (this == SQL_SERVER && entera) {
+            if (funcion.equals("SUM")) {
+                return "SUM(CAST(" + columna + " AS BIGINT))";
+            }
+            if (funcion.equals("AVG")) {
+                return "AVG(CAST(" + columna + " AS FLOAT))";
+            }
+        }
+        return funcion + "(" + columna + ")";
+    }
+
+    /**
+     * Genera la expresión que obtiene el tamaño en bytes de un valor, sin
+     * transferirlo.
+     *
+     * @param columna Columna ya delimitada.
+     * @return {@code DATALENGTH} en SQL Server, {@code LENGTH} en MySQL.
+     */
+    public String longitudBytes(String columna) {
+        return (this == SQL_SERVER ? "DATALENGTH(" : "LENGTH(") + columna + ")";
+    }
+
+    /**
+     * Obtiene el número máximo de valores de una lista {@code IN (?, ...)}
+     * con parámetros. SQL Server admite 2100 parámetros por sentencia; MySQL
+     * admite 65535, pero las listas muy largas ya no reducen el tiempo por
+     * clave.
+     *
+     * @return Valores por lista.
+     */
+    public int tamanoListaIn() {
+        return this == SQL_SERVER ? 2000 : 5000;
+    }
+
+    /**
+     * Configura una sentencia para leer su resultado en flujo, de modo que la
+     * memoria usada por el controlador dependa del tamaño de fetch y no del
+     * tamaño del resultado.
+     *
+     * <p>
+     * En MySQL, si la URL de la conexión activa {@code useCursorFetch=true},
+     * se usa un cursor del servidor que entrega {@code tamanoFetch} filas por
+     * viaje; si no, se usa la lectura fila por fila del controlador
+     * ({@code setFetchSize(Integer.MIN_VALUE)}), durante la cual la conexión no
+     * admite otras sentencias hasta cerrar el resultado. En SQL Server se usa
+     * el búfer de respuesta adaptativo, que lee del socket solo lo que se va
+     * consumiendo.</p>
+     *
+     * @param connection La conexión de la sentencia.
+     * @param sentencia La sentencia a configurar, creada con
+     * {@code TYPE_FORWARD_ONLY} y {@code CONCUR_READ_ONLY}.
+     * @param tamanoFetch Filas que se piden al servidor en cada viaje.
+     * @throws SQLException Si el controlador rechaza la configuración.
+     */
+    public void configurarLectura(Connection connection, Statement sentencia, int tamanoFetch) throws SQLException {
+        if (this == MYSQL) {
+            String url = connection.getMetaData().getURL();
+            boolean cursor = url != null && url.toLowerCase(Locale.ROOT).contains("usecursorfetch=true");
+            sentencia.setFetchSize(cursor ? tamanoFetch : Integer.MIN_VALUE);
+            return;
+        }
+        if (sentencia.isWrapperFor(ISQLServerStatement.class)) {
+            sentencia.unwrap(ISQLServerStatement.class).setResponseBuffering("adaptive");
+        }
+        sentencia.setFetchSize(tamanoFetch);
+    }
+}
@@ -0,0 +1,508 @@
+package TablaBD.app.com;
+
+import com.microsoft.sqlserver.jdbc.ISQLServerBulkData;
+import com.microsoft.sqlserver.jdbc.ISQLServerConnection;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopy;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopyOptions;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * La clase <code>EscrituraLotes</code> inserta o actualiza muchas filas de una
+ * tabla con pocas idas y vueltas al servidor. Las sentencias parametrizadas se
+ * construyen a partir de los metadatos de {@link CacheEsquema} y las filas se
+ * envían en lotes de tamaño configurable dentro de una única transacción: si
+ * algún lote falla, se revierte toda la operación.
+ *
+ * <p>
+ * Cada SGBD usa su vía más rápida para insertar:</p>
+ * <ul>
+ * <li>MySQL: sentencias {@code INSERT} de varias filas
+ * ({@code VALUES (...), (...), ...}), limitadas por el máximo de parámetros
+ * del protocolo.</li>
+ * <li>SQL Server: copia masiva con {@link SQLServerBulkCopy}, que transmite las
+ * filas en el formato nativo TDS sin analizar un {@code INSERT} por fila.
+ * Igual que un {@code INSERT}, valida las restricciones {@code CHECK} y las
+ * claves foráneas y dispara los triggers de la tabla.</li>
+ * </ul>
+ * <p>
+ * Las actualizaciones usan {@code addBatch}/{@code executeBatch} en ambos
+ * SGBD.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public class EscrituraLotes {
+
+    // Atributos
+    private static final int MAX_PARAMETROS_MYSQL = 65_535; // Límite de parámetros por sentencia en MySQL
+    private final Connection connection; // Conexión sobre la que se escribe
+    private final String tabla; // Tabla de destino
+    private final Dialecto dialecto; // Dialecto SQL del SGBD
+    private final EsquemaTabla esquema; // Metadatos de la tabla
+    private final List<String> columnas; // Columnas escritas, en el orden de los valores de cada fila
+    private final int[] tipos; // Tipo JDBC de cada columna escrita
+    private int tamanoLote = 1_000; // Filas por lote
+    private boolean copiaMasiva = true; // Usar la copia masiva de SQL Server al insertar
+
+    /**
+     * Constructor de la clase <code>EscrituraLotes</code> que escribe todas las
+     * columnas de la tabla excepto las autoincrementables.
+     *
+     * @param connection La conexión activa.
+     * @param tabla Nombre de la tabla de destino.
+     * @param base Nombre de la base de datos, o {@code null} para la base
+     * actual de la conexión.
+     * @throws SQLException Si no se pueden leer los metadatos de la tabla.
+     */
+    public EscrituraLotes(Connection connection, String tabla, String base) throws SQLException {
+        this(connection, tabla, base, null);
+    }
+
+    /**
+     * Constructor de la clase <code>EscrituraLotes</code> con columnas
+     * explícitas.
+     *
+     * @param connection La conexión activa.
+     * @param tabla Nombre de la tabla de destino.
+     * @param base Nombre de la base de datos, o {@code null} para la base
+     * actual de la conexión.
+     * @param columnas Columnas a escribir en el orden de los valores de cada
+     * fila, o {@code null} para todas las que no son autoincrementables.
+     * @throws SQLException Si no se pueden leer los metadatos de la tabla.
+     */
+    public EscrituraLotes(Connection connection, String tabla, String base, List<String> columnas) throws SQLException {
+        this.connection = connection;
+        this.tabla = tabla;
+        this.dialecto = Dialecto.de(connection);
+        this.esquema = Consulta.getEsquemaTabla(connection, tabla, base);
+        if (esquema.getColumnas().isEmpty()) {
+            throw new SQLException("La tabla " + tabla + " no existe o no tiene columnas");
+        }
+        List<String> elegidas = new ArrayList<>();
+        if (columnas == null) {
+            for (int i = 0; i < esquema.getColumnas().size(); i++) {
+                if (!esquema.getAutoincrementables().get(i)) {
+                    elegidas.add(esquema.getColumnas().get(i));
+                }
+            }
+        } else {
+            elegidas.addAll(columnas);
+        }
+        this.columnas = List.copyOf(elegidas);
+        this.tipos = new int[elegidas.size()];
+        for (int i = 0; i < tipos.length; i++) {
+            tipos[i] = esquema.getTipo(elegidas.get(i));
+        }
+    }
+
+    /**
+     * Establece cuántas filas se envían en cada lote.
+     *
+     * @param tamanoLote Filas por lote.
+     */
+    public void setTamanoLote(int tamanoLote) {
+        if (tamanoLote < 1) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser positivo");
+        }
+        this.tamanoLote = tamanoLote;
+    }
+
+    /**
+     * Activa o desactiva la copia masiva de SQL Server. Si se desactiva, las
+     * inserciones usan {@code addBatch}/{@code executeBatch}.
+     *
+     * @param copiaMasiva {@code true} para usar la copia masiva.
+     */
+    public void setCopiaMasiva(boolean copiaMasiva) {
+        this.copiaMasiva = copiaMasiva;
+    }
+
+    /**
+     * Obtiene las columnas escritas, en el orden esperado de los valores.
+     *
+     * @return Lista inmutable de columnas.
+     */
+    public List<String> getColumnas() {
+        return columnas;
+    }
+
+    /**
+     * Inserta las filas en una sola transacción.
+     *
+     * @param filas Filas a insertar; cada una con los valores en el orden de
+     * {@link #getColumnas()}.
+     * @return El número de filas insertadas.
+     * @throws SQLException Si falla algún lote; en ese caso no se inserta
+     * ninguna fila.
+     */
+    public long insertar(Iterable<Object[]> filas) throws SQLException {
+        return enTransaccion(() -> {
+            if (dialecto == Dialecto.SQL_SERVER && copiaMasiva && connection.isWrapperFor(ISQLServerConnection.class)) {
+                return copiaMasiva(filas);
+            }
+            if (dialecto == Dialecto.MYSQL) {
+                return insertarVariasFilas(filas);
+            }
+            return ejecutarLotes(sqlInsert(1), filas, null);
+        });
+    }
+
+    /**
+     * Actualiza las filas en una sola transacción, identificándolas por la
+     * clave primaria de la tabla.
+     *
+     * @param filas Filas a actualizar; cada una con los valores en el orden de
+     * {@link #getColumnas()}, que debe incluir las columnas de la clave
+     * primaria.
+     * @return El número de filas actualizadas según el controlador.
+     * @throws SQLException Si falla algún lote; en ese caso no se actualiza
+     * ninguna fila.
+     */
+    public long actualizar(Iterable<Object[]> filas) throws SQLException {
+        List<String> claves = esquema.getClavesPrimarias();
+        if (claves.isEmpty()) {
+            throw new SQLException("La tabla " + tabla + " no tiene clave primaria");
+        }
+        // Orden de los parámetros: primero las columnas no clave (SET) y después las claves (WHERE)
+        List<Integer> orden = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("UPDATE ").append(tabla).append(" SET ");
+        for (int i = 0; i < columnas.size(); i++) {
+            if (!contiene(claves, columnas.get(i))) {
+                if (!orden.isEmpty()) {
+                    sql.append(", ");
+                }
+                sql.append(dialecto.citar(columnas.get(i))).append(" = ?");
+                orden.add(i);
+            }
+        }
+        if (orden.isEmpty()) {
+            throw new SQLException("No hay columnas que actualizar fuera de la clave primaria");
+        }
+        sql.append(" WHERE ");
+        for (int k = 0; k < claves.size(); k++) {
+            int i = indiceColumna(claves.get(k));
+            if (i < 0) {
+                throw new SQLException("Falta la columna clave " + claves.get(k) + " en las columnas escritas");
+            }
+            sql.append(k > 0 ? " AND " : "").append(dialecto.citar(claves.get(k))).append(" = ?");
+            orden.add(i);
+        }
+        int[] permutacion = orden.stream().mapToInt(Integer::intValue).toArray();
+        return enTransaccion(() -> ejecutarLotes(sql.toString(), filas, permutacion));
+    }
+
+    /**
+     * Operación que se ejecuta dentro de una transacción.
+     */
+    @FunctionalInterface
+    private interface Operacion {
+
+        long ejecutar() throws SQLException;
+    }
+
+    /**
+     * Ejecuta la operación con el autocommit desactivado, confirmando al final
+     * o revirtiendo si falla. Restaura el autocommit original.
+     */
+    private long enTransaccion(Operacion operacion) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        long inicio = System.nanoTime();
+        try {
+            long filas = operacion.ejecutar();
+            connection.commit();
+            CacheResultados.invalidarTabla(tabla);
+            CacheFilas.invalidarTabla(tabla);
+            ValorDiferido.invalidarTabla(tabla);
+            MetricasConsulta.registrarEscritura("LOTE " + tabla, System.nanoTime() - inicio, filas);
+            return filas;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Envía las filas con {@code addBatch}/{@code executeBatch}, ejecutando el
+     * lote cada {@link #tamanoLote} filas.
+     *
+     * @param permutacion Posición del valor de la fila para cada parámetro, o
+     * {@code null} para usar el orden de las columnas.
+     */
+    private long ejecutarLotes(String sql, Iterable<Object[]> filas, int[] permutacion) throws SQLException {
+        PreparedStatement pstmt = CacheSentencias.preparar(connection, sql);
+        long total = 0;
+        int pendientes = 0;
+        try {
+            for (Object[] fila : filas) {
+                validar(fila);
+                if (permutacion == null) {
+                    asignar(pstmt, fila, 1);
+                } else {
+                    for (int p = 0; p < permutacion.length; p++) {
+                        asignarValor(pstmt, p + 1, fila[permutacion[p]], tipos[permutacion[p]]);
+                    }
+                }
+                pstmt.addBatch();
+                if (++pendientes == tamanoLote) {
+                    total += ejecutarLote(pstmt, sql);
+                    pendientes = 0;
+                }
+            }
+            if (pendientes > 0) {
+                total += ejecutarLote(pstmt, sql);
+            }
+        } finally {
+            pstmt.clearBatch();
+            CacheSentencias.liberar(pstmt, sql); // Solo se cierra si la conexión no es del pool
+        }
+        return total;
+    }
+
+    /**
+     * Ejecuta el lote acumulado y suma las filas afectadas.
+     */
+    private static long ejecutarLote(PreparedStatement pstmt, String sql) throws SQLException {
+        long inicio = System.nanoTime();
+        int[] resultados = pstmt.executeBatch();
+        MetricasConsulta.registrarEjecucion(sql, System.nanoTime() - inicio);
+        long total = 0;
+        for (int r : resultados) {
+            // SUCCESS_NO_INFO (-2) indica una fila procesada sin conteo
+            total += r >= 0 ? r : (r == Statement.SUCCESS_NO_INFO ? 1 : 0);
+        }
+        return total;
+    }
+
+    /**
+     * Inserta en MySQL con sentencias de varias filas. Los grupos completos
+     * reutilizan la misma sentencia desde {@link CacheSentencias}; el último
+     * grupo, más pequeño, se prepara una sola vez.
+     */
+    private long insertarVariasFilas(Iterable<Object[]> filas) throws SQLException {
+        int porSentencia = Math.max(1, Math.min(tamanoLote, MAX_PARAMETROS_MYSQL / columnas.size()));
+        String sqlCompleto = sqlInsert(porSentencia);
+        List<Object[]> grupo = new ArrayList<>(porSentencia);
+        long total = 0;
+        PreparedStatement completo = null;
+        try {
+            for (Object[] fila : filas) {
+                validar(fila);
+                grupo.add(fila);
+                if (grupo.size() == porSentencia) {
+                    if (completo == null) {
+                        completo = CacheSentencias.preparar(connection, sqlCompleto);
+                    }
+                    total += ejecutarGrupo(completo, sqlCompleto, grupo);
+                    grupo.clear();
+                }
+            }
+        } finally {
+            if (completo != null) {
+                CacheSentencias.liberar(completo, sqlCompleto);
+            }
+        }
+        if (!grupo.isEmpty()) {
+            String sqlResto = sqlInsert(grupo.size());
+            try (PreparedStatement pstmt = connection.prepareStatement(sqlResto)) {
+                total += ejecutarGrupo(pstmt, sqlResto, grupo);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Asigna los valores de un grupo de filas a una sentencia de varias filas
+     * y la ejecuta.
+     */
+    private long ejecutarGrupo(PreparedStatement pstmt, String sql, List<Object[]> grupo) throws SQLException {
+        int indice = 1;
+        for (Object[] fila : grupo) {
+            indice = asignar(pstmt, fila, indice);
+        }
+        long inicio = System.nanoTime();
+        int afectadas = pstmt.executeUpdate();
+        MetricasConsulta.registrarEjecucion(sql, System.nanoTime() - inicio);
+        return afectadas;
+    }
+
+    /**
+     * Inserta en SQL Server con la copia masiva del controlador. La copia se
+     * ejecuta dentro de la transacción de la conexión.
+     */
+    private long copiaMasiva(Iterable<Object[]> filas) throws SQLException {
+        DatosMasivos datos = new DatosMasivos(filas.iterator());
+        try (SQLServerBulkCopy copia = new SQLServerBulkCopy(connection.unwrap(ISQLServerConnection.class))) {
+            SQLServerBulkCopyOptions opciones = new SQLServerBulkCopyOptions();
+            opciones.setBatchSize(tamanoLote);
+            opciones.setKeepNulls(true); // Un valor nulo se inserta como NULL, igual que con INSERT
+            opciones.setBulkCopyTimeout(0);
+            // Como con INSERT: se validan CHECK y claves foráneas (las restricciones siguen siendo confiables) y se disparan los triggers
+            opciones.setCheckConstraints(true);
+            opciones.setFireTriggers(true);
+            copia.setBulkCopyOptions(opciones);
+            copia.setDestinationTableName(tabla);
+            for (int i = 0; i < columnas.size(); i++) {
+                copia.addColumnMapping(i + 1, columnas.get(i));
+            }
+            long inicio = System.nanoTime();
+            copia.writeToServer(datos);
+            MetricasConsulta.registrarEjecucion("BULK INSERT " + tabla, System.nanoTime() - inicio);
+        }
+        return datos.filas;
+    }
+
+    /**
+     * Adaptador de las filas al origen de datos de la copia masiva de SQL
+     * Server. Las filas se leen del iterador conforme el controlador las
+     * solicita, sin copiarlas antes a memoria.
+     */
+    private final class DatosMasivos implements ISQLServerBulkData {
+
+        private static final long serialVersionUID = 1L;
+        private final transient Iterator<Object[]> iterador;
+        private transient Object[] actual;
+        private long filas;
+
+        private DatosMasivos(Iterator<Object[]> iterador) {
+            this.iterador = iterador;
+        }
+
+        @Override
+        public Set<Integer> getColumnOrdinals() {
+            Set<Integer> ordinales = new LinkedHashSet<>();
+            for (int i = 1; i <= columnas.size(); i++) {
+                ordinales.add(i);
+            }
+            return ordinales;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnas.get(column - 1);
+        }
+
+        @Override
+        public int getColumnType(int column) {
+            return tipos[column - 1];
+        }
+
+        @Override
+        public int getPrecision(int column) {
+            return esquema.getTamanos().get(esquema.indiceDe(columnas.get(column - 1)));
+        }
+
+        @Override
+        public int getScale(int column) {
+            return esquema.getEscalas().get(esquema.indiceDe(columnas.get(column - 1)));
+        }
+
+        @Override
+        public Object[] getRowData() {
+            return actual;
+        }
+
+        @Override
+        public boolean next() throws SQLException {
+            if (!iterador.hasNext()) {
+                return false;
+            }
+            actual = iterador.next();
+            validar(actual);
+            filas++;
+            return true;
+        }
+    }
+
+    /**
+     * Construye un {@code INSERT} parametrizado con el número de filas
+     * indicado.
+     */
+    private String sqlInsert(int numeroFilas) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(tabla).append(" (");
+        StringBuilder valores = new StringBuilder("(");
+        for (int i = 0; i < columnas.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+                valores.append(", ");
+            }
+            sql.append(dialecto.citar(columnas.get(i)));
+            valores.append('?');
+        }
+        valores.append(')');
+        sql.append(") VALUES ");
+        for (int f = 0; f < numeroFilas; f++) {
+            if (f > 0) {
+                sql.append(", ");
+            }
+            sql.append(valores);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Asigna los valores de una fila a partir del parámetro indicado.
+     *
+     * @return El siguiente índice de parámetro libre.
+     */
+    private int asignar(PreparedStatement pstmt, Object[] fila, int indice) throws SQLException {
+        for (int i = 0; i < columnas.size(); i++) {
+            asignarValor(pstmt, indice++, fila[i], tipos[i]);
+        }
+        return indice;
+    }
+
+    /**
+     * Asigna un valor usando el tipo JDBC de la columna, también para nulos.
+     */
+    private static void asignarValor(PreparedStatement pstmt, int indice, Object valor, int tipo) throws SQLException {
+        if (valor == null) {
+            pstmt.setNull(indice, tipo);
+        } else {
+            pstmt.setObject(indice, valor);
+        }
+    }
+
+    /**
+     * Verifica que la fila tenga un valor por cada columna escrita.
+     */
+    private void validar(Object[] fila) throws SQLException {
+        if (fila == null || fila.length != columnas.size()) {
+            throw new SQLException("Se esperaban " + columnas.size() + " valores por fila: " + columnas);
+        }
+    }
+
+    /**
+     * Busca una columna escrita sin distinguir mayúsculas.
+     */
+    private int indiceColumna(String columna) {
+        for (int i = 0; i < columnas.size(); i++) {
+            if (columnas.get(i).equalsIgnoreCase(columna)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Indica si la lista contiene el nombre sin distinguir mayúsculas.
+     */
+    private static boolean contiene(List<String> nombres, String nombre) {
+        for (String n : nombres) {
+            if (n.equalsIgnoreCase(nombre)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,170 @@
+package TablaBD.app.com;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Descripción inmutable de las columnas y la clave primaria de una tabla, tal
+ * como la reporta {@link java.sql.DatabaseMetaData}. Al ser inmutable puede
+ * compartirse entre hilos, a diferencia de las listas estáticas de
+ * {@link Consulta}.
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public final class EsquemaTabla {
+
+    // Atributos
+    private final String tabla; // Nombre de la tabla
+    private final List<String> columnas; // Nombres de las columnas en orden
+    private final List<Integer> tipos; // Tipo JDBC de cada columna (java.sql.Types)
+    private final List<String> nombresTipo; // Nombre del tipo en el SGBD (VARCHAR, BLOB, etc.)
+    private final List<Integer> tamanos; // Tamaño declarado de cada columna (COLUMN_SIZE)
+    private final List<Integer> escalas; // Dígitos decimales de cada columna (DECIMAL_DIGITS)
+    private final List<Boolean> autoincrementables; // Indica si cada columna es autoincrementable
+    private final List<String> clavesPrimarias; // Columnas de la clave primaria en orden
+
+    /**
+     * Constructor de la clase <code>EsquemaTabla</code>. Las listas se copian y
+     * no pueden modificarse después.
+     *
+     * @param tabla Nombre de la tabla.
+     * @param columnas Nombres de las columnas.
+     * @param tipos Tipos JDBC de las columnas.
+     * @param nombresTipo Nombres de los tipos en el SGBD.
+     * @param tamanos Tamaños declarados de las columnas.
+     * @param escalas Dígitos decimales de las columnas.
+     * @param autoincrementables Indicadores de autoincremento.
+     * @param clavesPrimarias Columnas de la clave primaria.
+     */
+    public EsquemaTabla(String tabla, List<String> columnas, List<Integer> tipos, List<String> nombresTipo,
+            List<Integer> tamanos, List<Integer> escalas, List<Boolean> autoincrementables, List<String> clavesPrimarias) {
+        this.tabla = tabla;
+        this.columnas = List.copyOf(columnas);
+        this.tipos = List.copyOf(tipos);
+        this.nombresTipo = List.copyOf(nombresTipo);
+        this.tamanos = List.copyOf(tamanos);
+        this.escalas = List.copyOf(escalas);
+        this.autoincrementables = List.copyOf(autoincrementables);
+        this.clavesPrimarias = List.copyOf(clavesPrimarias);
+    }
+
+    /**
+     * Obtiene el nombre de la tabla.
+     *
+     * @return El nombre de la tabla.
+     */
+    public String getTabla() {
+        return tabla;
+    }
+
+    /**
+     * Obtiene los nombres de las columnas en el orden del catálogo.
+     *
+     * @return Lista inmutable con los nombres de las columnas.
+     */
+    public List<String> getColumnas() {
+        return columnas;
+    }
+
+    /**
+     * Obtiene el tipo JDBC de cada columna.
+     *
+     * @return Lista inmutable de tipos de {@link java.sql.Types}, en el orden
+     * de las columnas.
+     */
+    public List<Integer> getTipos() {
+        return tipos;
+    }
+
+    /**
+     * Obtiene el nombre del tipo de cada columna en el SGBD.
+     *
+     * @return Lista inmutable de nombres de tipo, en el orden de las columnas.
+     */
+    public List<String> getNombresTipo() {
+        return nombresTipo;
+    }
+
+    /**
+     * Obtiene el tamaño declarado de cada columna ({@code COLUMN_SIZE}).
+     *
+     * @return Lista inmutable de tamaños, en el orden de las columnas.
+     */
+    public List<Integer> getTamanos() {
+        return tamanos;
+    }
+
+    /**
+     * Obtiene los dígitos decimales de cada columna ({@code DECIMAL_DIGITS}).
+     *
+     * @return Lista inmutable de escalas, en el orden de las columnas.
+     */
+    public List<Integer> getEscalas() {
+        return escalas;
+    }
+
+    /**
+     * Indica si cada columna es autoincrementable.
+     *
+     * @return Lista inmutable de indicadores, en el orden de las columnas.
+     */
+    public List<Boolean> getAutoincrementables() {
+        return autoincrementables;
+    }
+
+    /**
+     * Obtiene las columnas de la clave primaria en el orden de la clave.
+     *
+     * @return Lista inmutable con las columnas de la clave, vacía si la tabla
+     * no tiene.
+     */
+    public List<String> getClavesPrimarias() {
+        return clavesPrimarias;
+    }
+
+    /**
+     * Busca la posición de una columna sin distinguir mayúsculas.
+     *
+     * @param columna Nombre de la columna.
+     * @return La posición de la columna, o -1 si no existe.
+     */
+    public int indiceDe(String columna) {
+        for (int i = 0; i < columnas.size(); i++) {
+            if (columnas.get(i).equalsIgnoreCase(columna)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Indica si la tabla tiene una columna con el nombre indicado.
+     *
+     * @param columna Nombre de la columna.
+     * @return {@code true} si la columna existe.
+     */
+    public boolean tieneColumna(String columna) {
+        return indiceDe(columna) >= 0;
+    }
+
+    /**
+     * Obtiene el tipo JDBC de una columna.
+     *
+     * @param columna Nombre de la columna.
+     * @return El tipo JDBC.
+     * @throws IllegalArgumentException Si la columna no existe.
+     */
+    public int getTipo(String columna) {
+        int i = indiceDe(columna);
+        if (i < 0) {
+            throw new IllegalArgumentException("La columna " + columna + " no existe en " + tabla);
+        }
+        return tipos.get(i);
+    }
+
+    @Override
+    public String toString() {
+        return "EsquemaTabla[" + tabla + ", columnas=" + columnas + ", clave=" + Collections.unmodifiableList(clavesPrimarias) + "]";
+    }
+}
@@ -0,0 +1,622 @@
+package TablaBD.app.com;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Exporta el resultado de una consulta directamente a un archivo, sin pasar
+ * por un {@link ModeloDatos}. Las filas se leen en flujo con
+ * {@link Consulta#executeQueryStreaming(Connection, String)} y se escriben en
+ * un {@link FileChannel} a través de búferes directos reutilizados, por lo que
+ * la memoria usada no depende del tamaño del resultado.
+ *
+ * <p>
+ * Cada columna se escribe con un formato según su tipo JDBC. Los enteros y
+ * booleanos se leen con los métodos tipados del resultado y se convierten a
+ * bytes directamente en el búfer, sin objetos por celda. Las demás columnas
+ * sí crean un objeto por celda: el texto se lee con {@code getString} (y se
+ * codifica en UTF-8 en el búfer sin arreglos intermedios), los reales y
+ * decimales se formatean con {@code Double.toString} y
+ * {@code BigDecimal.toPlainString}, y los binarios se leen con
+ * {@code getBytes}. Los formatos admitidos son CSV (RFC 4180, con líneas
+ * terminadas en CRLF), TSV y JSON Lines, con compresión gzip opcional.</p>
+ *
+ * <p>
+ * El resultado se escribe en un archivo temporal junto al destino, que lo
+ * reemplaza solo cuando la exportación termina; si falla, el temporal se
+ * elimina y el destino queda como estaba.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public class ExportadorFlujo {
+
+    /**
+     * Formato del archivo exportado.
+     */
+    public enum Formato {
+        /**
+         * Valores separados por comas y líneas terminadas en CRLF; los campos
+         * con comas, comillas o saltos de línea se encierran entre comillas.
+         */
+        CSV,
+        /**
+         * Valores separados por tabuladores; los tabuladores, saltos de línea
+         * y barras invertidas se escapan con barra invertida.
+         */
+        TSV,
+        /**
+         * Un objeto JSON por línea, con los nombres de las columnas como
+         * claves.
+         */
+        JSONL
+    }
+
+    // Categorías de formato de cada columna
+    private static final int TEXTO = 0, ENTERO = 1, REAL = 2, DECIMAL = 3, BOOLEANO = 4, BINARIO = 5;
+
+    private static final int TAMANO_BUFER = 256 * 1024; // Bytes de cada búfer directo
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VERDADERO = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSO = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULO_JSON = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final ByteBuffer SIN_DATOS = ByteBuffer.allocate(0); // Entrada vacía del compresor
+
+    // Atributos
+    private final PerfilConexion perfil; // Perfil con el que se abre la conexión
+    private final Formato formato; // Formato de salida
+    private boolean comprimir; // Comprimir la salida con gzip
+    private boolean encabezado = true; // Escribir los nombres de las columnas en CSV y TSV
+    private final ByteBuffer bufer = ByteBuffer.allocateDirect(TAMANO_BUFER); // Bytes formateados pendientes de escribir
+    private final byte[] digitos = new byte[20]; // Espacio para convertir un entero a texto
+    private FileChannel canal; // Archivo de destino de la exportación en curso
+    private Deflater compresor; // Compresor de la exportación en curso, null sin gzip
+    private CRC32 crc; // Suma de verificación del contenido sin comprimir
+    private ByteBuffer comprimido; // Búfer directo de salida del compresor
+
+    /**
+     * Crea un exportador.
+     *
+     * @param perfil El perfil de conexión.
+     * @param formato El formato de salida.
+     */
+    public ExportadorFlujo(PerfilConexion perfil, Formato formato) {
+        this.perfil = perfil;
+        this.formato = formato;
+    }
+
+    /**
+     * Activa o desactiva la compresión gzip de la salida.
+     *
+     * @param comprimir {@code true} para comprimir.
+     */
+    public void setComprimir(boolean comprimir) {
+        this.comprimir = comprimir;
+    }
+
+    /**
+     * Indica si se escribe una primera línea con los nombres de las columnas
+     * en CSV y TSV. En JSON Lines los nombres van en cada objeto.
+     *
+     * @param encabezado {@code true} para escribir el encabezado.
+     */
+    public void setEncabezado(boolean encabezado) {
+        this.encabezado = encabezado;
+    }
+
+    /**
+     * Exporta el resultado de una consulta.
+     *
+     * @param sql La consulta SQL de lectura.
+     * @param destino Archivo de destino; se reemplaza si existe, solo al
+     * terminar la exportación.
+     * @return Número de filas exportadas.
+     * @throws SQLException Si falla la consulta o la lectura del resultado.
+     * @throws IOException Si falla la escritura del archivo.
+     */
+    public long exportarConsulta(String sql, Path destino) throws SQLException, IOException {
+        return exportar(sql, destino);
+    }
+
+    /**
+     * Exporta una tabla completa.
+     *
+     * @param tabla Nombre de la tabla, puede incluir base o esquema.
+     * @param destino Archivo de destino; se reemplaza si existe, solo al
+     * terminar la exportación.
+     * @return Número de filas exportadas.
+     * @throws SQLException Si falla la consulta o la lectura del resultado.
+     * @throws IOException Si falla la escritura del archivo.
+     */
+    public long exportarTabla(String tabla, Path destino) throws SQLException, IOException {
+        return exportar("SELECT * FROM " + tabla, destino);
+    }
+
+    /**
+     * Ejecuta una consulta y escribe su resultado en un archivo temporal que
+     * luego reemplaza al destino.
+     */
+    private long exportar(String sql, Path destino) throws SQLException, IOException {
+        long inicio = System.nanoTime();
+        long filas = 0;
+        // Mismo directorio que el destino, para que el reemplazo no tenga que copiar entre sistemas de archivos
+        Path temporal = destino.toAbsolutePath().resolveSibling(
+                "." + destino.getFileName() + "-" + ProcessHandle.current().pid() + "-" + System.nanoTime() + ".tmp");
+        boolean terminado = false;
+        Connection conn = perfil.getConexion();
+        try {
+            try (ResultSet rs = Consulta.executeQueryStreaming(conn, sql);
+                    FileChannel salida = FileChannel.open(temporal, StandardOpenOption.CREATE_NEW,
+                            StandardOpenOption.WRITE)) {
+                if (rs == null) {
+                    throw new SQLException("La query no fue definida");
+                }
+                filas = escribirResultado(rs, salida);
+            }
+            reemplazar(temporal, destino);
+            terminado = true;
+        } finally {
+            PerfilConexion.liberar(conn);
+            if (!terminado) {
+                eliminar(temporal);
+            }
+        }
+        MetricasConsulta.registrarLectura(sql, System.nanoTime() - inicio, filas);
+        return filas;
+    }
+
+    /**
+     * Mueve el archivo terminado sobre el destino, de forma atómica si el
+     * sistema de archivos lo permite.
+     */
+    private static void reemplazar(Path temporal, Path destino) throws IOException {
+        try {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Elimina el archivo temporal de una exportación fallida sin ocultar el
+     * error original.
+     */
+    private static void eliminar(Path temporal) {
+        try {
+            Files.deleteIfExists(temporal);
+        } catch (IOException e) {
+            System.err.println("No se pudo eliminar el archivo temporal " + temporal + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Escribe un resultado completo en un archivo con el formato configurado.
+     *
+     * @param rs El resultado, que se recorre hacia adelante.
+     * @param salida Canal del archivo de destino.
+     * @return Número de filas escritas.
+     */
+    long escribirResultado(ResultSet rs, FileChannel salida) throws SQLException, IOException {
+        long filas = 0;
+        try {
+            abrir(salida);
+            ResultSetMetaData md = rs.getMetaData();
+            int columnas = md.getColumnCount();
+            int[] categorias = new int[columnas];
+            byte[][] claves = new byte[columnas][];
+            for (int c = 0; c < columnas; c++) {
+                categorias[c] = categoria(md.getColumnType(c + 1), md.getPrecision(c + 1), md.isSigned(c + 1));
+                claves[c] = claveJson(md.getColumnName(c + 1));
+            }
+            if (encabezado && formato != Formato.JSONL) {
+                for (int c = 0; c < columnas; c++) {
+                    separar(c);
+                    escribirTexto(md.getColumnName(c + 1));
+                }
+                terminarLinea();
+            }
+            while (rs.next()) {
+                if (formato == Formato.JSONL) {
+                    escribir((byte) '{');
+                }
+                for (int c = 0; c < columnas; c++) {
+                    separar(c);
+                    if (formato == Formato.JSONL) {
+                        escribir(claves[c]);
+                    }
+                    escribirValor(rs, c + 1, categorias[c]);
+                }
+                if (formato == Formato.JSONL) {
+                    escribir((byte) '}');
+                }
+                terminarLinea();
+                filas++;
+            }
+            cerrar();
+        } finally {
+            canal = null;
+            if (compresor != null) {
+                compresor.end();
+                compresor = null;
+            }
+        }
+        return filas;
+    }
+
+    /**
+     * Escribe el fin de línea del formato: CRLF en CSV, salto de línea en los
+     * demás.
+     */
+    private void terminarLinea() throws IOException {
+        if (formato == Formato.CSV) {
+            escribir((byte) '\r');
+        }
+        escribir((byte) '\n');
+    }
+
+    /**
+     * Clasifica una columna según el formato con que se escribe.
+     */
+    private static int categoria(int tipo, int precision, boolean conSigno) {
+        return switch (tipo) {
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER ->
+                ENTERO;
+            case Types.BIGINT ->
+                conSigno ? ENTERO : DECIMAL; // BIGINT UNSIGNED no cabe en un long
+            case Types.REAL, Types.FLOAT, Types.DOUBLE ->
+                REAL;
+            case Types.NUMERIC, Types.DECIMAL ->
+                DECIMAL;
+            case Types.BIT ->
+                precision > 1 ? BINARIO : BOOLEANO; // BIT(n) de MySQL es una cadena de bits, no un booleano
+            case Types.BOOLEAN ->
+                BOOLEANO;
+            case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB ->
+                BINARIO;
+            default ->
+                TEXTO;
+        };
+    }
+
+    /**
+     * Codifica una sola vez la clave JSON de una columna, con comillas y dos
+     * puntos.
+     */
+    private static byte[] claveJson(String nombre) {
+        StringBuilder clave = new StringBuilder("\"");
+        for (int i = 0; i < nombre.length(); i++) {
+            char ch = nombre.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                clave.append('\\');
+            }
+            clave.append(ch);
+        }
+        return clave.append("\":").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Escribe el separador anterior a una columna.
+     */
+    private void separar(int columna) throws IOException {
+        if (columna > 0) {
+            escribir(formato == Formato.TSV ? (byte) '\t' : (byte) ',');
+        }
+    }
+
+    /**
+     * Lee un valor del resultado y lo escribe con el formato de su categoría.
+     */
+    private void escribirValor(ResultSet rs, int columna, int categoria) throws SQLException, IOException {
+        switch (categoria) {
+            case ENTERO -> {
+                long valor = rs.getLong(columna);
+                if (rs.wasNull()) {
+                    escribirNulo();
+                } else {
+                    escribirEntero(valor);
+                }
+            }
+            case REAL -> {
+                double valor = rs.getDouble(columna);
+                if (rs.wasNull() || (formato == Formato.JSONL && !Double.isFinite(valor))) {
+                    escribirNulo(); // JSON no admite NaN ni infinitos
+                } else {
+                    escribirAscii(Double.toString(valor));
+                }
+            }
+            case DECIMAL -> {
+                BigDecimal valor = rs.getBigDecimal(columna);
+                if (valor == null) {
+                    escribirNulo();
+                } else {
+                    escribirAscii(valor.toPlainString());
+                }
+            }
+            case BOOLEANO -> {
+                boolean valor = rs.getBoolean(columna);
+                if (rs.wasNull()) {
+                    escribirNulo();
+                } else {
+                    escribir(valor ? VERDADERO : FALSO);
+                }
+            }
+            case BINARIO -> {
+                byte[] valor = rs.getBytes(columna);
+                if (valor == null) {
+                    escribirNulo();
+                } else {
+                    escribirHex(valor);
+                }
+            }
+            default -> {
+                String valor = rs.getString(columna);
+                if (valor == null) {
+                    escribirNulo();
+                } else {
+                    escribirTexto(valor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Escribe un valor nulo: vacío en CSV y TSV, {@code null} en JSON.
+     */
+    private void escribirNulo() throws IOException {
+        if (formato == Formato.JSONL) {
+            escribir(NULO_JSON);
+        }
+    }
+
+    /**
+     * Escribe los dígitos de un entero sin crear una cadena.
+     */
+    private void escribirEntero(long valor) throws IOException {
+        asegurar(20);
+        if (valor == Long.MIN_VALUE) {
+            escribirAscii(Long.toString(valor));
+            return;
+        }
+        if (valor < 0) {
+            bufer.put((byte) '-');
+            valor = -valor;
+        }
+        int i = digitos.length;
+        do {
+            digitos[--i] = (byte) ('0' + valor % 10);
+            valor /= 10;
+        } while (valor != 0);
+        bufer.put(digitos, i, digitos.length - i);
+    }
+
+    /**
+     * Escribe un texto que solo contiene caracteres ASCII sin escapar.
+     */
+    private void escribirAscii(String texto) throws IOException {
+        asegurar(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            bufer.put((byte) texto.charAt(i));
+        }
+    }
+
+    /**
+     * Escribe un arreglo de bytes en hexadecimal; en JSON, entre comillas.
+     */
+    private void escribirHex(byte[] valor) throws IOException {
+        boolean json = formato == Formato.JSONL;
+        if (json) {
+            escribir((byte) '"');
+        }
+        for (byte b : valor) {
+            asegurar(2);
+            bufer.put(HEX[(b >> 4) & 0xF]).put(HEX[b & 0xF]);
+        }
+        if (json) {
+            escribir((byte) '"');
+        }
+    }
+
+    /**
+     * Escribe un texto en UTF-8 con el escape que requiere el formato.
+     */
+    private void escribirTexto(String texto) throws IOException {
+        boolean comillas = switch (formato) {
+            case CSV ->
+                requiereComillas(texto);
+            case JSONL ->
+                true;
+            case TSV ->
+                false;
+        };
+        if (comillas) {
+            escribir((byte) '"');
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            char ch = texto.charAt(i);
+            asegurar(6);
+            if (ch < 0x80) {
+                escribirCaracterAscii(ch);
+            } else if (ch < 0x800) {
+                bufer.put((byte) (0xC0 | (ch >> 6))).put((byte) (0x80 | (ch & 0x3F)));
+            } else if (Character.isHighSurrogate(ch) && i + 1 < texto.length() && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                int cp = Character.toCodePoint(ch, texto.charAt(++i));
+                bufer.put((byte) (0xF0 | (cp >> 18))).put((byte) (0x80 | ((cp >> 12) & 0x3F)))
+                        .put((byte) (0x80 | ((cp >> 6) & 0x3F))).put((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isSurrogate(ch)) {
+                bufer.put((byte) '?'); // Sustituto sin pareja: no es representable en UTF-8
+            } else {
+                bufer.put((byte) (0xE0 | (ch >> 12))).put((byte) (0x80 | ((ch >> 6) & 0x3F))).put((byte) (0x80 | (ch & 0x3F)));
+            }
+        }
+        if (comillas) {
+            escribir((byte) '"');
+        }
+    }
+
+    /**
+     * Escribe un carácter ASCII con el escape del formato. Debe haber espacio
+     * para seis bytes en el búfer.
+     */
+    private void escribirCaracterAscii(char ch) {
+        switch (formato) {
+            case CSV -> {
+                if (ch == '"') {
+                    bufer.put((byte) '"'); // Las comillas se duplican
+                }
+                bufer.put((byte) ch);
+            }
+            case TSV -> {
+                switch (ch) {
+                    case '\t' ->
+                        bufer.put((byte) '\\').put((byte) 't');
+                    case '\n' ->
+                        bufer.put((byte) '\\').put((byte) 'n');
+                    case '\r' ->
+                        bufer.put((byte) '\\').put((byte) 'r');
+                    case '\\' ->
+                        bufer.put((byte) '\\').put((byte) '\\');
+                    default ->
+                        bufer.put((byte) ch);
+                }
+            }
+            case JSONL -> {
+                if (ch == '"' || ch == '\\') {
+                    bufer.put((byte) '\\').put((byte) ch);
+                } else if (ch < 0x20) {
+                    bufer.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                            .put(HEX[ch >> 4]).put(HEX[ch & 0xF]);
+                } else {
+                    bufer.put((byte) ch);
+                }
+            }
+        }
+    }
+
+    /**
+     * Indica si un campo CSV debe ir entre comillas.
+     */
+    private static boolean requiereComillas(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            char ch = texto.charAt(i);
+            if (ch == ',' || ch == '"' || ch == '\n' || ch == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Escribe un byte.
+     */
+    private void escribir(byte b) throws IOException {
+        asegurar(1);
+        bufer.put(b);
+    }
+
+    /**
+     * Escribe un arreglo de bytes.
+     */
+    private void escribir(byte[] bytes) throws IOException {
+        asegurar(bytes.length);
+        bufer.put(bytes);
+    }
+
+    /**
+     * Vacía el búfer si no tiene espacio para los bytes indicados.
+     */
+    private void asegurar(int bytes) throws IOException {
+        if (bufer.remaining() < bytes) {
+            vaciar();
+        }
+    }
+
+    /**
+     * Prepara la salida hacia un archivo; con gzip escribe el encabezado.
+     */
+    private void abrir(FileChannel salida) throws IOException {
+        canal = salida;
+        bufer.clear();
+        if (comprimir) {
+            compresor = new Deflater(Deflater.DEFAULT_COMPRESSION, true); // Deflate sin envoltura zlib
+            crc = new CRC32();
+            if (comprimido == null) {
+                comprimido = ByteBuffer.allocateDirect(TAMANO_BUFER);
+            }
+            comprimido.clear();
+            // Encabezado gzip mínimo (RFC 1952): método deflate, sin nombre ni fecha
+            comprimido.put(new byte[]{0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff});
+        }
+    }
+
+    /**
+     * Escribe el contenido del búfer en el archivo, comprimiéndolo si
+     * corresponde.
+     */
+    private void vaciar() throws IOException {
+        bufer.flip();
+        if (compresor == null) {
+            while (bufer.hasRemaining()) {
+                canal.write(bufer);
+            }
+        } else {
+            crc.update(bufer.duplicate());
+            compresor.setInput(bufer);
+            while (!compresor.needsInput()) {
+                desinflar();
+            }
+            compresor.setInput(SIN_DATOS); // El compresor no debe conservar el búfer, que se reutiliza
+        }
+        bufer.clear();
+    }
+
+    /**
+     * Pasa al archivo la salida disponible del compresor.
+     */
+    private void desinflar() throws IOException {
+        compresor.deflate(comprimido);
+        if (!comprimido.hasRemaining() || compresor.needsInput() || compresor.finished()) {
+            comprimido.flip();
+            while (comprimido.hasRemaining()) {
+                canal.write(comprimido);
+            }
+            comprimido.clear();
+        }
+    }
+
+    /**
+     * Termina la salida: vacía el búfer y, con gzip, escribe el final del
+     * flujo comprimido con su suma de verificación y tamaño.
+     */
+    private void cerrar() throws IOException {
+        vaciar();
+        if (compresor != null) {
+            compresor.finish();
+            while (!compresor.finished()) {
+                desinflar();
+            }
+            ByteBuffer cola = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            cola.putInt((int) crc.getValue()).putInt((int) compresor.getBytesRead());
+            cola.flip();
+            while (cola.hasRemaining()) {
+                canal.write(cola);
+            }
+        }
+        canal.force(false);
+    }
+}
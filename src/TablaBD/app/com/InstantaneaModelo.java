@@ -0,0 +1,1023 @@
+package TablaBD.app.com;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Instantánea binaria por columnas del contenido de un {@link ModeloDatos}.
+ * Permite guardar una tabla de referencia ya cargada y volver a abrirla sin
+ * consultar la base de datos: al abrirla, cada columna se mapea en memoria y
+ * los valores se decodifican directamente del archivo, sin leerlo completo.
+ *
+ * <p>
+ * Formato (versión 2, little endian): un encabezado con la firma
+ * {@code TBDI}, la versión, el número de columnas y filas, la tabla de origen
+ * y su estado al guardar (número de filas y mayor versión), seguido de un
+ * bloque por columna y un directorio con el nombre, el tipo JDBC, la
+ * codificación y la posición de cada bloque. Cada bloque empieza con el mapa
+ * de bits de nulos; los números y fechas se guardan en arreglos de ancho
+ * fijo y los valores de longitud variable como desplazamientos seguidos de
+ * sus bytes. Una columna con valores de varias clases guarda cada valor con
+ * una marca de su codificación. Las clases sin codificación propia se
+ * serializan solo si son tipos de valor del JDK y, al abrir, un filtro de
+ * deserialización rechaza cualquier otra clase; los demás valores se guardan
+ * como texto. Los objetos grandes diferidos ({@link ValorDiferido}) se leen
+ * de la base de datos al guardar, ya que el marcador no tiene sentido fuera
+ * del modelo que lo creó.</p>
+ *
+ * <p>
+ * El archivo indicado es un índice pequeño con la generación vigente; los
+ * datos de cada generación se guardan junto a él con el sufijo
+ * {@code .<generación>}. Guardar escribe siempre una generación nueva y
+ * después reemplaza el índice, por lo que nunca se sobrescribe un archivo que
+ * otro modelo tenga mapeado (en Windows no se puede reemplazar ni borrar un
+ * archivo mapeado, y Java no permite liberar el mapeo). Las generaciones
+ * anteriores se borran cuando es posible; las que siguen mapeadas se borran
+ * en un guardado posterior.</p>
+ *
+ * <p>
+ * El estado de origen permite descartar una instantánea obsoleta: si la
+ * tabla tiene ahora otro número de filas u otra versión máxima, la
+ * instantánea ya no corresponde a sus datos.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+final class InstantaneaModelo {
+
+    private static final int FIRMA = 0x49444254; // "TBDI" en little endian
+    private static final int FIRMA_INDICE = 0x58444254; // "TBDX" en little endian
+    private static final int VERSION = 2; // Versión del formato
+    private static final ByteOrder ORDEN = ByteOrder.LITTLE_ENDIAN;
+
+    // Codificaciones de los bloques de columna
+    private static final byte ENTERO = 1, LARGO = 2, REAL = 3, FLOTANTE = 4, BOOLEANO = 5, FECHA = 6, HORA = 7,
+            MARCA = 8, TEXTO = 9, DECIMAL = 10, BINARIO = 11, OBJETO = 12, CORTO = 13, FECHA_LOCAL = 14,
+            HORA_LOCAL = 15, MARCA_LOCAL = 16, ENTERO_GRANDE = 17, MIXTA = 18;
+
+    // Clases de valor que pueden serializarse; el resto de java.time también se admite
+    private static final Set<Class<?>> SERIALIZABLES = Set.of(String.class, Number.class, Byte.class, Short.class,
+            Integer.class, Long.class, Float.class, Double.class, Boolean.class, Character.class, BigDecimal.class,
+            BigInteger.class, java.util.Date.class, java.sql.Date.class, Time.class, Timestamp.class, UUID.class);
+
+    // Filtro de deserialización: solo las clases de valor anteriores, con profundidad y referencias acotadas
+    private static final ObjectInputFilter FILTRO = info -> {
+        if (info.depth() > 4 || info.references() > 64) {
+            return ObjectInputFilter.Status.REJECTED;
+        }
+        Class<?> clase = info.serialClass();
+        if (clase == null) {
+            return ObjectInputFilter.Status.ALLOWED;
+        }
+        while (clase.isArray()) {
+            clase = clase.getComponentType();
+        }
+        return clase.isPrimitive() || serializable(clase) ? ObjectInputFilter.Status.ALLOWED : ObjectInputFilter.Status.REJECTED;
+    };
+
+    // Atributos
+    private final String[] columnas; // Nombres de las columnas
+    private final int[] tipos; // Tipo JDBC de cada columna
+    private final AlmacenFilas almacen; // Filas leídas del archivo mapeado
+    private final String tabla; // Tabla de origen, null si no se registró
+    private final String columnaVersion; // Columna de versión de la tabla, null si no se registró
+    private final long filasOrigen; // Filas de la tabla al guardar, -1 si no se registró
+    private final Object versionOrigen; // Versión máxima de la tabla al guardar, puede ser null
+
+    private InstantaneaModelo(String[] columnas, int[] tipos, AlmacenFilas almacen, String tabla,
+            String columnaVersion, long filasOrigen, Object versionOrigen) {
+        this.columnas = columnas;
+        this.tipos = tipos;
+        this.almacen = almacen;
+        this.tabla = tabla;
+        this.columnaVersion = columnaVersion;
+        this.filasOrigen = filasOrigen;
+        this.versionOrigen = versionOrigen;
+    }
+
+    /**
+     * Guarda una instantánea como una generación nueva. El índice se
+     * reemplaza al terminar, de modo que una instantánea a medio escribir
+     * nunca reemplaza a la anterior.
+     *
+     * @param archivo Archivo índice de la instantánea.
+     * @param columnas Nombres de las columnas.
+     * @param almacen Filas a guardar.
+     * @param perfil Perfil para leer el estado de la tabla, o {@code null}.
+     * @param tabla Tabla de origen, o {@code null} para no registrar su
+     * estado.
+     * @param columnaVersion Columna de versión de la tabla, o {@code null}
+     * para comparar solo el número de filas.
+     * @throws IOException Si falla la escritura.
+     * @throws SQLException Si falla la lectura del estado de la tabla.
+     */
+    static void guardar(Path archivo, String[] columnas, AlmacenFilas almacen, PerfilConexion perfil,
+            String tabla, String columnaVersion) throws IOException, SQLException {
+        long filasOrigen = -1;
+        Object versionOrigen = null;
+        if (tabla != null) {
+            Object[] estado = estadoOrigen(perfil, tabla, columnaVersion);
+            filasOrigen = (Long) estado[0];
+            versionOrigen = estado[1];
+        }
+
+        int filas = almacen.getFilas();
+        long generacion = generacion(archivo) + 1;
+        Path datos = datos(archivo, generacion);
+        try (FileChannel canal = FileChannel.open(datos, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Escritor out = new Escritor(canal);
+            out.putInt(FIRMA).putInt(VERSION).putInt(columnas.length).putInt(filas);
+            out.putLong(0); // Posición del directorio, se completa al final
+            out.putTexto(tabla).putTexto(columnaVersion).putLong(filasOrigen);
+            out.putBytes(versionOrigen == null ? null : bytesMixtos(versionOrigen));
+
+            long[] inicios = new long[columnas.length];
+            long[] largos = new long[columnas.length];
+            byte[] codificaciones = new byte[columnas.length];
+            for (int c = 0; c < columnas.length; c++) {
+                Object[] valores = leerColumna(almacen, c);
+                codificaciones[c] = codificacion(valores);
+                out.alinear();
+                inicios[c] = out.posicion();
+                escribirColumna(out, valores, codificaciones[c]);
+                largos[c] = out.posicion() - inicios[c];
+                if (largos[c] > Integer.MAX_VALUE) {
+                    throw new IOException("La columna " + columnas[c] + " excede 2 GiB y no cabe en una instantánea");
+                }
+            }
+
+            long directorio = out.posicion();
+            for (int c = 0; c < columnas.length; c++) {
+                out.putTexto(columnas[c]).putInt(tipoJdbc(codificaciones[c]));
+                out.putByte(codificaciones[c]).putLong(inicios[c]).putLong(largos[c]);
+            }
+            out.vaciar();
+            ByteBuffer posicion = ByteBuffer.allocate(8).order(ORDEN).putLong(directorio).flip();
+            canal.write(posicion, 16);
+            canal.force(false);
+        }
+
+        // El índice no se mapea nunca, por lo que puede reemplazarse aunque la generación anterior siga abierta
+        Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        Files.write(temporal, ByteBuffer.allocate(16).order(ORDEN).putInt(FIRMA_INDICE).putInt(VERSION)
+                .putLong(generacion).array());
+        Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        borrarAnteriores(archivo, generacion);
+    }
+
+    /**
+     * Lee la generación vigente del índice.
+     *
+     * @return La generación, o cero si el índice no existe o no es válido.
+     */
+    private static long generacion(Path archivo) {
+        try {
+            ByteBuffer indice = ByteBuffer.wrap(Files.readAllBytes(archivo)).order(ORDEN);
+            if (indice.remaining() == 16 && indice.getInt() == FIRMA_INDICE && indice.getInt() == VERSION) {
+                return indice.getLong();
+            }
+        } catch (IOException e) {
+            // Sin índice se empieza desde la primera generación
+        }
+        return 0;
+    }
+
+    /**
+     * Archivo de datos de una generación.
+     */
+    private static Path datos(Path archivo, long generacion) {
+        return archivo.resolveSibling(archivo.getFileName() + "." + generacion);
+    }
+
+    /**
+     * Borra los archivos de datos de las generaciones anteriores. Los que no
+     * pueden borrarse porque siguen mapeados se intentan de nuevo en el
+     * siguiente guardado.
+     */
+    private static void borrarAnteriores(Path archivo, long vigente) {
+        Path directorio = archivo.toAbsolutePath().getParent();
+        String prefijo = archivo.getFileName() + ".";
+        try (DirectoryStream<Path> hermanos = Files.newDirectoryStream(directorio,
+                h -> h.getFileName().toString().startsWith(prefijo))) {
+            for (Path hermano : hermanos) {
+                String sufijo = hermano.getFileName().toString().substring(prefijo.length());
+                if (!sufijo.isEmpty() && sufijo.chars().allMatch(Character::isDigit) && Long.parseLong(sufijo) < vigente) {
+                    try {
+                        Files.deleteIfExists(hermano);
+                    } catch (IOException e) {
+                        // Sigue mapeado por un modelo abierto
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudieron borrar las instantáneas anteriores: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Abre una instantánea mapeando sus columnas en memoria.
+     *
+     * @param archivo Archivo índice de la instantánea.
+     * @return La instantánea abierta.
+     * @throws IOException Si el archivo no existe, no es una instantánea
+     * válida de esta versión o está dañado.
+     */
+    static InstantaneaModelo abrir(Path archivo) throws IOException {
+        long generacion = generacion(archivo);
+        if (generacion == 0) {
+            throw new IOException(archivo + " no es una instantánea de TablaBD de esta versión");
+        }
+        try (FileChannel canal = FileChannel.open(datos(archivo, generacion), StandardOpenOption.READ)) {
+            ByteBuffer encabezado = canal.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(canal.size(), 1 << 16)).order(ORDEN);
+            if (canal.size() < 24 || encabezado.getInt() != FIRMA) {
+                throw new IOException(archivo + " no es una instantánea de TablaBD");
+            }
+            int version = encabezado.getInt();
+            if (version != VERSION) {
+                throw new IOException("Versión de instantánea no admitida: " + version);
+            }
+            int numeroColumnas = encabezado.getInt();
+            int filas = encabezado.getInt();
+            long directorio = encabezado.getLong();
+            if (numeroColumnas < 0 || filas < 0 || directorio < 0 || directorio > canal.size()) {
+                throw new IOException(archivo + " está dañada: encabezado inválido");
+            }
+            String tabla = getTexto(encabezado);
+            String columnaVersion = getTexto(encabezado);
+            long filasOrigen = encabezado.getLong();
+            byte[] bytesVersion = getBytes(encabezado);
+            Object versionOrigen = bytesVersion == null ? null : valorDe(bytesVersion, 1, bytesVersion[0]);
+
+            ByteBuffer dir = canal.map(FileChannel.MapMode.READ_ONLY, directorio, canal.size() - directorio).order(ORDEN);
+            String[] columnas = new String[numeroColumnas];
+            int[] tipos = new int[numeroColumnas];
+            ColumnaMapeada[] bloques = new ColumnaMapeada[numeroColumnas];
+            for (int c = 0; c < numeroColumnas; c++) {
+                columnas[c] = getTexto(dir);
+                tipos[c] = dir.getInt();
+                byte codificacion = dir.get();
+                long inicio = dir.getLong();
+                long largo = dir.getLong();
+                if (inicio < 0 || largo < bytesMinimos(codificacion, filas) || inicio + largo > canal.size()) {
+                    throw new IOException(archivo + " está dañada: la columna " + columnas[c] + " excede el archivo");
+                }
+                ByteBuffer bloque = canal.map(FileChannel.MapMode.READ_ONLY, inicio, largo).order(ORDEN);
+                bloques[c] = new ColumnaMapeada(codificacion, bloque, filas);
+            }
+            // Los segmentos mapeados siguen siendo válidos después de cerrar el canal
+            return new InstantaneaModelo(columnas, tipos, new AlmacenInstantanea(bloques, filas), tabla,
+                    columnaVersion, filasOrigen, versionOrigen);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                | IllegalStateException | DateTimeException e) {
+            // Un archivo truncado o alterado se reporta como error de E/S, no como excepción no comprobada
+            throw new IOException(archivo + " está dañada: " + e, e);
+        }
+    }
+
+    /**
+     * Indica si la instantánea sigue correspondiendo a la tabla de origen:
+     * mismo número de filas y, si se registró una columna de versión, la
+     * misma versión máxima. Una instantánea sin tabla de origen se considera
+     * vigente.
+     *
+     * @param perfil Perfil para consultar la tabla.
+     * @return {@code true} si la instantánea está vigente.
+     * @throws SQLException Si falla la consulta del estado de la tabla.
+     */
+    boolean vigente(PerfilConexion perfil) throws SQLException {
+        if (tabla == null) {
+            return true;
+        }
+        Object[] estado = estadoOrigen(perfil, tabla, columnaVersion);
+        if ((Long) estado[0] != filasOrigen) {
+            return false;
+        }
+        if (estado[1] instanceof byte[] actual && versionOrigen instanceof byte[] guardada) {
+            return Arrays.equals(actual, guardada);
+        }
+        return Objects.equals(estado[1], versionOrigen);
+    }
+
+    /**
+     * Consulta el número de filas y la versión máxima de la tabla.
+     */
+    private static Object[] estadoOrigen(PerfilConexion perfil, String tabla, String columnaVersion) throws SQLException {
+        Dialecto dialecto = Dialecto.desdeId(perfil.getIdSGBD());
+        String sql = "SELECT COUNT(*)" + (columnaVersion != null ? ", MAX(" + dialecto.citar(columnaVersion) + ")" : "")
+                + " FROM " + tabla;
+        Connection conn = perfil.getConexion();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
+                ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return new Object[]{rs.getLong(1), columnaVersion != null ? rs.getObject(2) : null};
+        } finally {
+            PerfilConexion.liberar(conn);
+        }
+    }
+
+    /**
+     * Obtiene los nombres de las columnas.
+     */
+    String[] getColumnas() {
+        return columnas;
+    }
+
+    /**
+     * Obtiene el tipo JDBC registrado para cada columna.
+     */
+    int[] getTipos() {
+        return tipos;
+    }
+
+    /**
+     * Obtiene las filas, leídas bajo demanda del archivo mapeado.
+     */
+    AlmacenFilas getAlmacen() {
+        return almacen;
+    }
+
+    /**
+     * Obtiene los valores de una columna. Los objetos grandes diferidos se
+     * leen de la base de datos.
+     */
+    private static Object[] leerColumna(AlmacenFilas almacen, int columna) throws IOException {
+        Object[] valores = new Object[almacen.getFilas()];
+        for (int f = 0; f < valores.length; f++) {
+            Object valor = almacen.getValor(f, columna);
+            if (valor instanceof ValorDiferido diferido) {
+                try {
+                    valor = diferido.obtener();
+                } catch (SQLException e) {
+                    throw new IOException("No se pudo leer el valor de " + diferido.getColumna() + ": " + e.getMessage(), e);
+                }
+            }
+            valores[f] = valor;
+        }
+        return valores;
+    }
+
+    /**
+     * Elige la codificación de una columna según la clase de sus valores. Si
+     * los valores no son todos de la misma clase, cada uno se guarda con su
+     * propia codificación.
+     */
+    private static byte codificacion(Object[] valores) {
+        Class<?> clase = null;
+        for (Object valor : valores) {
+            if (valor == null) {
+                continue;
+            }
+            if (clase == null) {
+                clase = valor.getClass();
+            } else if (valor.getClass() != clase) {
+                return MIXTA;
+            }
+        }
+        return clase == null ? TEXTO : codificacion(clase);
+    }
+
+    /**
+     * Codificación de los valores de una clase.
+     */
+    private static byte codificacion(Class<?> clase) {
+        if (clase == String.class) {
+            return TEXTO;
+        }
+        if (clase == Integer.class) {
+            return ENTERO;
+        }
+        if (clase == Long.class) {
+            return LARGO;
+        }
+        if (clase == Short.class) {
+            return CORTO;
+        }
+        if (clase == Double.class) {
+            return REAL;
+        }
+        if (clase == Float.class) {
+            return FLOTANTE;
+        }
+        if (clase == Boolean.class) {
+            return BOOLEANO;
+        }
+        if (clase == java.sql.Date.class) {
+            return FECHA;
+        }
+        if (clase == Time.class) {
+            return HORA;
+        }
+        if (clase == Timestamp.class) {
+            return MARCA;
+        }
+        if (clase == LocalDate.class) {
+            return FECHA_LOCAL;
+        }
+        if (clase == LocalTime.class) {
+            return HORA_LOCAL;
+        }
+        if (clase == LocalDateTime.class) {
+            return MARCA_LOCAL;
+        }
+        if (clase == BigDecimal.class) {
+            return DECIMAL;
+        }
+        if (clase == BigInteger.class) {
+            return ENTERO_GRANDE;
+        }
+        if (clase == byte[].class) {
+            return BINARIO;
+        }
+        return serializable(clase) ? OBJETO : TEXTO;
+    }
+
+    /**
+     * Indica si una clase es un tipo de valor del JDK que puede guardarse
+     * serializado y que el filtro admite al abrir la instantánea.
+     */
+    private static boolean serializable(Class<?> clase) {
+        return SERIALIZABLES.contains(clase) || clase.getPackageName().equals("java.time");
+    }
+
+    /**
+     * Tipo JDBC que se registra para una codificación.
+     */
+    private static int tipoJdbc(byte codificacion) {
+        return switch (codificacion) {
+            case ENTERO ->
+                Types.INTEGER;
+            case LARGO ->
+                Types.BIGINT;
+            case CORTO ->
+                Types.SMALLINT;
+            case REAL ->
+                Types.DOUBLE;
+            case FLOTANTE ->
+                Types.REAL;
+            case BOOLEANO ->
+                Types.BIT;
+            case FECHA, FECHA_LOCAL ->
+                Types.DATE;
+            case HORA, HORA_LOCAL ->
+                Types.TIME;
+            case MARCA, MARCA_LOCAL ->
+                Types.TIMESTAMP;
+            case TEXTO ->
+                Types.VARCHAR;
+            case DECIMAL ->
+                Types.DECIMAL;
+            case ENTERO_GRANDE ->
+                Types.NUMERIC;
+            case BINARIO ->
+                Types.VARBINARY;
+            default ->
+                Types.JAVA_OBJECT;
+        };
+    }
+
+    /**
+     * Escribe el bloque de una columna: mapa de bits de nulos y valores.
+     */
+    private static void escribirColumna(Escritor out, Object[] valores, byte codificacion) throws IOException {
+        int filas = valores.length;
+        long[] nulos = new long[palabras(filas)];
+        for (int f = 0; f < filas; f++) {
+            if (valores[f] == null) {
+                nulos[f >>> 6] |= 1L << f;
+            }
+        }
+        for (long palabra : nulos) {
+            out.putLong(palabra);
+        }
+        switch (codificacion) {
+            case ENTERO -> {
+                for (Object valor : valores) {
+                    out.putInt(valor instanceof Integer v ? v : 0);
+                }
+            }
+            case LARGO -> {
+                for (Object valor : valores) {
+                    out.putLong(valor instanceof Long v ? v : 0);
+                }
+            }
+            case CORTO -> {
+                for (Object valor : valores) {
+                    out.putShort(valor instanceof Short v ? v : (short) 0);
+                }
+            }
+            case REAL -> {
+                for (Object valor : valores) {
+                    out.putLong(Double.doubleToRawLongBits(valor instanceof Double v ? v : 0));
+                }
+            }
+            case FLOTANTE -> {
+                for (Object valor : valores) {
+                    out.putInt(Float.floatToRawIntBits(valor instanceof Float v ? v : 0));
+                }
+            }
+            case BOOLEANO -> {
+                long[] bits = new long[nulos.length];
+                for (int f = 0; f < filas; f++) {
+                    if (Boolean.TRUE.equals(valores[f])) {
+                        bits[f >>> 6] |= 1L << f;
+                    }
+                }
+                for (long palabra : bits) {
+                    out.putLong(palabra);
+                }
+            }
+            case FECHA, HORA -> {
+                for (Object valor : valores) {
+                    out.putLong(valor instanceof java.util.Date v ? v.getTime() : 0);
+                }
+            }
+            case FECHA_LOCAL -> {
+                for (Object valor : valores) {
+                    out.putLong(valor instanceof LocalDate v ? v.toEpochDay() : 0);
+                }
+            }
+            case HORA_LOCAL -> {
+                for (Object valor : valores) {
+                    out.putLong(valor instanceof LocalTime v ? v.toNanoOfDay() : 0);
+                }
+            }
+            case MARCA -> {
+                for (Object valor : valores) {
+                    out.putLong(valor instanceof Timestamp v ? v.getTime() : 0);
+                }
+                for (Object valor : valores) {
+                    out.putInt(valor instanceof Timestamp v ? v.getNanos() : 0);
+                }
+            }
+            case MARCA_LOCAL -> {
+                for (Object valor : valores) {
+                    out.putLong(valor instanceof LocalDateTime v ? v.toEpochSecond(ZoneOffset.UTC) : 0);
+                }
+                for (Object valor : valores) {
+                    out.putInt(valor instanceof LocalDateTime v ? v.getNano() : 0);
+                }
+            }
+            default -> {
+                // Longitud variable: desplazamientos de inicio de cada valor y a continuación sus bytes
+                byte[][] bytes = new byte[filas][];
+                long total = 0;
+                for (int f = 0; f < filas; f++) {
+                    bytes[f] = codificacion == MIXTA ? bytesMixtos(valores[f]) : bytesDe(valores[f], codificacion);
+                    total += bytes[f].length;
+                }
+                if (total > Integer.MAX_VALUE) {
+                    throw new IOException("Los valores de la columna exceden 2 GiB");
+                }
+                int desplazamiento = 0;
+                for (int f = 0; f < filas; f++) {
+                    out.putInt(desplazamiento);
+                    desplazamiento += bytes[f].length;
+                }
+                out.putInt(desplazamiento);
+                for (byte[] valor : bytes) {
+                    out.putBytesCrudos(valor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Codifica un valor de una columna con valores de varias clases: un byte
+     * con su codificación seguido de sus bytes.
+     */
+    private static byte[] bytesMixtos(Object valor) throws IOException {
+        if (valor == null) {
+            return new byte[0];
+        }
+        byte codificacion = codificacion(valor.getClass());
+        byte[] bytes = bytesDe(valor, codificacion);
+        byte[] mixto = new byte[bytes.length + 1];
+        mixto[0] = codificacion;
+        System.arraycopy(bytes, 0, mixto, 1, bytes.length);
+        return mixto;
+    }
+
+    /**
+     * Codifica un valor por separado. Los de ancho fijo se usan solo en las
+     * columnas con valores de varias clases.
+     */
+    private static byte[] bytesDe(Object valor, byte codificacion) throws IOException {
+        if (valor == null) {
+            return new byte[0];
+        }
+        return switch (codificacion) {
+            case TEXTO ->
+                valor.toString().getBytes(StandardCharsets.UTF_8);
+            case BINARIO ->
+                (byte[]) valor;
+            case DECIMAL -> {
+                BigDecimal d = (BigDecimal) valor;
+                byte[] sinEscala = d.unscaledValue().toByteArray();
+                yield ByteBuffer.allocate(4 + sinEscala.length).order(ORDEN).putInt(d.scale()).put(sinEscala).array();
+            }
+            case ENTERO_GRANDE ->
+                ((BigInteger) valor).toByteArray();
+            case ENTERO ->
+                ByteBuffer.allocate(4).order(ORDEN).putInt((Integer) valor).array();
+            case LARGO ->
+                ByteBuffer.allocate(8).order(ORDEN).putLong((Long) valor).array();
+            case CORTO ->
+                ByteBuffer.allocate(2).order(ORDEN).putShort((Short) valor).array();
+            case REAL ->
+                ByteBuffer.allocate(8).order(ORDEN).putDouble((Double) valor).array();
+            case FLOTANTE ->
+                ByteBuffer.allocate(4).order(ORDEN).putFloat((Float) valor).array();
+            case BOOLEANO ->
+                new byte[]{(byte) ((Boolean) valor ? 1 : 0)};
+            case FECHA, HORA ->
+                ByteBuffer.allocate(8).order(ORDEN).putLong(((java.util.Date) valor).getTime()).array();
+            case FECHA_LOCAL ->
+                ByteBuffer.allocate(8).order(ORDEN).putLong(((LocalDate) valor).toEpochDay()).array();
+            case HORA_LOCAL ->
+                ByteBuffer.allocate(8).order(ORDEN).putLong(((LocalTime) valor).toNanoOfDay()).array();
+            case MARCA -> {
+                Timestamp t = (Timestamp) valor;
+                yield ByteBuffer.allocate(12).order(ORDEN).putLong(t.getTime()).putInt(t.getNanos()).array();
+            }
+            case MARCA_LOCAL -> {
+                LocalDateTime t = (LocalDateTime) valor;
+                yield ByteBuffer.allocate(12).order(ORDEN).putLong(t.toEpochSecond(ZoneOffset.UTC)).putInt(t.getNano()).array();
+            }
+            default ->
+                serializar(valor);
+        };
+    }
+
+    /**
+     * Decodifica un valor guardado por separado.
+     */
+    private static Object valorDe(byte[] bytes, int desde, byte codificacion) {
+        ByteBuffer b = ByteBuffer.wrap(bytes, desde, bytes.length - desde).order(ORDEN);
+        return switch (codificacion) {
+            case TEXTO ->
+                new String(bytes, desde, bytes.length - desde, StandardCharsets.UTF_8);
+            case BINARIO ->
+                desde == 0 ? bytes : Arrays.copyOfRange(bytes, desde, bytes.length);
+            case DECIMAL -> {
+                int escala = b.getInt();
+                yield new BigDecimal(new BigInteger(bytes, desde + 4, bytes.length - desde - 4), escala);
+            }
+            case ENTERO_GRANDE ->
+                new BigInteger(bytes, desde, bytes.length - desde);
+            case ENTERO ->
+                b.getInt();
+            case LARGO ->
+                b.getLong();
+            case CORTO ->
+                b.getShort();
+            case REAL ->
+                b.getDouble();
+            case FLOTANTE ->
+                b.getFloat();
+            case BOOLEANO ->
+                b.get() != 0;
+            case FECHA ->
+                new java.sql.Date(b.getLong());
+            case HORA ->
+                new Time(b.getLong());
+            case FECHA_LOCAL ->
+                LocalDate.ofEpochDay(b.getLong());
+            case HORA_LOCAL ->
+                LocalTime.ofNanoOfDay(b.getLong());
+            case MARCA -> {
+                Timestamp t = new Timestamp(b.getLong());
+                t.setNanos(b.getInt());
+                yield t;
+            }
+            case MARCA_LOCAL ->
+                LocalDateTime.ofEpochSecond(b.getLong(), b.getInt(), ZoneOffset.UTC);
+            default -> {
+                try {
+                    yield deserializar(desde == 0 ? bytes : Arrays.copyOfRange(bytes, desde, bytes.length));
+                } catch (IOException e) {
+                    throw new IllegalStateException("No se pudo leer un valor de la instantánea", e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Calcula el tamaño mínimo del bloque de una columna: el mapa de nulos y
+     * los valores de ancho fijo o los desplazamientos de los variables.
+     *
+     * @param codificacion Codificación de la columna.
+     * @param filas Número de filas.
+     * @return Bytes mínimos del bloque.
+     */
+    private static long bytesMinimos(byte codificacion, int filas) {
+        long nulos = palabras(filas) * 8L;
+        return nulos + switch (codificacion) {
+            case CORTO ->
+                2L * filas;
+            case ENTERO, FLOTANTE ->
+                4L * filas;
+            case LARGO, REAL, FECHA, HORA, FECHA_LOCAL, HORA_LOCAL ->
+                8L * filas;
+            case MARCA, MARCA_LOCAL ->
+                12L * filas;
+            case BOOLEANO ->
+                nulos;
+            default ->
+                4L * (filas + 1);
+        };
+    }
+
+    /**
+     * Número de palabras de 64 bits de un mapa de bits.
+     */
+    private static int palabras(int filas) {
+        return (filas + 63) >>> 6;
+    }
+
+    /**
+     * Serializa un valor de una clase sin codificación propia.
+     *
+     * @param valor Valor a serializar.
+     * @return Los bytes de la serialización.
+     * @throws IOException Si el valor no se puede serializar.
+     */
+    private static byte[] serializar(Object valor) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(salida)) {
+            out.writeObject(valor);
+        }
+        return salida.toByteArray();
+    }
+
+    /**
+     * Reconstruye un valor serializado, admitiendo solo las clases del
+     * filtro de la instantánea.
+     *
+     * @param bytes Bytes de la serialización.
+     * @return El valor reconstruido.
+     * @throws IOException Si los bytes están dañados o contienen una clase
+     * no admitida o desconocida.
+     */
+    private static Object deserializar(byte[] bytes) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            in.setObjectInputFilter(FILTRO);
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Clase desconocida en la instantánea", e);
+        }
+    }
+
+    /**
+     * Lee un texto UTF-8 precedido por su longitud, avanzando el búfer.
+     *
+     * @param b Búfer posicionado en la longitud.
+     * @return El texto, o {@code null} si la longitud es negativa.
+     * @throws BufferUnderflowException Si el texto excede el búfer.
+     */
+    private static String getTexto(ByteBuffer b) {
+        byte[] bytes = getBytes(b);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lee un arreglo de bytes precedido por su longitud, avanzando el búfer.
+     *
+     * @param b Búfer posicionado en la longitud.
+     * @return Los bytes, o {@code null} si la longitud es negativa.
+     * @throws BufferUnderflowException Si el arreglo excede el búfer.
+     */
+    private static byte[] getBytes(ByteBuffer b) {
+        int largo = b.getInt();
+        if (largo < 0) {
+            return null;
+        }
+        if (largo > b.remaining()) {
+            throw new BufferUnderflowException(); // Longitud dañada: no se reserva un arreglo mayor que el archivo
+        }
+        byte[] bytes = new byte[largo];
+        b.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Escritura secuencial a un canal a través de un búfer directo.
+     */
+    private static final class Escritor {
+
+        private final FileChannel canal;
+        private final ByteBuffer bufer = ByteBuffer.allocateDirect(1 << 20).order(ORDEN);
+        private long escritos; // Bytes ya escritos en el canal
+
+        private Escritor(FileChannel canal) {
+            this.canal = canal;
+        }
+
+        private void asegurar(int bytes) throws IOException {
+            if (bufer.remaining() < bytes) {
+                vaciar();
+            }
+        }
+
+        private void vaciar() throws IOException {
+            bufer.flip();
+            while (bufer.hasRemaining()) {
+                escritos += canal.write(bufer);
+            }
+            bufer.clear();
+        }
+
+        private long posicion() {
+            return escritos + bufer.position();
+        }
+
+        private Escritor putByte(byte valor) throws IOException {
+            asegurar(1);
+            bufer.put(valor);
+            return this;
+        }
+
+        private Escritor putShort(short valor) throws IOException {
+            asegurar(2);
+            bufer.putShort(valor);
+            return this;
+        }
+
+        private Escritor putInt(int valor) throws IOException {
+            asegurar(4);
+            bufer.putInt(valor);
+            return this;
+        }
+
+        private Escritor putLong(long valor) throws IOException {
+            asegurar(8);
+            bufer.putLong(valor);
+            return this;
+        }
+
+        private Escritor putBytesCrudos(byte[] bytes) throws IOException {
+            int desde = 0;
+            while (desde < bytes.length) {
+                asegurar(1);
+                int parte = Math.min(bufer.remaining(), bytes.length - desde);
+                bufer.put(bytes, desde, parte);
+                desde += parte;
+            }
+            return this;
+        }
+
+        private Escritor putBytes(byte[] bytes) throws IOException {
+            putInt(bytes == null ? -1 : bytes.length);
+            return bytes == null ? this : putBytesCrudos(bytes);
+        }
+
+        private Escritor putTexto(String texto) throws IOException {
+            return putBytes(texto == null ? null : texto.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Rellena hasta un múltiplo de 8 bytes, para que los arreglos de cada
+         * bloque queden alineados.
+         */
+        private void alinear() throws IOException {
+            while (posicion() % 8 != 0) {
+                putByte((byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Columna leída directamente del bloque mapeado.
+     */
+    private static final class ColumnaMapeada {
+
+        private final byte codificacion;
+        private final ByteBuffer bloque;
+        private final int datos; // Posición de los valores, después del mapa de nulos
+        private final int bytesVariables; // Posición de los bytes de los valores de longitud variable
+        private final int filas;
+
+        private ColumnaMapeada(byte codificacion, ByteBuffer bloque, int filas) {
+            this.codificacion = codificacion;
+            this.bloque = bloque;
+            this.filas = filas;
+            this.datos = palabras(filas) * 8;
+            this.bytesVariables = datos + 4 * (filas + 1);
+        }
+
+        private Object getValor(int fila) {
+            if ((bloque.getLong((fila >>> 6) * 8) & (1L << fila)) != 0) {
+                return null;
+            }
+            return switch (codificacion) {
+                case ENTERO ->
+                    bloque.getInt(datos + 4 * fila);
+                case LARGO ->
+                    bloque.getLong(datos + 8 * fila);
+                case CORTO ->
+                    bloque.getShort(datos + 2 * fila);
+                case REAL ->
+                    bloque.getDouble(datos + 8 * fila);
+                case FLOTANTE ->
+                    bloque.getFloat(datos + 4 * fila);
+                case BOOLEANO ->
+                    (bloque.getLong(datos + (fila >>> 6) * 8) & (1L << fila)) != 0;
+                case FECHA ->
+                    new java.sql.Date(bloque.getLong(datos + 8 * fila));
+                case HORA ->
+                    new Time(bloque.getLong(datos + 8 * fila));
+                case FECHA_LOCAL ->
+                    LocalDate.ofEpochDay(bloque.getLong(datos + 8 * fila));
+                case HORA_LOCAL ->
+                    LocalTime.ofNanoOfDay(bloque.getLong(datos + 8 * fila));
+                case MARCA -> {
+                    Timestamp t = new Timestamp(bloque.getLong(datos + 8 * fila));
+                    t.setNanos(bloque.getInt(datos + 8 * filas + 4 * fila));
+                    yield t;
+                }
+                case MARCA_LOCAL ->
+                    LocalDateTime.ofEpochSecond(bloque.getLong(datos + 8 * fila),
+                            bloque.getInt(datos + 8 * filas + 4 * fila), ZoneOffset.UTC);
+                default ->
+                    variable(fila);
+            };
+        }
+
+        private Object variable(int fila) {
+            int inicio = bloque.getInt(datos + 4 * fila);
+            byte[] bytes = new byte[bloque.getInt(datos + 4 * fila + 4) - inicio];
+            bloque.get(bytesVariables + inicio, bytes);
+            return codificacion == MIXTA ? valorDe(bytes, 1, bytes[0]) : valorDe(bytes, 0, codificacion);
+        }
+    }
+
+    /**
+     * Almacenamiento de solo lectura sobre las columnas mapeadas de una
+     * instantánea.
+     */
+    static final class AlmacenInstantanea implements AlmacenFilas {
+
+        private final ColumnaMapeada[] columnas;
+        private final int filas;
+
+        private AlmacenInstantanea(ColumnaMapeada[] columnas, int filas) {
+            this.columnas = columnas;
+            this.filas = filas;
+        }
+
+        @Override
+        public int getFilas() {
+            return filas;
+        }
+
+        @Override
+        public Object getValor(int fila, int columna) {
+            if (fila < 0 || fila >= filas) {
+                throw new IndexOutOfBoundsException("Fila " + fila + " fuera de rango: " + filas);
+            }
+            return columnas[columna].getValor(fila);
+        }
+
+        @Override
+        public void agregar(Object[] fila) {
+            throw new UnsupportedOperationException("Una instantánea es de solo lectura");
+        }
+
+        @Override
+        public long getBytesEstimados() {
+            return 16 + AlmacenFilas.alinear(16 + 4L * columnas.length) + 48L * columnas.length;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package TablaBD.app.com;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * La clase <code>MetricasConsulta</code> registra, por cada consulta, el tiempo
+ * de obtención de la conexión, de ejecución y de lectura de filas, junto con
+ * el número de filas y su velocidad. Las consultas se agrupan por su huella: el
+ * texto SQL con los literales reemplazados por {@code ?}, de modo que
+ * {@code WHERE id = 1} y {@code WHERE id = 2} se acumulan juntas.
+ *
+ * <p>
+ * Las métricas se publican en el servidor de MBeans de la plataforma como
+ * {@code TablaBD.app.com:type=MetricasConsulta}. Los percentiles se calculan con
+ * un histograma logarítmico de memoria fija (cuatro divisiones por potencia de
+ * dos, error relativo menor al 25%).</p>
+ *
+ * <p>
+ * También controla el muestreo de depuración que sustituye la impresión de
+ * cada fila cargada: con la propiedad del sistema
+ * {@code tablabd.depuracion.muestreo=N} se muestra en consola una de cada N
+ * filas; por defecto está desactivado.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public class MetricasConsulta implements MetricasConsultaMXBean {
+
+    // Atributos
+    private static final MetricasConsulta INSTANCIA = new MetricasConsulta(); // Instancia publicada por JMX
+    private static final int MAX_HUELLAS = 1000; // Huellas distintas antes de agrupar el resto
+    private static final String OTRAS = "<otras consultas>"; // Huella de agrupación al superar el máximo
+    private static final Pattern CADENAS = Pattern.compile("'(?:[^']|'')*'"); // Literales de cadena
+    private static final Pattern NUMEROS = Pattern.compile("(?<![\\w.@$])-?\\d+(?:\\.\\d+)?(?![\\w.])"); // Literales numéricos
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+"); // Espacios consecutivos
+
+    private final Map<String, Estadistica> operaciones = new ConcurrentHashMap<>(); // Estadística por huella
+    private final Map<String, String> huellas = new ConcurrentHashMap<>(); // Huella ya calculada por texto SQL
+    private volatile Estadistica conexiones = new Estadistica("<conexión>"); // Obtención de conexiones
+    private static volatile int muestreo = Integer.getInteger("tablabd.depuracion.muestreo", 0); // Cada cuántas filas se muestra una
+
+    static {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName("TablaBD.app.com:type=MetricasConsulta");
+            if (!servidor.isRegistered(nombre)) {
+                servidor.registerMBean(INSTANCIA, nombre);
+            }
+        } catch (JMException | SecurityException e) {
+            System.err.println("No se pudieron publicar las métricas por JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * No hace nada por sí mismo; llamarlo fuerza la inicialización de la clase
+     * y su publicación por JMX, que de otro modo se pagan en la primera
+     * consulta.
+     */
+    static void inicializar() {
+    }
+
+    /**
+     * Constructor privado: se usa la instancia única.
+     */
+    private MetricasConsulta() {
+    }
+
+    /**
+     * Obtiene la instancia publicada por JMX.
+     *
+     * @return Las métricas de consulta.
+     */
+    public static MetricasConsulta getInstancia() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Registra el tiempo de obtención de una conexión.
+     *
+     * @param nanos Duración en nanosegundos.
+     */
+    public static void registrarConexion(long nanos) {
+        INSTANCIA.conexiones.registrarEjecucion(nanos);
+    }
+
+    /**
+     * Registra el tiempo de obtención de la conexión usada por una consulta.
+     *
+     * @param sql Texto SQL de la consulta.
+     * @param nanos Duración en nanosegundos.
+     */
+    public static void registrarConexion(String sql, long nanos) {
+        INSTANCIA.estadistica(sql).nanosConexion.add(nanos);
+    }
+
+    /**
+     * Registra la ejecución de una consulta.
+     *
+     * @param sql Texto SQL de la consulta.
+     * @param nanos Duración de la ejecución en nanosegundos.
+     */
+    public static void registrarEjecucion(String sql, long nanos) {
+        INSTANCIA.estadistica(sql).registrarEjecucion(nanos);
+    }
+
+    /**
+     * Registra la lectura de las filas de una consulta.
+     *
+     * @param sql Texto SQL de la consulta.
+     * @param nanos Duración de la lectura en nanosegundos.
+     * @param filas Filas leídas.
+     */
+    public static void registrarLectura(String sql, long nanos, long filas) {
+        Estadistica e = INSTANCIA.estadistica(sql);
+        e.nanosLectura.add(nanos);
+        e.filas.add(filas);
+    }
+
+    /**
+     * Registra una escritura: su duración cuenta como una ejecución y sus
+     * filas como filas escritas, no leídas.
+     *
+     * @param sql Texto SQL de la escritura o descripción de la operación.
+     * @param nanos Duración de la escritura en nanosegundos.
+     * @param filas Filas escritas.
+     */
+    public static void registrarEscritura(String sql, long nanos, long filas) {
+        Estadistica e = INSTANCIA.estadistica(sql);
+        e.registrarEjecucion(nanos);
+        e.filasEscritas.add(filas);
+    }
+
+    /**
+     * Indica si la fila cargada con el número indicado debe mostrarse en
+     * consola según el muestreo de depuración.
+     *
+     * @param fila Número de la fila (comienza en 0).
+     * @return {@code true} si la fila debe mostrarse.
+     */
+    public static boolean muestrear(long fila) {
+        int cada = muestreo;
+        return cada > 0 && fila % cada == 0;
+    }
+
+    /**
+     * Calcula la huella de un texto SQL: reemplaza los literales de cadena y
+     * numéricos por {@code ?} y compacta los espacios.
+     *
+     * @param sql Texto SQL.
+     * @return La huella de la consulta.
+     */
+    public static String huella(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String s = CADENAS.matcher(sql).replaceAll("?");
+        s = NUMEROS.matcher(s).replaceAll("?");
+        return ESPACIOS.matcher(s).replaceAll(" ").trim();
+    }
+
+    /**
+     * Obtiene la estadística de la huella de un texto SQL, creándola si no
+     * existe.
+     */
+    private Estadistica estadistica(String sql) {
+        String h = huellas.get(sql);
+        if (h == null) {
+            h = huella(sql);
+            if (huellas.size() < MAX_HUELLAS * 4) {
+                huellas.put(sql, h);
+            }
+        }
+        Estadistica e = operaciones.get(h);
+        if (e == null) {
+            String clave = operaciones.size() < MAX_HUELLAS ? h : OTRAS;
+            e = operaciones.computeIfAbsent(clave, Estadistica::new);
+        }
+        return e;
+    }
+
+    @Override
+    public List<ResumenOperacion> getOperaciones() {
+        List<ResumenOperacion> lista = new ArrayList<>(operaciones.size());
+        for (Estadistica e : operaciones.values()) {
+            lista.add(e.resumir());
+        }
+        lista.sort((a, b) -> Double.compare(b.getEjecucionPromedioMs() * b.getEjecuciones(),
+                a.getEjecucionPromedioMs() * a.getEjecuciones()));
+        return lista;
+    }
+
+    @Override
+    public ResumenOperacion getConexiones() {
+        return conexiones.resumir();
+    }
+
+    @Override
+    public long getAciertosCacheSentencias() {
+        return CacheSentencias.getAciertos();
+    }
+
+    @Override
+    public long getFallosCacheSentencias() {
+        return CacheSentencias.getFallos();
+    }
+
+    @Override
+    public long getAciertosCacheResultados() {
+        return CacheResultados.getAciertos();
+    }
+
+    @Override
+    public long getFallosCacheResultados() {
+        return CacheResultados.getFallos();
+    }
+
+    @Override
+    public long getBytesCacheResultados() {
+        return CacheResultados.getBytesEstimados();
+    }
+
+    @Override
+    public long getAciertosCacheFilas() {
+        return CacheFilas.getAciertos();
+    }
+
+    @Override
+    public long getFallosCacheFilas() {
+        return CacheFilas.getFallos();
+    }
+
+    @Override
+    public int getMuestreoDepuracion() {
+        return muestreo;
+    }
+
+    @Override
+    public void setMuestreoDepuracion(int cadaFilas) {
+        MetricasConsulta.muestreo = Math.max(0, cadaFilas);
+    }
+
+    @Override
+    public void reiniciar() {
+        operaciones.clear();
+        huellas.clear();
+        conexiones = new Estadistica("<conexión>");
+    }
+
+    /**
+     * Acumuladores de una huella. Usa sumadores sin bloqueo para que el
+     * registro desde varios hilos no compita.
+     */
+    private static final class Estadistica {
+
+        private final String huella;
+        private final LongAdder ejecuciones = new LongAdder();
+        private final LongAdder filas = new LongAdder();
+        private final LongAdder filasEscritas = new LongAdder();
+        private final LongAdder nanosConexion = new LongAdder();
+        private final LongAdder nanosEjecucion = new LongAdder();
+        private final LongAdder nanosLectura = new LongAdder();
+        private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+        private final Histograma latencias = new Histograma();
+
+        private Estadistica(String huella) {
+            this.huella = huella;
+        }
+
+        private void registrarEjecucion(long nanos) {
+            ejecuciones.increment();
+            nanosEjecucion.add(nanos);
+            maximo.accumulate(nanos);
+            latencias.registrar(nanos);
+        }
+
+        private ResumenOperacion resumir() {
+            long n = ejecuciones.sum();
+            long f = filas.sum();
+            long lectura = nanosLectura.sum();
+            double maximoMs = maximo.get() / 1_000_000.0;
+            return new ResumenOperacion(huella, n, f, filasEscritas.sum(),
+                    promedioMs(nanosConexion.sum(), n),
+                    promedioMs(nanosEjecucion.sum(), n),
+                    promedioMs(lectura, n),
+                    lectura == 0 ? 0 : f * 1_000_000_000.0 / lectura,
+                    Math.min(latencias.percentilMs(0.50), maximoMs), // El límite de la cubeta no supera el máximo real
+                    Math.min(latencias.percentilMs(0.95), maximoMs),
+                    Math.min(latencias.percentilMs(0.99), maximoMs),
+                    maximoMs);
+        }
+
+        private static double promedioMs(long nanos, long n) {
+            return n == 0 ? 0 : nanos / 1_000_000.0 / n;
+        }
+    }
+
+    /**
+     * Histograma logarítmico de latencias en microsegundos con cuatro
+     * divisiones por cada potencia de dos.
+     */
+    private static final class Histograma {
+
+        private static final int DIVISIONES = 4;
+        private final AtomicLongArray cubetas = new AtomicLongArray(64 * DIVISIONES);
+
+        private void registrar(long nanos) {
+            cubetas.incrementAndGet(indice(Math.max(1, nanos / 1000)));
+        }
+
+        private static int indice(long micros) {
+            int exponente = 63 - Long.numberOfLeadingZeros(micros);
+            int division = exponente >= 2 ? (int) (micros >> (exponente - 2)) & (DIVISIONES - 1) : 0;
+            return exponente * DIVISIONES + division;
+        }
+
+        /**
+         * Límite superior, en microsegundos, de una cubeta.
+         */
+        private static double limiteSuperior(int indice) {
+            int exponente = indice / DIVISIONES;
+            int division = indice % DIVISIONES;
+            if (exponente < 2) {
+                return 1L << (exponente + 1);
+            }
+            return (double) (DIVISIONES + division + 1) * (1L << (exponente - 2));
+        }
+
+        private double percentilMs(double percentil) {
+            long total = 0;
+            for (int i = 0; i < cubetas.length(); i++) {
+                total += cubetas.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long objetivo = (long) Math.ceil(total * percentil);
+            long acumulado = 0;
+            for (int i = 0; i < cubetas.length(); i++) {
+                acumulado += cubetas.get(i);
+                if (acumulado >= objetivo) {
+                    return limiteSuperior(i) / 1000.0;
+                }
+            }
+            return limiteSuperior(cubetas.length() - 1) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package TablaBD.app.com;
+
+import java.util.List;
+
+/**
+ * Interfaz de administración publicada en el servidor de MBeans de la
+ * plataforma con el nombre {@code TablaBD.app.com:type=MetricasConsulta}.
+ * Permite que las herramientas de operación (JConsole, VisualVM, agentes JMX)
+ * consulten los tiempos de conexión, ejecución y lectura de cada consulta.
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public interface MetricasConsultaMXBean {
+
+    /**
+     * Obtiene el resumen de cada consulta registrada, agrupada por su huella
+     * (el texto SQL con los literales reemplazados por {@code ?}).
+     *
+     * @return Lista de resúmenes por huella.
+     */
+    List<ResumenOperacion> getOperaciones();
+
+    /**
+     * Obtiene el resumen de la obtención de conexiones.
+     *
+     * @return Resumen de las conexiones obtenidas.
+     */
+    ResumenOperacion getConexiones();
+
+    /**
+     * Obtiene el número de sentencias preparadas reutilizadas desde
+     * {@link CacheSentencias}.
+     *
+     * @return Aciertos de la caché de sentencias.
+     */
+    long getAciertosCacheSentencias();
+
+    /**
+     * Obtiene el número de sentencias que tuvieron que prepararse por no estar
+     * en {@link CacheSentencias}.
+     *
+     * @return Fallos de la caché de sentencias.
+     */
+    long getFallosCacheSentencias();
+
+    /**
+     * Obtiene el número de resultados servidos desde {@link CacheResultados}.
+     *
+     * @return Aciertos de la caché de resultados.
+     */
+    long getAciertosCacheResultados();
+
+    /**
+     * Obtiene el número de consultas que no estaban en
+     * {@link CacheResultados} mientras estaba activa.
+     *
+     * @return Fallos de la caché de resultados.
+     */
+    long getFallosCacheResultados();
+
+    /**
+     * Obtiene la memoria estimada de los resultados en
+     * {@link CacheResultados}.
+     *
+     * @return Bytes estimados.
+     */
+    long getBytesCacheResultados();
+
+    /**
+     * Obtiene el número de claves resueltas desde {@link CacheFilas}.
+     *
+     * @return Aciertos de la caché de filas.
+     */
+    long getAciertosCacheFilas();
+
+    /**
+     * Obtiene el número de claves que se consultaron en la base de datos por
+     * no estar en {@link CacheFilas}.
+     *
+     * @return Fallos de la caché de filas.
+     */
+    long getFallosCacheFilas();
+
+    /**
+     * Obtiene el intervalo del muestreo de depuración.
+     *
+     * @return Cada cuántas filas se muestra una fila cargada, 0 si está
+     * desactivado.
+     */
+    int getMuestreoDepuracion();
+
+    /**
+     * Establece el intervalo del muestreo de depuración.
+     *
+     * @param cadaFilas Cada cuántas filas se muestra una fila cargada en
+     * consola, 0 para desactivarlo.
+     */
+    void setMuestreoDepuracion(int cadaFilas);
+
+    /**
+     * Descarta todas las métricas acumuladas.
+     */
+    void reiniciar();
+}
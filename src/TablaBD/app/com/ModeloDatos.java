@@ -1,11 +1,20 @@
 package TablaBD.app.com;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.table.AbstractTableModel;
 
 /**
@@ -21,11 +30,16 @@ import javax.swing.table.AbstractTableModel;
 public class ModeloDatos extends AbstractTableModel {
 
     // Atributos
-    private ArrayList<Object[]> data; // Lista que contiene las filas de la tabla
+    private AlmacenFilas data; // Almacenamiento que contiene las filas de la tabla
     private String[] columnNames; // Nombres de las columnas
     private Conexion conexion; // Objeto que maneja las conexiones a la base de datos
+    private PerfilConexion perfil; // Perfil de conexión explícito, null para usar el de la conexión
     private ArrayList<String> metaData; // Lista para contener los metadatos de la BD
     private int opcionBase; // Opción que indica qué tipo de base de datos se está utilizando (1 para SQL Server, 2 para MySQL)
+    private static volatile boolean almacenColumnar = false; // Indica si los modelos nuevos guardan sus datos por columnas
+    private static volatile long presupuestoMemoria = 0; // Bytes de heap de un resultado antes de pasar a disco, 0 para no pasar nunca
+    private RefrescoIncremental refresco; // Estado del refresco incremental, null si no está habilitado
+    private volatile CargaAsincrona cargaActual; // Última carga en segundo plano; las anteriores ya no modifican el modelo
 
     /**
      * Constructor de la clase <code>ModeloDatos</code>. Inicializa los
@@ -52,10 +66,76 @@ public class ModeloDatos extends AbstractTableModel {
     public ModeloDatos(Conexion conexion, int opcionBase, String sqlQuery) {
         this.conexion = conexion; // Incializa la lista de metadatos
         this.opcionBase = opcionBase;
-        data = new ArrayList<>(); // Inicializa el arreglo 
+        data = new AlmacenFilasLista(); // Inicializa el almacenamiento
         loadData(sqlQuery); // Cargar el modelo de datos
     }
 
+    /**
+     * Constructor ligado a un perfil de conexión. Permite crear modelos sobre
+     * distintas bases de datos desde varios hilos al mismo tiempo.
+     *
+     * @param perfil El perfil de conexión a utilizar.
+     */
+    public ModeloDatos(PerfilConexion perfil) {
+        this.perfil = perfil;
+        this.opcionBase = perfil.getIdSGBD();
+        metaData = new ArrayList<>(); // Incializa la lista de metadatos
+    }
+
+    /**
+     * Constructor ligado a un perfil de conexión que carga el resultado de la
+     * consulta indicada.
+     *
+     * @param perfil El perfil de conexión a utilizar.
+     * @param sqlQuery La consulta SQL a ejecutar.
+     */
+    public ModeloDatos(PerfilConexion perfil, String sqlQuery) {
+        this.perfil = perfil;
+        this.opcionBase = perfil.getIdSGBD();
+        data = new AlmacenFilasLista(); // Inicializa el almacenamiento
+        loadData(sqlQuery); // Cargar el modelo de datos
+    }
+
+    /**
+     * Constructor de un modelo con datos ya leídos, como el resultado de una
+     * {@link Agregacion}.
+     *
+     * @param perfil El perfil de conexión del que provienen los datos.
+     * @param columnas Nombres de las columnas.
+     * @param almacen Filas del modelo.
+     */
+    ModeloDatos(PerfilConexion perfil, String[] columnas, AlmacenFilas almacen) {
+        this.perfil = perfil;
+        this.opcionBase = perfil.getIdSGBD();
+        this.metaData = new ArrayList<>();
+        this.columnNames = columnas;
+        this.data = almacen;
+    }
+
+    /**
+     * Obtiene el perfil con el que se abren las conexiones del modelo: el
+     * perfil explícito si se proporcionó uno, o el de la conexión.
+     *
+     * @return El perfil de conexión del modelo.
+     */
+    private PerfilConexion getPerfil() {
+        return perfil != null ? perfil : conexion.getPerfilConexion();
+    }
+
+    /**
+     * Toma una conexión del perfil del modelo.
+     *
+     * @return La conexión obtenida, o {@code null} si ocurrió un error.
+     */
+    private Connection abrirConexion() {
+        try {
+            return getPerfil().getConexion();
+        } catch (SQLException | RuntimeException e) {
+            System.err.println(e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Carga los datos desde la base de datos especificada. Solicita al usuario
      * el nombre de la tabla y realiza una consulta SQL para obtener los datos y
@@ -75,38 +155,31 @@ public class ModeloDatos extends AbstractTableModel {
             return; // Sale si no se ingresa un nombre de tabla
         }
 
+        // Usa el resultado compartido de la caché si ya se leyó la tabla
+        String sqlQuery = "SELECT * FROM " + tableName;
+        String clave = claveCache(sqlQuery);
+        if (desdeCache(clave)) {
+            return;
+        }
+
         // Establece la conexión según la base de datos seleccionada
-        conn = conexion.getConexion(Conexion.getIdSGBD());
+        long generacion = CacheResultados.getGeneracion(); // Invalidaciones posteriores descartan el resultado leído
+        long inicio = System.nanoTime();
+        conn = abrirConexion();
+        long nanosConexion = System.nanoTime() - inicio;
 
         // Si la conexión fue exitosa, realiza la consulta y carga los datos
         if (conn != null) {
             try {
                 // Ejecuta la consulta para obtener los datos de la tabla
-                ResultSet rs = Consulta.executeQuery(conn, tableName);
-
-                // Obtiene los nombres de las columnas de la tabla
-                int columnCount = rs.getMetaData().getColumnCount();
-                columnNames = new String[columnCount];
-
-                for (int i = 0; i < columnCount; i++) {
-                    columnNames[i] = rs.getMetaData().getColumnName(i + 1); // Asigna los nombres de las columnas
-                }
-
-                // Carga las filas de la tabla
-                while (rs.next()) {
-                    Object[] row = new Object[columnCount]; // Crea un arreglo para cada fila
-                    for (int i = 0; i < columnCount; i++) {
-                        row[i] = rs.getObject(i + 1); // Asigna el valor de cada columna en la fila
-                    }
-                    System.out.println("Fila cargada: " + Arrays.toString(row)); // Muestra la fila cargada en consola
-                    data.add(row); // Añade la fila a la lista de datos
-                }
-                rs.close(); // Cierra el ResultSet
+                ResultSet rs = Consulta.executeQueryStreaming(conn, sqlQuery);
+                leerResultado(rs, sqlQuery, nanosConexion); // Carga las filas de la tabla
+                CacheResultados.guardar(clave, sqlQuery, columnNames, data, generacion);
                 fireTableDataChanged(); // Notifica que los datos han cambiado para actualizar la vista de la tabla
             } catch (SQLException e) {
                 JOptionPane.showMessageDialog(null, "Ocurrio un error en el modelo de datos" + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE); // Muestra el error en consola en caso de una excepción SQL
             } finally {
-                conexion.cerrarConexion(); // Cierra la conexión a la base de datos
+                PerfilConexion.liberar(conn); // Devuelve la conexión al pool
             }
         } else {
             System.err.println("Error al establecer la conexión"); // Muestra un mensaje de error si la conexión no se pudo establecer
@@ -128,46 +201,797 @@ public class ModeloDatos extends AbstractTableModel {
             return; // Sale si no se proporciona una consulta válida
         }
 
+        // Usa el resultado compartido de la caché si otra instancia ya ejecutó la consulta
+        String clave = claveCache(sqlQuery);
+        if (desdeCache(clave)) {
+            return;
+        }
+
         // Establece la conexión según la base de datos seleccionada
-        conn = conexion.getConexion(Conexion.getIdSGBD());
+        long generacion = CacheResultados.getGeneracion(); // Invalidaciones posteriores descartan el resultado leído
+        long inicio = System.nanoTime();
+        conn = abrirConexion();
+        long nanosConexion = System.nanoTime() - inicio;
 
         // Si la conexión fue exitosa, ejecuta la consulta y procesa los resultados
         if (conn != null) {
             try {
                 // Ejecuta la consulta para obtener los datos de la tabla
-                ResultSet rs = Consulta.executeQueryRead(conn, sqlQuery);
+                ResultSet rs = Consulta.executeQueryStreaming(conn, sqlQuery);
+                leerResultado(rs, sqlQuery, nanosConexion); // Carga los datos de las filas
+                CacheResultados.guardar(clave, sqlQuery, columnNames, data, generacion);
+                fireTableDataChanged(); // Notifica que los datos han cambiado para actualizar la vista
+            } catch (SQLException e) {
+                JOptionPane.showMessageDialog(null, "Ocurrió un error en el modelo de datos: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            } finally {
+                PerfilConexion.liberar(conn); // Devuelve la conexión al pool
+            }
+        } else {
+            System.err.println("Error al establecer la conexión");
+        }
+    }
 
-                // Obtiene la cantidad de columnas en la tabla
-                int columnCount = rs.getMetaData().getColumnCount();
-                columnNames = new String[columnCount];
+    /**
+     * Construye la clave de {@link CacheResultados} para una consulta del
+     * perfil del modelo.
+     *
+     * @param sqlQuery La consulta SQL.
+     * @return La clave del resultado.
+     */
+    private String claveCache(String sqlQuery) {
+        return CacheResultados.clave(getPerfil(), sqlQuery, null);
+    }
 
-                // Recupera los nombres de las columnas
-                for (int i = 0; i < columnCount; i++) {
-                    columnNames[i] = rs.getMetaData().getColumnName(i + 1);
-                }
+    /**
+     * Toma el resultado de {@link CacheResultados} si existe. El
+     * almacenamiento se comparte con los demás modelos de la misma consulta
+     * sin copiarlo.
+     *
+     * @param clave Clave del resultado.
+     * @return {@code true} si el modelo se llenó desde la caché.
+     */
+    private boolean desdeCache(String clave) {
+        CacheResultados.Resultado resultado = CacheResultados.obtener(clave);
+        if (resultado == null) {
+            return false;
+        }
+        columnNames = resultado.getColumnas();
+        data = resultado.getAlmacen();
+        refresco = null;
+        fireTableDataChanged();
+        return true;
+    }
+
+    /**
+     * Lee un resultado completo hacia el almacenamiento del modelo y registra
+     * sus métricas de conexión y lectura. Las filas cargadas se muestran en
+     * consola solo según el muestreo de depuración de
+     * {@link MetricasConsulta}.
+     *
+     * @param rs El resultado a leer; se cierra al terminar.
+     * @param sql Texto SQL del resultado, para las métricas.
+     * @param nanosConexion Tiempo que tomó obtener la conexión.
+     * @throws SQLException Si ocurre un error al leer el resultado.
+     */
+    private void leerResultado(ResultSet rs, String sql, long nanosConexion) throws SQLException {
+        leerResultado(rs, sql, nanosConexion, null, null, null);
+    }
 
-                // Carga los datos de las filas en la lista
+    /**
+     * Lee un resultado completo hacia el almacenamiento del modelo,
+     * reemplazando opcionalmente columnas por marcadores
+     * {@link ValorDiferido}.
+     *
+     * @param rs El resultado a leer; se cierra al terminar.
+     * @param sql Texto SQL del resultado, para las métricas.
+     * @param nanosConexion Tiempo que tomó obtener la conexión.
+     * @param destino Almacenamiento vacío, o {@code null} para elegirlo
+     * según los tipos de las columnas.
+     * @param origenes Origen de cada columna diferida (con su tamaño en el
+     * resultado), {@code null} en las demás; o {@code null} si no hay.
+     * @param indicesClave Columnas de la clave primaria en el resultado.
+     * @throws SQLException Si ocurre un error al leer el resultado.
+     */
+    private void leerResultado(ResultSet rs, String sql, long nanosConexion, AlmacenFilas destino,
+            ValorDiferido.Origen[] origenes, int[] indicesClave) throws SQLException {
+        long inicio = System.nanoTime();
+        String[] nombres;
+        AlmacenFilas almacen;
+        long filas = 0;
+        try {
+            // Obtiene los nombres de las columnas de la tabla
+            ResultSetMetaData md = rs.getMetaData();
+            int columnCount = md.getColumnCount();
+            nombres = new String[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                nombres[i] = md.getColumnName(i + 1); // Asigna los nombres de las columnas
+            }
+            almacen = destino != null ? destino : crearAlmacen(md); // Elige el almacenamiento según los tipos de las columnas
+
+            // Carga las filas de la tabla
+            if (origenes == null) {
+                // Cada valor se lee con el método tipado de su columna y se escribe directamente en el almacenamiento
                 while (rs.next()) {
-                    Object[] row = new Object[columnCount];
+                    almacen.agregarDesde(rs, columnCount);
+                    if (MetricasConsulta.muestrear(filas)) {
+                        Object[] row = new Object[columnCount];
+                        for (int i = 0; i < columnCount; i++) {
+                            row[i] = almacen.getValor((int) filas, i);
+                        }
+                        System.out.println("Fila cargada: " + Arrays.toString(row)); // Muestra la fila muestreada en consola
+                    }
+                    filas++;
+                }
+            } else {
+                while (rs.next()) {
+                    Object[] row = new Object[columnCount]; // Crea un arreglo para cada fila
                     for (int i = 0; i < columnCount; i++) {
-                        row[i] = rs.getObject(i + 1);
+                        row[i] = rs.getObject(i + 1); // Asigna el valor de cada columna en la fila
+                    }
+                    if (origenes != null) {
+                        diferir(row, origenes, indicesClave);
                     }
-                    System.out.println("Fila cargada: " + Arrays.toString(row));
-                    data.add(row);
+                    if (MetricasConsulta.muestrear(filas)) {
+                        System.out.println("Fila cargada: " + Arrays.toString(row)); // Muestra la fila muestreada en consola
+                    }
+                    almacen.agregar(row); // Añade la fila al almacenamiento
+                    filas++;
                 }
+            }
+            almacen.compactar();
+        } finally {
+            rs.close(); // Cierra el ResultSet y, en la lectura en flujo, su sentencia
+        }
 
-                rs.close(); // Cierra el ResultSet
-                fireTableDataChanged(); // Notifica que los datos han cambiado para actualizar la vista
+        columnNames = nombres;
+        data = almacen;
+        refresco = null;
+        MetricasConsulta.registrarConexion(sql, nanosConexion);
+        MetricasConsulta.registrarLectura(sql, System.nanoTime() - inicio, filas);
+    }
+
+    /**
+     * Carga el resultado de una consulta en un hilo de trabajo sin bloquear la
+     * interfaz. Las filas se agregan al modelo por lotes en el hilo de
+     * despacho de eventos mediante <code>fireTableRowsInserted</code>, de modo
+     * que las primeras filas se muestran en cuanto llegan. Los datos que el
+     * modelo tuviera previamente se descartan y, si había otra carga en curso,
+     * se cancela.
+     *
+     * @param sqlQuery La consulta SQL a ejecutar.
+     * @param tamanoLote Número de filas que se agregan al modelo a la vez.
+     * @param progreso Receptor del avance de la carga, puede ser {@code null}.
+     * @return La carga iniciada, que permite cancelarla.
+     */
+    public CargaAsincrona cargarEnSegundoPlano(String sqlQuery, int tamanoLote, ProgresoCarga progreso) {
+        if (tamanoLote < 1) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser positivo");
+        }
+        CargaAsincrona anterior = cargaActual;
+        if (anterior != null) {
+            anterior.cancelar(); // Sus lotes pendientes ya no llegan al modelo nuevo
+        }
+        data = new AlmacenFilasLista(); // Descarta los datos anteriores
+        columnNames = new String[0];
+        refresco = null;
+        fireTableStructureChanged();
+        CargaAsincrona carga = new CargaAsincrona(sqlQuery, tamanoLote, progreso);
+        cargaActual = carga;
+        carga.execute();
+        return carga;
+    }
+
+    /**
+     * Carga una tabla completa leyendo en paralelo rangos de su clave primaria,
+     * cada uno con una conexión del pool, y los ensambla en el modelo en orden
+     * de clave. Acelera la carga de tablas grandes cuando el servidor puede
+     * atender varias lecturas a la vez. Requiere que la primera columna de la
+     * clave primaria sea entera; en caso contrario, o si la tabla es pequeña,
+     * se lee con una sola consulta.
+     *
+     * @param tabla Nombre de la tabla.
+     * @param trabajadores Número de lecturas simultáneas, limitado al tamaño
+     * máximo del pool.
+     * @throws SQLException Si falla la lectura de algún rango.
+     */
+    public void cargarEnParalelo(String tabla, int trabajadores) throws SQLException {
+        CargaParticionada carga = new CargaParticionada(getPerfil(), tabla, trabajadores);
+        carga.cargar();
+        columnNames = carga.getColumnas();
+        data = carga.getAlmacen();
+        refresco = null;
+        fireTableStructureChanged();
+    }
+
+    /**
+     * Carga una tabla completa sin leer sus objetos grandes (BLOB, CLOB,
+     * VARBINARY(MAX), NVARCHAR(MAX), TEXT, ...). En esas celdas el modelo
+     * guarda un {@link ValorDiferido} con la clave primaria de la fila y el
+     * tamaño del valor, calculado por el servidor; el valor se lee al llamar a
+     * {@link ValorDiferido#obtener()} o {@link #getValorCompleto(int, int)}.
+     * Así, cargar una tabla de documentos cuesta lo mismo que cargar una tabla
+     * angosta. Las filas se guardan en el heap, por filas.
+     *
+     * @param tabla Nombre de la tabla, que debe tener clave primaria.
+     * @throws SQLException Si la tabla no tiene clave primaria o falla la
+     * lectura.
+     */
+    public void cargarConObjetosDiferidos(String tabla) throws SQLException {
+        PerfilConexion p = getPerfil();
+        long inicio = System.nanoTime();
+        Connection conn = p.getConexion();
+        long nanosConexion = System.nanoTime() - inicio;
+        String sql;
+        ValorDiferido.Origen[] origenes;
+        int[] indicesClave;
+        try {
+            EsquemaTabla esquema = Consulta.getEsquemaTabla(conn, tabla, p.getBase());
+            List<String> claves = esquema.getClavesPrimarias();
+            if (claves.isEmpty()) {
+                throw new SQLException("La tabla " + tabla + " no tiene clave primaria");
+            }
+            Dialecto dialecto = Dialecto.de(conn);
+            List<String> columnas = esquema.getColumnas();
+            origenes = new ValorDiferido.Origen[columnas.size()];
+            List<String> seleccion = new ArrayList<>(columnas.size());
+            for (int i = 0; i < columnas.size(); i++) {
+                String columna = dialecto.citar(columnas.get(i));
+                int tipo = esquema.getTipos().get(i);
+                if (ValorDiferido.esGrande(tipo, esquema.getTamanos().get(i))) {
+                    // Solo se transfiere el tamaño; el valor queda en el servidor
+                    origenes[i] = ValorDiferido.Origen.de(p, tabla, columnas.get(i), tipo, claves, dialecto);
+                    seleccion.add(dialecto.longitudBytes(columna) + " AS " + columna);
+                } else {
+                    seleccion.add(columna);
+                }
+            }
+            indicesClave = new int[claves.size()];
+            for (int i = 0; i < indicesClave.length; i++) {
+                indicesClave[i] = esquema.indiceDe(claves.get(i));
+            }
+            sql = "SELECT " + String.join(", ", seleccion) + " FROM " + tabla;
+
+            ResultSet rs = Consulta.executeQueryStreaming(conn, sql);
+            leerResultado(rs, sql, nanosConexion, new AlmacenFilasLista(), origenes, indicesClave);
+        } finally {
+            PerfilConexion.liberar(conn); // Devuelve la conexión al pool
+        }
+        fireTableStructureChanged();
+    }
+
+    /**
+     * Obtiene el valor de una celda, leyendo de la base de datos los objetos
+     * grandes que se cargaron diferidos.
+     *
+     * @param rowIndex El índice de la fila.
+     * @param columnIndex El índice de la columna.
+     * @return El valor completo de la celda.
+     * @throws SQLException Si falla la lectura del valor diferido.
+     */
+    public Object getValorCompleto(int rowIndex, int columnIndex) throws SQLException {
+        Object valor = getValueAt(rowIndex, columnIndex);
+        return valor instanceof ValorDiferido diferido ? diferido.obtener() : valor;
+    }
+
+    /**
+     * Reemplaza los tamaños de las columnas diferidas de una fila por sus
+     * marcadores.
+     */
+    private static void diferir(Object[] row, ValorDiferido.Origen[] origenes, int[] indicesClave) {
+        Object[] clave = null;
+        for (int i = 0; i < row.length; i++) {
+            if (origenes[i] != null && row[i] != null) {
+                if (clave == null) {
+                    clave = new Object[indicesClave.length]; // Compartida por los marcadores de la fila
+                    for (int k = 0; k < clave.length; k++) {
+                        clave[k] = row[indicesClave[k]];
+                    }
+                }
+                row[i] = new ValorDiferido(origenes[i], clave, ((Number) row[i]).longValue());
+            }
+        }
+    }
+
+    /**
+     * Carga en segundo plano del resultado de una consulta. Lee las filas en
+     * un hilo de trabajo y las publica por lotes al modelo. La cancelación
+     * interrumpe la consulta en el servidor mediante
+     * {@link java.sql.Statement#cancel()}.
+     */
+    public class CargaAsincrona extends SwingWorker<Long, List<Object[]>> {
+
+        private final String sqlQuery; // Consulta a ejecutar
+        private final int tamanoLote; // Filas por lote publicado
+        private final ProgresoCarga progreso; // Receptor del avance, puede ser null
+        private final long inicio = System.nanoTime(); // Instante de inicio de la carga
+        private volatile PreparedStatement sentencia; // Sentencia en ejecución, para poder cancelarla
+        private volatile long filasLeidas; // Filas leídas por el hilo de trabajo
+
+        private CargaAsincrona(String sqlQuery, int tamanoLote, ProgresoCarga progreso) {
+            this.sqlQuery = sqlQuery;
+            this.tamanoLote = tamanoLote;
+            this.progreso = progreso;
+        }
+
+        @Override
+        protected Long doInBackground() throws Exception {
+            if (sqlQuery == null || sqlQuery.isBlank()) {
+                throw new IllegalArgumentException("La query no fue definida");
+            }
+            long inicioConexion = System.nanoTime();
+            Connection conn = getPerfil().getConexion();
+            MetricasConsulta.registrarConexion(sqlQuery, System.nanoTime() - inicioConexion);
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // Las filas se leen en flujo para que la memoria del controlador no dependa del tamaño del resultado
+                Dialecto.de(conn).configurarLectura(conn, pstmt, Math.max(tamanoLote, Consulta.getTamanoFetch()));
+                sentencia = pstmt;
+                if (isCancelled()) {
+                    return 0L;
+                }
+                long inicioEjecucion = System.nanoTime();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    long inicioLectura = System.nanoTime();
+                    MetricasConsulta.registrarEjecucion(sqlQuery, inicioLectura - inicioEjecucion);
+                    ResultSetMetaData md = rs.getMetaData();
+                    int columnCount = md.getColumnCount();
+                    String[] nombres = new String[columnCount];
+                    for (int i = 0; i < columnCount; i++) {
+                        nombres[i] = md.getColumnName(i + 1);
+                    }
+                    AlmacenFilas almacen = crearAlmacen(md);
+                    // La estructura se publica antes que cualquier lote de filas
+                    SwingUtilities.invokeLater(() -> {
+                        if (!esActual()) {
+                            return;
+                        }
+                        columnNames = nombres;
+                        data = almacen;
+                        fireTableStructureChanged();
+                    });
+
+                    List<Object[]> lote = new ArrayList<>(tamanoLote);
+                    while (!isCancelled() && rs.next()) {
+                        Object[] row = new Object[columnCount];
+                        for (int i = 0; i < columnCount; i++) {
+                            row[i] = rs.getObject(i + 1);
+                        }
+                        lote.add(row);
+                        filasLeidas++;
+                        if (lote.size() == tamanoLote) {
+                            publish(lote);
+                            lote = new ArrayList<>(tamanoLote);
+                        }
+                    }
+                    if (!lote.isEmpty() && !isCancelled()) {
+                        publish(lote);
+                    }
+                    MetricasConsulta.registrarLectura(sqlQuery, System.nanoTime() - inicioLectura, filasLeidas);
+                }
             } catch (SQLException e) {
-                JOptionPane.showMessageDialog(null, "Ocurrió un error en el modelo de datos: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                if (!isCancelled()) {
+                    throw e; // Un error provocado por la cancelación no se reporta
+                }
             } finally {
-                conexion.cerrarConexion(); // Cierra la conexión a la base de datos
+                sentencia = null;
+                PerfilConexion.liberar(conn); // Devuelve la conexión al pool
             }
-        } else {
-            System.err.println("Error al establecer la conexión");
+            return filasLeidas;
+        }
+
+        @Override
+        protected void process(List<List<Object[]>> lotes) {
+            if (isCancelled() || !esActual()) {
+                return;
+            }
+            int primera = data.getFilas();
+            for (List<Object[]> lote : lotes) {
+                for (Object[] row : lote) {
+                    data.agregar(row);
+                }
+            }
+            if (data.getFilas() > primera) {
+                fireTableRowsInserted(primera, data.getFilas() - 1);
+            }
+            if (progreso != null) {
+                progreso.progreso(data.getFilas(), getMilisegundos());
+            }
+        }
+
+        @Override
+        protected void done() {
+            Exception error = null;
+            boolean actual = esActual();
+            if (actual) {
+                data.compactar();
+            }
+            if (!isCancelled()) {
+                try {
+                    get();
+                } catch (ExecutionException e) {
+                    error = e.getCause() instanceof Exception ex ? ex : e;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    error = e;
+                }
+            }
+            if (progreso != null) {
+                progreso.terminado(actual ? data.getFilas() : filasLeidas, getMilisegundos(), isCancelled(), error);
+            } else if (error != null) {
+                JOptionPane.showMessageDialog(null, "Ocurrió un error en el modelo de datos: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+
+        /**
+         * Indica si esta es la última carga iniciada en el modelo. Una carga
+         * reemplazada por otra no debe modificar los datos.
+         */
+        private boolean esActual() {
+            return cargaActual == this;
+        }
+
+        /**
+         * Cancela la carga. La consulta en curso se interrumpe en el servidor y
+         * las filas ya agregadas permanecen en el modelo.
+         */
+        public void cancelar() {
+            cancel(false);
+            PreparedStatement pstmt = sentencia;
+            if (pstmt != null) {
+                try {
+                    pstmt.cancel();
+                } catch (SQLException e) {
+                    System.err.println(e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Obtiene las filas leídas hasta el momento por el hilo de trabajo.
+         *
+         * @return Filas leídas.
+         */
+        public long getFilasLeidas() {
+            return filasLeidas;
+        }
+
+        /**
+         * Obtiene el tiempo transcurrido desde el inicio de la carga.
+         *
+         * @return Milisegundos transcurridos.
+         */
+        public long getMilisegundos() {
+            return (System.nanoTime() - inicio) / 1_000_000;
         }
     }
 
+    /**
+     * Establece si los modelos que se carguen a partir de este momento guardan
+     * sus datos por columnas, en arreglos primitivos elegidos según el tipo
+     * JDBC de cada columna, en lugar de un arreglo de objetos por fila. El
+     * almacenamiento por columnas reduce considerablemente la memoria de las
+     * tablas grandes; las fechas y horas se devuelven como tipos de
+     * {@code java.sql}.
+     *
+     * @param columnar {@code true} para usar almacenamiento por columnas.
+     */
+    public static void setAlmacenColumnar(boolean columnar) {
+        ModeloDatos.almacenColumnar = columnar;
+    }
+
+    /**
+     * Crea el almacenamiento configurado para un resultado.
+     *
+     * @param md Metadatos del resultado.
+     * @return El almacenamiento vacío.
+     * @throws SQLException Si falla la lectura de los metadatos.
+     */
+    static AlmacenFilas crearAlmacen(ResultSetMetaData md) throws SQLException {
+        return crearAlmacen(md, 1);
+    }
+
+    /**
+     * Crea el almacenamiento de una de las partes de un resultado que se lee
+     * en paralelo. El presupuesto de memoria se reparte entre las partes, de
+     * modo que el resultado completo no lo supera.
+     *
+     * @param md Metadatos del resultado.
+     * @param partes Número de partes del resultado.
+     * @return El almacenamiento vacío.
+     * @throws SQLException Si falla la lectura de los metadatos.
+     */
+    static AlmacenFilas crearAlmacen(ResultSetMetaData md, int partes) throws SQLException {
+        AlmacenFilas almacen = almacenColumnar ? new AlmacenColumnar(md) : new AlmacenFilasLista(md);
+        long presupuesto = presupuestoMemoria;
+        return presupuesto > 0 ? new AlmacenDesbordable(almacen, md.getColumnCount(), Math.max(1, presupuesto / partes)) : almacen;
+    }
+
+    /**
+     * Establece la memoria del heap que puede ocupar el resultado de un modelo
+     * antes de pasar a un archivo temporal mapeado en memoria
+     * ({@link AlmacenMapeado}). Al superarlo, las filas ya cargadas se copian
+     * al archivo y el resto se escribe directamente en él, de modo que el
+     * tamaño del resultado queda limitado por el disco. Por omisión es 0 y
+     * los datos se mantienen siempre en el heap; el paso a disco debe
+     * habilitarse explícitamente, por ejemplo con la mitad del heap máximo
+     * ({@code Runtime.getRuntime().maxMemory() / 2}).
+     *
+     * @param bytes Presupuesto en bytes, o 0 para mantener siempre los datos
+     * en el heap.
+     */
+    public static void setPresupuestoMemoria(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("El presupuesto no puede ser negativo");
+        }
+        ModeloDatos.presupuestoMemoria = bytes;
+    }
+
+    /**
+     * Obtiene el almacenamiento efectivo del modelo, sin el envoltorio que
+     * decide el paso a disco.
+     *
+     * @return El almacenamiento en uso.
+     */
+    private AlmacenFilas almacenEfectivo() {
+        return data instanceof AlmacenDesbordable d ? d.getActual() : data;
+    }
+
+    /**
+     * Genera un reporte de memoria que compara el almacenamiento actual del
+     * modelo con el diseño por filas ({@code ArrayList<Object[]>} con valores
+     * encapsulados). Los tamaños son estimaciones para una JVM de 64 bits con
+     * referencias comprimidas.
+     *
+     * @return El reporte en texto.
+     */
+    public String getReporteMemoria() {
+        if (data == null || columnNames == null) {
+            return "El modelo no tiene datos cargados";
+        }
+        AlmacenFilas efectivo = almacenEfectivo();
+        long actual = efectivo.getBytesEstimados();
+        long porFilas = efectivo instanceof AlmacenFilasLista ? actual : AlmacenFilas.bytesComoFilas(efectivo, columnNames.length);
+        StringBuilder reporte = new StringBuilder();
+        reporte.append("Filas: ").append(data.getFilas()).append(", columnas: ").append(columnNames.length).append('\n');
+        reporte.append("Almacenamiento actual (").append(efectivo instanceof AlmacenColumnar ? "por columnas"
+                : efectivo instanceof AlmacenMapeado ? "en disco" : "por filas")
+                .append("): ").append(actual).append(" bytes\n");
+        if (efectivo instanceof AlmacenMapeado mapeado) {
+            reporte.append("Archivo temporal: ").append(mapeado.getBytesEnDisco()).append(" bytes\n");
+        }
+        reporte.append("Diseño por filas: ").append(porFilas).append(" bytes\n");
+        if (porFilas > 0) {
+            reporte.append(String.format("Proporción: %.2f%% del diseño por filas", actual * 100.0 / porFilas));
+        }
+        return reporte.toString();
+    }
+
+    /**
+     * Guarda el contenido cargado del modelo en una instantánea binaria por
+     * columnas, que puede volver a abrirse con
+     * {@link #abrirInstantanea(Path, boolean)} sin consultar la base de datos.
+     * Conviene llamarlo justo después de cargar el modelo, para que el estado
+     * registrado de la tabla corresponda a los datos guardados. El archivo es
+     * un índice; los datos se escriben junto a él en una generación nueva,
+     * por lo que puede guardarse aunque otro modelo tenga abierta la
+     * instantánea anterior.
+     *
+     * @param archivo Archivo índice de la instantánea.
+     * @param tabla Tabla de origen cuyo número de filas y versión máxima se
+     * registran para detectar cambios, o {@code null} para no registrarla.
+     * @param columnaVersion Columna de versión o de marca de tiempo de la
+     * tabla, o {@code null} para comparar solo el número de filas.
+     * @throws IOException Si falla la escritura del archivo.
+     * @throws SQLException Si falla la lectura del estado de la tabla.
+     */
+    public void guardarInstantanea(Path archivo, String tabla, String columnaVersion) throws IOException, SQLException {
+        if (data == null || columnNames == null) {
+            throw new IllegalStateException("El modelo no tiene datos cargados");
+        }
+        InstantaneaModelo.guardar(archivo, columnNames, data, getPerfil(), tabla, columnaVersion);
+    }
+
+    /**
+     * Abre una instantánea guardada con
+     * {@link #guardarInstantanea(Path, String, String)} en lugar de consultar
+     * la base de datos. Las columnas se mapean en memoria y los valores se
+     * leen del archivo conforme se piden, por lo que abrirla no depende del
+     * tamaño de la tabla. Los datos abiertos son de solo lectura.
+     *
+     * @param archivo Archivo índice de la instantánea.
+     * @param verificar {@code true} para comprobar antes que la tabla de
+     * origen conserva el número de filas y la versión máxima registrados.
+     * @return {@code true} si se abrió la instantánea; {@code false} si no
+     * existe, no es válida o está desactualizada, en cuyo caso el modelo no
+     * cambia y debe cargarse desde la base de datos.
+     * @throws SQLException Si falla la verificación contra la tabla.
+     */
+    public boolean abrirInstantanea(Path archivo, boolean verificar) throws SQLException {
+        if (!Files.isRegularFile(archivo)) {
+            return false;
+        }
+        InstantaneaModelo instantanea;
+        try {
+            instantanea = InstantaneaModelo.abrir(archivo);
+        } catch (IOException e) {
+            System.err.println("No se pudo abrir la instantánea: " + e.getMessage());
+            return false;
+        }
+        if (verificar && !instantanea.vigente(getPerfil())) {
+            return false;
+        }
+        columnNames = instantanea.getColumnas();
+        data = instantanea.getAlmacen();
+        refresco = null;
+        fireTableStructureChanged();
+        return true;
+    }
+
+    /**
+     * Inicia una agregación calculada por el servidor sobre una tabla del
+     * perfil del modelo. Permite obtener totales y resúmenes por grupo sin
+     * cargar la tabla completa.
+     *
+     * @param tabla Nombre de la tabla.
+     * @return La agregación, que se configura y se ejecuta con
+     * {@link Agregacion#ejecutar()}.
+     */
+    public Agregacion agregacion(String tabla) {
+        return new Agregacion(getPerfil(), tabla);
+    }
+
+    /**
+     * Crea un ordenador de filas basado en índices precalculados para usarlo
+     * con <code>JTable.setRowSorter</code> en lugar de
+     * <code>TableRowSorter</code>. Es preferible en modelos grandes, donde
+     * ordenar por comparación de valores bloquea la interfaz.
+     *
+     * @return Un ordenador indexado para este modelo.
+     */
+    public OrdenadorIndexado<ModeloDatos> crearOrdenador() {
+        return new OrdenadorIndexado<>(this);
+    }
+
+    /**
+     * Habilita el refresco incremental del modelo, que debe contener todas las
+     * columnas de la tabla indicada (por ejemplo, cargado con
+     * {@code SELECT * FROM tabla}). Cada refresco lee solo las filas cuya
+     * versión es posterior a la mayor ya cargada y notifica a la vista fila
+     * por fila, en lugar de volver a leer la tabla completa.
+     *
+     * <p>
+     * En SQL Server la columna de versión suele ser de tipo
+     * {@code rowversion} y se detecta sola si se pasa {@code null}; en MySQL
+     * debe indicarse una columna de marca de tiempo mantenida con
+     * {@code ON UPDATE CURRENT_TIMESTAMP}. Para no perder filas de
+     * transacciones que confirman tarde, en SQL Server solo se leen versiones
+     * ya confirmadas y con una marca de tiempo se relee un margen de unos
+     * segundos; las filas releídas sin cambios no se notifican. Los datos se copian a un
+     * almacenamiento por filas propio del modelo, ya que el resultado puede
+     * estar compartido en {@link CacheResultados}.</p>
+     *
+     * @param tabla Nombre de la tabla de origen de los datos.
+     * @param columnaVersion Columna de versión, o {@code null} para usar la
+     * columna {@code rowversion} de la tabla.
+     * @throws SQLException Si la tabla no tiene clave primaria ni columna de
+     * versión, o si el modelo no contiene esas columnas.
+     */
+    public void habilitarRefrescoIncremental(String tabla, String columnaVersion) throws SQLException {
+        if (data == null || columnNames == null) {
+            throw new IllegalStateException("El modelo no tiene datos cargados");
+        }
+        AlmacenFilasLista propio = new AlmacenFilasLista();
+        for (int f = 0; f < data.getFilas(); f++) {
+            Object[] row = new Object[columnNames.length];
+            for (int c = 0; c < row.length; c++) {
+                row[c] = data.getValor(f, c);
+            }
+            propio.agregar(row);
+        }
+        data = propio;
+        refresco = new RefrescoIncremental(this, getPerfil(), tabla, columnaVersion);
+    }
+
+    /**
+     * Activa o desactiva la detección de filas eliminadas en el refresco
+     * incremental. Desactivarla evita la consulta {@code COUNT(*)} de cada
+     * refresco en tablas a las que solo se agregan filas.
+     *
+     * @param detectar {@code true} para detectar eliminaciones.
+     */
+    public void setDetectarEliminaciones(boolean detectar) {
+        requerirRefresco().setDetectarEliminaciones(detectar);
+    }
+
+    /**
+     * Aplica al modelo las filas modificadas, insertadas y eliminadas desde el
+     * último refresco. Debe llamarse desde el hilo de despacho de eventos si
+     * el modelo está mostrado en una tabla; para no bloquearlo se puede usar
+     * {@link #refrescarPeriodicamente(int)}.
+     *
+     * @return El número de filas afectadas.
+     * @throws SQLException Si falla la lectura de los cambios.
+     */
+    public int refrescarIncremental() throws SQLException {
+        RefrescoIncremental r = requerirRefresco();
+        return r.aplicar(r.leer());
+    }
+
+    /**
+     * Inicia un temporizador que refresca el modelo de forma incremental. Los
+     * cambios se leen en un hilo de trabajo y se aplican en el hilo de
+     * despacho de eventos; un ciclo se omite si el anterior no ha terminado.
+     *
+     * @param periodoMs Milisegundos entre refrescos.
+     * @return El temporizador iniciado, que se detiene con
+     * <code>stop()</code>.
+     */
+    public javax.swing.Timer refrescarPeriodicamente(int periodoMs) {
+        RefrescoIncremental r = requerirRefresco();
+        boolean[] enCurso = new boolean[1]; // Solo se accede desde el hilo de despacho de eventos
+        javax.swing.Timer timer = new javax.swing.Timer(periodoMs, e -> {
+            if (enCurso[0] || refresco != r) {
+                return;
+            }
+            enCurso[0] = true;
+            new SwingWorker<RefrescoIncremental.Cambios, Void>() {
+                @Override
+                protected RefrescoIncremental.Cambios doInBackground() throws SQLException {
+                    return r.leer();
+                }
+
+                @Override
+                protected void done() {
+                    enCurso[0] = false;
+                    try {
+                        if (refresco == r) {
+                            r.aplicar(get());
+                        }
+                    } catch (ExecutionException ex) {
+                        System.err.println("Error en el refresco incremental: " + ex.getCause().getMessage());
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }.execute();
+        });
+        timer.start();
+        return timer;
+    }
+
+    /**
+     * Obtiene el refresco incremental habilitado.
+     */
+    private RefrescoIncremental requerirRefresco() {
+        if (refresco == null) {
+            throw new IllegalStateException("El refresco incremental no está habilitado");
+        }
+        return refresco;
+    }
+
+    /**
+     * Reemplaza los valores de una fila sin notificar a la vista.
+     */
+    void reemplazarFila(int fila, Object[] valores) {
+        data.reemplazar(fila, valores);
+    }
+
+    /**
+     * Agrega una fila al final sin notificar a la vista.
+     *
+     * @return El índice de la fila agregada.
+     */
+    int agregarFila(Object[] valores) {
+        data.agregar(valores);
+        return data.getFilas() - 1;
+    }
+
+    /**
+     * Elimina una fila sin notificar a la vista.
+     */
+    void eliminarFila(int fila) {
+        data.eliminar(fila);
+    }
+
     /**
      * Obtiene los nombres de las tablas en la base de datos seleccionada.
      *
@@ -177,22 +1001,18 @@ public class ModeloDatos extends AbstractTableModel {
         Connection conn = null;
 
         // Establece la conexión según la base de datos seleccionada
-        conn = conexion.getConexion(Conexion.getIdSGBD());
+        conn = abrirConexion();
         
         // Verifica el estado de la conexión antes de proceder
-        if (conexion.getStateConnection()) {
+        if (Consulta.estaAbierta(conn)) {
             try {
-                ResultSet tables = Consulta.getTablesMetaData(conn);
-
-                // Almacena los nombres de las tablas en la lista metaData
-                while (tables.next()) {
-                    metaData.add(tables.getString("TABLE_NAME"));
-                }
+                // Almacena los nombres de las tablas en la lista metaData desde la caché de esquema
+                metaData.addAll(Consulta.getTablas(conn));
 
             } catch (SQLException ex) {
                 JOptionPane.showMessageDialog(null, "Ocurrió un error en el modelo de datos: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             } finally {
-                conexion.cerrarConexion(); // Cierra la conexión a la base de datos
+                PerfilConexion.liberar(conn); // Devuelve la conexión al pool
             }
         }
         return metaData;
@@ -205,7 +1025,7 @@ public class ModeloDatos extends AbstractTableModel {
      */
     @Override
     public int getRowCount() {
-        return data.size(); // Devuelve el tamaño de la lista de datos (número de filas)
+        return data == null ? 0 : data.getFilas(); // Devuelve el número de filas almacenadas
     }
 
     /**
@@ -229,7 +1049,7 @@ public class ModeloDatos extends AbstractTableModel {
      */
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        return data.get(rowIndex)[columnIndex]; // Devuelve el valor de la celda especificada
+        return data.getValor(rowIndex, columnIndex); // Devuelve el valor de la celda especificada
     }
 
     /**
@@ -0,0 +1,356 @@
+package TablaBD.app.com;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.JOptionPane;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Modelo de datos perezoso para tablas muy grandes. A diferencia de
+ * {@link ModeloDatos}, no carga el resultado completo en memoria: el número de
+ * filas se obtiene con una consulta {@code COUNT(*)} y los valores se leen por
+ * páginas de tamaño fijo conforme el <code>JTable</code> las solicita.
+ *
+ * <p>
+ * Las páginas se recorren en el orden de la clave primaria completa (o de
+ * una columna única indicada). Cuando se conoce la última clave de la página
+ * anterior se usa paginación por clave ({@code WHERE clave > ?}; con una
+ * clave compuesta {@code (a, b)}, la comparación expandida
+ * {@code a > ? OR (a = ? AND b > ?)}), que no degrada con el
+ * desplazamiento; si no, se
+ * usa la paginación del dialecto ({@code OFFSET/FETCH} en SQL Server,
+ * {@code LIMIT} en MySQL). Una caché LRU limita el número de páginas en
+ * memoria sin importar el tamaño de la tabla.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public class ModeloDatosPaginado extends AbstractTableModel {
+
+    // Atributos
+    private final PerfilConexion perfil; // Perfil con el que se abren las conexiones
+    private final Dialecto dialecto; // Dialecto SQL del SGBD
+    private final String tabla; // Tabla de origen de los datos
+    private final List<String> columnasClave; // Columnas únicas en conjunto por las que se ordenan las páginas
+    private final int tamanoPagina; // Filas por página
+    private final Map<Integer, Object[][]> paginas; // Caché LRU de páginas cargadas
+    private final Map<Integer, Object[]> ultimasClaves; // Última clave de cada página visitada, para la paginación por clave
+    private String[] columnNames; // Nombres de las columnas
+    private int[] indicesClave; // Posición de cada columna clave en el resultado
+    private int rowCount; // Número total de filas según COUNT(*)
+
+    /**
+     * Constructor de la clase <code>ModeloDatosPaginado</code>. Obtiene la
+     * clave primaria de la tabla mediante
+     * {@link Consulta#setPrimaryColumnsTable(Connection, String, String)} y
+     * usa todas sus columnas para ordenar las páginas.
+     *
+     * @param perfil El perfil de conexión a utilizar.
+     * @param tabla El nombre de la tabla a mostrar.
+     * @param tamanoPagina Filas por página.
+     * @param paginasEnCache Número máximo de páginas en memoria.
+     */
+    public ModeloDatosPaginado(PerfilConexion perfil, String tabla, int tamanoPagina, int paginasEnCache) {
+        this(perfil, tabla, null, tamanoPagina, paginasEnCache);
+    }
+
+    /**
+     * Constructor de la clase <code>ModeloDatosPaginado</code> con una columna
+     * de orden explícita.
+     *
+     * @param perfil El perfil de conexión a utilizar.
+     * @param tabla El nombre de la tabla a mostrar.
+     * @param columnaClave Columna única por la que se ordenan las filas, o
+     * {@code null} para usar la clave primaria.
+     * @param tamanoPagina Filas por página.
+     * @param paginasEnCache Número máximo de páginas en memoria.
+     */
+    public ModeloDatosPaginado(PerfilConexion perfil, String tabla, String columnaClave, int tamanoPagina, int paginasEnCache) {
+        if (tamanoPagina < 1 || paginasEnCache < 1) {
+            throw new IllegalArgumentException("El tamaño de página y la caché deben ser positivos");
+        }
+        this.perfil = perfil;
+        this.dialecto = Dialecto.desdeId(perfil.getIdSGBD());
+        this.tabla = tabla;
+        this.tamanoPagina = tamanoPagina;
+        this.paginas = new LinkedHashMap<>(paginasEnCache * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+                return size() > paginasEnCache;
+            }
+        };
+        final int maxClaves = Math.max(paginasEnCache * 16, 1024);
+        this.ultimasClaves = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+                return size() > maxClaves;
+            }
+        };
+        this.columnasClave = columnaClave != null ? List.of(columnaClave) : buscarClavePrimaria();
+        loadMetaData();
+    }
+
+    /**
+     * Obtiene las columnas de la clave primaria de la tabla.
+     */
+    private List<String> buscarClavePrimaria() {
+        Connection conn = abrirConexion();
+        try {
+            if (conn != null) {
+                // El esquema se lee con la conexión prestada, sin las listas estáticas de Consulta
+                List<String> ids = Consulta.getEsquemaTabla(conn, tabla, perfil.getBase()).getClavesPrimarias();
+                if (!ids.isEmpty()) {
+                    return ids;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println(e.getMessage());
+        } finally {
+            PerfilConexion.liberar(conn);
+        }
+        throw new IllegalArgumentException("La tabla " + tabla + " no tiene clave primaria; indique la columna de orden");
+    }
+
+    /**
+     * Lee los nombres de las columnas con una consulta vacía y el número de
+     * filas con {@code COUNT(*)}.
+     */
+    private void loadMetaData() {
+        Connection conn = abrirConexion();
+        if (conn == null) {
+            columnNames = new String[0];
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM " + tabla + " WHERE 1 = 0");
+                ResultSet rs = pstmt.executeQuery()) {
+            ResultSetMetaData md = rs.getMetaData();
+            columnNames = new String[md.getColumnCount()];
+            for (int i = 0; i < columnNames.length; i++) {
+                columnNames[i] = md.getColumnName(i + 1);
+            }
+            indicesClave = new int[columnasClave.size()];
+            for (int k = 0; k < indicesClave.length; k++) {
+                indicesClave[k] = -1;
+                for (int i = 0; i < columnNames.length; i++) {
+                    if (columnNames[i].equalsIgnoreCase(columnasClave.get(k))) {
+                        indicesClave[k] = i;
+                    }
+                }
+                if (indicesClave[k] < 0) {
+                    throw new IllegalArgumentException("La columna " + columnasClave.get(k) + " no existe en " + tabla);
+                }
+            }
+            rowCount = contarFilas(conn);
+        } catch (SQLException e) {
+            columnNames = new String[0];
+            JOptionPane.showMessageDialog(null, "Ocurrió un error en el modelo de datos: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        } finally {
+            PerfilConexion.liberar(conn);
+        }
+    }
+
+    /**
+     * Ejecuta el conteo de filas de la tabla.
+     */
+    private int contarFilas(Connection conn) throws SQLException {
+        PreparedStatement pstmt = CacheSentencias.preparar(conn, "SELECT COUNT(*) FROM " + tabla);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return (int) Math.min(rs.getLong(1), Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Vuelve a contar las filas de la tabla y descarta las páginas en caché.
+     * Debe invocarse después de modificar la tabla.
+     */
+    public void refrescar() {
+        synchronized (paginas) {
+            paginas.clear();
+            ultimasClaves.clear();
+        }
+        Connection conn = abrirConexion();
+        if (conn != null) {
+            try {
+                rowCount = contarFilas(conn);
+            } catch (SQLException e) {
+                System.err.println(e.getMessage());
+            } finally {
+                PerfilConexion.liberar(conn);
+            }
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Obtiene una página de la caché o la carga desde la base de datos.
+     *
+     * @param numero Número de página (comienza en 0).
+     * @return Las filas de la página.
+     */
+    private Object[][] getPagina(int numero) {
+        Object[] claveAnterior;
+        synchronized (paginas) {
+            Object[][] pagina = paginas.get(numero);
+            if (pagina != null) {
+                return pagina;
+            }
+            claveAnterior = numero > 0 ? ultimasClaves.get(numero - 1) : null;
+        }
+        Object[][] pagina = cargarPagina(numero, claveAnterior);
+        if (pagina == null) {
+            return new Object[0][]; // Un error no se guarda: la página se vuelve a pedir en la siguiente lectura
+        }
+        synchronized (paginas) {
+            paginas.put(numero, pagina);
+            if (pagina.length > 0) {
+                Object[] ultima = new Object[indicesClave.length];
+                for (int k = 0; k < ultima.length; k++) {
+                    ultima[k] = pagina[pagina.length - 1][indicesClave[k]];
+                }
+                ultimasClaves.put(numero, ultima);
+            }
+        }
+        return pagina;
+    }
+
+    /**
+     * Lee una página de la base de datos. Usa paginación por clave si se
+     * conoce la última clave de la página anterior y la paginación del
+     * dialecto en caso contrario.
+     *
+     * @param numero Número de página.
+     * @param claveAnterior Valores de las columnas clave de la última fila de
+     * la página anterior, o {@code null} si no se conocen.
+     * @return Las filas leídas, o {@code null} si ocurrió un error.
+     */
+    private Object[][] cargarPagina(int numero, Object[] claveAnterior) {
+        Connection conn = abrirConexion();
+        if (conn == null) {
+            return null;
+        }
+        List<String> citadas = columnasClave.stream().map(dialecto::citar).toList();
+        String orden = String.join(", ", citadas);
+        String base = "SELECT * FROM " + tabla;
+        long[] limites;
+        if (claveAnterior != null) {
+            base += " WHERE " + posteriorA(citadas);
+            limites = dialecto.parametrosPagina(0, tamanoPagina);
+        } else {
+            limites = dialecto.parametrosPagina((long) numero * tamanoPagina, tamanoPagina);
+        }
+        ArrayList<Object[]> filas = new ArrayList<>(tamanoPagina);
+        try {
+            // Solo existen dos formas de la consulta, por lo que sus sentencias se reutilizan desde la caché
+            PreparedStatement pstmt = CacheSentencias.preparar(conn, dialecto.paginar(base, orden));
+            int indice = 1;
+            if (claveAnterior != null) {
+                // Por cada término de la comparación expandida, las columnas anteriores se igualan y la última se supera
+                for (int k = 0; k < claveAnterior.length; k++) {
+                    for (int j = 0; j <= k; j++) {
+                        pstmt.setObject(indice++, claveAnterior[j]);
+                    }
+                }
+            }
+            pstmt.setLong(indice++, limites[0]);
+            pstmt.setLong(indice, limites[1]);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int columnCount = columnNames.length;
+                while (rs.next()) {
+                    Object[] row = new Object[columnCount];
+                    for (int i = 0; i < columnCount; i++) {
+                        row[i] = rs.getObject(i + 1);
+                    }
+                    filas.add(row);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al cargar la página " + numero + ": " + e.getMessage());
+            return null;
+        } finally {
+            PerfilConexion.liberar(conn);
+        }
+        return filas.toArray(new Object[0][]);
+    }
+
+    /**
+     * Genera la condición de las filas posteriores a una clave en el orden de
+     * sus columnas: {@code a > ? OR (a = ? AND b > ?) OR ...}. Se expande en
+     * lugar de usar {@code (a, b) > (?, ?)}, que SQL Server no admite.
+     */
+    private static String posteriorA(List<String> columnas) {
+        StringBuilder condicion = new StringBuilder();
+        for (int k = 0; k < columnas.size(); k++) {
+            condicion.append(k > 0 ? " OR (" : "(");
+            for (int j = 0; j < k; j++) {
+                condicion.append(columnas.get(j)).append(" = ? AND ");
+            }
+            condicion.append(columnas.get(k)).append(" > ?)");
+        }
+        return columnas.size() > 1 ? "(" + condicion + ")" : condicion.toString();
+    }
+
+    /**
+     * Toma una conexión del perfil del modelo.
+     */
+    private Connection abrirConexion() {
+        try {
+            return perfil.getConexion();
+        } catch (SQLException e) {
+            System.err.println(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Devuelve el número de filas de la tabla según el último conteo.
+     *
+     * @return El número de filas en la tabla de datos.
+     */
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Devuelve el número de columnas en la tabla.
+     *
+     * @return El número de columnas en la tabla de datos.
+     */
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    /**
+     * Devuelve el valor de una celda, cargando su página si no está en caché.
+     *
+     * @param rowIndex El índice de la fila (comienza en 0).
+     * @param columnIndex El índice de la columna (comienza en 0).
+     * @return El valor de la celda, o {@code null} si la fila ya no existe.
+     */
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Object[][] pagina = getPagina(rowIndex / tamanoPagina);
+        int fila = rowIndex % tamanoPagina;
+        return fila < pagina.length ? pagina[fila][columnIndex] : null;
+    }
+
+    /**
+     * Devuelve el nombre de una columna de la tabla.
+     *
+     * @param column El índice de la columna (comienza en 0).
+     * @return El nombre de la columna especificada.
+     */
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+}
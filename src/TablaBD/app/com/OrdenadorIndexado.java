@@ -0,0 +1,793 @@
+package TablaBD.app.com;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.TableModel;
+
+/**
+ * Ordenador de filas para <code>JTable</code> basado en índices precalculados.
+ * A diferencia de <code>TableRowSorter</code>, que compara valores con
+ * {@code getValueAt} y {@code Comparable} en cada ordenamiento, este
+ * ordenador lee cada columna una sola vez, calcula el rango de cada fila y
+ * ordena en paralelo (fork-join, mediante {@link Arrays#parallelSort}) arreglos
+ * de tipos primitivos, conservando la permutación resultante en un
+ * {@code int[]}. Volver a ordenar por una columna ya indexada, o
+ * invertir su sentido, solo recorre la permutación.
+ *
+ * <p>
+ * Los índices también responden filtros de igualdad y de rango mediante
+ * búsqueda binaria. Los valores nulos se ordenan antes que cualquier otro
+ * valor y no cumplen los filtros de rango. Los textos se comparan con
+ * {@link String#compareTo(String)}.</p>
+ *
+ * <p>
+ * Las filas insertadas se combinan con los índices existentes: solo se
+ * ordenan los valores nuevos y se intercalan con la permutación ya ordenada.
+ * Los demás cambios del modelo descartan los índices afectados, que se
+ * reconstruyen al volver a necesitarse.</p>
+ *
+ * @param <M> Tipo del modelo de la tabla.
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public class OrdenadorIndexado<M extends TableModel> extends RowSorter<M> {
+
+    // Atributos
+    private static final int MAX_CLAVES = 3; // Columnas de orden que se conservan al alternar
+    private final M modelo; // Modelo ordenado
+    private IndiceColumna[] indices; // Índice de cada columna, creado al necesitarse
+    private List<SortKey> clavesOrden = Collections.emptyList(); // Claves de orden actuales
+    private final List<Filtro> filtros = new ArrayList<>(); // Filtros activos, combinados con AND
+    private int[] vistaAModelo; // Fila del modelo de cada fila visible, null si no hay orden ni filtro
+    private int[] modeloAVista; // Fila visible de cada fila del modelo, -1 si está filtrada
+
+    /**
+     * Constructor de la clase <code>OrdenadorIndexado</code>.
+     *
+     * @param modelo El modelo de la tabla.
+     */
+    public OrdenadorIndexado(M modelo) {
+        this.modelo = modelo;
+        this.indices = new IndiceColumna[modelo.getColumnCount()];
+    }
+
+    @Override
+    public M getModel() {
+        return modelo;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        comprobarColumna(column);
+        List<SortKey> nuevas = new ArrayList<>(clavesOrden);
+        SortOrder orden = SortOrder.ASCENDING;
+        if (!nuevas.isEmpty() && nuevas.get(0).getColumn() == column) {
+            orden = nuevas.get(0).getSortOrder() == SortOrder.ASCENDING ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+        }
+        nuevas.removeIf(k -> k.getColumn() == column);
+        nuevas.add(0, new SortKey(column, orden));
+        setSortKeys(nuevas.size() > MAX_CLAVES ? nuevas.subList(0, MAX_CLAVES) : nuevas);
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> nuevas = new ArrayList<>();
+        if (keys != null) {
+            for (SortKey k : keys) {
+                comprobarColumna(k.getColumn());
+                if (k.getSortOrder() != SortOrder.UNSORTED) {
+                    nuevas.add(k);
+                }
+            }
+        }
+        if (!nuevas.equals(clavesOrden)) {
+            clavesOrden = Collections.unmodifiableList(nuevas);
+            fireSortOrderChanged();
+            reordenar();
+        }
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return clavesOrden;
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (vistaAModelo == null) {
+            return index;
+        }
+        return vistaAModelo[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (modeloAVista == null) {
+            return index;
+        }
+        return index < 0 || index >= modeloAVista.length ? -1 : modeloAVista[index];
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return vistaAModelo == null ? modelo.getRowCount() : vistaAModelo.length;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return modelo.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        indices = new IndiceColumna[modelo.getColumnCount()];
+        filtros.clear();
+        if (!clavesOrden.isEmpty()) {
+            clavesOrden = Collections.emptyList();
+            fireSortOrderChanged();
+        }
+        reordenar();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        descartarIndices();
+        reordenar();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        if (indices.length != modelo.getColumnCount()) {
+            descartarIndices();
+        } else {
+            for (int c = 0; c < indices.length; c++) {
+                if (indices[c] != null) {
+                    indices[c] = indices[c].insertar(modelo, c, firstRow, endRow); // null si debe reconstruirse
+                }
+            }
+        }
+        reordenar();
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        descartarIndices();
+        reordenar();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        descartarIndices();
+        reordenar();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        if (column >= 0 && column < indices.length) {
+            indices[column] = null;
+        } else {
+            descartarIndices();
+        }
+        reordenar();
+    }
+
+    /**
+     * Agrega un filtro que conserva las filas cuyo valor en la columna es igual
+     * al indicado.
+     *
+     * @param columna Índice de la columna en el modelo.
+     * @param valor Valor buscado; {@code null} conserva las filas nulas.
+     */
+    public void agregarFiltroIgual(int columna, Object valor) {
+        comprobarColumna(columna);
+        filtros.add(new Filtro(columna, valor, valor, true));
+        reordenar();
+    }
+
+    /**
+     * Agrega un filtro que conserva las filas cuyo valor en la columna está en
+     * el rango indicado, con ambos extremos incluidos.
+     *
+     * @param columna Índice de la columna en el modelo.
+     * @param desde Extremo inferior, o {@code null} para no acotar.
+     * @param hasta Extremo superior, o {@code null} para no acotar.
+     */
+    public void agregarFiltroRango(int columna, Object desde, Object hasta) {
+        comprobarColumna(columna);
+        filtros.add(new Filtro(columna, desde, hasta, false));
+        reordenar();
+    }
+
+    /**
+     * Quita todos los filtros.
+     */
+    public void quitarFiltros() {
+        if (!filtros.isEmpty()) {
+            filtros.clear();
+            reordenar();
+        }
+    }
+
+    /**
+     * Cuenta las filas del modelo cuyo valor está en un rango, sin modificar
+     * la vista. Usa el índice de la columna, por lo que no recorre las filas.
+     *
+     * @param columna Índice de la columna en el modelo.
+     * @param desde Extremo inferior incluido, o {@code null} para no acotar.
+     * @param hasta Extremo superior incluido, o {@code null} para no acotar.
+     * @return El número de filas en el rango.
+     */
+    public int contarRango(int columna, Object desde, Object hasta) {
+        comprobarColumna(columna);
+        int[] limites = getIndice(columna).buscarRango(desde, hasta, false);
+        return limites[1] - limites[0];
+    }
+
+    /**
+     * Descarta los índices de todas las columnas.
+     */
+    private void descartarIndices() {
+        indices = new IndiceColumna[modelo.getColumnCount()];
+    }
+
+    /**
+     * Verifica que la columna exista en el modelo.
+     */
+    private void comprobarColumna(int columna) {
+        if (columna < 0 || columna >= modelo.getColumnCount()) {
+            throw new IndexOutOfBoundsException("Columna inválida: " + columna);
+        }
+    }
+
+    /**
+     * Obtiene el índice de una columna, construyéndolo si no existe.
+     */
+    private IndiceColumna getIndice(int columna) {
+        if (indices.length != modelo.getColumnCount()) {
+            descartarIndices();
+        }
+        IndiceColumna indice = indices[columna];
+        if (indice == null) {
+            indice = new IndiceColumna(modelo, columna);
+            indices[columna] = indice;
+        }
+        return indice;
+    }
+
+    /**
+     * Recalcula la vista a partir de las claves de orden y los filtros, y
+     * notifica el cambio a la tabla.
+     */
+    private void reordenar() {
+        int[] anterior = vistaAModelo != null ? vistaAModelo.clone() : null;
+        int filas = modelo.getRowCount();
+        if (clavesOrden.isEmpty() && filtros.isEmpty()) {
+            vistaAModelo = null;
+            modeloAVista = null;
+            fireRowSorterChanged(anterior);
+            return;
+        }
+
+        int[] orden = calcularOrden(filas);
+        if (!filtros.isEmpty()) {
+            BitSet visibles = calcularFiltro(filas);
+            int[] filtradas = new int[visibles.cardinality()];
+            int n = 0;
+            for (int fila : orden) {
+                if (visibles.get(fila)) {
+                    filtradas[n++] = fila;
+                }
+            }
+            orden = filtradas;
+        }
+        int[] inversa = new int[filas];
+        Arrays.fill(inversa, -1);
+        for (int v = 0; v < orden.length; v++) {
+            inversa[orden[v]] = v;
+        }
+        vistaAModelo = orden;
+        modeloAVista = inversa;
+        fireRowSorterChanged(anterior);
+    }
+
+    /**
+     * Calcula el orden de las filas del modelo según las claves de orden.
+     */
+    private int[] calcularOrden(int filas) {
+        if (clavesOrden.isEmpty()) {
+            int[] identidad = new int[filas];
+            for (int i = 0; i < filas; i++) {
+                identidad[i] = i;
+            }
+            return identidad;
+        }
+        SortKey primera = clavesOrden.get(0);
+        IndiceColumna indice = getIndice(primera.getColumn());
+        if (clavesOrden.size() == 1) {
+            return primera.getSortOrder() == SortOrder.ASCENDING ? indice.orden.clone() : indice.descendente();
+        }
+        // Varias claves: ordenamientos estables sucesivos por el rango de cada columna, de la última a la primera
+        int[] orden = new int[filas];
+        for (int i = 0; i < filas; i++) {
+            orden[i] = i;
+        }
+        for (int k = clavesOrden.size() - 1; k >= 0; k--) {
+            IndiceColumna actual = getIndice(clavesOrden.get(k).getColumn());
+            boolean descendente = clavesOrden.get(k).getSortOrder() == SortOrder.DESCENDING;
+            int[] rangos = new int[filas];
+            for (int p = 0; p < filas; p++) {
+                int r = actual.rango[orden[p]];
+                rangos[p] = descendente ? actual.maximoRango - r : r;
+            }
+            int[] posiciones = ordenarPorRango(rangos);
+            int[] siguiente = new int[filas];
+            for (int p = 0; p < filas; p++) {
+                siguiente[p] = orden[posiciones[p]];
+            }
+            orden = siguiente;
+        }
+        return orden;
+    }
+
+    /**
+     * Calcula las filas del modelo que cumplen todos los filtros.
+     */
+    private BitSet calcularFiltro(int filas) {
+        BitSet visibles = new BitSet(filas);
+        visibles.set(0, filas);
+        for (Filtro filtro : filtros) {
+            IndiceColumna indice = getIndice(filtro.columna);
+            int[] limites = indice.buscarRango(filtro.desde, filtro.hasta, filtro.igualdad);
+            BitSet cumple = new BitSet(filas);
+            for (int p = limites[0]; p < limites[1]; p++) {
+                cumple.set(indice.orden[p]);
+            }
+            visibles.and(cumple);
+        }
+        return visibles;
+    }
+
+    /**
+     * Ordena de forma estable las posiciones 0..n-1 por su rango. Cada
+     * posición se empaqueta con su rango en un {@code long} (rango en los bits
+     * altos, posición en los bajos) y el arreglo se ordena con
+     * {@link Arrays#parallelSort(long[])}, que divide el trabajo entre los
+     * hilos del {@link java.util.concurrent.ForkJoinPool} común. Como la
+     * posición forma parte de la clave, los empates conservan su orden.
+     *
+     * @param rangos Rango no negativo de cada posición.
+     * @return Las posiciones en orden ascendente de rango.
+     */
+    private static int[] ordenarPorRango(int[] rangos) {
+        long[] claves = new long[rangos.length];
+        for (int p = 0; p < rangos.length; p++) {
+            claves[p] = ((long) rangos[p] << 32) | p;
+        }
+        Arrays.parallelSort(claves);
+        int[] posiciones = new int[rangos.length];
+        for (int p = 0; p < rangos.length; p++) {
+            posiciones[p] = (int) claves[p];
+        }
+        return posiciones;
+    }
+
+    /**
+     * Filtro de igualdad o de rango sobre una columna.
+     */
+    private static final class Filtro {
+
+        private final int columna;
+        private final Object desde;
+        private final Object hasta;
+        private final boolean igualdad;
+
+        private Filtro(int columna, Object desde, Object hasta, boolean igualdad) {
+            this.columna = columna;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.igualdad = igualdad;
+        }
+    }
+
+    /**
+     * Índice de una columna: los valores leídos una sola vez en arreglos del
+     * tipo más específico posible, la permutación ascendente de las filas y el
+     * rango de cada fila (filas con valores iguales comparten rango).
+     */
+    private static final class IndiceColumna {
+
+        private final long[] enteros; // Valores de columnas enteras
+        private final double[] reales; // Valores de columnas reales
+        private final Object[] objetos; // Valores de cualquier otro tipo
+        private final BitSet nulos; // Filas con valor nulo
+        private final int[] orden; // Filas del modelo en orden ascendente
+        private final int[] rango; // Rango de cada fila del modelo
+        private final int maximoRango; // Mayor rango de la columna
+
+        private IndiceColumna(long[] enteros, double[] reales, Object[] objetos, BitSet nulos, int[] orden,
+                int[] rango, int maximoRango) {
+            this.enteros = enteros;
+            this.reales = reales;
+            this.objetos = objetos;
+            this.nulos = nulos;
+            this.orden = orden;
+            this.rango = rango;
+            this.maximoRango = maximoRango;
+        }
+
+        private IndiceColumna(TableModel modelo, int columna) {
+            int filas = modelo.getRowCount();
+            Object[] valores = new Object[filas];
+            nulos = new BitSet(filas);
+            boolean todosEnteros = true;
+            boolean todosReales = true;
+            for (int f = 0; f < filas; f++) {
+                Object v = modelo.getValueAt(f, columna);
+                valores[f] = v;
+                if (v == null) {
+                    nulos.set(f);
+                    continue;
+                }
+                todosEnteros &= v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte;
+                todosReales &= v instanceof Double || v instanceof Float;
+            }
+            if (todosEnteros) {
+                enteros = new long[filas];
+                for (int f = 0; f < filas; f++) {
+                    enteros[f] = valores[f] == null ? 0 : ((Number) valores[f]).longValue();
+                }
+                reales = null;
+                objetos = null;
+            } else if (todosReales) {
+                reales = new double[filas];
+                for (int f = 0; f < filas; f++) {
+                    reales[f] = valores[f] == null ? 0 : ((Number) valores[f]).doubleValue();
+                }
+                enteros = null;
+                objetos = null;
+            } else {
+                for (int f = 0; f < filas; f++) {
+                    // Los valores sin orden natural se comparan por su texto
+                    if (valores[f] != null && !(valores[f] instanceof Comparable)) {
+                        valores[f] = valores[f].toString();
+                    }
+                }
+                objetos = valores;
+                enteros = null;
+                reales = null;
+            }
+
+            rango = calcularRangos(filas);
+            int maximo = 0;
+            for (int r : rango) {
+                maximo = Math.max(maximo, r);
+            }
+            maximoRango = maximo;
+            orden = ordenarPorRango(rango);
+        }
+
+        /**
+         * Calcula el rango denso de cada fila: 0 para los nulos y, para los
+         * demás valores, su posición entre los valores distintos ordenados
+         * (comenzando en 1). Los valores se ordenan una sola vez con
+         * {@link Arrays#parallelSort}.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private int[] calcularRangos(int filas) {
+            int[] rangos = new int[filas];
+            int noNulos = filas - nulos.cardinality();
+            if (enteros != null || reales != null) {
+                long[] distintos = new long[noNulos];
+                int n = 0;
+                for (int f = 0; f < filas; f++) {
+                    if (!nulos.get(f)) {
+                        distintos[n++] = clave(f);
+                    }
+                }
+                Arrays.parallelSort(distintos);
+                int unicos = 0;
+                for (int i = 0; i < n; i++) {
+                    if (unicos == 0 || distintos[i] != distintos[unicos - 1]) {
+                        distintos[unicos++] = distintos[i];
+                    }
+                }
+                for (int f = 0; f < filas; f++) {
+                    rangos[f] = nulos.get(f) ? 0 : Arrays.binarySearch(distintos, 0, unicos, clave(f)) + 1;
+                }
+                return rangos;
+            }
+            // Solo se ordenan los valores distintos; cada uno recibe el rango de su grupo de iguales según compareTo
+            Map<Object, Integer> rangoDe = new HashMap<>();
+            for (int f = 0; f < filas; f++) {
+                if (!nulos.get(f)) {
+                    rangoDe.putIfAbsent(objetos[f], 0);
+                }
+            }
+            Comparable[] distintos = rangoDe.keySet().toArray(new Comparable[0]);
+            Arrays.parallelSort(distintos);
+            int r = 0;
+            for (int i = 0; i < distintos.length; i++) {
+                if (i == 0 || distintos[i - 1].compareTo(distintos[i]) != 0) {
+                    r++;
+                }
+                rangoDe.put(distintos[i], r);
+            }
+            for (int f = 0; f < filas; f++) {
+                rangos[f] = nulos.get(f) ? 0 : rangoDe.get(objetos[f]);
+            }
+            return rangos;
+        }
+
+        /**
+         * Crea el índice que resulta de insertar en el modelo las filas
+         * {@code desde..hasta}. Los valores existentes se desplazan sin
+         * releerlos, las filas nuevas se ordenan entre sí y se intercalan con
+         * la permutación ascendente, y los rangos se recalculan en el mismo
+         * recorrido. Las filas con valores iguales conservan el orden del
+         * modelo.
+         *
+         * @param modelo El modelo, que ya contiene las filas nuevas.
+         * @param columna Columna del índice.
+         * @param desde Primera fila insertada.
+         * @param hasta Última fila insertada.
+         * @return El índice combinado, o {@code null} si un valor nuevo no
+         * cabe en los arreglos de este índice y debe reconstruirse.
+         */
+        private IndiceColumna insertar(TableModel modelo, int columna, int desde, int hasta) {
+            int anteriores = orden.length;
+            int k = hasta - desde + 1;
+            int filas = anteriores + k;
+            if (k <= 0 || desde < 0 || desde > anteriores || modelo.getRowCount() != filas) {
+                return null;
+            }
+            Object[] nuevos = new Object[k];
+            for (int i = 0; i < k; i++) {
+                Object v = modelo.getValueAt(desde + i, columna);
+                if (v != null) {
+                    if (enteros != null && !(v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte)) {
+                        return null;
+                    }
+                    if (reales != null && !(v instanceof Double || v instanceof Float)) {
+                        return null;
+                    }
+                    if (objetos != null && !(v instanceof Comparable)) {
+                        v = v.toString();
+                    }
+                }
+                nuevos[i] = v;
+            }
+
+            // Valores y nulos desplazados, con las filas nuevas en el hueco
+            BitSet nulosNuevos = new BitSet(filas);
+            for (int f = nulos.nextSetBit(0); f >= 0; f = nulos.nextSetBit(f + 1)) {
+                nulosNuevos.set(f < desde ? f : f + k);
+            }
+            for (int i = 0; i < k; i++) {
+                if (nuevos[i] == null) {
+                    nulosNuevos.set(desde + i);
+                }
+            }
+            long[] e = null;
+            double[] r = null;
+            Object[] o = null;
+            if (enteros != null) {
+                e = new long[filas];
+                System.arraycopy(enteros, 0, e, 0, desde);
+                System.arraycopy(enteros, desde, e, desde + k, anteriores - desde);
+                for (int i = 0; i < k; i++) {
+                    e[desde + i] = nuevos[i] == null ? 0 : ((Number) nuevos[i]).longValue();
+                }
+            } else if (reales != null) {
+                r = new double[filas];
+                System.arraycopy(reales, 0, r, 0, desde);
+                System.arraycopy(reales, desde, r, desde + k, anteriores - desde);
+                for (int i = 0; i < k; i++) {
+                    r[desde + i] = nuevos[i] == null ? 0 : ((Number) nuevos[i]).doubleValue();
+                }
+            } else {
+                o = new Object[filas];
+                System.arraycopy(objetos, 0, o, 0, desde);
+                System.arraycopy(objetos, desde, o, desde + k, anteriores - desde);
+                System.arraycopy(nuevos, 0, o, desde, k);
+            }
+            IndiceColumna combinado = new IndiceColumna(e, r, o, nulosNuevos, new int[filas], new int[filas], 0);
+
+            // Filas nuevas ordenadas por valor y, en los empates, por fila
+            Integer[] insertadas = new Integer[k];
+            for (int i = 0; i < k; i++) {
+                insertadas[i] = desde + i;
+            }
+            Arrays.sort(insertadas, combinado::compararFilas);
+
+            // Intercalación con la permutación anterior, cuyas filas se desplazan
+            int[] ordenNuevo = combinado.orden;
+            int a = 0;
+            int b = 0;
+            for (int p = 0; p < filas; p++) {
+                int siguienteAnterior = a < anteriores ? desplazar(orden[a], desde, k) : -1;
+                if (b >= k || (siguienteAnterior >= 0 && combinado.compararFilas(siguienteAnterior, insertadas[b]) < 0)) {
+                    ordenNuevo[p] = siguienteAnterior;
+                    a++;
+                } else {
+                    ordenNuevo[p] = insertadas[b++];
+                }
+            }
+
+            // Rangos densos en el orden combinado
+            int[] rangoNuevo = combinado.rango;
+            int maximo = 0;
+            for (int p = 0; p < filas; p++) {
+                int f = ordenNuevo[p];
+                if (nulosNuevos.get(f)) {
+                    continue; // Rango 0
+                }
+                if (maximo == 0 || combinado.compararValores(ordenNuevo[p - 1], f) != 0) {
+                    maximo++;
+                }
+                rangoNuevo[f] = maximo;
+            }
+            return new IndiceColumna(e, r, o, nulosNuevos, ordenNuevo, rangoNuevo, maximo);
+        }
+
+        /**
+         * Fila que ocupa una fila anterior tras insertar {@code k} filas en
+         * {@code desde}.
+         */
+        private static int desplazar(int fila, int desde, int k) {
+            return fila < desde ? fila : fila + k;
+        }
+
+        /**
+         * Compara los valores de dos filas con los nulos primero y, si son
+         * iguales, las filas, para que los empates conserven el orden del
+         * modelo.
+         */
+        private int compararFilas(int a, int b) {
+            int c = compararValores(a, b);
+            return c != 0 ? c : Integer.compare(a, b);
+        }
+
+        /**
+         * Compara los valores de dos filas; el nulo es menor que cualquier
+         * otro valor.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private int compararValores(int a, int b) {
+            boolean nuloA = nulos.get(a);
+            boolean nuloB = nulos.get(b);
+            if (nuloA || nuloB) {
+                return Boolean.compare(nuloB, nuloA);
+            }
+            if (enteros != null || reales != null) {
+                return Long.compare(clave(a), clave(b));
+            }
+            return ((Comparable) objetos[a]).compareTo(objetos[b]);
+        }
+
+        /**
+         * Clave numérica de una fila que conserva el orden de los valores. Los
+         * reales se transforman a un {@code long} cuyo orden con signo coincide
+         * con el de {@link Double#compare(double, double)}.
+         */
+        private long clave(int fila) {
+            if (enteros != null) {
+                return enteros[fila];
+            }
+            long bits = Double.doubleToLongBits(reales[fila]);
+            return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+        }
+
+        /**
+         * Compara un valor buscado con el valor de una fila; el nulo es menor
+         * que cualquier otro valor.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private int compararValor(Object valor, int fila) {
+            boolean nuloFila = nulos.get(fila);
+            if (valor == null || nuloFila) {
+                return valor == null && nuloFila ? 0 : (valor == null ? -1 : 1);
+            }
+            try {
+                if (enteros != null) {
+                    if (valor instanceof Double || valor instanceof Float) {
+                        return Double.compare(((Number) valor).doubleValue(), enteros[fila]);
+                    }
+                    return Long.compare(((Number) valor).longValue(), enteros[fila]);
+                }
+                if (reales != null) {
+                    return Double.compare(((Number) valor).doubleValue(), reales[fila]);
+                }
+                Object clave = objetos[fila];
+                if (clave instanceof String && !(valor instanceof String)) {
+                    valor = valor.toString();
+                }
+                return -((Comparable) clave).compareTo(valor);
+            } catch (ClassCastException e) {
+                throw new IllegalArgumentException("El valor " + valor + " no es comparable con la columna", e);
+            }
+        }
+
+        /**
+         * Busca las posiciones [inicio, fin) de la permutación ascendente con
+         * valores dentro del rango.
+         *
+         * @param igualdad Si es {@code true} los nulos se tratan como valor
+         * buscado; si no, los extremos nulos indican un rango abierto.
+         */
+        private int[] buscarRango(Object desde, Object hasta, boolean igualdad) {
+            int inicio;
+            int fin;
+            if (igualdad) {
+                inicio = primeraMayorOIgual(desde);
+                fin = primeraMayor(hasta);
+            } else {
+                // Los nulos se ordenan primero y no cumplen un rango
+                inicio = desde == null ? nulos.cardinality() : primeraMayorOIgual(desde);
+                fin = hasta == null ? orden.length : primeraMayor(hasta);
+            }
+            return new int[]{inicio, Math.max(inicio, fin)};
+        }
+
+        /**
+         * Primera posición cuyo valor es mayor o igual al indicado.
+         */
+        private int primeraMayorOIgual(Object valor) {
+            int lo = 0;
+            int hi = orden.length;
+            while (lo < hi) {
+                int m = (lo + hi) >>> 1;
+                if (compararValor(valor, orden[m]) > 0) {
+                    lo = m + 1;
+                } else {
+                    hi = m;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * Primera posición cuyo valor es mayor al indicado.
+         */
+        private int primeraMayor(Object valor) {
+            int lo = 0;
+            int hi = orden.length;
+            while (lo < hi) {
+                int m = (lo + hi) >>> 1;
+                if (compararValor(valor, orden[m]) >= 0) {
+                    lo = m + 1;
+                } else {
+                    hi = m;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * Permutación descendente; las filas con valores iguales conservan el
+         * orden del modelo.
+         */
+        private int[] descendente() {
+            int[] resultado = new int[orden.length];
+            int n = 0;
+            int fin = orden.length;
+            while (fin > 0) {
+                int inicio = fin - 1;
+                while (inicio > 0 && rango[orden[inicio - 1]] == rango[orden[fin - 1]]) {
+                    inicio--;
+                }
+                for (int p = inicio; p < fin; p++) {
+                    resultado[n++] = orden[p];
+                }
+                fin = inicio;
+            }
+            return resultado;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package TablaBD.app.com;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * La clase <code>PerfilConexion</code> describe de forma inmutable los datos
+ * necesarios para conectarse a una base de datos: SGBD, base, usuario y
+ * contraseña. A diferencia del estado estático de {@link Conexion}, varios
+ * perfiles pueden usarse al mismo tiempo desde distintos hilos sin que uno
+ * cierre o reemplace la conexión de otro.
+ *
+ * <p>
+ * Cada perfil obtiene sus conexiones del {@link PoolConexiones} que le
+ * corresponde; quien toma una conexión con {@link #getConexion()} debe
+ * devolverla con {@link #liberar(Connection)}.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public final class PerfilConexion {
+
+    // Atributos
+    private final int idSGBD; // Identificador del SGBD (1 para SQL Server, 2 para MySQL)
+    private final String base; // Nombre de la base de datos, puede ser null
+    private final String usuario; // Usuario para la autenticación
+    private final String password; // Contraseña para la autenticación
+    private final String url; // URL JDBC construida a partir de los datos anteriores
+    private final boolean urlPersonalizada; // Indica si la URL fue proporcionada explícitamente
+    private static final String CERTIFICADOS = "encrypt=true; trustServerCertificate=true; characterEncoding=UTF-8;"; // Configuración para la conexión a SQL Server
+
+    /**
+     * Constructor de la clase <code>PerfilConexion</code> para un servidor
+     * local.
+     *
+     * @param idSGBD Identificador del SGBD (1 para SQL Server, 2 para MySQL).
+     * @param base Nombre de la base de datos, o {@code null} para conectarse
+     * sin seleccionar base.
+     * @param usuario Usuario para acceder a la base de datos.
+     * @param password Contraseña del usuario.
+     */
+    public PerfilConexion(int idSGBD, String base, String usuario, String password) {
+        this(idSGBD, base, usuario, password, construirUrl(idSGBD, base, usuario, password), false);
+    }
+
+    /**
+     * Constructor privado común.
+     */
+    private PerfilConexion(int idSGBD, String base, String usuario, String password, String url, boolean urlPersonalizada) {
+        this.idSGBD = idSGBD;
+        this.base = base;
+        this.usuario = usuario;
+        this.password = password;
+        this.url = url;
+        this.urlPersonalizada = urlPersonalizada;
+    }
+
+    /**
+     * Crea un perfil con una URL JDBC explícita, útil para servidores remotos
+     * o bases de datos embebidas.
+     *
+     * @param idSGBD Identificador del SGBD cuyo dialecto SQL se usará.
+     * @param base Nombre de la base de datos a la que apunta la URL.
+     * @param url URL JDBC completa.
+     * @param usuario Usuario para acceder a la base de datos.
+     * @param password Contraseña del usuario.
+     * @return El perfil creado.
+     */
+    public static PerfilConexion deUrl(int idSGBD, String base, String url, String usuario, String password) {
+        return new PerfilConexion(idSGBD, base, usuario, password, Objects.requireNonNull(url, "url"), true);
+    }
+
+    /**
+     * Construye la URL JDBC local para el SGBD indicado.
+     */
+    private static String construirUrl(int idSGBD, String base, String usuario, String password) {
+        switch (idSGBD) {
+            case 1 -> { // SQL Server
+                if (base != null) {
+                    return "jdbc:sqlserver://localhost:1433;" + "database=" + base + ";"
+                            + "user=" + usuario + ";" + "password=" + password + ";" + CERTIFICADOS;
+                }
+                return "jdbc:sqlserver://localhost:1433;"
+                        + "user=" + usuario + ";" + "password=" + password + ";" + CERTIFICADOS;
+            }
+            case 2 -> { // MySQL
+                if (base != null) {
+                    return "jdbc:mysql://localhost:3306/" + base;
+                }
+                return "jdbc:mysql://localhost:3306/?";
+            }
+            default ->
+                throw new IllegalArgumentException("SGBD no soportado: " + idSGBD);
+        }
+    }
+
+    /**
+     * Crea un perfil igual a este pero apuntando a otra base de datos.
+     *
+     * @param otraBase Nombre de la base de datos.
+     * @return Un nuevo perfil con la base indicada.
+     * @throws UnsupportedOperationException Si el perfil fue creado con una URL
+     * explícita.
+     */
+    public PerfilConexion conBase(String otraBase) {
+        if (urlPersonalizada) {
+            throw new UnsupportedOperationException("No se puede cambiar la base de un perfil con URL explícita");
+        }
+        return new PerfilConexion(idSGBD, otraBase, usuario, password);
+    }
+
+    /**
+     * Carga el controlador JDBC correspondiente al SGBD del perfil.
+     */
+    private void cargarControlador() throws SQLException {
+        try {
+            if (!urlPersonalizada) {
+                Class.forName(idSGBD == 1 ? "com.microsoft.sqlserver.jdbc.SQLServerDriver" : "com.mysql.cj.jdbc.Driver");
+            }
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("No se encontró el controlador JDBC: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Toma prestada una conexión del pool de este perfil. Debe devolverse con
+     * {@link #liberar(Connection)}.
+     *
+     * @return Una conexión abierta.
+     * @throws SQLException Si no se pudo obtener la conexión.
+     */
+    public Connection getConexion() throws SQLException {
+        cargarControlador();
+        long inicio = System.nanoTime();
+        Connection conexion = getPool().prestar();
+        MetricasConsulta.registrarConexion(System.nanoTime() - inicio);
+        return conexion;
+    }
+
+    /**
+     * Carga el controlador JDBC y abre en segundo plano el número indicado de
+     * conexiones validadas en el pool del perfil, que se mantienen vivas
+     * mientras estén inactivas. Conviene llamarlo al iniciar la aplicación
+     * para que la primera consulta tenga la latencia habitual.
+     *
+     * @param conexiones Conexiones que se mantienen listas.
+     * @return Un futuro que se completa con el número de conexiones abiertas.
+     * @see PoolConexiones#precalentar(int)
+     */
+    public CompletableFuture<Integer> precalentar(int conexiones) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                cargarControlador(); // La carga de la clase y el registro del controlador también salen del hilo que llama
+                MetricasConsulta.inicializar(); // El registro JMX de las métricas tampoco se paga en la primera consulta
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+            return getPool();
+        }).thenCompose(pool -> pool.precalentar(conexiones));
+    }
+
+    /**
+     * Devuelve una conexión a su pool, o la cierra si no proviene de uno.
+     *
+     * @param conexion La conexión a liberar, puede ser {@code null}.
+     */
+    public static void liberar(Connection conexion) {
+        if (conexion == null || PoolConexiones.devolver(conexion)) {
+            return;
+        }
+        CacheSentencias.descartar(conexion);
+        try {
+            conexion.close();
+        } catch (SQLException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene el pool de conexiones asociado a este perfil.
+     *
+     * @return El pool del perfil.
+     */
+    public PoolConexiones getPool() {
+        return PoolConexiones.obtener(url, usuario, password);
+    }
+
+    /**
+     * Obtiene el identificador del SGBD.
+     *
+     * @return 1 para SQL Server, 2 para MySQL.
+     */
+    public int getIdSGBD() {
+        return idSGBD;
+    }
+
+    /**
+     * Obtiene el nombre de la base de datos.
+     *
+     * @return Nombre de la base, o {@code null} si no se especificó.
+     */
+    public String getBase() {
+        return base;
+    }
+
+    /**
+     * Obtiene el usuario del perfil.
+     *
+     * @return Nombre de usuario.
+     */
+    public String getUsuario() {
+        return usuario;
+    }
+
+    /**
+     * Obtiene la URL JDBC del perfil.
+     *
+     * @return URL de conexión.
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PerfilConexion otro)) {
+            return false;
+        }
+        return idSGBD == otro.idSGBD && url.equals(otro.url) && Objects.equals(base, otro.base)
+                && Objects.equals(usuario, otro.usuario) && Objects.equals(password, otro.password);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(idSGBD, url, base, usuario);
+    }
+
+    @Override
+    public String toString() {
+        return "PerfilConexion[idSGBD=" + idSGBD + ", base=" + base + ", usuario=" + usuario + "]";
+    }
+}
@@ -0,0 +1,754 @@
+package TablaBD.app.com;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * La clase <code>PoolConexiones</code> mantiene un conjunto acotado de
+ * conexiones físicas reutilizables por cada combinación de SGBD, base de datos
+ * y usuario. Evita pagar el costo de TCP, TLS e inicio de sesión en cada
+ * consulta: {@link Conexion#getConexion(int)} toma prestada una conexión del
+ * pool y {@link Conexion#cerrarConexion()} la devuelve en lugar de cerrarla.
+ *
+ * <p>
+ * Cada pool respeta un tamaño mínimo y máximo (abre en segundo plano las
+ * conexiones que falten para el mínimo), desaloja las conexiones que
+ * permanecen inactivas más tiempo del permitido, valida con
+ * {@link Connection#isValid(int)} las conexiones que llevan un tiempo sin usarse
+ * antes de prestarlas y limita la espera de un préstamo cuando todas las
+ * conexiones están ocupadas. Al devolver una conexión se descarta su
+ * transacción pendiente y se restauran el auto-commit, el modo de solo
+ * lectura, el nivel de aislamiento y la base actual que tenía al abrirse.</p>
+ *
+ * <p>
+ * Con {@link #precalentar(int)} el pool abre y valida conexiones en segundo
+ * plano antes de la primera consulta y las conserva aunque queden inactivas:
+ * una tarea periódica las valida con {@link Connection#isValid(int)} para que
+ * el servidor, los firewalls y los balanceadores no las cierren por
+ * inactividad, y repone las que se hayan perdido.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public class PoolConexiones {
+
+    // Configuración por defecto para los pools que se creen a partir de este momento
+    private static volatile int minimoPorDefecto = 0; // Conexiones que se abren por adelantado y nunca se desalojan por inactividad
+    private static volatile int maximoPorDefecto = 10; // Conexiones simultáneas permitidas por pool
+    private static volatile long inactividadMaximaMs = 5 * 60_000L; // Tiempo inactivo tras el cual se desaloja una conexión
+    private static volatile long esperaMaximaMs = 30_000L; // Tiempo máximo de espera de un préstamo
+    private static volatile long umbralValidacionMs = 1_000L; // Inactividad a partir de la cual se valida la conexión al prestarla
+    private static volatile long intervaloKeepaliveMs = 60_000L; // Inactividad tras la cual se valida una conexión precalentada
+    private static final int SEGUNDOS_VALIDACION = 2; // Tiempo límite para isValid()
+
+    // Registro global de pools y de las conexiones prestadas por cada uno
+    private static final Map<String, PoolConexiones> POOLS = new ConcurrentHashMap<>();
+    private static final Map<Connection, PoolConexiones> PRESTAMOS = new ConcurrentHashMap<>();
+
+    // Tarea periódica que desaloja conexiones inactivas aunque nadie use el pool
+    private static final ScheduledExecutorService MANTENIMIENTO = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread hilo = new Thread(r, "TablaBD-pool-mantenimiento");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    // Hilos que abren conexiones en segundo plano, para que abrirlas no retrase el mantenimiento de los pools
+    private static final ExecutorService APERTURA = Executors.newCachedThreadPool(r -> {
+        Thread hilo = new Thread(r, "TablaBD-pool-apertura");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    static {
+        MANTENIMIENTO.scheduleWithFixedDelay(() -> {
+            POOLS.values().forEach(PoolConexiones::desalojarInactivas);
+            CacheSentencias.descartarCerradas();
+        }, 30, 30, TimeUnit.SECONDS);
+    }
+
+    // Atributos
+    private final String url; // URL JDBC con la que se abren las conexiones físicas
+    private final String usuario; // Usuario para la autenticación
+    private final String password; // Contraseña para la autenticación
+    private final int minimo; // Tamaño mínimo del pool: se completa en segundo plano y no se desaloja
+    private final int maximo; // Tamaño máximo del pool
+    private final Semaphore permisos; // Permisos de préstamo disponibles (uno por conexión posible)
+    private final Semaphore turnos; // Turnos de las operaciones asíncronas, compartidos por todas sus fachadas
+    private volatile int retenidas; // Conexiones precalentadas que se conservan y se mantienen vivas
+    private ScheduledFuture<?> keepalive; // Tarea periódica de keepalive, null si el pool no está precalentado
+    private long periodoKeepaliveMs; // Periodo con que se programó la tarea de keepalive
+    private volatile EstadoSesion estadoInicial; // Estado de sesión de las conexiones recién abiertas, null hasta abrir la primera
+    private final AtomicBoolean reponiendo = new AtomicBoolean(); // Indica si hay una reposición de conexiones en curso
+    private final ArrayDeque<ConexionInactiva> inactivas = new ArrayDeque<>(); // Conexiones libres, la más reciente al frente
+
+    // Contadores expuestos para monitoreo
+    private final AtomicLong prestamos = new AtomicLong(); // Préstamos concedidos
+    private final AtomicLong esperaTotalNanos = new AtomicLong(); // Suma del tiempo de espera de los préstamos
+    private final AtomicLong esperaMaximaNanos = new AtomicLong(); // Mayor tiempo de espera observado
+    private final AtomicLong creadas = new AtomicLong(); // Conexiones físicas abiertas
+    private final AtomicLong desalojadas = new AtomicLong(); // Conexiones físicas cerradas por el pool
+    private final AtomicLong activas = new AtomicLong(); // Conexiones actualmente prestadas
+
+    /**
+     * Conexión libre junto con el instante en que fue devuelta al pool. Los
+     * campos mutables se protegen con el bloqueo de la lista de libres.
+     */
+    private static final class ConexionInactiva {
+
+        private final Connection conexion;
+        private final long desdeMs; // Instante en que fue devuelta o abierta
+        private long verificadaMs; // Instante de su último uso o validación
+        private boolean validando; // Indica si el keepalive la está validando; mientras tanto no se presta
+
+        private ConexionInactiva(Connection conexion, long desdeMs) {
+            this(conexion, desdeMs, desdeMs);
+        }
+
+        private ConexionInactiva(Connection conexion, long desdeMs, long verificadaMs) {
+            this.conexion = conexion;
+            this.desdeMs = desdeMs;
+            this.verificadaMs = verificadaMs;
+        }
+    }
+
+    /**
+     * Configuración de sesión con que el servidor entrega una conexión nueva.
+     * Todas las conexiones de un pool usan la misma URL y el mismo usuario,
+     * por lo que comparten este estado.
+     */
+    private record EstadoSesion(boolean soloLectura, int aislamiento, String catalogo) {
+    }
+
+    /**
+     * Constructor privado: los pools se obtienen mediante
+     * {@link #obtener(String, String, String)}.
+     */
+    private PoolConexiones(String url, String usuario, String password, int minimo, int maximo) {
+        this.url = url;
+        this.usuario = usuario;
+        this.password = password;
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.permisos = new Semaphore(maximo, true);
+        this.turnos = new Semaphore(maximo, true);
+    }
+
+    /**
+     * Obtiene el pool asociado a una URL y usuario, creándolo con la
+     * configuración por defecto si todavía no existe.
+     *
+     * @param url URL JDBC de la base de datos.
+     * @param usuario Usuario para la autenticación.
+     * @param password Contraseña para la autenticación.
+     * @return El pool correspondiente.
+     */
+    public static PoolConexiones obtener(String url, String usuario, String password) {
+        String clave = url + '\u0000' + usuario + '\u0000' + password;
+        PoolConexiones pool = POOLS.get(clave);
+        if (pool == null) {
+            pool = POOLS.computeIfAbsent(clave,
+                    k -> new PoolConexiones(url, usuario, password, minimoPorDefecto, maximoPorDefecto));
+            if (pool.minimo > 0) {
+                pool.reponer(pool.minimo); // Abre el mínimo sin retrasar este préstamo
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Configura los valores que usarán los pools creados a partir de este
+     * momento. Los pools existentes conservan su configuración.
+     *
+     * @param minimo Conexiones que cada pool abre en segundo plano y conserva
+     * aunque estén inactivas.
+     * @param maximo Conexiones simultáneas permitidas por pool.
+     * @param inactividadMs Tiempo inactivo tras el cual se desaloja una conexión.
+     * @param esperaMs Tiempo máximo de espera de un préstamo.
+     */
+    public static void configurar(int minimo, int maximo, long inactividadMs, long esperaMs) {
+        if (minimo < 0 || maximo < 1 || minimo > maximo) {
+            throw new IllegalArgumentException("Tamaños de pool inválidos: mínimo=" + minimo + ", máximo=" + maximo);
+        }
+        PoolConexiones.minimoPorDefecto = minimo;
+        PoolConexiones.maximoPorDefecto = maximo;
+        PoolConexiones.inactividadMaximaMs = inactividadMs;
+        PoolConexiones.esperaMaximaMs = esperaMs;
+    }
+
+    /**
+     * Establece la inactividad a partir de la cual una conexión se valida con
+     * {@link Connection#isValid(int)} antes de prestarla. Con {@code 0} se
+     * valida en cada préstamo.
+     *
+     * @param umbralMs Inactividad en milisegundos.
+     */
+    public static void setUmbralValidacion(long umbralMs) {
+        PoolConexiones.umbralValidacionMs = umbralMs;
+    }
+
+    /**
+     * Establece cada cuánto se validan las conexiones precalentadas que siguen
+     * inactivas. Conviene que sea menor que el tiempo de inactividad tras el
+     * cual el servidor o la red cierran una sesión.
+     *
+     * @param intervaloMs Intervalo en milisegundos.
+     */
+    public static void setIntervaloKeepalive(long intervaloMs) {
+        if (intervaloMs < 1) {
+            throw new IllegalArgumentException("El intervalo debe ser positivo");
+        }
+        PoolConexiones.intervaloKeepaliveMs = intervaloMs;
+        for (PoolConexiones pool : POOLS.values()) {
+            if (pool.retenidas > 0) {
+                pool.programarKeepalive(); // Los pools precalentados adoptan el nuevo intervalo
+            }
+        }
+    }
+
+    /**
+     * Programa la tarea de keepalive del pool según el intervalo vigente, o
+     * la reprograma si el intervalo cambió. Se ejecuta dos veces por
+     * intervalo para que ninguna conexión pase mucho más de un intervalo sin
+     * validarse.
+     */
+    private synchronized void programarKeepalive() {
+        long periodo = Math.max(1, intervaloKeepaliveMs / 2);
+        if (keepalive != null && periodo == periodoKeepaliveMs) {
+            return;
+        }
+        if (keepalive != null) {
+            keepalive.cancel(false);
+        }
+        periodoKeepaliveMs = periodo;
+        keepalive = MANTENIMIENTO.scheduleWithFixedDelay(this::mantenerVivas, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Abre en segundo plano conexiones validadas hasta tener el número
+     * indicado (limitado al tamaño máximo del pool), para que la primera
+     * consulta no pague la resolución de nombres, el saludo TLS ni el inicio
+     * de sesión. Las conexiones precalentadas no se desalojan por inactividad:
+     * se validan periódicamente según {@link #setIntervaloKeepalive(long)} y
+     * se reponen si se pierden.
+     *
+     * @param conexiones Conexiones que se mantienen listas.
+     * @return Un futuro que se completa con el número de conexiones abiertas.
+     */
+    public CompletableFuture<Integer> precalentar(int conexiones) {
+        if (conexiones < 0) {
+            throw new IllegalArgumentException("El número de conexiones no puede ser negativo");
+        }
+        retenidas = Math.max(retenidas, Math.min(conexiones, maximo));
+        if (retenidas > 0) {
+            programarKeepalive();
+        }
+        return CompletableFuture.supplyAsync(() -> completar(conexiones), APERTURA);
+    }
+
+    /**
+     * Repone en segundo plano las conexiones libres hasta el número indicado,
+     * salvo que ya haya una reposición en curso.
+     */
+    private void reponer(int objetivo) {
+        if (!reponiendo.compareAndSet(false, true)) {
+            return;
+        }
+        APERTURA.execute(() -> {
+            try {
+                completar(objetivo);
+            } finally {
+                reponiendo.set(false);
+            }
+        });
+    }
+
+    /**
+     * Abre conexiones libres hasta que el pool tenga el número indicado entre
+     * libres y prestadas, sin pasar del máximo. Cada apertura toma un permiso
+     * de préstamo mientras dura, de modo que los préstamos y otras
+     * reposiciones concurrentes la cuentan y el pool no excede su máximo.
+     *
+     * @return Conexiones abiertas.
+     */
+    private int completar(int objetivo) {
+        int abiertas = 0;
+        while (true) {
+            if (!permisos.tryAcquire()) {
+                return abiertas; // Todas las conexiones posibles están prestadas o abriéndose
+            }
+            try {
+                synchronized (inactivas) {
+                    // Los permisos tomados cuentan las conexiones prestadas y las que se están abriendo, incluida esta
+                    if (inactivas.size() + maximo - permisos.availablePermits() > Math.min(objetivo, maximo)) {
+                        return abiertas;
+                    }
+                }
+                Connection conexion;
+                try {
+                    conexion = abrirFisica();
+                    if (!conexion.isValid(SEGUNDOS_VALIDACION)) {
+                        conexion.close();
+                        return abiertas;
+                    }
+                } catch (SQLException e) {
+                    System.err.println("No se pudo precalentar el pool: " + e.getMessage());
+                    return abiertas;
+                }
+                creadas.incrementAndGet();
+                synchronized (inactivas) {
+                    inactivas.addFirst(new ConexionInactiva(conexion, System.currentTimeMillis())); // La más reciente al frente, como al devolverla
+                }
+                abiertas++;
+            } finally {
+                permisos.release();
+            }
+        }
+    }
+
+    /**
+     * Valida las conexiones libres que llevan más del intervalo de keepalive
+     * sin usarse y repone las precalentadas que se hayan cerrado. Solo actúa
+     * en los pools precalentados. Las conexiones se validan una a una sin
+     * sacarlas de la lista de libres, de modo que el pool no parece vacío a
+     * los préstamos concurrentes.
+     */
+    private void mantenerVivas() {
+        if (retenidas == 0) {
+            return;
+        }
+        long limite = System.currentTimeMillis() - intervaloKeepaliveMs;
+        while (true) {
+            ConexionInactiva libre = null;
+            synchronized (inactivas) {
+                Iterator<ConexionInactiva> it = inactivas.descendingIterator(); // De la más antigua a la más reciente
+                while (it.hasNext() && libre == null) {
+                    ConexionInactiva candidata = it.next();
+                    if (candidata.verificadaMs <= limite && !candidata.validando) {
+                        libre = candidata;
+                    }
+                }
+                if (libre == null) {
+                    break;
+                }
+                libre.validando = true; // Se valida fuera del bloqueo para no retrasar los préstamos
+            }
+            boolean valida;
+            try {
+                valida = libre.conexion.isValid(SEGUNDOS_VALIDACION);
+            } catch (SQLException e) {
+                valida = false;
+            }
+            boolean cerrar = false;
+            synchronized (inactivas) {
+                libre.validando = false;
+                if (valida) {
+                    libre.verificadaMs = System.currentTimeMillis();
+                } else {
+                    cerrar = inactivas.remove(libre); // Si ya no está, otro hilo la cerró
+                }
+                inactivas.notifyAll(); // Despierta a los préstamos que esperaban esta conexión
+            }
+            if (cerrar) {
+                cerrarFisica(libre.conexion);
+            }
+        }
+        reponer(Math.max(minimo, retenidas));
+    }
+
+    /**
+     * Toma prestada una conexión del pool. Reutiliza la conexión libre más
+     * reciente o abre una nueva si no hay libres y no se ha alcanzado el
+     * máximo; en caso contrario espera hasta el tiempo máximo configurado.
+     *
+     * @return Una conexión abierta y válida.
+     * @throws SQLException Si no se obtuvo una conexión a tiempo o si falla la
+     * apertura de una conexión nueva.
+     */
+    public Connection prestar() throws SQLException {
+        long inicio = System.nanoTime();
+        try {
+            if (!permisos.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("No hay conexiones disponibles tras " + esperaMaximaMs + " ms de espera");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido mientras se esperaba una conexión", e);
+        }
+
+        try {
+            Connection conexion = tomarInactiva();
+            if (conexion == null) {
+                conexion = abrirFisica();
+                creadas.incrementAndGet();
+            }
+            PRESTAMOS.put(conexion, this);
+            activas.incrementAndGet();
+            registrarEspera(System.nanoTime() - inicio);
+            return conexion;
+        } catch (SQLException | RuntimeException e) {
+            permisos.release(); // El permiso no se consumió
+            throw e;
+        }
+    }
+
+    /**
+     * Abre una conexión física nueva y, si es la primera del pool, registra
+     * su estado de sesión para restaurarlo al devolver cada conexión.
+     *
+     * @return La conexión abierta.
+     * @throws SQLException Si falla la apertura.
+     */
+    private Connection abrirFisica() throws SQLException {
+        Connection conexion = DriverManager.getConnection(url, usuario, password);
+        if (estadoInicial == null) {
+            try {
+                estadoInicial = new EstadoSesion(conexion.isReadOnly(), conexion.getTransactionIsolation(), conexion.getCatalog());
+            } catch (SQLException e) {
+                conexion.close();
+                throw e;
+            }
+        }
+        return conexion;
+    }
+
+    /**
+     * Extrae la conexión libre más reciente que siga siendo válida,
+     * desechando las que expiraron o fallan la validación.
+     *
+     * @return Una conexión reutilizable, o {@code null} si no hay ninguna.
+     */
+    private Connection tomarInactiva() {
+        while (true) {
+            ConexionInactiva libre = tomarLibre();
+            if (libre == null) {
+                return null;
+            }
+            long inactivoMs = System.currentTimeMillis() - libre.verificadaMs; // El keepalive cuenta como uso
+            if (inactivoMs > inactividadMaximaMs) {
+                cerrarFisica(libre.conexion);
+                continue;
+            }
+            if (inactivoMs >= umbralValidacionMs) {
+                try {
+                    if (!libre.conexion.isValid(SEGUNDOS_VALIDACION)) {
+                        cerrarFisica(libre.conexion);
+                        continue;
+                    }
+                } catch (SQLException e) {
+                    cerrarFisica(libre.conexion);
+                    continue;
+                }
+            }
+            return libre.conexion;
+        }
+    }
+
+    /**
+     * Saca de la lista la conexión libre más reciente que no se esté
+     * validando. Si solo quedan conexiones en validación, espera a que el
+     * keepalive termine con ellas en lugar de abrir una nueva.
+     *
+     * @return La conexión libre, o {@code null} si no hay ninguna.
+     */
+    private ConexionInactiva tomarLibre() {
+        synchronized (inactivas) {
+            while (true) {
+                boolean enValidacion = false;
+                Iterator<ConexionInactiva> it = inactivas.iterator();
+                while (it.hasNext()) {
+                    ConexionInactiva libre = it.next();
+                    if (libre.validando) {
+                        enValidacion = true;
+                        continue;
+                    }
+                    it.remove();
+                    return libre;
+                }
+                if (!enValidacion) {
+                    return null;
+                }
+                try {
+                    inactivas.wait(SEGUNDOS_VALIDACION * 1000L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Devuelve una conexión al pool que la prestó. Si la conexión no fue
+     * prestada por ningún pool (o ya fue devuelta) no se hace nada.
+     *
+     * @param conexion La conexión a devolver.
+     * @return {@code true} si la conexión pertenecía a un pool.
+     */
+    public static boolean devolver(Connection conexion) {
+        if (conexion == null) {
+            return false;
+        }
+        PoolConexiones pool = PRESTAMOS.remove(conexion);
+        if (pool == null) {
+            return false;
+        }
+        pool.recibir(conexion);
+        return true;
+    }
+
+    /**
+     * Indica si una conexión está prestada por algún pool.
+     *
+     * @param conexion La conexión.
+     * @return {@code true} si proviene de un pool y no se ha devuelto.
+     */
+    static boolean esPrestada(Connection conexion) {
+        return PRESTAMOS.containsKey(conexion);
+    }
+
+    /**
+     * Reincorpora una conexión devuelta a la lista de libres. Descarta la
+     * transacción sin confirmar y restaura el auto-commit, el modo de solo
+     * lectura, el nivel de aislamiento y la base actual, para que quien la
+     * tome después no herede la configuración del préstamo anterior. Si no se
+     * puede restaurar, la conexión se cierra.
+     */
+    private void recibir(Connection conexion) {
+        activas.decrementAndGet();
+        try {
+            if (conexion.isClosed()) {
+                CacheSentencias.descartar(conexion);
+                desalojadas.incrementAndGet();
+                return;
+            }
+            if (!conexion.getAutoCommit()) {
+                conexion.rollback(); // Descarta trabajo sin confirmar antes de reutilizarla
+                conexion.setAutoCommit(true);
+            }
+            EstadoSesion estado = estadoInicial;
+            if (estado != null) {
+                if (conexion.isReadOnly() != estado.soloLectura()) {
+                    conexion.setReadOnly(estado.soloLectura());
+                }
+                if (conexion.getTransactionIsolation() != estado.aislamiento()) {
+                    conexion.setTransactionIsolation(estado.aislamiento());
+                }
+                if (estado.catalogo() != null && !Objects.equals(conexion.getCatalog(), estado.catalogo())) {
+                    conexion.setCatalog(estado.catalogo());
+                }
+            }
+            synchronized (inactivas) {
+                inactivas.addFirst(new ConexionInactiva(conexion, System.currentTimeMillis()));
+            }
+        } catch (SQLException e) {
+            cerrarFisica(conexion);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    /**
+     * Cierra las conexiones libres que superaron el tiempo de inactividad,
+     * conservando al menos el tamaño mínimo del pool y las precalentadas, y
+     * repone el mínimo si faltan conexiones.
+     */
+    private void desalojarInactivas() {
+        long limite = System.currentTimeMillis() - inactividadMaximaMs;
+        int conservar = Math.max(minimo, retenidas);
+        synchronized (inactivas) {
+            Iterator<ConexionInactiva> it = inactivas.descendingIterator(); // De la más antigua a la más reciente
+            while (it.hasNext() && inactivas.size() + activas.get() > conservar) {
+                ConexionInactiva libre = it.next();
+                if (libre.desdeMs > limite) {
+                    break;
+                }
+                if (libre.validando) {
+                    continue; // El keepalive la cierra si falla la validación
+                }
+                it.remove();
+                cerrarFisica(libre.conexion);
+            }
+        }
+        if (conservar > 0) {
+            reponer(conservar);
+        }
+    }
+
+    /**
+     * Cierra la conexión física ignorando los errores de cierre.
+     */
+    private void cerrarFisica(Connection conexion) {
+        desalojadas.incrementAndGet();
+        CacheSentencias.descartar(conexion); // Cierra sus sentencias preparadas
+        try {
+            conexion.close();
+        } catch (SQLException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Acumula el tiempo de espera de un préstamo en los contadores.
+     */
+    private void registrarEspera(long nanos) {
+        prestamos.incrementAndGet();
+        esperaTotalNanos.addAndGet(nanos);
+        esperaMaximaNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Cancela la tarea de keepalive y deja de conservar conexiones
+     * precalentadas. Un {@link #precalentar(int)} posterior la vuelve a
+     * programar.
+     */
+    private synchronized void detenerKeepalive() {
+        retenidas = 0;
+        if (keepalive != null) {
+            keepalive.cancel(false);
+            keepalive = null;
+        }
+    }
+
+    /**
+     * Cierra todas las conexiones libres de todos los pools y detiene su
+     * keepalive. Las conexiones prestadas no se cierran: vuelven a la lista de
+     * libres al devolverse. Los pools siguen siendo utilizables: abren
+     * conexiones nuevas en el siguiente préstamo y pueden volver a
+     * precalentarse.
+     */
+    public static void cerrarTodos() {
+        for (PoolConexiones pool : POOLS.values()) {
+            pool.detenerKeepalive();
+            synchronized (pool.inactivas) {
+                for (ConexionInactiva libre : pool.inactivas) {
+                    pool.cerrarFisica(libre.conexion);
+                }
+                pool.inactivas.clear();
+            }
+        }
+    }
+
+    /**
+     * Obtiene el número de conexiones prestadas en este momento.
+     *
+     * @return Conexiones activas.
+     */
+    public int getConexionesActivas() {
+        return (int) activas.get();
+    }
+
+    /**
+     * Obtiene el número de conexiones libres en el pool.
+     *
+     * @return Conexiones inactivas.
+     */
+    public int getConexionesInactivas() {
+        synchronized (inactivas) {
+            return inactivas.size();
+        }
+    }
+
+    /**
+     * Obtiene el número de préstamos concedidos desde la creación del pool.
+     *
+     * @return Total de préstamos.
+     */
+    public long getTotalPrestamos() {
+        return prestamos.get();
+    }
+
+    /**
+     * Obtiene el tiempo de espera promedio de un préstamo.
+     *
+     * @return Espera promedio en milisegundos.
+     */
+    public double getEsperaPromedioMs() {
+        long total = prestamos.get();
+        return total == 0 ? 0 : esperaTotalNanos.get() / 1_000_000.0 / total;
+    }
+
+    /**
+     * Obtiene el mayor tiempo de espera observado en un préstamo.
+     *
+     * @return Espera máxima en milisegundos.
+     */
+    public double getEsperaMaximaMs() {
+        return esperaMaximaNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Obtiene el número de conexiones físicas abiertas por el pool.
+     *
+     * @return Total de conexiones creadas.
+     */
+    public long getTotalCreadas() {
+        return creadas.get();
+    }
+
+    /**
+     * Obtiene el número de conexiones físicas cerradas por expiración,
+     * validación fallida o cierre externo.
+     *
+     * @return Total de conexiones desalojadas.
+     */
+    public long getTotalDesalojadas() {
+        return desalojadas.get();
+    }
+
+    /**
+     * Obtiene el tamaño mínimo del pool.
+     *
+     * @return Conexiones mínimas.
+     */
+    public int getMinimo() {
+        return minimo;
+    }
+
+    /**
+     * Obtiene el número de conexiones precalentadas que el pool conserva.
+     *
+     * @return Conexiones retenidas.
+     */
+    public int getRetenidas() {
+        return retenidas;
+    }
+
+    /**
+     * Obtiene el tamaño máximo del pool.
+     *
+     * @return Conexiones máximas.
+     */
+    public int getMaximo() {
+        return maximo;
+    }
+
+    /**
+     * Obtiene el semáforo que reparte los turnos de las operaciones de
+     * {@link ConsultaAsincrona} sobre este pool. Es uno por pool, de modo que
+     * varias fachadas sobre el mismo perfil no pasan juntas de su tamaño
+     * máximo ni esperan conexión dentro de {@link #prestar()}.
+     *
+     * @return El semáforo, con tantos permisos como conexiones máximas.
+     */
+    Semaphore getTurnos() {
+        return turnos;
+    }
+}
@@ -0,0 +1,33 @@
+package TablaBD.app.com;
+
+/**
+ * Interfaz para recibir el avance de una carga en segundo plano de
+ * {@link ModeloDatos}. Todos los métodos se invocan en el hilo de despacho de
+ * eventos de Swing, por lo que pueden actualizar componentes directamente.
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public interface ProgresoCarga {
+
+    /**
+     * Se invoca después de que un lote de filas se agregó al modelo.
+     *
+     * @param filas Filas leídas hasta el momento.
+     * @param milisegundos Tiempo transcurrido desde el inicio de la carga.
+     */
+    void progreso(long filas, long milisegundos);
+
+    /**
+     * Se invoca una sola vez al terminar la carga, ya sea por completarse,
+     * por cancelación o por error.
+     *
+     * @param filas Filas leídas en total.
+     * @param milisegundos Duración total de la carga.
+     * @param cancelada {@code true} si la carga fue cancelada.
+     * @param error La excepción que detuvo la carga, o {@code null} si no hubo
+     * error.
+     */
+    default void terminado(long filas, long milisegundos, boolean cancelada, Exception error) {
+    }
+}
@@ -0,0 +1,494 @@
+package TablaBD.app.com;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estado del refresco incremental de un {@link ModeloDatos}. Recuerda la
+ * mayor versión leída de la tabla (una columna {@code rowversion} en SQL
+ * Server o una columna de marca de tiempo de actualización en MySQL) y la
+ * fila del modelo de cada clave primaria, de modo que un refresco solo lee
+ * las filas modificadas o insertadas desde el anterior.
+ *
+ * <p>
+ * Una versión se asigna al escribir la fila, no al confirmar la transacción,
+ * por lo que una transacción lenta puede confirmar filas con una versión
+ * menor que la última leída. En SQL Server la lectura se limita a las
+ * versiones menores que {@code MIN_ACTIVE_ROWVERSION()}, que ya están
+ * confirmadas, y la marca solo avanza hasta lo leído. Con una marca de tiempo
+ * se vuelve a leer un margen de {@value #MARGEN_MARCA_TIEMPO_MS} ms antes de
+ * la marca; las filas releídas sin cambios no se notifican.</p>
+ *
+ * <p>
+ * Las eliminaciones no cambian ninguna versión. Para detectarlas se compara
+ * {@code COUNT(*)} con el número de filas esperado y, solo si difieren, se
+ * leen las claves primarias de la tabla.</p>
+ *
+ * <p>
+ * El refresco se divide en {@link #leer()}, que consulta la base de datos y
+ * puede ejecutarse en un hilo de trabajo, y {@link #aplicar(Cambios)}, que
+ * modifica el modelo y debe ejecutarse en el hilo de despacho de eventos si
+ * el modelo está mostrado en una tabla.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+final class RefrescoIncremental {
+
+    /**
+     * Milisegundos antes de la última marca de tiempo leída que se vuelven a
+     * leer, para alcanzar las filas de transacciones que confirman tarde.
+     */
+    static final long MARGEN_MARCA_TIEMPO_MS = 5_000L;
+
+    // Atributos
+    private final ModeloDatos modelo; // Modelo refrescado
+    private final PerfilConexion perfil; // Perfil con el que se consulta la tabla
+    private final String tabla; // Tabla de origen de las filas
+    private final Dialecto dialecto; // Dialecto SQL del SGBD
+    private final List<String> columnasClave; // Columnas de la clave primaria
+    private final String columnaVersion; // Columna de versión o de marca de tiempo
+    private final boolean versionEstricta; // rowversion es única y creciente; una marca de tiempo puede repetirse
+    private final int[] indicesClave; // Posición de cada columna clave en el modelo
+    private final int indiceVersion; // Posición de la columna de versión en el modelo
+    private volatile Map<List<Object>, Integer> filaDeClave = new ConcurrentHashMap<>(); // Fila del modelo de cada clave; leer() la consulta mientras aplicar() la modifica
+    private volatile Object ultimaVersion; // Mayor versión aplicada al modelo
+    private volatile boolean detectarEliminaciones = true; // Comprobar si se eliminaron filas
+
+    /**
+     * Cambios leídos de la base de datos pendientes de aplicar al modelo.
+     */
+    static final class Cambios {
+
+        private final List<Object[]> filas; // Filas modificadas o insertadas, en el orden de columnas del modelo
+        private final Set<List<Object>> clavesVigentes; // Claves existentes en la tabla, null si no hubo eliminaciones
+
+        private Cambios(List<Object[]> filas, Set<List<Object>> clavesVigentes) {
+            this.filas = filas;
+            this.clavesVigentes = clavesVigentes;
+        }
+    }
+
+    /**
+     * Prepara el refresco incremental a partir de los datos ya cargados en el
+     * modelo.
+     *
+     * @param modelo El modelo a refrescar, cargado desde la tabla.
+     * @param perfil El perfil de conexión del modelo.
+     * @param tabla Nombre de la tabla de origen.
+     * @param columnaVersion Columna de versión, o {@code null} para buscar la
+     * columna {@code rowversion} de la tabla en SQL Server.
+     * @throws SQLException Si no se pueden leer los metadatos o faltan
+     * columnas en el modelo.
+     */
+    RefrescoIncremental(ModeloDatos modelo, PerfilConexion perfil, String tabla, String columnaVersion) throws SQLException {
+        this.modelo = modelo;
+        this.perfil = perfil;
+        this.tabla = tabla;
+        this.dialecto = Dialecto.desdeId(perfil.getIdSGBD());
+
+        EsquemaTabla esquema;
+        Connection conn = perfil.getConexion();
+        try {
+            esquema = Consulta.getEsquemaTabla(conn, tabla, perfil.getBase());
+        } finally {
+            PerfilConexion.liberar(conn);
+        }
+        columnasClave = esquema.getClavesPrimarias();
+        if (columnasClave.isEmpty()) {
+            throw new SQLException("La tabla " + tabla + " no tiene clave primaria");
+        }
+        String version = columnaVersion != null ? columnaVersion : buscarRowversion(esquema);
+        if (version == null) {
+            throw new SQLException("La tabla " + tabla + " no tiene una columna rowversion; indique la columna de versión");
+        }
+        int i = esquema.indiceDe(version);
+        String tipo = i >= 0 ? esquema.getNombresTipo().get(i).toLowerCase(Locale.ROOT) : "";
+        this.columnaVersion = version;
+        this.versionEstricta = dialecto == Dialecto.SQL_SERVER && (tipo.equals("timestamp") || tipo.equals("rowversion"));
+
+        indicesClave = new int[columnasClave.size()];
+        for (int k = 0; k < indicesClave.length; k++) {
+            indicesClave[k] = indiceEnModelo(columnasClave.get(k));
+        }
+        indiceVersion = indiceEnModelo(version);
+
+        // Estado inicial a partir de las filas cargadas; en SQL Server la marca no pasa de lo ya confirmado
+        Object confirmada = versionEstricta ? minimaVersionActiva() : null;
+        for (int f = 0; f < modelo.getRowCount(); f++) {
+            filaDeClave.put(claveDeFila(f), f);
+            Object v = modelo.getValueAt(f, indiceVersion);
+            if (v != null && (confirmada == null || compararVersiones(v, confirmada) < 0)
+                    && (ultimaVersion == null || compararVersiones(v, ultimaVersion) > 0)) {
+                ultimaVersion = v;
+            }
+        }
+    }
+
+    /**
+     * Obtiene la menor versión que puede tener una transacción activa de SQL
+     * Server; todas las versiones menores ya están confirmadas.
+     */
+    private Object minimaVersionActiva() throws SQLException {
+        Connection conn = perfil.getConexion();
+        try {
+            PreparedStatement pstmt = CacheSentencias.preparar(conn, "SELECT MIN_ACTIVE_ROWVERSION()");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getBytes(1) : null;
+            }
+        } finally {
+            PerfilConexion.liberar(conn);
+        }
+    }
+
+    /**
+     * Busca la columna {@code rowversion} (reportada como {@code timestamp}).
+     */
+    private static String buscarRowversion(EsquemaTabla esquema) {
+        for (int i = 0; i < esquema.getColumnas().size(); i++) {
+            String tipo = esquema.getNombresTipo().get(i);
+            if ("timestamp".equalsIgnoreCase(tipo) || "rowversion".equalsIgnoreCase(tipo)) {
+                return esquema.getColumnas().get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Busca la posición de una columna en el modelo.
+     */
+    private int indiceEnModelo(String columna) throws SQLException {
+        for (int c = 0; c < modelo.getColumnCount(); c++) {
+            if (modelo.getColumnName(c).equalsIgnoreCase(columna)) {
+                return c;
+            }
+        }
+        throw new SQLException("El modelo no contiene la columna " + columna);
+    }
+
+    /**
+     * Activa o desactiva la detección de filas eliminadas.
+     *
+     * @param detectar {@code true} para detectar eliminaciones.
+     */
+    void setDetectarEliminaciones(boolean detectar) {
+        this.detectarEliminaciones = detectar;
+    }
+
+    /**
+     * Lee las filas modificadas o insertadas desde el último refresco y, si
+     * está activa la detección, las claves vigentes cuando hubo
+     * eliminaciones.
+     *
+     * @return Los cambios a aplicar.
+     * @throws SQLException Si falla alguna consulta.
+     */
+    Cambios leer() throws SQLException {
+        String version = dialecto.citar(columnaVersion);
+        Object desde = versionEstricta ? ultimaVersion : conMargen(ultimaVersion);
+        List<String> condiciones = new ArrayList<>();
+        if (desde != null) {
+            condiciones.add(version + (versionEstricta ? " > ?" : " >= ?"));
+        }
+        if (versionEstricta) {
+            condiciones.add(version + " < MIN_ACTIVE_ROWVERSION()"); // Solo versiones ya confirmadas
+        }
+        String sql = "SELECT * FROM " + tabla
+                + (condiciones.isEmpty() ? "" : " WHERE " + String.join(" AND ", condiciones))
+                + " ORDER BY " + version;
+        List<Object[]> filas = new ArrayList<>();
+        Set<List<Object>> vigentes = null;
+        Connection conn = perfil.getConexion();
+        try {
+            PreparedStatement pstmt = CacheSentencias.preparar(conn, sql);
+            if (desde != null) {
+                pstmt.setObject(1, desde);
+            }
+            long inicio = System.nanoTime();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                MetricasConsulta.registrarEjecucion(sql, System.nanoTime() - inicio);
+                int[] destino = mapearColumnas(rs.getMetaData());
+                while (rs.next()) {
+                    Object[] fila = new Object[modelo.getColumnCount()];
+                    for (int i = 0; i < destino.length; i++) {
+                        if (destino[i] >= 0) {
+                            fila[destino[i]] = rs.getObject(i + 1);
+                        }
+                    }
+                    filas.add(fila);
+                }
+            }
+            if (detectarEliminaciones && huboEliminaciones(conn, filas)) {
+                vigentes = leerClaves(conn);
+            }
+        } finally {
+            PerfilConexion.liberar(conn);
+        }
+        return new Cambios(filas, vigentes);
+    }
+
+    /**
+     * Retrocede una marca de tiempo el margen de las transacciones que
+     * confirman tarde. Las versiones que no son fechas se usan tal cual.
+     */
+    private static Object conMargen(Object marca) {
+        if (marca == null) {
+            return null;
+        }
+        Object normalizada = normalizar(marca);
+        if (normalizada instanceof LocalDateTime momento) {
+            return Timestamp.valueOf(momento.minusNanos(MARGEN_MARCA_TIEMPO_MS * 1_000_000L));
+        }
+        return marca;
+    }
+
+    /**
+     * Relaciona las columnas del resultado con las del modelo.
+     */
+    private int[] mapearColumnas(ResultSetMetaData md) throws SQLException {
+        int[] destino = new int[md.getColumnCount()];
+        for (int i = 0; i < destino.length; i++) {
+            destino[i] = -1;
+            String nombre = md.getColumnName(i + 1);
+            for (int c = 0; c < modelo.getColumnCount(); c++) {
+                if (modelo.getColumnName(c).equalsIgnoreCase(nombre)) {
+                    destino[i] = c;
+                    break;
+                }
+            }
+        }
+        return destino;
+    }
+
+    /**
+     * Compara el número de filas de la tabla con el esperado después de
+     * aplicar las inserciones leídas.
+     */
+    private boolean huboEliminaciones(Connection conn, List<Object[]> filas) throws SQLException {
+        // Si aplicar() cambia el índice mientras tanto, la cuenta solo puede sobrar una lectura de claves
+        Map<List<Object>, Integer> indice = filaDeClave;
+        int nuevas = 0;
+        Set<List<Object>> vistas = new HashSet<>();
+        for (Object[] fila : filas) {
+            List<Object> clave = claveDe(fila);
+            if (!indice.containsKey(clave) && vistas.add(clave)) {
+                nuevas++;
+            }
+        }
+        long esperadas = indice.size() + nuevas;
+        PreparedStatement pstmt = CacheSentencias.preparar(conn, "SELECT COUNT(*) FROM " + tabla);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1) != esperadas;
+        }
+    }
+
+    /**
+     * Lee todas las claves primarias de la tabla.
+     */
+    private Set<List<Object>> leerClaves(Connection conn) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int k = 0; k < columnasClave.size(); k++) {
+            sql.append(k > 0 ? ", " : "").append(dialecto.citar(columnasClave.get(k)));
+        }
+        sql.append(" FROM ").append(tabla);
+        Set<List<Object>> claves = new HashSet<>();
+        try (ResultSet rs = Consulta.executeQueryStreaming(conn, sql.toString())) {
+            while (rs.next()) {
+                Object[] valores = new Object[columnasClave.size()];
+                for (int k = 0; k < valores.length; k++) {
+                    valores[k] = rs.getObject(k + 1);
+                }
+                claves.add(Arrays.asList(valores));
+            }
+        }
+        return claves;
+    }
+
+    /**
+     * Aplica los cambios al modelo y notifica cada fila modificada,
+     * insertada o eliminada.
+     *
+     * @param cambios Los cambios leídos con {@link #leer()}.
+     * @return El número de filas afectadas.
+     */
+    int aplicar(Cambios cambios) {
+        int afectadas = 0;
+        int primeraNueva = -1;
+        for (Object[] fila : cambios.filas) {
+            List<Object> clave = claveDe(fila);
+            Integer existente = filaDeClave.get(clave);
+            if (existente != null && sinCambios(existente, fila)) {
+                continue; // Releída por el margen de la marca, o por la carga inicial en SQL Server
+            }
+            if (existente != null) {
+                modelo.reemplazarFila(existente, fila);
+                modelo.fireTableRowsUpdated(existente, existente);
+            } else {
+                int nueva = modelo.agregarFila(fila);
+                filaDeClave.put(clave, nueva);
+                primeraNueva = primeraNueva < 0 ? nueva : primeraNueva;
+            }
+            afectadas++;
+            Object v = fila[indiceVersion];
+            if (v != null && (ultimaVersion == null || compararVersiones(v, ultimaVersion) > 0)) {
+                ultimaVersion = v;
+            }
+        }
+        if (primeraNueva >= 0) {
+            modelo.fireTableRowsInserted(primeraNueva, modelo.getRowCount() - 1);
+        }
+
+        if (cambios.clavesVigentes != null) {
+            // Se eliminan de la última a la primera para que los índices pendientes sigan siendo válidos
+            List<Integer> eliminadas = new ArrayList<>();
+            for (Map.Entry<List<Object>, Integer> e : filaDeClave.entrySet()) {
+                if (!cambios.clavesVigentes.contains(e.getKey())) {
+                    eliminadas.add(e.getValue());
+                }
+            }
+            eliminadas.sort(null);
+            for (int i = eliminadas.size() - 1; i >= 0; i--) {
+                int fila = eliminadas.get(i);
+                modelo.eliminarFila(fila);
+                modelo.fireTableRowsDeleted(fila, fila);
+            }
+            if (!eliminadas.isEmpty()) {
+                afectadas += eliminadas.size();
+                reindexar();
+            }
+        }
+        return afectadas;
+    }
+
+    /**
+     * Indica si una fila leída tiene los mismos valores que la del modelo.
+     */
+    private boolean sinCambios(int existente, Object[] fila) {
+        for (int c = 0; c < fila.length; c++) {
+            if (!Objects.deepEquals(modelo.getValueAt(existente, c), fila[c])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reconstruye la relación entre claves y filas tras eliminar filas. El
+     * índice nuevo se publica completo, de modo que un hilo de trabajo nunca
+     * ve uno a medio construir.
+     */
+    private void reindexar() {
+        Map<List<Object>, Integer> indice = new ConcurrentHashMap<>();
+        for (int f = 0; f < modelo.getRowCount(); f++) {
+            indice.put(claveDeFila(f), f);
+        }
+        filaDeClave = indice;
+    }
+
+    /**
+     * Obtiene la clave primaria de una fila del modelo.
+     */
+    private List<Object> claveDeFila(int fila) {
+        Object[] valores = new Object[indicesClave.length];
+        for (int k = 0; k < valores.length; k++) {
+            valores[k] = modelo.getValueAt(fila, indicesClave[k]);
+        }
+        return Arrays.asList(valores);
+    }
+
+    /**
+     * Obtiene la clave primaria de una fila leída.
+     */
+    private List<Object> claveDe(Object[] fila) {
+        Object[] valores = new Object[indicesClave.length];
+        for (int k = 0; k < valores.length; k++) {
+            valores[k] = fila[indicesClave[k]];
+        }
+        return Arrays.asList(valores);
+    }
+
+    /**
+     * Compara dos versiones: los {@code rowversion} (arreglos de bytes) como
+     * números sin signo y los demás valores por su orden natural, después de
+     * llevarlos a un tipo común. Así se comparan, por ejemplo, un
+     * {@link Timestamp} leído con la carga inicial y un {@link LocalDateTime}
+     * leído en un refresco, o un {@code Integer} y un {@code Long}.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compararVersiones(Object a, Object b) {
+        if (a instanceof byte[] x && b instanceof byte[] y) {
+            return Arrays.compareUnsigned(x, y);
+        }
+        Object x = normalizar(a);
+        Object y = normalizar(b);
+        if (x.getClass() != y.getClass()) {
+            return x.toString().compareTo(y.toString()); // Tipos sin orden común
+        }
+        return ((Comparable) x).compareTo(y);
+    }
+
+    /**
+     * Lleva una versión a un tipo común de su familia: los números a
+     * {@link BigDecimal} y las fechas y marcas de tiempo a
+     * {@link LocalDateTime} en la zona del sistema, que es la que usan los
+     * controladores JDBC para {@link Timestamp}.
+     */
+    private static Object normalizar(Object valor) {
+        if (valor instanceof BigDecimal d) {
+            return d;
+        }
+        if (valor instanceof BigInteger i) {
+            return new BigDecimal(i);
+        }
+        if (valor instanceof Double || valor instanceof Float) {
+            return BigDecimal.valueOf(((Number) valor).doubleValue());
+        }
+        if (valor instanceof Number n) {
+            return BigDecimal.valueOf(n.longValue());
+        }
+        if (valor instanceof Timestamp t) {
+            return t.toLocalDateTime();
+        }
+        if (valor instanceof java.sql.Date d) {
+            return d.toLocalDate().atStartOfDay();
+        }
+        if (valor instanceof java.util.Date d) {
+            return LocalDateTime.ofInstant(d.toInstant(), ZoneId.systemDefault());
+        }
+        if (valor instanceof LocalDate d) {
+            return d.atStartOfDay();
+        }
+        if (valor instanceof OffsetDateTime o) {
+            return o.atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        }
+        if (valor instanceof ZonedDateTime z) {
+            return z.withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        }
+        if (valor instanceof Instant i) {
+            return LocalDateTime.ofInstant(i, ZoneId.systemDefault());
+        }
+        return valor;
+    }
+}
@@ -0,0 +1,116 @@
+package TablaBD.app.com;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Resumen inmutable de las métricas de una consulta, publicado por
+ * {@link MetricasConsultaMXBean}. Los tiempos están en milisegundos.
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public class ResumenOperacion {
+
+    // Atributos
+    private final String huella; // Texto SQL normalizado
+    private final long ejecuciones; // Número de ejecuciones
+    private final long filas; // Filas leídas en total
+    private final long filasEscritas; // Filas escritas en total
+    private final double conexionPromedioMs; // Tiempo promedio de obtención de la conexión
+    private final double ejecucionPromedioMs; // Tiempo promedio de ejecución
+    private final double lecturaPromedioMs; // Tiempo promedio de lectura de filas
+    private final double filasPorSegundo; // Velocidad de lectura
+    private final double p50Ms; // Mediana de la latencia de ejecución
+    private final double p95Ms; // Percentil 95 de la latencia de ejecución
+    private final double p99Ms; // Percentil 99 de la latencia de ejecución
+    private final double maximoMs; // Latencia de ejecución máxima
+
+    /**
+     * Constructor de la clase <code>ResumenOperacion</code>.
+     *
+     * @param huella Texto SQL normalizado.
+     * @param ejecuciones Número de ejecuciones.
+     * @param filas Filas leídas en total.
+     * @param filasEscritas Filas escritas en total.
+     * @param conexionPromedioMs Tiempo promedio de obtención de la conexión.
+     * @param ejecucionPromedioMs Tiempo promedio de ejecución.
+     * @param lecturaPromedioMs Tiempo promedio de lectura de filas.
+     * @param filasPorSegundo Velocidad de lectura.
+     * @param p50Ms Mediana de la latencia de ejecución.
+     * @param p95Ms Percentil 95 de la latencia de ejecución.
+     * @param p99Ms Percentil 99 de la latencia de ejecución.
+     * @param maximoMs Latencia de ejecución máxima.
+     */
+    @ConstructorProperties({"huella", "ejecuciones", "filas", "filasEscritas", "conexionPromedioMs", "ejecucionPromedioMs",
+        "lecturaPromedioMs", "filasPorSegundo", "p50Ms", "p95Ms", "p99Ms", "maximoMs"})
+    public ResumenOperacion(String huella, long ejecuciones, long filas, long filasEscritas, double conexionPromedioMs,
+            double ejecucionPromedioMs, double lecturaPromedioMs, double filasPorSegundo,
+            double p50Ms, double p95Ms, double p99Ms, double maximoMs) {
+        this.huella = huella;
+        this.ejecuciones = ejecuciones;
+        this.filas = filas;
+        this.filasEscritas = filasEscritas;
+        this.conexionPromedioMs = conexionPromedioMs;
+        this.ejecucionPromedioMs = ejecucionPromedioMs;
+        this.lecturaPromedioMs = lecturaPromedioMs;
+        this.filasPorSegundo = filasPorSegundo;
+        this.p50Ms = p50Ms;
+        this.p95Ms = p95Ms;
+        this.p99Ms = p99Ms;
+        this.maximoMs = maximoMs;
+    }
+
+    public String getHuella() {
+        return huella;
+    }
+
+    public long getEjecuciones() {
+        return ejecuciones;
+    }
+
+    public long getFilas() {
+        return filas;
+    }
+
+    public long getFilasEscritas() {
+        return filasEscritas;
+    }
+
+    public double getConexionPromedioMs() {
+        return conexionPromedioMs;
+    }
+
+    public double getEjecucionPromedioMs() {
+        return ejecucionPromedioMs;
+    }
+
+    public double getLecturaPromedioMs() {
+        return lecturaPromedioMs;
+    }
+
+    public double getFilasPorSegundo() {
+        return filasPorSegundo;
+    }
+
+    public double getP50Ms() {
+        return p50Ms;
+    }
+
+    public double getP95Ms() {
+        return p95Ms;
+    }
+
+    public double getP99Ms() {
+        return p99Ms;
+    }
+
+    public double getMaximoMs() {
+        return maximoMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d ejecuciones, %d filas, %d escritas, ejecución p50=%.2f p95=%.2f p99=%.2f máx=%.2f ms, %.0f filas/s",
+                huella, ejecuciones, filas, filasEscritas, p50Ms, p95Ms, p99Ms, maximoMs, filasPorSegundo);
+    }
+}
@@ -0,0 +1,309 @@
+package TablaBD.app.com;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Marcador de una celda con un objeto grande (BLOB, CLOB, VARBINARY(MAX),
+ * NVARCHAR(MAX), TEXT, ...) que todavía no se ha leído. Guarda solo la clave
+ * primaria de su fila y el tamaño del valor en bytes; el valor se consulta la
+ * primera vez que se pide con {@link #obtener()} y se guarda en una caché
+ * acotada en bytes compartida por todos los modelos.
+ *
+ * <p>
+ * Los marcadores los crea {@link ModeloDatos#cargarConObjetosDiferidos(String)}.
+ * Las escrituras que pasan por {@link Consulta}, {@link EscrituraLotes} y
+ * {@link ConsultaAsincrona} descartan de la caché los valores de las tablas
+ * modificadas.</p>
+ *
+ * @authors capistran y díaz
+ * @version 1.0
+ */
+public final class ValorDiferido implements Comparable<ValorDiferido> {
+
+    private static final int TAMANO_GRANDE = 8000; // Tamaño declarado a partir del cual un VARCHAR o VARBINARY se difiere
+    private static final Map<Clave, Object> CACHE = new LinkedHashMap<>(256, 0.75f, true); // Valores leídos, en orden LRU
+    private static long maximoBytes = 32L * 1024 * 1024; // Bytes que puede ocupar la caché
+    private static long bytesEnCache; // Bytes estimados de los valores guardados
+
+    // Atributos
+    private final Origen origen; // Tabla y columna del valor, compartido por la columna
+    private final Object[] clave; // Valores de la clave primaria de la fila
+    private final long longitud; // Tamaño del valor en bytes
+
+    /**
+     * Tabla y columna de los valores diferidos de una carga, con la consulta
+     * que lee uno de ellos.
+     */
+    record Origen(PerfilConexion perfil, String tabla, String columna, String sql, boolean binario) {
+
+        /**
+         * Crea el origen de una columna.
+         *
+         * @param perfil Perfil con el que se leen los valores.
+         * @param tabla Nombre de la tabla.
+         * @param columna Columna diferida.
+         * @param tipo Tipo JDBC de la columna.
+         * @param clavesPrimarias Columnas de la clave primaria.
+         * @param dialecto Dialecto del perfil.
+         * @return El origen.
+         */
+        static Origen de(PerfilConexion perfil, String tabla, String columna, int tipo, List<String> clavesPrimarias, Dialecto dialecto) {
+            StringBuilder sql = new StringBuilder("SELECT ").append(dialecto.citar(columna)).append(" FROM ").append(tabla);
+            for (int i = 0; i < clavesPrimarias.size(); i++) {
+                sql.append(i == 0 ? " WHERE " : " AND ").append(dialecto.citar(clavesPrimarias.get(i))).append(" = ?");
+            }
+            return new Origen(perfil, tabla, columna, sql.toString(), esBinario(tipo));
+        }
+    }
+
+    /**
+     * Clave de un valor en la caché.
+     */
+    private record Clave(Origen origen, List<Object> clave) {
+    }
+
+    /**
+     * Crea un marcador.
+     *
+     * @param origen Tabla y columna del valor.
+     * @param clave Valores de la clave primaria de la fila.
+     * @param longitud Tamaño del valor en bytes.
+     */
+    ValorDiferido(Origen origen, Object[] clave, long longitud) {
+        this.origen = origen;
+        this.clave = clave;
+        this.longitud = longitud;
+    }
+
+    /**
+     * Indica si una columna debe diferirse según su tipo y tamaño declarado.
+     *
+     * @param tipo Tipo JDBC de la columna.
+     * @param tamano Tamaño declarado de la columna.
+     * @return {@code true} si la columna guarda objetos grandes.
+     */
+    static boolean esGrande(int tipo, int tamano) {
+        return switch (tipo) {
+            case Types.BLOB, Types.CLOB, Types.NCLOB, Types.LONGVARBINARY, Types.LONGVARCHAR, Types.LONGNVARCHAR,
+                 Types.SQLXML ->
+                true;
+            case Types.VARBINARY, Types.VARCHAR, Types.NVARCHAR ->
+                tamano > TAMANO_GRANDE || tamano <= 0;
+            default ->
+                false;
+        };
+    }
+
+    /**
+     * Indica si un tipo JDBC es binario.
+     */
+    private static boolean esBinario(int tipo) {
+        return tipo == Types.BLOB || tipo == Types.LONGVARBINARY || tipo == Types.VARBINARY || tipo == Types.BINARY;
+    }
+
+    /**
+     * Obtiene el valor, consultándolo si no está en la caché.
+     *
+     * @return El valor: {@code byte[]} en columnas binarias y {@code String}
+     * en las de texto.
+     * @throws SQLException Si falla la consulta o la fila ya no existe.
+     */
+    public Object obtener() throws SQLException {
+        Clave k = new Clave(origen, Arrays.asList(clave));
+        Object valor = enCache(k);
+        if (valor != null) {
+            return valor;
+        }
+        Connection conn = origen.perfil().getConexion();
+        try {
+            PreparedStatement pstmt = CacheSentencias.preparar(conn, origen.sql());
+            pstmt.clearParameters();
+            for (int i = 0; i < clave.length; i++) {
+                pstmt.setObject(i + 1, clave[i]);
+            }
+            long inicio = System.nanoTime();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                MetricasConsulta.registrarEjecucion(origen.sql(), System.nanoTime() - inicio);
+                if (!rs.next()) {
+                    throw new SQLException("La fila de " + origen.tabla() + " con clave " + Arrays.toString(clave) + " ya no existe");
+                }
+                valor = origen.binario() ? rs.getBytes(1) : rs.getString(1);
+            }
+        } finally {
+            PerfilConexion.liberar(conn);
+        }
+        if (valor != null) {
+            guardar(k, valor);
+        }
+        return valor;
+    }
+
+    /**
+     * Obtiene el tamaño del valor en bytes, sin leerlo.
+     *
+     * @return Bytes del valor.
+     */
+    public long getLongitud() {
+        return longitud;
+    }
+
+    /**
+     * Obtiene la columna del valor.
+     *
+     * @return Nombre de la columna.
+     */
+    public String getColumna() {
+        return origen.columna();
+    }
+
+    /**
+     * Indica si el valor ya está en la caché, de modo que {@link #obtener()}
+     * no consultará la base de datos.
+     *
+     * @return {@code true} si el valor está leído.
+     */
+    public boolean isLeido() {
+        synchronized (CACHE) {
+            return CACHE.containsKey(new Clave(origen, Arrays.asList(clave)));
+        }
+    }
+
+    /**
+     * Ordena los marcadores por tamaño.
+     */
+    @Override
+    public int compareTo(ValorDiferido otro) {
+        return Long.compare(longitud, otro.longitud);
+    }
+
+    /**
+     * Devuelve el texto del valor si ya se leyó; en caso contrario, una
+     * descripción con su tamaño, sin consultar la base de datos.
+     */
+    @Override
+    public String toString() {
+        Object valor;
+        synchronized (CACHE) {
+            valor = CACHE.get(new Clave(origen, Arrays.asList(clave)));
+        }
+        if (valor instanceof String texto) {
+            return texto;
+        }
+        return "(" + (origen.binario() ? "binario" : "texto") + ", " + longitud + " bytes)";
+    }
+
+    /**
+     * Busca un valor en la caché.
+     */
+    private static Object enCache(Clave k) {
+        synchronized (CACHE) {
+            return CACHE.get(k);
+        }
+    }
+
+    /**
+     * Guarda un valor y descarta los menos usados si se excede el máximo.
+     * Los valores mayores que la caché completa no se guardan.
+     */
+    private static void guardar(Clave k, Object valor) {
+        long bytes = bytesDe(valor);
+        synchronized (CACHE) {
+            if (bytes > maximoBytes) {
+                return;
+            }
+            Object anterior = CACHE.put(k, valor);
+            bytesEnCache += bytes - (anterior == null ? 0 : bytesDe(anterior));
+            Iterator<Object> menosUsados = CACHE.values().iterator();
+            while (bytesEnCache > maximoBytes && menosUsados.hasNext()) {
+                bytesEnCache -= bytesDe(menosUsados.next());
+                menosUsados.remove();
+            }
+        }
+    }
+
+    /**
+     * Tamaño estimado de un valor en el heap.
+     */
+    private static long bytesDe(Object valor) {
+        return valor instanceof byte[] b ? 16 + b.length : 40 + 2L * ((String) valor).length();
+    }
+
+    /**
+     * Establece los bytes que puede ocupar la caché de valores leídos.
+     *
+     * @param bytes Bytes de la caché; cero la desactiva.
+     */
+    public static void setMaximoBytesCache(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("El máximo no puede ser negativo");
+        }
+        synchronized (CACHE) {
+            maximoBytes = bytes;
+            Iterator<Object> menosUsados = CACHE.values().iterator();
+            while (bytesEnCache > maximoBytes && menosUsados.hasNext()) {
+                bytesEnCache -= bytesDe(menosUsados.next());
+                menosUsados.remove();
+            }
+        }
+    }
+
+    /**
+     * Descarta los valores guardados de una tabla.
+     *
+     * @param tabla Nombre de la tabla, puede incluir base o esquema.
+     */
+    public static void invalidarTabla(String tabla) {
+        invalidar(Set.of(CacheResultados.normalizar(tabla)));
+    }
+
+    /**
+     * Descarta los valores de las tablas que modifica una sentencia. Si no se
+     * reconoce ninguna tabla, se descarta todo.
+     *
+     * @param sql Texto SQL de la sentencia de escritura.
+     */
+    public static void invalidarPorEscritura(String sql) {
+        Set<String> tablas = CacheResultados.tablasDe(sql);
+        if (tablas.isEmpty()) {
+            limpiar();
+            return;
+        }
+        invalidar(tablas);
+    }
+
+    /**
+     * Descarta los valores de un conjunto de tablas normalizadas.
+     */
+    private static void invalidar(Set<String> tablas) {
+        synchronized (CACHE) {
+            Iterator<Map.Entry<Clave, Object>> entradas = CACHE.entrySet().iterator();
+            while (entradas.hasNext()) {
+                Map.Entry<Clave, Object> entrada = entradas.next();
+                if (tablas.contains(CacheResultados.normalizar(entrada.getKey().origen().tabla()))) {
+                    bytesEnCache -= bytesDe(entrada.getValue());
+                    entradas.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Descarta todos los valores guardados.
+     */
+    public static void limpiar() {
+        synchronized (CACHE) {
+            CACHE.clear();
+            bytesEnCache = 0;
+        }
+    }
+}